@@ -0,0 +1,290 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+/**
+ * Agregados do sistema bancário mantidos de forma incremental: a cada alteração de saldo,
+ * a conta soma a variação aos totais do seu tipo, e o titular é marcado para reordenação
+ * no ranking de clientes. Assim as consultas não precisam percorrer clientes e contas.
+ * O ranking é uma árvore de estatística de ordem (RankingSaldos), que responde também às consultas
+ * de maiores e menores saldos e de percentis sem percorrer os clientes.
+ *
+ * Os clientes alterados são reposicionados na árvore pela próxima consulta ou, quando a fila de
+ * pendentes passa de LIMITE_PENDENTES, pelas próprias operações que alteram saldos: a operação que
+ * encontra a fila acima do limite ajuda a reduzi-la, se a trava do ranking estiver livre. Uma operação
+ * que altera saldos nunca espera pela trava. A fila tem no máximo um registro por cliente, pois um
+ * cliente já pendente não é enfileirado de novo. As consultas esvaziam a fila em lotes de
+ * LOTE_REORDENACAO e liberam a trava entre um lote e outro, de modo que nenhuma escrita que ajuda a
+ * reordenar fica presa atrás de uma consulta que paga todo o atraso acumulado.
+ */
+public class AgregadosBanco {
+    private static final int LIMITE_PENDENTES = 1024; // Clientes pendentes a partir dos quais as escritas ajudam a reordenar
+    private static final int LOTE_AUXILIO = 64;       // Clientes reposicionados, no mínimo, por uma escrita que encontra a fila acima do limite
+    private static final int LOTE_REORDENACAO = 256;  // Clientes reposicionados, no máximo, a cada aquisição da trava
+
+    private final Map<Class<? extends Conta>, Tipo> tipos = new ConcurrentHashMap<>(); // Totais por tipo concreto de conta
+    private final RankingSaldos ranking = new RankingSaldos(); // Clientes ordenados pelo saldo total (protegido por trava)
+    private final ReentrantLock trava = new ReentrantLock(); // Protege o ranking
+    private final Queue<Cliente> pendentes = new ConcurrentLinkedQueue<>(); // Clientes cujo saldo mudou desde a última reordenação
+    private final AtomicInteger quantidadePendentes = new AtomicInteger(); // Tamanho da fila de pendentes
+
+    /**
+     * Totais de um tipo concreto de conta. Cada conta registrada guarda uma referência ao seu
+     * Tipo, evitando a busca no mapa a cada operação.
+     */
+    static final class Tipo {
+        final LongAdder saldo = new LongAdder();  // Soma dos saldos, em centavos
+        final LongAdder contas = new LongAdder(); // Quantidade de contas
+    }
+
+    /**
+     * Posição de um cliente no ranking: saldo total no momento da última reordenação e
+     * número de cadastro, que desempata clientes com o mesmo saldo pela ordem de cadastro.
+     */
+    record Chave(long saldo, long sequencia) implements Comparable<Chave> {
+        @Override
+        public int compareTo(Chave outra) {
+            int c = Long.compare(saldo, outra.saldo);
+            return c != 0 ? c : Long.compare(sequencia, outra.sequencia);
+        }
+    }
+
+    /**
+     * Incorpora uma conta recém-registrada aos totais do seu tipo.
+     * @param conta A conta registrada no sistema.
+     * @param sistema O sistema bancário ao qual a conta passa a reportar suas movimentações.
+     */
+    void adicionarConta(Conta conta, SistemaBancario sistema) {
+        Tipo tipo = tipos.computeIfAbsent(conta.getClass(), c -> new Tipo());
+        conta.vincularSistema(sistema, tipo);
+        tipo.contas.increment();
+    }
+
+    /**
+     * Retira dos totais uma conta removida do sistema.
+     * @param conta A conta removida.
+     */
+    void removerConta(Conta conta) {
+        Tipo tipo = tipos.get(conta.getClass());
+        conta.desvincularSistema();
+        tipo.contas.decrement();
+    }
+
+    /**
+     * Insere um cliente recém-cadastrado no ranking.
+     * @param cliente O cliente cadastrado.
+     * @param sequencia A ordem de cadastro do cliente, usada para desempate.
+     */
+    void adicionarCliente(Cliente cliente, long sequencia) {
+        trava.lock();
+        try {
+            Chave chave = new Chave(cliente.calcularSaldoTotalCentavos(), sequencia);
+            cliente.setChaveRanking(chave);
+            ranking.inserir(chave, cliente);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Marca o cliente para reordenação no ranking. Chamado a cada alteração de saldo;
+     * enfileira o cliente apenas se ele ainda não estiver pendente. Com a fila acima de
+     * LIMITE_PENDENTES, reposiciona pendentes até voltar ao limite (entre LOTE_AUXILIO e
+     * LOTE_REORDENACAO). Nunca espera pela trava do ranking: se outra thread a detém, ela cuida da fila.
+     * @param cliente O titular da conta alterada.
+     */
+    void marcarAlterado(Cliente cliente) {
+        if (cliente.marcarPendenteRanking()) {
+            pendentes.add(cliente);
+            int quantidade = quantidadePendentes.incrementAndGet();
+            if (quantidade <= LIMITE_PENDENTES || !trava.tryLock()) {
+                return;
+            }
+            try {
+                int excesso = quantidadePendentes.get() - LIMITE_PENDENTES;
+                reordenarPendentes(Math.max(LOTE_AUXILIO, Math.min(excesso, LOTE_REORDENACAO)));
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    /**
+     * Calcula a custódia de um tipo de conta, somando os totais dos tipos concretos compatíveis.
+     * @param tipoConta A classe do tipo de conta.
+     * @return O total em custódia, em centavos.
+     */
+    long custodia(Class<? extends Conta> tipoConta) {
+        long total = 0;
+        for (Map.Entry<Class<? extends Conta>, Tipo> e : tipos.entrySet()) {
+            if (tipoConta.isAssignableFrom(e.getKey())) {
+                total += e.getValue().saldo.sum();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Retorna a quantidade de contas de um tipo, contando os tipos concretos compatíveis.
+     * @param tipoConta A classe do tipo de conta.
+     * @return O número de contas.
+     */
+    long quantidadeContas(Class<? extends Conta> tipoConta) {
+        long total = 0;
+        for (Map.Entry<Class<? extends Conta>, Tipo> e : tipos.entrySet()) {
+            if (tipoConta.isAssignableFrom(e.getKey())) {
+                total += e.getValue().contas.sum();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Retorna o cliente de maior saldo total; em caso de empate, o cadastrado primeiro.
+     * @return O cliente, ou null se não houver clientes.
+     */
+    Cliente maiorSaldo() {
+        List<Cliente> maiores = maioresSaldos(1);
+        return maiores.isEmpty() ? null : maiores.get(0);
+    }
+
+    /**
+     * Retorna o cliente de menor saldo total; em caso de empate, o cadastrado primeiro.
+     * @return O cliente, ou null se não houver clientes.
+     */
+    Cliente menorSaldo() {
+        reordenarEmLotes();
+        trava.lock();
+        try {
+            reordenarPendentes(LOTE_REORDENACAO);
+            return ranking.tamanho() == 0 ? null : ranking.cliente(0);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Lista os clientes de maior saldo total, do maior para o menor; entre saldos iguais, os cadastrados
+     * primeiro. Custa O(k + log n), além da reordenação dos clientes alterados.
+     * @param k A quantidade de clientes.
+     * @return Até k clientes.
+     */
+    List<Cliente> maioresSaldos(int k) {
+        reordenarEmLotes();
+        trava.lock();
+        try {
+            reordenarPendentes(LOTE_REORDENACAO);
+            int n = ranking.tamanho();
+            k = Math.min(k, n);
+            if (k <= 0) {
+                return new ArrayList<>();
+            }
+            // O último saldo incluído pode ter empates além do corte; deles entram os cadastrados primeiro,
+            // que ficam no início do grupo de saldos iguais
+            long corte = ranking.chave(n - k).saldo();
+            int inicioGrupo = ranking.posicao(new Chave(corte, Long.MIN_VALUE));
+            int fimGrupo = ranking.posicao(new Chave(corte, Long.MAX_VALUE));
+            List<Cliente> acima = ranking.listar(fimGrupo, n);
+            List<Cliente> maiores = new ArrayList<>(k);
+            int fim = acima.size();
+            while (fim > 0) { // Percorre os saldos acima do corte do maior para o menor, mantendo a ordem de cadastro nos empates
+                long saldo = acima.get(fim - 1).getChaveRanking().saldo();
+                int inicio = fim - 1;
+                while (inicio > 0 && acima.get(inicio - 1).getChaveRanking().saldo() == saldo) {
+                    inicio--;
+                }
+                maiores.addAll(acima.subList(inicio, fim));
+                fim = inicio;
+            }
+            maiores.addAll(ranking.listar(inicioGrupo, inicioGrupo + k - maiores.size()));
+            return maiores;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Lista os clientes de menor saldo total, do menor para o maior; entre saldos iguais, os cadastrados
+     * primeiro. Custa O(k + log n), além da reordenação dos clientes alterados.
+     * @param k A quantidade de clientes.
+     * @return Até k clientes.
+     */
+    List<Cliente> menoresSaldos(int k) {
+        reordenarEmLotes();
+        trava.lock();
+        try {
+            reordenarPendentes(LOTE_REORDENACAO);
+            return ranking.listar(0, Math.max(0, k));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Calcula um percentil dos saldos totais dos clientes pelo método do posto mais próximo, em O(log n).
+     * @param p O percentil, entre 0 e 1.
+     * @return O saldo total no percentil, em centavos, ou zero se não houver clientes.
+     */
+    long percentilSaldo(double p) {
+        if (p < 0 || p > 1 || Double.isNaN(p)) {
+            throw new IllegalArgumentException("Percentil fora do intervalo [0, 1]: " + p);
+        }
+        reordenarEmLotes();
+        trava.lock();
+        try {
+            reordenarPendentes(LOTE_REORDENACAO);
+            int n = ranking.tamanho();
+            if (n == 0) {
+                return 0;
+            }
+            int posto = (int) Math.ceil(p * n);
+            return ranking.chave(Math.max(posto, 1) - 1).saldo();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Reposiciona os clientes pendentes no início de uma consulta, em lotes de LOTE_REORDENACAO, liberando
+     * a trava entre os lotes. Para quando restar no máximo um lote dos pendentes contados no início:
+     * a consulta o reposiciona com a trava que mantém para responder. Os clientes enfileirados depois
+     * do início ficam para a consulta seguinte, de modo que escritas contínuas não adiam a resposta.
+     */
+    private void reordenarEmLotes() {
+        for (int restantes = quantidadePendentes.get(); restantes > LOTE_REORDENACAO; restantes -= LOTE_REORDENACAO) {
+            trava.lock();
+            try {
+                reordenarPendentes(LOTE_REORDENACAO);
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reposiciona no ranking os clientes cujo saldo mudou, em O(log n) cada. Chamado com a trava.
+     * A marca de pendência é limpa antes da leitura do saldo, de modo que uma alteração
+     * concorrente volta a enfileirar o cliente em vez de se perder.
+     * @param maximo A quantidade máxima de clientes reposicionados.
+     */
+    private void reordenarPendentes(int maximo) {
+        Cliente cliente;
+        for (int i = 0; i < maximo && (cliente = pendentes.poll()) != null; i++) {
+            quantidadePendentes.decrementAndGet();
+            cliente.limparPendenteRanking();
+            Chave antiga = cliente.getChaveRanking();
+            long saldo = cliente.calcularSaldoTotalCentavos();
+            if (antiga.saldo() != saldo) {
+                Chave nova = new Chave(saldo, antiga.sequencia());
+                ranking.remover(antiga);
+                cliente.setChaveRanking(nova);
+                ranking.inserir(nova, cliente);
+            }
+        }
+    }
+}
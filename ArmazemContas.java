@@ -0,0 +1,450 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+/**
+ * Armazém de contas fora do heap, organizado em colunas (número, tipo, titular, saldo e limite),
+ * para bancos com dezenas de milhões de contas. Cada conta ocupa 25 bytes em ByteBuffers diretos,
+ * mais 8 bytes por posição do índice de números, sem nenhum objeto por conta: o coletor de lixo
+ * não percorre as contas, e as consultas agregadas são varreduras sequenciais da coluna de saldos.
+ *
+ * As colunas são divididas em blocos de tamanho fixo, de modo que o crescimento não copia as
+ * contas já gravadas. Os saldos são alterados por compare-and-set sobre a própria coluna, com as
+ * mesmas regras das classes de conta (limite da conta corrente, taxa de depósito com saldo negativo
+ * e imposto no saque da conta de investimento). O armazém não grava jornal de transações nem log
+ * de operações; o acesso a uma conta individual é feito por uma Visao reaproveitável.
+ */
+public class ArmazemContas {
+    private static final int BITS_BLOCO = 20; // Cada bloco guarda 2^20 contas (25 MiB por bloco)
+    private static final int TAMANHO_BLOCO = 1 << BITS_BLOCO;
+    private static final int MASCARA_BLOCO = TAMANHO_BLOCO - 1;
+    private static final int CAPACIDADE_INICIAL_INDICE = 1024; // Posições iniciais do índice (potência de 2)
+    private static final float FATOR_CARGA = 0.5f; // Ocupação máxima do índice antes de redimensionar
+    private static final VarHandle SALDO =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder()); // CAS sobre a coluna de saldos
+
+    private final StampedLock trava = new StampedLock(); // Serializa inserções; buscas usam leitura otimista
+    private volatile Bloco[] blocos = new Bloco[0]; // Blocos de colunas, na ordem das posições
+    private volatile ByteBuffer indice; // Pares (número, posição + 1) com sondagem linear; 0 indica posição livre
+    private volatile int tamanho; // Quantidade de contas; publicada após a gravação das colunas
+    private int limiteIndice; // Quantidade de contas que dispara o redimensionamento do índice
+
+    /**
+     * Colunas de um bloco de contas, cada uma em um ByteBuffer direto na ordem nativa de bytes.
+     */
+    private static final class Bloco {
+        final ByteBuffer numeros = alocar(Integer.BYTES);  // Número de cada conta
+        final ByteBuffer tipos = alocar(Byte.BYTES);       // Código do tipo de conta (o mesmo de Persistencia)
+        final ByteBuffer titulares = alocar(Integer.BYTES); // Índice do titular, definido por quem insere a conta
+        final ByteBuffer saldos = alocar(Long.BYTES);      // Saldo em centavos
+        final ByteBuffer limites = alocar(Long.BYTES);     // Crédito disponível além do saldo, em centavos
+
+        private static ByteBuffer alocar(int bytesPorConta) {
+            return ByteBuffer.allocateDirect(TAMANHO_BLOCO * bytesPorConta).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Constrói um armazém vazio.
+     */
+    public ArmazemContas() {
+        alocarIndice(CAPACIDADE_INICIAL_INDICE);
+    }
+
+    /**
+     * Copia para um novo armazém as contas de um sistema bancário, com saldos e limites atuais.
+     * O titular de cada conta é a posição do cliente em getClientes().
+     * @param banco O sistema bancário de origem.
+     * @return O armazém com as contas copiadas.
+     */
+    public static ArmazemContas copiar(SistemaBancario banco) {
+        ArmazemContas armazem = new ArmazemContas();
+        List<Cliente> clientes = banco.getClientes();
+        for (int titular = 0; titular < clientes.size(); titular++) {
+            for (Conta conta : clientes.get(titular).getContas()) {
+                long limite = conta instanceof ContaCorrente corrente ? corrente.getLimiteCreditoCentavos() : 0;
+                armazem.adicionar(conta.getNumero(), Persistencia.codigoTipo(conta), titular, limite, conta.getSaldoCentavos());
+            }
+        }
+        return armazem;
+    }
+
+    /**
+     * Adiciona uma conta ao armazém, desde que ainda não exista outra com o mesmo número.
+     * @param numero O número da conta.
+     * @param tipo O código do tipo de conta (Persistencia.CORRENTE, POUPANCA, RENDA_FIXA ou INVESTIMENTO).
+     * @param titular O índice do titular.
+     * @param limite O crédito disponível além do saldo, em centavos (zero fora da conta corrente).
+     * @param saldo O saldo inicial, em centavos.
+     * @return A posição da conta no armazém, ou -1 se o número já estiver em uso.
+     */
+    public int adicionar(int numero, byte tipo, int titular, long limite, long saldo) {
+        if (tipo < Persistencia.CORRENTE || tipo > Persistencia.INVESTIMENTO) {
+            throw new IllegalArgumentException("Tipo de conta inválido: " + tipo);
+        }
+        long carimbo = trava.writeLock();
+        try {
+            if (procurar(indice, numero) >= 0) {
+                return -1; // Número de conta já utilizado
+            }
+            int posicao = tamanho;
+            int b = posicao >>> BITS_BLOCO;
+            if (b == blocos.length) {
+                Bloco[] novos = Arrays.copyOf(blocos, b + 1);
+                novos[b] = new Bloco();
+                blocos = novos;
+            }
+            Bloco bloco = blocos[b];
+            int i = posicao & MASCARA_BLOCO;
+            bloco.numeros.putInt(i << 2, numero);
+            bloco.tipos.put(i, tipo);
+            bloco.titulares.putInt(i << 2, titular);
+            bloco.saldos.putLong(i << 3, saldo);
+            bloco.limites.putLong(i << 3, limite);
+            inserirNoIndice(indice, numero, posicao);
+            tamanho = posicao + 1;
+            if (tamanho > limiteIndice) {
+                redimensionarIndice();
+            }
+            return posicao;
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    /**
+     * Retorna a quantidade de contas no armazém.
+     * @return O número de contas.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Retorna os bytes reservados fora do heap pelas colunas e pelo índice.
+     * @return O total de memória direta ocupada pelo armazém.
+     */
+    public long bytesForaDoHeap() {
+        return (long) blocos.length * TAMANHO_BLOCO * (Integer.BYTES * 2 + Byte.BYTES + Long.BYTES * 2) + indice.capacity();
+    }
+
+    /**
+     * Busca a posição da conta com o número informado.
+     * @param numero O número da conta.
+     * @return A posição da conta, ou -1 se não existir.
+     */
+    public int posicao(int numero) {
+        long carimbo = trava.tryOptimisticRead();
+        int posicao = procurar(indice, numero);
+        if (!trava.validate(carimbo)) {
+            carimbo = trava.readLock();
+            try {
+                posicao = procurar(indice, numero);
+            } finally {
+                trava.unlockRead(carimbo);
+            }
+        }
+        return posicao;
+    }
+
+    /**
+     * Retorna o saldo da conta em uma posição.
+     * @param posicao A posição da conta.
+     * @return O saldo, em centavos.
+     */
+    public long saldo(int posicao) {
+        return (long) SALDO.getVolatile(blocos[posicao >>> BITS_BLOCO].saldos, (posicao & MASCARA_BLOCO) << 3);
+    }
+
+    /**
+     * Deposita um valor na conta de uma posição. Na conta corrente com saldo negativo, desconta a mesma
+     * taxa de ContaCorrente.
+     * @param posicao A posição da conta.
+     * @param centavos O valor depositado, em centavos (não negativo).
+     * @return O saldo resultante, em centavos.
+     */
+    public long depositar(int posicao, long centavos) {
+        if (centavos < 0) {
+            throw new IllegalArgumentException("Valor de depósito negativo: " + centavos);
+        }
+        Bloco bloco = blocos[posicao >>> BITS_BLOCO];
+        int i = posicao & MASCARA_BLOCO;
+        boolean corrente = bloco.tipos.get(i) == Persistencia.CORRENTE;
+        long atual;
+        long novo;
+        do {
+            atual = (long) SALDO.getVolatile(bloco.saldos, i << 3);
+            novo = atual + centavos - (corrente ? ContaCorrente.taxaDeposito(atual) : 0);
+        } while (!SALDO.weakCompareAndSet(bloco.saldos, i << 3, atual, novo));
+        return novo;
+    }
+
+    /**
+     * Saca um valor da conta de uma posição, respeitando o limite da conta e cobrando o imposto
+     * da conta de investimento, como Conta.sacar.
+     * @param posicao A posição da conta.
+     * @param centavos O valor sacado, em centavos (não negativo).
+     * @return O saldo resultante, ou Conta.SALDO_INSUFICIENTE se o saque não foi realizado.
+     */
+    public long sacar(int posicao, long centavos) {
+        if (centavos < 0) {
+            throw new IllegalArgumentException("Valor de saque negativo: " + centavos);
+        }
+        Bloco bloco = blocos[posicao >>> BITS_BLOCO];
+        int i = posicao & MASCARA_BLOCO;
+        long encargos = bloco.tipos.get(i) == Persistencia.INVESTIMENTO ? ContaInvestimento.impostoNoSaque(centavos) : 0;
+        long limite = bloco.limites.getLong(i << 3);
+        long atual;
+        long novo;
+        do {
+            atual = (long) SALDO.getVolatile(bloco.saldos, i << 3);
+            if (centavos > atual + limite) {
+                return Conta.SALDO_INSUFICIENTE;
+            }
+            novo = atual - centavos - encargos;
+        } while (!SALDO.weakCompareAndSet(bloco.saldos, i << 3, atual, novo));
+        return novo;
+    }
+
+    /**
+     * Soma os saldos das contas de cada tipo em uma única varredura das colunas de tipo e saldo.
+     * Saldos alterados durante a varredura podem ou não ser incluídos, como nos agregados do sistema bancário.
+     * @return A custódia em centavos, indexada pelo código do tipo (a posição 0 fica zerada).
+     */
+    public long[] custodiaPorTipo() {
+        long[] custodia = new long[Persistencia.INVESTIMENTO + 1];
+        Bloco[] blocos = this.blocos;
+        int restantes = tamanho;
+        for (int b = 0; restantes > 0; b++, restantes -= TAMANHO_BLOCO) {
+            ByteBuffer tipos = blocos[b].tipos;
+            ByteBuffer saldos = blocos[b].saldos;
+            int n = Math.min(restantes, TAMANHO_BLOCO);
+            for (int i = 0; i < n; i++) {
+                custodia[tipos.get(i)] += saldos.getLong(i << 3);
+            }
+        }
+        return custodia;
+    }
+
+    /**
+     * Soma os saldos das contas de um tipo.
+     * @param tipo O código do tipo de conta.
+     * @return A custódia do tipo, em centavos.
+     */
+    public long custodia(byte tipo) {
+        long total = 0;
+        Bloco[] blocos = this.blocos;
+        int restantes = tamanho;
+        for (int b = 0; restantes > 0; b++, restantes -= TAMANHO_BLOCO) {
+            ByteBuffer tipos = blocos[b].tipos;
+            ByteBuffer saldos = blocos[b].saldos;
+            int n = Math.min(restantes, TAMANHO_BLOCO);
+            for (int i = 0; i < n; i++) {
+                long saldo = saldos.getLong(i << 3);
+                total += tipos.get(i) == tipo ? saldo : 0;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Soma os saldos de todas as contas, percorrendo apenas a coluna de saldos.
+     * @return A custódia total, em centavos.
+     */
+    public long custodiaTotal() {
+        long total = 0;
+        Bloco[] blocos = this.blocos;
+        int restantes = tamanho;
+        for (int b = 0; restantes > 0; b++, restantes -= TAMANHO_BLOCO) {
+            ByteBuffer saldos = blocos[b].saldos;
+            int n = Math.min(restantes, TAMANHO_BLOCO);
+            for (int i = 0; i < n; i++) {
+                total += saldos.getLong(i << 3);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Calcula o saldo médio das contas, com o mesmo arredondamento de SistemaBancario.calcularSaldoMedio.
+     * @return O saldo médio ou zero se não houver contas.
+     */
+    public double calcularSaldoMedio() {
+        int n = tamanho;
+        long total = custodiaTotal();
+        return n == 0 ? 0 : Dinheiro.paraReais(Dinheiro.dividir(total, n, Dinheiro.ARREDONDAMENTO_RENDIMENTO));
+    }
+
+    /**
+     * Cria uma visão reaproveitável para consultar e movimentar contas do armazém.
+     * @return A visão, ainda sem conta posicionada.
+     */
+    public Visao visao() {
+        return new Visao();
+    }
+
+    /**
+     * Visão leve (flyweight) de uma conta do armazém: um único objeto é reposicionado sobre contas
+     * diferentes, sem criar objetos por conta. Não deve ser compartilhada entre threads.
+     */
+    public final class Visao {
+        private int posicao = -1; // Posição da conta atual, ou -1 se nenhuma
+
+        private Visao() {
+        }
+
+        /**
+         * Posiciona a visão sobre a conta com o número informado.
+         * @param numero O número da conta.
+         * @return true se a conta existe; caso contrário, a visão fica sem conta posicionada.
+         */
+        public boolean posicionar(int numero) {
+            posicao = ArmazemContas.this.posicao(numero);
+            return posicao >= 0;
+        }
+
+        /**
+         * Posiciona a visão sobre a conta de uma posição, como em uma varredura de 0 a tamanho() - 1.
+         * @param posicao A posição da conta.
+         */
+        public void posicionarEm(int posicao) {
+            if (posicao < 0 || posicao >= tamanho) {
+                throw new IndexOutOfBoundsException(posicao);
+            }
+            this.posicao = posicao;
+        }
+
+        private Bloco bloco() {
+            if (posicao < 0) {
+                throw new IllegalStateException("Nenhuma conta posicionada");
+            }
+            return blocos[posicao >>> BITS_BLOCO];
+        }
+
+        /**
+         * Retorna o número da conta posicionada.
+         */
+        public int getNumero() {
+            return bloco().numeros.getInt((posicao & MASCARA_BLOCO) << 2);
+        }
+
+        /**
+         * Retorna o código do tipo da conta posicionada.
+         */
+        public byte getTipo() {
+            return bloco().tipos.get(posicao & MASCARA_BLOCO);
+        }
+
+        /**
+         * Retorna o índice do titular da conta posicionada.
+         */
+        public int getTitular() {
+            return bloco().titulares.getInt((posicao & MASCARA_BLOCO) << 2);
+        }
+
+        /**
+         * Retorna o limite de crédito da conta posicionada, em centavos.
+         */
+        public long getLimiteCentavos() {
+            return bloco().limites.getLong((posicao & MASCARA_BLOCO) << 3);
+        }
+
+        /**
+         * Retorna o saldo da conta posicionada, em centavos.
+         */
+        public long getSaldoCentavos() {
+            bloco();
+            return saldo(posicao);
+        }
+
+        /**
+         * Retorna o saldo da conta posicionada, em reais.
+         */
+        public double getSaldo() {
+            return Dinheiro.paraReais(getSaldoCentavos());
+        }
+
+        /**
+         * Deposita na conta posicionada.
+         * @param centavos O valor depositado, em centavos.
+         * @return O saldo resultante, em centavos.
+         */
+        public long depositar(long centavos) {
+            bloco();
+            return ArmazemContas.this.depositar(posicao, centavos);
+        }
+
+        /**
+         * Saca da conta posicionada.
+         * @param centavos O valor sacado, em centavos.
+         * @return O saldo resultante, ou Conta.SALDO_INSUFICIENTE se o saque não foi realizado.
+         */
+        public long sacar(long centavos) {
+            bloco();
+            return ArmazemContas.this.sacar(posicao, centavos);
+        }
+    }
+
+    /**
+     * Percorre o agrupamento da posição ideal até encontrar o número ou uma posição livre.
+     * Os passos são limitados pela capacidade, pois numa leitura otimista o índice pode estar mudando.
+     */
+    private static int procurar(ByteBuffer indice, int numero) {
+        int capacidade = indice.capacity() >>> 3;
+        int mascara = capacidade - 1;
+        int i = ideal(numero, mascara);
+        for (int passos = 0; passos < capacidade; passos++, i = (i + 1) & mascara) {
+            int posicao = indice.getInt((i << 3) + 4) - 1;
+            if (posicao < 0) {
+                return -1;
+            }
+            if (indice.getInt(i << 3) == numero) {
+                return posicao;
+            }
+        }
+        return -1;
+    }
+
+    private static void inserirNoIndice(ByteBuffer indice, int numero, int posicao) {
+        int mascara = (indice.capacity() >>> 3) - 1;
+        int i = ideal(numero, mascara);
+        while (indice.getInt((i << 3) + 4) != 0) {
+            i = (i + 1) & mascara;
+        }
+        indice.putInt(i << 3, numero);
+        indice.putInt((i << 3) + 4, posicao + 1);
+    }
+
+    /**
+     * Calcula a posição ideal de um número no índice, com a mesma dispersão de IndiceContas.
+     */
+    private static int ideal(int numero, int mascara) {
+        int h = numero * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    /**
+     * Dobra a capacidade do índice e reinsere todas as contas, a partir da coluna de números.
+     */
+    private void redimensionarIndice() {
+        ByteBuffer antigo = indice;
+        alocarIndice((antigo.capacity() >>> 3) * 2);
+        ByteBuffer novo = indice;
+        Bloco[] blocos = this.blocos;
+        for (int posicao = 0; posicao < tamanho; posicao++) {
+            int numero = blocos[posicao >>> BITS_BLOCO].numeros.getInt((posicao & MASCARA_BLOCO) << 2);
+            inserirNoIndice(novo, numero, posicao);
+        }
+    }
+
+    private void alocarIndice(int capacidade) {
+        if (capacidade > Integer.MAX_VALUE / 8) {
+            throw new IllegalStateException("Capacidade do índice do armazém esgotada");
+        }
+        indice = ByteBuffer.allocateDirect(capacidade * 8).order(ByteOrder.nativeOrder());
+        limiteIndice = (int) (capacidade * FATOR_CARGA);
+    }
+}
@@ -0,0 +1,455 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+/**
+ * Arquivos de jornais da persistência: o histórico de transações das contas, gravado de forma incremental
+ * ao lado do log de operações, para que os snapshots guardem apenas saldos, fechamentos e cadastros.
+ *
+ * Cada snapshot grava um arquivo "jornais-<sequência>.jrn" com as transações que ele incorporou do log,
+ * agrupadas por conta em blocos de até TRANSACOES_POR_BLOCO transações. Cada bloco aponta para o bloco
+ * anterior da mesma conta (arquivo e posição), e o snapshot guarda, por conta, apenas o último bloco, a
+ * quantidade de transações e o último instante. Assim o tamanho do snapshot e o tempo de recuperação
+ * acompanham a quantidade de contas, e não a de transações: na recuperação, o jornal de cada conta recebe
+ * um Historico que só percorre a cadeia de blocos e lê as transações quando o extrato é consultado.
+ *
+ * Os arquivos nunca são reescritos. Um arquivo gravado por um snapshot que não chegou a ser publicado
+ * (queda entre a gravação dos jornais e a do snapshot) é apagado na abertura; os blocos de contas
+ * removidas permanecem nos arquivos.
+ */
+public final class ArquivoJornais implements Closeable {
+    static final int TRANSACOES_POR_BLOCO = 1024; // Transações de uma conta, no máximo, em cada bloco
+
+    private static final int MAGICO = 0x58424A52; // "XBJR"
+    private static final int VERSAO = 1;
+    private static final String PREFIXO = "jornais-";
+    private static final String SUFIXO = ".jrn";
+    private static final int CABECALHO_ARQUIVO = 4 + 4;              // Mágico e versão
+    private static final int CABECALHO_BLOCO = 4 + 8 + 8 + 4;        // Conta, arquivo e posição do bloco anterior, transações
+    private static final int TAMANHO_TRANSACAO = 8 + 1 + 8 + 8;      // Instante, tipo, valor e saldo
+    private static final int TAMANHO_ESCRITA = 1 << 20;              // Bytes acumulados antes de cada escrita no arquivo
+
+    private final Path diretorio; // Diretório dos arquivos, o mesmo do log e dos snapshots
+    private final Map<Long, FileChannel> canais = new ConcurrentHashMap<>(); // Canais de leitura abertos, por arquivo
+    private volatile boolean fechado;
+
+    /**
+     * Abre os arquivos de jornais do diretório, apagando os temporários e os que não pertencem ao snapshot em uso.
+     * @param diretorio O diretório da persistência.
+     * @param sequenciaSnapshot A sequência do snapshot carregado, ou -1 se não houver snapshot.
+     * @throws IOException Se os arquivos não puderem ser listados ou apagados.
+     */
+    ArquivoJornais(Path diretorio, long sequenciaSnapshot) throws IOException {
+        this.diretorio = diretorio;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(diretorio, PREFIXO + "*")) {
+            for (Path p : ds) {
+                String nome = p.getFileName().toString();
+                if (!nome.endsWith(SUFIXO) || identificador(nome) > sequenciaSnapshot) {
+                    Files.deleteIfExists(p); // Temporário incompleto ou jornais de um snapshot não publicado
+                }
+            }
+        }
+    }
+
+    /**
+     * Cria o histórico persistido de uma conta a partir da referência guardada no snapshot, sem ler os arquivos.
+     * @param numero O número da conta.
+     * @param arquivo O arquivo do último bloco da conta.
+     * @param posicao A posição do último bloco no arquivo.
+     * @param transacoes A quantidade total de transações nos blocos da conta.
+     * @param ultimoInstante O instante da última transação.
+     * @return O histórico, a ser entregue ao jornal da conta.
+     */
+    Historico historico(int numero, long arquivo, long posicao, int transacoes, long ultimoInstante) {
+        return new Historico(numero, arquivo, posicao, transacoes, ultimoInstante);
+    }
+
+    /**
+     * Inicia a gravação do arquivo de jornais de um snapshot.
+     * @param sequencia A sequência do snapshot, que identifica o arquivo.
+     * @return A gravação, que deve ser concluída antes da publicação do snapshot.
+     * @throws IOException Se o arquivo não puder ser criado.
+     */
+    Gravacao gravar(long sequencia) throws IOException {
+        return new Gravacao(sequencia);
+    }
+
+    /**
+     * Fecha os canais de leitura. Os históricos deixam de poder ser lidos.
+     */
+    @Override
+    public void close() throws IOException {
+        fechado = true;
+        for (FileChannel canal : canais.values()) {
+            canal.close();
+        }
+        canais.clear();
+    }
+
+    private Path arquivo(long identificador) {
+        return diretorio.resolve(String.format("%s%020d%s", PREFIXO, identificador, SUFIXO));
+    }
+
+    private static long identificador(String nome) {
+        int fim = nome.indexOf('.', PREFIXO.length());
+        try {
+            return Long.parseLong(nome.substring(PREFIXO.length(), fim < 0 ? nome.length() : fim));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE; // Nome desconhecido: tratado como não publicado
+        }
+    }
+
+    /**
+     * Lê bytes de um arquivo de jornais por leitura posicional, que não exige trava entre leitores.
+     */
+    private ByteBuffer ler(long arquivo, long posicao, int tamanho) throws IOException {
+        if (fechado) {
+            throw new IOException("Arquivos de jornais fechados");
+        }
+        FileChannel canal;
+        try {
+            canal = canais.computeIfAbsent(arquivo, id -> {
+                try {
+                    return FileChannel.open(arquivo(id), StandardOpenOption.READ);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        ByteBuffer b = ByteBuffer.allocate(tamanho);
+        while (b.hasRemaining()) {
+            if (canal.read(b, posicao + b.position()) < 0) {
+                throw new IOException("Arquivo de jornais truncado: " + arquivo(arquivo));
+            }
+        }
+        return b.flip();
+    }
+
+    /**
+     * Gravação do arquivo de jornais de um snapshot, em um temporário renomeado atomicamente ao concluir.
+     * Usada apenas pela thread que grava o snapshot.
+     */
+    final class Gravacao implements Closeable {
+        private final long identificador;  // Sequência do snapshot
+        private final Path temporario;
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_ESCRITA);
+        private final CRC32 crc = new CRC32();
+        private long posicao;              // Posição no arquivo do próximo byte acumulado
+        private boolean concluida;
+
+        private Gravacao(long identificador) throws IOException {
+            this.identificador = identificador;
+            this.temporario = arquivo(identificador).resolveSibling(arquivo(identificador).getFileName() + ".tmp");
+            this.canal = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            buffer.putInt(MAGICO).putInt(VERSAO);
+            posicao = CABECALHO_ARQUIVO;
+        }
+
+        /**
+         * Retorna o identificador do arquivo, a ser guardado no snapshot junto com a posição dos blocos.
+         */
+        long identificador() {
+            return identificador;
+        }
+
+        /**
+         * Acrescenta um bloco com as transações [de, ate) de uma conta, no máximo TRANSACOES_POR_BLOCO.
+         * @param arquivoAnterior O arquivo do bloco anterior da conta.
+         * @param posicaoAnterior A posição do bloco anterior, ou 0 se a conta ainda não tiver blocos.
+         * @return A posição do bloco no arquivo.
+         */
+        long bloco(int numero, long arquivoAnterior, long posicaoAnterior,
+                   long[] instantes, byte[] tipos, long[] valores, long[] saldos, int de, int ate) throws IOException {
+            int quantidade = ate - de;
+            if (buffer.remaining() < CABECALHO_BLOCO + quantidade * TAMANHO_TRANSACAO + 4) {
+                esvaziar();
+            }
+            long inicio = posicao;
+            int p = buffer.position();
+            buffer.putInt(numero).putLong(arquivoAnterior).putLong(posicaoAnterior).putInt(quantidade);
+            for (int i = de; i < ate; i++) {
+                buffer.putLong(instantes[i]).put(tipos[i]).putLong(valores[i]).putLong(saldos[i]);
+            }
+            crc.reset();
+            crc.update(buffer.array(), p, buffer.position() - p);
+            buffer.putInt((int) crc.getValue());
+            posicao += buffer.position() - p;
+            return inicio;
+        }
+
+        /**
+         * Grava o restante, sincroniza o arquivo com o disco e o publica com o nome definitivo.
+         */
+        void concluir() throws IOException {
+            esvaziar();
+            canal.force(true);
+            canal.close();
+            Files.move(temporario, arquivo(identificador), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            concluida = true;
+        }
+
+        private void esvaziar() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Descarta o temporário de uma gravação não concluída.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!concluida) {
+                canal.close();
+                Files.deleteIfExists(temporario);
+            }
+        }
+    }
+
+    /**
+     * Transações persistidas de uma conta, lidas dos arquivos de jornais sob demanda. A cadeia de blocos só
+     * é percorrida na primeira consulta; cada consulta lê no máximo um bloco, e o último bloco lido fica em
+     * memória para leituras sequenciais.
+     */
+    public final class Historico {
+        private final int numero;          // Número da conta, conferido em cada bloco
+        private final long ultimoArquivo;  // Arquivo do último bloco
+        private final long ultimaPosicao;  // Posição do último bloco
+        private final int tamanho;         // Transações em todos os blocos
+        private final long ultimoInstante; // Instante da última transação
+        private volatile Indice indice;    // Início, local e primeiro instante de cada bloco, montado na primeira consulta
+        private volatile Bloco ultimoBloco; // Último bloco lido
+
+        /**
+         * Blocos da conta em ordem cronológica, em vetores paralelos.
+         */
+        private record Indice(int[] inicios, long[] arquivos, long[] posicoes, long[] primeiros) {
+        }
+
+        /**
+         * Transações de um bloco lido.
+         * @param inicio O índice no jornal da primeira transação do bloco.
+         */
+        private record Bloco(int inicio, long[] instantes, byte[] tipos, long[] valores, long[] saldos) {
+        }
+
+        private Historico(int numero, long ultimoArquivo, long ultimaPosicao, int tamanho, long ultimoInstante) {
+            this.numero = numero;
+            this.ultimoArquivo = ultimoArquivo;
+            this.ultimaPosicao = ultimaPosicao;
+            this.tamanho = tamanho;
+            this.ultimoInstante = ultimoInstante;
+        }
+
+        /**
+         * Retorna a quantidade de transações persistidas.
+         */
+        int tamanho() {
+            return tamanho;
+        }
+
+        /**
+         * Retorna o instante da última transação persistida.
+         */
+        long ultimoInstante() {
+            return ultimoInstante;
+        }
+
+        long instante(int i) {
+            Bloco b = bloco(i);
+            return b.instantes[i - b.inicio];
+        }
+
+        byte tipo(int i) {
+            Bloco b = bloco(i);
+            return b.tipos[i - b.inicio];
+        }
+
+        long valor(int i) {
+            Bloco b = bloco(i);
+            return b.valores[i - b.inicio];
+        }
+
+        long saldo(int i) {
+            Bloco b = bloco(i);
+            return b.saldos[i - b.inicio];
+        }
+
+        /**
+         * Localiza a primeira transação a partir de um instante, lendo no máximo um bloco.
+         * @param limite A quantidade de transações consideradas.
+         * @return O índice da primeira transação com instante maior ou igual ao informado, ou limite se não houver.
+         */
+        int buscarInstante(long instante, int limite) {
+            Indice x = indice();
+            int inicio = 0;
+            int fim = x.inicios.length;
+            while (inicio < fim) { // Primeiro pelo instante inicial dos blocos, sem ler as transações
+                int meio = (inicio + fim) >>> 1;
+                if (x.primeiros[meio] < instante) {
+                    inicio = meio + 1;
+                } else {
+                    fim = meio;
+                }
+            }
+            fim = Math.min(limite, inicio < x.inicios.length ? x.inicios[inicio] : tamanho); // O bloco inicio já alcança o procurado
+            inicio = Math.min(fim, inicio == 0 ? 0 : x.inicios[inicio - 1]);
+            while (inicio < fim) {
+                int meio = (inicio + fim) >>> 1;
+                if (instante(meio) < instante) {
+                    inicio = meio + 1;
+                } else {
+                    fim = meio;
+                }
+            }
+            return inicio;
+        }
+
+        /**
+         * Retorna o bloco de uma transação, do último lido ou do arquivo.
+         * @throws UncheckedIOException Se o arquivo não puder ser lido ou estiver corrompido.
+         */
+        private Bloco bloco(int i) {
+            Bloco b = ultimoBloco;
+            if (b != null && i >= b.inicio && i < b.inicio + b.instantes.length) {
+                return b;
+            }
+            Indice x = indice();
+            int k = Arrays.binarySearch(x.inicios, i);
+            if (k < 0) {
+                k = -k - 2; // Bloco que começa antes de i
+            }
+            try {
+                b = lerBloco(x.arquivos[k], x.posicoes[k], x.inicios[k]);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ultimoBloco = b;
+            return b;
+        }
+
+        private Bloco lerBloco(long arquivo, long posicao, int inicio) throws IOException {
+            int quantidade = ler(arquivo, posicao, CABECALHO_BLOCO).getInt(CABECALHO_BLOCO - 4);
+            ByteBuffer b = ler(arquivo, posicao, CABECALHO_BLOCO + quantidade * TAMANHO_TRANSACAO + 4);
+            CRC32 crc = new CRC32();
+            crc.update(b.array(), 0, b.limit() - 4);
+            if ((int) crc.getValue() != b.getInt(b.limit() - 4) || b.getInt() != numero) {
+                throw new IOException("Bloco de jornal corrompido: conta " + numero + ", " + arquivo(arquivo) + " posição " + posicao);
+            }
+            b.position(CABECALHO_BLOCO);
+            long[] instantes = new long[quantidade];
+            byte[] tipos = new byte[quantidade];
+            long[] valores = new long[quantidade];
+            long[] saldos = new long[quantidade];
+            for (int j = 0; j < quantidade; j++) {
+                instantes[j] = b.getLong();
+                tipos[j] = b.get();
+                valores[j] = b.getLong();
+                saldos[j] = b.getLong();
+            }
+            return new Bloco(inicio, instantes, tipos, valores, saldos);
+        }
+
+        /**
+         * Monta o índice dos blocos percorrendo a cadeia a partir do último, lendo apenas o cabeçalho e o
+         * primeiro instante de cada um.
+         */
+        private Indice indice() {
+            Indice x = indice;
+            if (x != null) {
+                return x;
+            }
+            synchronized (this) {
+                if (indice == null) {
+                    try {
+                        indice = montarIndice();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return indice;
+            }
+        }
+
+        private Indice montarIndice() throws IOException {
+            int capacidade = Math.max(1, tamanho / TRANSACOES_POR_BLOCO + 1);
+            int[] inicios = new int[capacidade];
+            long[] arquivos = new long[capacidade];
+            long[] posicoes = new long[capacidade];
+            long[] primeiros = new long[capacidade];
+            int blocos = 0;
+            int restantes = tamanho;
+            long arquivo = ultimoArquivo;
+            long posicao = ultimaPosicao;
+            while (restantes > 0) { // Do último bloco para o primeiro
+                if (posicao == 0) {
+                    throw new IOException("Cadeia de blocos incompleta para a conta " + numero);
+                }
+                ByteBuffer b = ler(arquivo, posicao, CABECALHO_BLOCO + 8);
+                if (b.getInt() != numero) {
+                    throw new IOException("Bloco de jornal de outra conta: conta " + numero + ", " + arquivo(arquivo) + " posição " + posicao);
+                }
+                long arquivoAnterior = b.getLong();
+                long posicaoAnterior = b.getLong();
+                int quantidade = b.getInt();
+                if (blocos == inicios.length) {
+                    int novaCapacidade = blocos * 2;
+                    inicios = Arrays.copyOf(inicios, novaCapacidade);
+                    arquivos = Arrays.copyOf(arquivos, novaCapacidade);
+                    posicoes = Arrays.copyOf(posicoes, novaCapacidade);
+                    primeiros = Arrays.copyOf(primeiros, novaCapacidade);
+                }
+                restantes -= quantidade;
+                inicios[blocos] = restantes;
+                arquivos[blocos] = arquivo;
+                posicoes[blocos] = posicao;
+                primeiros[blocos] = b.getLong();
+                blocos++;
+                arquivo = arquivoAnterior;
+                posicao = posicaoAnterior;
+            }
+            if (restantes != 0) {
+                throw new IOException("Cadeia de blocos inconsistente para a conta " + numero);
+            }
+            inicios = inverter(Arrays.copyOf(inicios, blocos));
+            arquivos = inverter(Arrays.copyOf(arquivos, blocos));
+            posicoes = inverter(Arrays.copyOf(posicoes, blocos));
+            primeiros = inverter(Arrays.copyOf(primeiros, blocos));
+            return new Indice(inicios, arquivos, posicoes, primeiros);
+        }
+    }
+
+    private static int[] inverter(int[] v) {
+        for (int i = 0, j = v.length - 1; i < j; i++, j--) {
+            int t = v[i];
+            v[i] = v[j];
+            v[j] = t;
+        }
+        return v;
+    }
+
+    private static long[] inverter(long[] v) {
+        for (int i = 0, j = v.length - 1; i < j; i++, j--) {
+            long t = v[i];
+            v[i] = v[j];
+            v[j] = t;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,497 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Bancada de medição de desempenho das operações centrais do banco, executada com
+ * "java Benchmark [--rapido] [--saida resultados.json] [--armazem contas]".
+ *
+ * Cada caso é aquecido e depois medido em várias rodadas; o resultado é a mediana do tempo por
+ * operação e a média de bytes alocados por operação na thread medida (como o perfilador gc do JMH).
+ * Os casos concorrentes medem a vazão de depósitos com 1, 4, 16 e 64 threads. Os resultados são
+ * gravados em JSON para comparação entre versões. A saída das operações no console é descartada
+ * durante as medições. Com --armazem, compara também a memória retida e a pausa de coleta completa
+ * das contas em objetos e no ArmazemContas (execute com -Xmx suficiente para a quantidade pedida).
+ */
+public class Benchmark {
+    private static final int RODADAS_AQUECIMENTO = 5; // Rodadas descartadas para aquecimento do JIT
+    private static final int RODADAS_MEDIDAS = 10;    // Rodadas consideradas no resultado
+    private static final int[] THREADS = {1, 4, 16, 64}; // Níveis de concorrência medidos
+
+    private static final com.sun.management.ThreadMXBean MX =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean(); // Bytes alocados por thread
+    private static final PrintStream CONSOLE = System.out; // Saída original, usada para o relatório
+    private static final PrintStream DESCARTE = new PrintStream(OutputStream.nullOutputStream()); // Recebe a saída das operações
+
+    private final List<Resultado> resultados = new ArrayList<>(); // Resultados na ordem de execução
+    private final int operacoesPorRodada; // Operações executadas em cada rodada de um caso
+    private long consumido; // Recebe o resultado das varreduras, para que o JIT não as elimine
+
+    /**
+     * Operação medida. Recebe o índice da operação na rodada, para que o caso possa variar os argumentos
+     * sem alocar.
+     */
+    @FunctionalInterface
+    interface Operacao {
+        void executar(int i);
+    }
+
+    /**
+     * Resultado de um caso medido.
+     * @param nome O nome do caso.
+     * @param parametro O parâmetro do caso (tamanho do banco, quantidade de threads), ou vazio.
+     * @param nsPorOperacao A mediana do tempo por operação, em nanossegundos.
+     * @param bytesPorOperacao A média de bytes alocados por operação (-1 se não medido).
+     * @param operacoesPorSegundo A vazão correspondente.
+     */
+    record Resultado(String nome, String parametro, double nsPorOperacao, double bytesPorOperacao, double operacoesPorSegundo) {
+    }
+
+    /**
+     * Constrói a bancada.
+     * @param operacoesPorRodada Operações executadas em cada rodada de um caso.
+     */
+    public Benchmark(int operacoesPorRodada) {
+        this.operacoesPorRodada = operacoesPorRodada;
+    }
+
+    /**
+     * Executa todos os casos e grava o relatório.
+     * @param args --rapido para reduzir tamanhos e repetições; --saida seguido do arquivo JSON de resultados;
+     *             --armazem seguido da quantidade de contas da comparação com o ArmazemContas.
+     */
+    public static void main(String[] args) throws Exception {
+        boolean rapido = false;
+        Path saida = Path.of("benchmark.json");
+        int contasArmazem = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--rapido")) {
+                rapido = true;
+            } else if (args[i].equals("--saida") && i + 1 < args.length) {
+                saida = Path.of(args[++i]);
+            } else if (args[i].equals("--armazem") && i + 1 < args.length) {
+                contasArmazem = Integer.parseInt(args[++i]);
+            }
+        }
+        MX.setThreadAllocatedMemoryEnabled(true);
+        Benchmark b = new Benchmark(rapido ? 20_000 : 200_000);
+        int[] tamanhos = rapido ? new int[]{1_000, 100_000} : new int[]{1_000, 100_000, 1_000_000};
+        System.setOut(DESCARTE);
+        try {
+            b.medirContas();
+            b.medirJornal();
+            b.medirMetricas();
+            b.medirExtratos();
+            b.medirSimulacao(rapido ? 20_000 : 200_000);
+            for (int tamanho : tamanhos) {
+                b.medirBanco(tamanho);
+            }
+            b.medirFragmentos(rapido ? 10_000 : 100_000);
+            b.medirConcorrencia(rapido ? 200_000 : 2_000_000);
+            if (contasArmazem > 0) {
+                b.compararArmazem(contasArmazem);
+            }
+        } finally {
+            System.setOut(CONSOLE);
+        }
+        b.gravarJson(saida);
+        CONSOLE.println("Resultados gravados em " + saida.toAbsolutePath());
+    }
+
+    /**
+     * Depósitos e saques em cada tipo de conta. O saldo inicial cobre todos os saques das rodadas.
+     */
+    private void medirContas() {
+        Cliente cliente = new Cliente("Bancada", "000.000.000-00");
+        Conta[] contas = {
+            new ContaCorrente(1, cliente, 1000),
+            new ContaPoupanca(2, cliente),
+            new ContaRendaFixa(3, cliente),
+            new ContaInvestimento(4, cliente)
+        };
+        for (Conta conta : contas) {
+            cliente.adicionarConta(conta);
+            String tipo = conta.getClass().getSimpleName();
+            medir(tipo + ".depositar", "", i -> conta.depositar(10.25));
+            conta.depositar(1e9);
+            medir(tipo + ".sacar", "", i -> conta.sacar(1.50));
+        }
+    }
+
+    /**
+     * Registro de transações no jornal (o antigo Conta.registrarTransacao).
+     */
+    private void medirJornal() {
+        JornalTransacoes[] jornal = {new JornalTransacoes()};
+        medir("JornalTransacoes.registrar", "", i -> {
+            if (jornal[0].tamanho() == 1 << 20) {
+                jornal[0] = new JornalTransacoes(); // Limita a memória retida entre rodadas
+            }
+            jornal[0].registrar(1_700_000_000_000L + i, JornalTransacoes.DEPOSITO, 1025, i);
+        });
+        try (HistoricoFrio historico = new HistoricoFrio(Files.createTempDirectory("xubank-historico"), 1024, 2048, 8)) {
+            JornalTransacoes frio = new JornalTransacoes();
+            frio.usarHistorico(historico);
+            int quantidade = 1 << 16; // 64 segmentos, dos quais 8 cabem no cache
+            for (int i = 0; i < quantidade; i++) {
+                frio.registrar(1_700_000_000_000L + i, JornalTransacoes.DEPOSITO, 1025, 1025L * (i + 1));
+            }
+            historico.aguardar();
+            medir("JornalTransacoes.getSaldo (historico frio)", "sequencial", i -> consumido += frio.getSaldo(i & (quantidade - 1)));
+            medir("JornalTransacoes.getSaldo (historico frio)", "aleatorio", i -> consumido += frio.getSaldo((i * 7919) & (quantidade - 1)));
+            medir("JornalTransacoes.buscarInstante (historico frio)", "", i -> consumido += frio.buscarInstante(1_700_000_000_000L + ((i * 7919) & (quantidade - 1)), quantidade));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Custo de registrar uma operação nas métricas, incluindo a leitura de relógio do fim da operação.
+     */
+    private void medirMetricas() {
+        Metricas metricas = new SistemaBancario().getMetricas();
+        medir("Metricas.registrar", "", i -> metricas.registrar(Metricas.Operacao.BUSCAR_CONTA, System.nanoTime()));
+    }
+
+    /**
+     * Renderização do extrato de um cliente com duas contas de 100 transações cada.
+     */
+    private void medirExtratos() {
+        Cliente cliente = new Cliente("Extrato", "111.111.111-11");
+        for (int n = 1; n <= 2; n++) {
+            Conta conta = new ContaPoupanca(100 + n, cliente);
+            cliente.adicionarConta(conta);
+            for (int i = 0; i < 100; i++) {
+                conta.depositar(i + 0.5);
+            }
+        }
+        medir("Cliente.visualizarExtratos", "200 transacoes", i -> cliente.visualizarExtratos(), operacoesPorRodada / 200);
+    }
+
+    /**
+     * Vazão da simulação de risco por núcleo, em caminhos por segundo, para uma carteira de 100 contas de investimento.
+     */
+    private void medirSimulacao(int caminhos) {
+        SistemaBancario banco = new SistemaBancario();
+        banco.setCanalEventos(CanalEventos.NULO);
+        for (int i = 0; i < 100; i++) {
+            Cliente cliente = new Cliente("Investidor " + i, String.format("333.333.%03d-33", i));
+            banco.adicionarCliente(cliente);
+            Conta conta = new ContaInvestimento(i, cliente);
+            cliente.adicionarConta(conta);
+            conta.depositarCentavos(100_000 + i * 1_000);
+        }
+        SimulacaoRisco simulacao = new SimulacaoRisco(banco);
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        for (int meses : new int[]{12, 120}) {
+            double[] vazoes = new double[RODADAS_MEDIDAS];
+            for (int rodada = -RODADAS_AQUECIMENTO; rodada < RODADAS_MEDIDAS; rodada++) {
+                double vazao = simulacao.simularBanco(meses, caminhos, rodada).getCaminhosPorSegundo() / nucleos;
+                if (rodada >= 0) {
+                    vazoes[rodada] = vazao;
+                }
+            }
+            Arrays.sort(vazoes);
+            double vazao = vazoes[vazoes.length / 2];
+            registrar(new Resultado("SimulacaoRisco.simularBanco por nucleo", "100 contas, " + meses + " meses", 1e9 / vazao, -1, vazao));
+        }
+    }
+
+    /**
+     * Busca de clientes e consultas agregadas em um banco com a quantidade de clientes informada.
+     */
+    private void medirBanco(int quantidade) {
+        SistemaBancario banco = new SistemaBancario();
+        String[] cpfs = new String[quantidade];
+        Conta[] contas = new Conta[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            cpfs[i] = String.format("%03d.%03d.%03d-%02d", i / 1_000_000 % 1000, i / 1000 % 1000, i % 1000, i % 97);
+            Cliente cliente = new Cliente("Cliente " + i, cpfs[i]);
+            banco.adicionarCliente(cliente);
+            contas[i] = switch (i & 3) {
+                case 0 -> new ContaCorrente(i, cliente, 500);
+                case 1 -> new ContaPoupanca(i, cliente);
+                case 2 -> new ContaRendaFixa(i, cliente);
+                default -> new ContaInvestimento(i, cliente);
+            };
+            cliente.adicionarConta(contas[i]);
+            contas[i].depositar(100 + i % 1000);
+        }
+        String parametro = quantidade + " clientes";
+        int mascara = Integer.highestOneBit(quantidade) - 1;
+        medir("SistemaBancario.buscarCliente", parametro, i -> banco.buscarCliente(cpfs[(i * 7919) & mascara]));
+        medir("SistemaBancario.buscarConta", parametro, i -> banco.buscarConta((i * 7919) & mascara));
+        medir("SistemaBancario.calcularCustodiaPorTipo", parametro, i -> banco.calcularCustodiaPorTipo(ContaPoupanca.class));
+        medir("SistemaBancario.calcularSaldoMedio", parametro, i -> banco.calcularSaldoMedio());
+        medir("SistemaBancario.projetarRendimentos", parametro,
+                i -> banco.projetarRendimentos(12, ProjecaoRendimento.Cenario.ESPERADO), Math.max(1, operacoesPorRodada / quantidade));
+        medir("SistemaBancario.clienteComMaiorSaldo", parametro, i -> banco.clienteComMaiorSaldo());
+        medir("SistemaBancario.clienteComMenorSaldo", parametro, i -> banco.clienteComMenorSaldo());
+        medir("SistemaBancario.clienteComMaiorSaldo apos deposito", parametro, i -> {
+            contas[(i * 7919) & mascara].depositar(1);
+            banco.clienteComMaiorSaldo();
+        });
+        medir("SistemaBancario.clientesComMaioresSaldos", "k=100, " + parametro, i -> banco.clientesComMaioresSaldos(100));
+        medir("SistemaBancario.percentilSaldo", "p99, " + parametro, i -> banco.percentilSaldo(0.99));
+        medir("SistemaBancario.abrirSnapshot", parametro, i -> banco.abrirSnapshot().close());
+        medir("SnapshotSaldos.calcularCustodiaPorTipo", parametro, i -> {
+            try (SnapshotSaldos snapshot = banco.abrirSnapshot()) {
+                consumido += (long) snapshot.calcularCustodiaPorTipo(ContaPoupanca.class);
+            }
+        }, Math.max(1, operacoesPorRodada / quantidade));
+        medir("Conta.depositar repetido (idOperacao)", parametro, i -> {
+            int c = (i * 7919) & mascara;
+            contas[c].depositar(1, cpfs[c]); // Após a primeira rodada, todas as chamadas são repetições
+        });
+        try {
+            FechamentoMensal fechamento = new FechamentoMensal(banco, Files.createTempDirectory("xubank-fechamento"));
+            YearMonth[] competencia = {YearMonth.of(2000, 1)}; // Cada execução fecha um mês novo
+            medir("FechamentoMensal.executar", parametro, i -> {
+                try {
+                    consumido += fechamento.executar(competencia[0]).etapas().size();
+                    competencia[0] = competencia[0].plusMonths(1);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, 1);
+            ExportadorExtratos exportador = new ExportadorExtratos(banco);
+            Path extratos = Files.createTempDirectory("xubank-extratos");
+            for (ExportadorExtratos.Formato formato : ExportadorExtratos.Formato.values()) {
+                medir("ExportadorExtratos.exportar", formato + ", " + parametro, i -> {
+                    try {
+                        consumido += exportador.exportar(extratos, formato).bytes();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, 1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Depósitos roteados e agregados por dispersão e coleta em 1 e 4 fragmentos locais.
+     */
+    private void medirFragmentos(int quantidade) {
+        for (int fragmentos : new int[]{1, 4}) {
+            try (SistemaBancarioFragmentado banco = SistemaBancarioFragmentado.locais(fragmentos)) {
+                for (int i = 0; i < quantidade; i++) {
+                    String cpf = String.format("%03d.%03d.%03d-%02d", i / 1_000_000 % 1000, i / 1000 % 1000, i % 1000, i % 97);
+                    banco.adicionarCliente("Cliente " + i, cpf);
+                    banco.abrirConta(cpf, (byte) (1 + (i & 3)), i, 500);
+                    banco.depositar(i, 100 + i % 1000);
+                }
+                String parametro = quantidade + " clientes, " + fragmentos + " fragmentos";
+                int mascara = Integer.highestOneBit(quantidade) - 1;
+                medir("SistemaBancarioFragmentado.depositar", parametro, i -> banco.depositar((i * 7919) & mascara, 1), operacoesPorRodada / 10);
+                medir("SistemaBancarioFragmentado.agregar", parametro, i -> banco.agregar(), operacoesPorRodada / 100);
+            }
+        }
+    }
+
+    /**
+     * Compara as contas em objetos (SistemaBancario) com o ArmazemContas para a mesma quantidade de contas:
+     * bytes retidos por conta (heap e memória direta), duração de uma coleta completa com as contas vivas e
+     * custo de uma varredura de custódia. Nos casos de coleta, bytesPorOperacao é a memória retida por conta.
+     */
+    private void compararArmazem(int quantidade) {
+        String parametro = quantidade + " contas";
+        long heapAntes = heapUsado();
+        ArmazemContas armazem = medirContasEmObjetos(quantidade, parametro, heapAntes); // O banco já pode ser coletado
+        long heapArmazem = heapUsado() - heapAntes;
+        medirColeta("Coleta completa (ArmazemContas)", parametro, (double) (heapArmazem + armazem.bytesForaDoHeap()) / quantidade);
+        medir("Varredura de custodia (ArmazemContas)", parametro, i -> consumido += armazem.custodia(Persistencia.POUPANCA), 1);
+        medir("ArmazemContas.calcularSaldoMedio", parametro, i -> consumido += (long) armazem.calcularSaldoMedio(), 1);
+        ArmazemContas.Visao visao = armazem.visao();
+        int mascara = Integer.highestOneBit(quantidade) - 1;
+        medir("ArmazemContas.Visao.depositar", parametro, i -> {
+            visao.posicionar((i * 7919) & mascara);
+            visao.depositar(1);
+        });
+    }
+
+    /**
+     * Cria as contas em objetos, mede coleta e varredura e devolve uma cópia delas no ArmazemContas.
+     */
+    private ArmazemContas medirContasEmObjetos(int quantidade, String parametro, long heapAntes) {
+        SistemaBancario banco = new SistemaBancario();
+        banco.setCanalEventos(CanalEventos.NULO);
+        for (int i = 0; i < quantidade; i++) {
+            Cliente cliente = new Cliente("Cliente " + i, String.format("%03d.%03d.%03d-%02d",
+                    i / 1_000_000 % 1000, i / 1000 % 1000, i % 1000, i % 97));
+            banco.adicionarCliente(cliente);
+            Conta conta = switch (i & 3) {
+                case 0 -> new ContaCorrente(i, cliente, 500);
+                case 1 -> new ContaPoupanca(i, cliente);
+                case 2 -> new ContaRendaFixa(i, cliente);
+                default -> new ContaInvestimento(i, cliente);
+            };
+            cliente.adicionarConta(conta);
+            conta.depositarCentavos(10_000 + i % 100_000);
+        }
+        medirColeta("Coleta completa (contas em objetos)", parametro, (double) (heapUsado() - heapAntes) / quantidade);
+        List<Cliente> clientes = banco.getClientes();
+        medir("Varredura de custodia (contas em objetos)", parametro, i -> {
+            long total = 0;
+            for (Cliente cliente : clientes) {
+                for (Conta conta : cliente.getContas()) {
+                    total += conta instanceof ContaPoupanca ? conta.getSaldoCentavos() : 0;
+                }
+            }
+            consumido += total;
+        }, 1);
+        return ArmazemContas.copiar(banco);
+    }
+
+    /**
+     * Mede a duração de coletas completas forçadas, com o estado medido ainda alcançável.
+     */
+    private void medirColeta(String nome, String parametro, double bytesPorConta) {
+        double[] tempos = new double[RODADAS_MEDIDAS];
+        for (int rodada = 0; rodada < RODADAS_MEDIDAS; rodada++) {
+            long inicio = System.nanoTime();
+            System.gc();
+            tempos[rodada] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(tempos);
+        double ns = tempos[tempos.length / 2];
+        registrar(new Resultado(nome, parametro, ns, bytesPorConta, 1e9 / ns));
+    }
+
+    /**
+     * Heap ocupado após coletas completas, isto é, a memória efetivamente retida.
+     */
+    private static long heapUsado() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Vazão de depósitos simultâneos, em uma única conta disputada e em contas distintas por thread.
+     */
+    private void medirConcorrencia(int operacoesTotais) throws InterruptedException {
+        for (int threads : THREADS) {
+            Cliente cliente = new Cliente("Concorrencia", "222.222.222-22");
+            Conta disputada = new ContaPoupanca(1, cliente);
+            Conta[] distintas = new Conta[threads];
+            for (int t = 0; t < threads; t++) {
+                distintas[t] = new ContaPoupanca(10 + t, cliente);
+            }
+            medirConcorrente("Conta.depositar concorrente (mesma conta)", threads, operacoesTotais, t -> disputada);
+            medirConcorrente("Conta.depositar concorrente (contas distintas)", threads, operacoesTotais, t -> distintas[t]);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SeletorConta {
+        Conta conta(int thread);
+    }
+
+    private void medirConcorrente(String nome, int threads, int operacoesTotais, SeletorConta seletor) throws InterruptedException {
+        int porThread = operacoesTotais / threads;
+        double[] amostras = new double[RODADAS_MEDIDAS];
+        for (int rodada = -RODADAS_AQUECIMENTO; rodada < RODADAS_MEDIDAS; rodada++) {
+            CountDownLatch largada = new CountDownLatch(1);
+            CountDownLatch chegada = new CountDownLatch(threads);
+            LongAdder bytes = new LongAdder();
+            for (int t = 0; t < threads; t++) {
+                Conta conta = seletor.conta(t);
+                Thread thread = new Thread(() -> {
+                    try {
+                        largada.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long antes = MX.getCurrentThreadAllocatedBytes();
+                    for (int i = 0; i < porThread; i++) {
+                        conta.depositar(1);
+                    }
+                    bytes.add(MX.getCurrentThreadAllocatedBytes() - antes);
+                    chegada.countDown();
+                });
+                thread.start();
+            }
+            long inicio = System.nanoTime();
+            largada.countDown();
+            chegada.await();
+            long duracao = System.nanoTime() - inicio;
+            if (rodada >= 0) {
+                amostras[rodada] = (double) porThread * threads * 1e9 / duracao;
+            }
+        }
+        Arrays.sort(amostras);
+        double vazao = amostras[amostras.length / 2];
+        registrar(new Resultado(nome, threads + " threads", 1e9 / vazao, -1, vazao));
+    }
+
+    private void medir(String nome, String parametro, Operacao operacao) {
+        medir(nome, parametro, operacao, operacoesPorRodada);
+    }
+
+    /**
+     * Mede um caso na thread atual: rodadas de aquecimento seguidas das rodadas medidas.
+     */
+    private void medir(String nome, String parametro, Operacao operacao, int operacoes) {
+        operacoes = Math.max(1, operacoes);
+        double[] tempos = new double[RODADAS_MEDIDAS];
+        long bytesTotais = 0;
+        for (int rodada = -RODADAS_AQUECIMENTO; rodada < RODADAS_MEDIDAS; rodada++) {
+            long bytesAntes = MX.getCurrentThreadAllocatedBytes();
+            long inicio = System.nanoTime();
+            for (int i = 0; i < operacoes; i++) {
+                operacao.executar(i);
+            }
+            long duracao = System.nanoTime() - inicio;
+            long bytes = MX.getCurrentThreadAllocatedBytes() - bytesAntes;
+            if (rodada >= 0) {
+                tempos[rodada] = (double) duracao / operacoes;
+                bytesTotais += bytes;
+            }
+        }
+        Arrays.sort(tempos);
+        double ns = tempos[tempos.length / 2];
+        registrar(new Resultado(nome, parametro, ns, (double) bytesTotais / ((long) operacoes * RODADAS_MEDIDAS), 1e9 / ns));
+    }
+
+    private void registrar(Resultado r) {
+        resultados.add(r);
+        CONSOLE.printf("%-55s %-16s %12.1f ns/op %10.1f B/op %14.0f op/s%n",
+                r.nome(), r.parametro(), r.nsPorOperacao(), r.bytesPorOperacao(), r.operacoesPorSegundo());
+    }
+
+    /**
+     * Grava os resultados em JSON, com a versão da JVM e o instante da execução.
+     */
+    private void gravarJson(Path arquivo) throws IOException {
+        StringBuilder json = new StringBuilder(256 + resultados.size() * 160);
+        json.append("{\n  \"jvm\": \"").append(System.getProperty("java.vm.name")).append(' ')
+                .append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"processadores\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"instante\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"resultados\": [\n");
+        for (int i = 0; i < resultados.size(); i++) {
+            Resultado r = resultados.get(i);
+            json.append(String.format(Locale.ROOT,
+                    "    {\"nome\": \"%s\", \"parametro\": \"%s\", \"nsPorOperacao\": %.3f, \"bytesPorOperacao\": %.3f, \"operacoesPorSegundo\": %.1f}%s%n",
+                    r.nome(), r.parametro(), r.nsPorOperacao(), r.bytesPorOperacao(), r.operacoesPorSegundo(),
+                    i < resultados.size() - 1 ? "," : ""));
+        }
+        json.append("  ]\n}\n");
+        Files.writeString(arquivo, json, StandardCharsets.UTF_8);
+    }
+}
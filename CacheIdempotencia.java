@@ -0,0 +1,261 @@
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+/**
+ * Cache de identificadores de operação, para que uma operação reenviada pelo cliente (por exemplo,
+ * após uma falha de rede ou o reenvio de um arquivo de lote) não seja aplicada duas vezes. A primeira
+ * execução com um identificador guarda o resultado; as repetições recebem o mesmo resultado sem
+ * executar a operação. Uma repetição que chega enquanto a primeira ainda está em andamento aguarda
+ * o seu resultado. Se a operação lançar uma exceção, o identificador é liberado para nova tentativa.
+ *
+ * Cada identificador é guardado com a descrição da requisição que o usou (operação, conta e valor,
+ * por exemplo); o mesmo identificador com outra requisição é recusado com IdentificadorReutilizado,
+ * em vez de devolver o resultado de uma operação diferente.
+ *
+ * Os identificadores são lembrados por um tempo de validade e até uma capacidade máxima; ao
+ * exceder a capacidade, os mais antigos já concluídos são descartados, e uma operação em andamento
+ * nunca perde o seu identificador. O cache fica apenas em memória: após um reinício do processo, os
+ * identificadores anteriores são esquecidos. O cache é dividido em segmentos pelo hash
+ * do identificador, cada um com a sua trava, para que operações simultâneas raramente disputem a
+ * mesma trava; a operação em si é executada fora da trava.
+ * @param <V> O tipo do resultado das operações.
+ */
+public final class CacheIdempotencia<V> {
+    public static final int CAPACIDADE_PADRAO = 1 << 16; // Identificadores lembrados, no total
+    public static final Duration VALIDADE_PADRAO = Duration.ofMinutes(15); // Tempo em que um identificador é lembrado
+    private static final int SEGMENTOS = Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors() * 4)); // Potência de 2
+
+    private final Segmento<V>[] segmentos; // Segmentos, escolhidos pelo hash do identificador
+    private final long validadeNanos;      // Validade de cada identificador, em nanossegundos
+    private final LongAdder acertos = new LongAdder();    // Repetições atendidas pelo cache
+    private final LongAdder faltas = new LongAdder();     // Identificadores novos, executados
+    private final LongAdder despejos = new LongAdder();   // Identificadores descartados por capacidade
+    private final LongAdder expiracoes = new LongAdder(); // Identificadores descartados por validade
+
+    /**
+     * Entrada do cache: a requisição, o resultado (possivelmente ainda em andamento) e o instante de expiração.
+     */
+    private record Entrada<V>(Object requisicao, CompletableFuture<V> resultado, long expiraEm) {
+        /**
+         * Indica se a entrada pode ser descartada por validade: expirada e com a operação concluída.
+         */
+        boolean expirada(long agora) {
+            return expiraEm - agora <= 0 && resultado.isDone();
+        }
+    }
+
+    /**
+     * Lançada quando um identificador de operação já lembrado chega com uma requisição diferente da original.
+     */
+    public static final class IdentificadorReutilizado extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Cria a exceção para o identificador informado.
+         * @param id O identificador reutilizado.
+         */
+        public IdentificadorReutilizado(String id) {
+            super("O identificador de operação " + id + " já foi usado em outra requisição");
+        }
+    }
+
+    /**
+     * Segmento do cache: identificadores em ordem de inserção, que também é a ordem de expiração,
+     * já que todos têm a mesma validade.
+     */
+    private static final class Segmento<V> extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+        final LinkedHashMap<String, Entrada<V>> entradas = new LinkedHashMap<>();
+        final int capacidade; // Entradas mantidas neste segmento
+
+        Segmento(int capacidade) {
+            this.capacidade = capacidade;
+        }
+    }
+
+    /**
+     * Cria o cache com a capacidade e a validade padrão.
+     */
+    public CacheIdempotencia() {
+        this(CAPACIDADE_PADRAO, VALIDADE_PADRAO);
+    }
+
+    /**
+     * Cria o cache.
+     * @param capacidade A quantidade máxima de identificadores lembrados (aproximada, dividida entre os segmentos).
+     * @param validade Por quanto tempo cada identificador é lembrado.
+     */
+    public CacheIdempotencia(int capacidade, Duration validade) {
+        if (capacidade <= 0 || validade.isNegative() || validade.isZero()) {
+            throw new IllegalArgumentException("Capacidade e validade devem ser positivas");
+        }
+        int quantidade = Math.min(SEGMENTOS, Integer.highestOneBit(capacidade));
+        segmentos = novosSegmentos(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            segmentos[i] = new Segmento<>((capacidade + quantidade - 1) / quantidade);
+        }
+        validadeNanos = validade.toNanos();
+    }
+
+    /**
+     * Executa uma operação uma única vez por identificador. Sem identificador, a operação é sempre executada.
+     * @param id O identificador da operação, escolhido pelo cliente, ou null.
+     * @param requisicao A descrição da requisição, comparada por equals com a da primeira execução (um record, por exemplo).
+     * @param operacao A operação.
+     * @return O resultado da operação, ou o da primeira execução com o mesmo identificador.
+     * @throws IdentificadorReutilizado Se o identificador já foi usado com outra requisição.
+     */
+    public V executar(String id, Object requisicao, Supplier<V> operacao) {
+        if (id == null) {
+            return operacao.get();
+        }
+        Segmento<V> segmento = segmento(id);
+        CompletableFuture<V> existente;
+        CompletableFuture<V> novo = null;
+        long agora = System.nanoTime();
+        segmento.lock();
+        try {
+            Entrada<V> entrada = segmento.entradas.get(id);
+            if (entrada != null && entrada.expirada(agora)) {
+                segmento.entradas.remove(id);
+                expiracoes.increment();
+                entrada = null;
+            }
+            if (entrada != null && !Objects.equals(entrada.requisicao(), requisicao)) {
+                throw new IdentificadorReutilizado(id);
+            }
+            existente = entrada == null ? null : entrada.resultado();
+            if (existente == null) {
+                novo = new CompletableFuture<>();
+                segmento.entradas.put(id, new Entrada<>(requisicao, novo, agora + validadeNanos));
+                descartarExcedentes(segmento, agora);
+            }
+        } finally {
+            segmento.unlock();
+        }
+        if (existente != null) {
+            acertos.increment();
+            return aguardar(existente);
+        }
+        faltas.increment();
+        try {
+            V resultado = operacao.get();
+            novo.complete(resultado);
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            segmento.lock();
+            try {
+                Entrada<V> atual = segmento.entradas.get(id);
+                if (atual != null && atual.resultado() == novo) {
+                    segmento.entradas.remove(id); // Libera o identificador para nova tentativa
+                }
+            } finally {
+                segmento.unlock();
+            }
+            novo.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Remove do início do segmento as entradas expiradas e, se ainda exceder a capacidade, as mais antigas.
+     * Entradas de operações em andamento são mantidas, mesmo que o segmento fique acima da capacidade.
+     */
+    private void descartarExcedentes(Segmento<V> segmento, long agora) {
+        Iterator<Entrada<V>> it = segmento.entradas.values().iterator();
+        int excedentes = segmento.entradas.size() - segmento.capacidade;
+        while (it.hasNext()) {
+            Entrada<V> entrada = it.next();
+            if (!entrada.resultado().isDone()) {
+                continue; // A repetição precisa encontrar a operação em andamento
+            }
+            if (entrada.expiraEm() - agora <= 0) {
+                expiracoes.increment();
+            } else if (excedentes > 0) {
+                despejos.increment();
+            } else {
+                break;
+            }
+            it.remove();
+            excedentes--;
+        }
+    }
+
+    /**
+     * Cria o vetor de segmentos; vetores de tipo genérico só podem ser criados com curinga.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> Segmento<V>[] novosSegmentos(int quantidade) {
+        return (Segmento<V>[]) new Segmento<?>[quantidade];
+    }
+
+    private Segmento<V> segmento(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return segmentos[(h ^ (h >>> 16)) & (segmentos.length - 1)];
+    }
+
+    /**
+     * Aguarda o resultado da primeira execução, repassando a sua exceção, se houver.
+     */
+    private static <V> V aguardar(CompletableFuture<V> resultado) {
+        try {
+            return resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException r) {
+                throw r;
+            }
+            if (e.getCause() instanceof Error erro) {
+                throw erro;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Retorna a quantidade de identificadores lembrados no momento, incluindo expirados ainda não descartados.
+     * @return O número de entradas.
+     */
+    public int tamanho() {
+        int total = 0;
+        for (Segmento<V> segmento : segmentos) {
+            segmento.lock();
+            try {
+                total += segmento.entradas.size();
+            } finally {
+                segmento.unlock();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Retorna as estatísticas do cache desde a criação ou a última chamada a zerarEstatisticas.
+     * @return Acertos, faltas, despejos por capacidade, expirações e tamanho atual, por nome.
+     */
+    public Map<String, Long> getEstatisticas() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("acertos", acertos.sum());
+        m.put("faltas", faltas.sum());
+        m.put("despejos", despejos.sum());
+        m.put("expiracoes", expiracoes.sum());
+        m.put("tamanho", (long) tamanho());
+        return m;
+    }
+
+    /**
+     * Zera os contadores de acertos, faltas, despejos e expirações, sem esquecer os identificadores.
+     */
+    public void zerarEstatisticas() {
+        acertos.reset();
+        faltas.reset();
+        despejos.reset();
+        expiracoes.reset();
+    }
+}
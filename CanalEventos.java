@@ -0,0 +1,21 @@
+/**
+ * Destino das notificações produzidas pelas operações das contas. As contas publicam o resultado
+ * de cada operação no canal do sistema bancário em que estão registradas, em vez de escrever
+ * diretamente no console; o modo interativo usa o console, e os modos em lote e servidor usam o
+ * canal nulo ou um canal assíncrono.
+ */
+public interface CanalEventos {
+    /** Canal que descarta as notificações. */
+    CanalEventos NULO = resultado -> {
+    };
+
+    /** Canal que escreve a mensagem de cada resultado no console, na própria thread da operação. */
+    CanalEventos CONSOLE = resultado -> System.out.println(resultado.mensagem());
+
+    /**
+     * Recebe o resultado de uma operação. Chamado na thread da operação, logo após a alteração do
+     * saldo; implementações não devem bloquear.
+     * @param resultado O resultado da operação.
+     */
+    void publicar(ResultadoOperacao resultado);
+}
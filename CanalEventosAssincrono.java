@@ -0,0 +1,93 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Canal de eventos assíncrono: as operações apenas enfileiram o resultado em uma fila limitada,
+ * e uma thread de escoamento o entrega em lotes ao canal de destino (por exemplo, o console).
+ * Se a fila estiver cheia, o evento é descartado e contado, de modo que uma saída lenta nunca
+ * atrasa as operações bancárias.
+ */
+public class CanalEventosAssincrono implements CanalEventos, AutoCloseable {
+    private static final int TAMANHO_LOTE = 256; // Eventos entregues ao destino por vez
+
+    private final BlockingQueue<ResultadoOperacao> fila; // Eventos aguardando entrega
+    private final CanalEventos destino; // Canal que recebe os eventos na thread de escoamento
+    private final LongAdder descartados = new LongAdder(); // Eventos perdidos por fila cheia
+    private final Thread escoamento;
+    private volatile boolean fechado;
+
+    /**
+     * Constrói o canal e inicia a thread de escoamento.
+     * @param destino O canal que recebe os eventos.
+     * @param capacidade A quantidade máxima de eventos aguardando entrega.
+     */
+    public CanalEventosAssincrono(CanalEventos destino, int capacidade) {
+        this.destino = destino;
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.escoamento = new Thread(this::escoar, "canal-eventos");
+        this.escoamento.setDaemon(true);
+        this.escoamento.start();
+    }
+
+    /**
+     * Enfileira o resultado sem bloquear; se a fila estiver cheia, o evento é descartado.
+     * @param resultado O resultado da operação.
+     */
+    @Override
+    public void publicar(ResultadoOperacao resultado) {
+        if (fechado || !fila.offer(resultado)) {
+            descartados.increment();
+        }
+    }
+
+    /**
+     * Retorna a quantidade de eventos descartados por fila cheia ou canal fechado.
+     * @return O número de eventos descartados.
+     */
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    /**
+     * Deixa de aceitar eventos, entrega os que ainda estão na fila e encerra a thread de escoamento.
+     */
+    @Override
+    public void close() {
+        fechado = true;
+        try {
+            escoamento.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void escoar() {
+        List<ResultadoOperacao> lote = new ArrayList<>(TAMANHO_LOTE);
+        while (true) {
+            try {
+                ResultadoOperacao primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    if (fechado && fila.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                lote.add(primeiro);
+            } catch (InterruptedException e) {
+                return;
+            }
+            fila.drainTo(lote, TAMANHO_LOTE - 1);
+            for (ResultadoOperacao resultado : lote) {
+                try {
+                    destino.publicar(resultado);
+                } catch (RuntimeException e) {
+                    descartados.increment(); // Uma falha no destino não interrompe o escoamento
+                }
+            }
+            lote.clear();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 /**
  * Classe que representa um cliente no sistema bancário.
  * Armazena informações básicas do cliente, como nome e CPF, e gerencia suas contas.
@@ -7,7 +10,11 @@ import java.util.List;
 public class Cliente {
     private final String nome;  // Nome do cliente
     private final String cpf;   // CPF do cliente, utilizado como identificador único
-    private List<Conta> contas; // Lista de contas bancárias associadas ao cliente
+    private List<Conta> contas; // Lista de contas bancárias associadas ao cliente (segura para leitura concorrente)
+    private volatile SistemaBancario sistema; // Sistema bancário em que o cliente está cadastrado, se houver
+    private final AtomicLong saldoTotal = new AtomicLong(); // Soma dos saldos das contas, mantida a cada alteração, em centavos
+    private AgregadosBanco.Chave chaveRanking; // Posição atual no ranking de saldos (protegida pelo ranking)
+    private final AtomicBoolean pendenteRanking = new AtomicBoolean(); // Se o saldo mudou desde a última reordenação
 
     /**
      * Constrói um novo cliente com o nome e CPF fornecidos.
@@ -17,14 +24,32 @@ public class Cliente {
     public Cliente(String nome, String cpf) {
         this.nome = nome;
         this.cpf = cpf;
-        this.contas = new ArrayList<>();
+        this.contas = new CopyOnWriteArrayList<>(); // Poucas contas por cliente e leituras muito mais frequentes que escritas
     }
 
     /**
      * Adiciona uma nova conta à lista de contas do cliente.
+     * Se o cliente estiver cadastrado em um sistema bancário, a conta também é registrada no índice global.
+     * A conta é vinculada ao saldo total do cliente (e aos agregados do sistema) antes de aparecer na
+     * lista ou no índice, de modo que nenhuma movimentação concorrente é somada duas vezes.
      * @param conta A conta a ser adicionada ao cliente.
+     * @return true se a conta foi adicionada, false se o número da conta já estiver em uso no sistema.
      */
-    public void adicionarConta(Conta conta) {
+    public boolean adicionarConta(Conta conta) {
+        if (sistema != null) {
+            return sistema.registrarConta(this, conta); // Vincula, registra e então anexa a conta
+        }
+        conta.vincularTitular(this);
+        contas.add(conta);
+        return true;
+    }
+
+    /**
+     * Inclui na lista uma conta já vinculada ao cliente e registrada no sistema bancário.
+     * Chamado pelo sistema bancário ao registrar a conta.
+     * @param conta A conta.
+     */
+    void anexarConta(Conta conta) {
         contas.add(conta);
     }
 
@@ -34,7 +59,67 @@ public class Cliente {
      * @return true se a conta foi removida com sucesso, false caso a conta não seja encontrada.
      */
     public boolean removerConta(int numeroConta) {
-        return contas.removeIf(conta -> conta.getNumero() == numeroConta);
+        Conta conta = buscarConta(numeroConta);
+        if (conta == null || !contas.remove(conta)) {
+            return false;
+        }
+        conta.desvincularTitular();
+        if (sistema != null) {
+            sistema.removerRegistroConta(conta);
+        }
+        return true;
+    }
+
+    /**
+     * Soma uma variação de saldo de uma das contas ao saldo total do cliente e
+     * sinaliza a mudança ao ranking do sistema bancário.
+     * @param variacao A variação do saldo, em centavos.
+     */
+    void registrarVariacao(long variacao) {
+        saldoTotal.addAndGet(variacao);
+        SistemaBancario s = sistema;
+        if (s != null) {
+            s.registrarVariacao(this);
+        }
+    }
+
+    /**
+     * Associa o cliente ao sistema bancário em que foi cadastrado.
+     * @param sistema O sistema bancário que mantém o índice global de contas.
+     */
+    void vincularSistema(SistemaBancario sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Retorna a posição do cliente no ranking de saldos.
+     * @return A chave atual no ranking.
+     */
+    AgregadosBanco.Chave getChaveRanking() {
+        return chaveRanking;
+    }
+
+    /**
+     * Atualiza a posição do cliente no ranking de saldos.
+     * @param chaveRanking A nova chave no ranking.
+     */
+    void setChaveRanking(AgregadosBanco.Chave chaveRanking) {
+        this.chaveRanking = chaveRanking;
+    }
+
+    /**
+     * Marca o cliente como pendente de reordenação no ranking.
+     * @return true se o cliente não estava pendente e deve ser enfileirado.
+     */
+    boolean marcarPendenteRanking() {
+        return !pendenteRanking.get() && pendenteRanking.compareAndSet(false, true);
+    }
+
+    /**
+     * Limpa a marca de pendência antes da reordenação do cliente no ranking.
+     */
+    void limparPendenteRanking() {
+        pendenteRanking.set(false);
     }
 
     /**
@@ -56,11 +141,24 @@ public class Cliente {
      * @return O saldo total de todas as contas do cliente.
      */
     public double calcularSaldoTotal() {
-        double total = 0;
-        for (Conta conta : contas) {
-            total += conta.getSaldo();
-        }
-        return total;
+        return Dinheiro.paraReais(calcularSaldoTotalCentavos());
+    }
+
+    /**
+     * Retorna o saldo total combinado de todas as contas do cliente, em centavos.
+     * O total é mantido a cada alteração de saldo, sem percorrer as contas.
+     * @return O saldo total de todas as contas do cliente, em centavos.
+     */
+    public long calcularSaldoTotalCentavos() {
+        return saldoTotal.get();
+    }
+
+    /**
+     * Retorna as contas do cliente sem copiá-las, para percursos internos.
+     * @return As contas (somente leitura).
+     */
+    List<Conta> contasCadastradas() {
+        return contas;
     }
 
     /**
@@ -99,12 +197,13 @@ public class Cliente {
         }
         for (Conta conta : contas) {
             System.out.println("\n---- Conta Número: " + conta.getNumero() + " ----");
-            List<String> transacoes = conta.getTransacoes();
-            if (transacoes.isEmpty()) {
+            JornalTransacoes jornal = conta.getJornal();
+            int quantidade = jornal.tamanho();
+            if (quantidade == 0) {
                 System.out.println("Sem transações neste período.");
             } else {
-                for (String transacao : transacoes) {
-                    System.out.println(transacao);
+                for (int i = 0; i < quantidade; i++) {
+                    System.out.println(jornal.formatar(i));
                 }
             }
         }
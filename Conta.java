@@ -1,17 +1,39 @@
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.LongUnaryOperator;
+import java.util.random.RandomGenerator;
 /**
  * Classe abstrata que define a estrutura e o comportamento básicos de uma conta bancária.
  * Inclui operações comuns como depósitos e saques, além de manter um registro de transações.
+ * O saldo é atualizado sem bloqueios, por operações atômicas de comparação e troca (CAS),
+ * permitindo depósitos e saques simultâneos a partir de várias threads.
  */
 public abstract class Conta {
+    /** Valor retornado por debitar quando o saldo (mais o limite) não cobre o valor solicitado. */
+    protected static final long SALDO_INSUFICIENTE = Long.MIN_VALUE;
+    private static final VarHandle SALDO; // Acesso atômico ao campo saldo
+
+    static {
+        try {
+            SALDO = MethodHandles.lookup().findVarHandle(Conta.class, "saldo", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private int numero; // Número da conta
-    private double saldo; // Saldo atual da conta
+    private volatile long saldo; // Saldo atual da conta, em centavos
     private Cliente cliente; // Cliente titular da conta
-    private List<String> transacoes; // Lista de transações realizadas na conta
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"); // Formatador de data para transações
+    private JornalTransacoes transacoes; // Registro das transações realizadas na conta
+    private volatile Cliente titularVinculado; // Cliente cujo saldo total acompanha esta conta, após adicionarConta
+    private volatile AgregadosBanco.Tipo agregado; // Totais do tipo desta conta no sistema bancário, após o registro
+    private volatile SistemaBancario sistema; // Sistema bancário em que a conta está registrada, se houver
+    private volatile long epocaRegistro; // Época em que a conta foi registrada no sistema (veja ControleVersoes)
+    private volatile long epocaEscrita;  // Época da última escrita iniciada no saldo
+    private volatile ControleVersoes.Versao versoes; // Saldos preservados para snapshots abertos, do mais recente ao mais antigo
+    private volatile FechamentoMensal.SituacaoConta fechamento; // Último lançamento do fechamento mensal, ou null
 
     /**
      * Constrói uma conta bancária com número e cliente especificados.
@@ -21,65 +43,643 @@ public abstract class Conta {
     public Conta(int numero, Cliente cliente) {
         this.numero = numero;
         this.cliente = cliente;
-        this.saldo = 0.0; // Inicia com saldo zero
-        this.transacoes = new ArrayList<>(); // Lista de transações inicialmente vazia
+        this.saldo = 0; // Inicia com saldo zero
+        this.transacoes = new JornalTransacoes(); // Jornal de transações inicialmente vazio
     }
 
     /**
      * Deposita um valor na conta, se o valor for positivo, e registra a transação.
+     * O resultado também é publicado no canal de eventos do sistema bancário.
      * @param valor O valor a ser depositado.
+     * @return O resultado da operação.
      */
-    public void depositar(double valor) {
-        if (valor < 0) {
-            System.out.println("Digite um valor positivo.");
-        } else {
-            alterarSaldo(valor);
-            registrarTransacao(valor, "Depósito");
+    public ResultadoOperacao depositar(double valor) {
+        long inicio = System.nanoTime();
+        long centavos = Dinheiro.deReais(valor);
+        if (centavos < 0) {
+            return publicar(ResultadoOperacao.Operacao.DEPOSITO, ResultadoOperacao.Situacao.VALOR_INVALIDO, centavos, 0, saldo, inicio);
         }
+        return publicar(ResultadoOperacao.Operacao.DEPOSITO, ResultadoOperacao.Situacao.REALIZADA, centavos, 0,
+                depositarCentavos(centavos), inicio);
     }
 
     /**
      * Saca um valor da conta se houver saldo suficiente e o valor for positivo, e registra a transação.
+     * O resultado também é publicado no canal de eventos do sistema bancário.
      * @param valor O valor a ser sacado.
+     * @return O resultado da operação.
      */
-    public void sacar(double valor) {
-        if (valor < 0) {
-            System.out.println("Operação inválida. Digite um valor do saque positivo.");
-            return;
+    public ResultadoOperacao sacar(double valor) {
+        long inicio = System.nanoTime();
+        long centavos = Dinheiro.deReais(valor);
+        if (centavos < 0) {
+            return publicar(ResultadoOperacao.Operacao.SAQUE, ResultadoOperacao.Situacao.VALOR_INVALIDO, centavos, 0, saldo, inicio);
         }
-        if (valor <= getSaldo()) {
-            alterarSaldo(-valor);
-            registrarTransacao(-valor, "Saque");
+        long novo = sacarCentavos(centavos);
+        if (novo == SALDO_INSUFICIENTE) {
+            return publicar(ResultadoOperacao.Operacao.SAQUE, ResultadoOperacao.Situacao.SALDO_INSUFICIENTE, centavos, 0, saldo, inicio);
+        }
+        return publicar(ResultadoOperacao.Operacao.SAQUE, ResultadoOperacao.Situacao.REALIZADA, centavos,
+                encargosNoSaque(centavos), novo, inicio);
+    }
+
+    /**
+     * Deposita um valor uma única vez por identificador de operação: se o identificador já foi usado
+     * recentemente no sistema bancário, devolve o resultado original sem depositar de novo.
+     * Contas fora de um sistema bancário não lembram identificadores.
+     * @param valor O valor a ser depositado.
+     * @param idOperacao O identificador da operação, escolhido pelo cliente, ou null.
+     * @return O resultado da operação ou da sua primeira execução.
+     */
+    public ResultadoOperacao depositar(double valor, String idOperacao) {
+        SistemaBancario s = sistema;
+        return s == null ? depositar(valor)
+                : s.executarUmaVez(idOperacao, ResultadoOperacao.Operacao.DEPOSITO, numero, Dinheiro.deReais(valor), () -> depositar(valor));
+    }
+
+    /**
+     * Saca um valor uma única vez por identificador de operação: se o identificador já foi usado
+     * recentemente no sistema bancário, devolve o resultado original sem sacar de novo.
+     * Contas fora de um sistema bancário não lembram identificadores.
+     * @param valor O valor a ser sacado.
+     * @param idOperacao O identificador da operação, escolhido pelo cliente, ou null.
+     * @return O resultado da operação ou da sua primeira execução.
+     */
+    public ResultadoOperacao sacar(double valor, String idOperacao) {
+        SistemaBancario s = sistema;
+        return s == null ? sacar(valor)
+                : s.executarUmaVez(idOperacao, ResultadoOperacao.Operacao.SAQUE, numero, Dinheiro.deReais(valor), () -> sacar(valor));
+    }
+
+    /**
+     * Calcula os encargos debitados junto com um saque, além do valor sacado.
+     * As contas que cobram imposto ou taxa no saque sobrescrevem este método.
+     * @param centavos O valor sacado, em centavos.
+     * @return Os encargos, em centavos.
+     */
+    protected long encargosNoSaque(long centavos) {
+        return 0;
+    }
+
+    /**
+     * Retorna o crédito disponível além do saldo para saques e transferências enviadas.
+     * As contas com limite de crédito sobrescrevem este método.
+     * @return O limite, em centavos.
+     */
+    protected long limiteSaque() {
+        return 0;
+    }
+
+    /**
+     * Monta o resultado de uma operação, registra-o nas métricas e o publica no canal de eventos do
+     * sistema bancário em que a conta está registrada; contas fora de um sistema publicam no console.
+     * @param operacao A operação realizada.
+     * @param situacao A situação final da operação.
+     * @param valor O valor da operação, em centavos.
+     * @param encargos Os encargos debitados, em centavos.
+     * @param saldoFinal O saldo após a operação, em centavos.
+     * @param inicioNanos O valor de System.nanoTime() no início da operação, para as métricas de latência.
+     * @return O resultado publicado.
+     */
+    protected final ResultadoOperacao publicar(ResultadoOperacao.Operacao operacao, ResultadoOperacao.Situacao situacao,
+                                               long valor, long encargos, long saldoFinal, long inicioNanos) {
+        ResultadoOperacao resultado = new ResultadoOperacao(operacao, situacao, numero, valor, encargos, saldoFinal);
+        SistemaBancario s = sistema;
+        if (s != null) {
+            s.getMetricas().registrar(resultado, this, inicioNanos);
+            s.getCanalEventos().publicar(resultado);
         } else {
-            System.out.println("Saldo insuficiente.");
+            CanalEventos.CONSOLE.publicar(resultado);
         }
+        return resultado;
+    }
+
+    /**
+     * Deposita um valor em centavos e registra a transação, sem validação do valor e sem publicar evento.
+     * Usado pelo processamento em lote e sobrescrito pelas contas que cobram taxas no depósito.
+     * @param centavos O valor a ser depositado, em centavos (não negativo).
+     * @return O saldo resultante, em centavos.
+     */
+    public long depositarCentavos(long centavos) {
+        return alterarSaldo(centavos, JornalTransacoes.DEPOSITO);
+    }
+
+    /**
+     * Saca um valor em centavos, se o saldo for suficiente, e registra a transação, sem publicar evento.
+     * Usado pelo processamento em lote. O limite e os encargos vêm de limiteSaque e encargosNoSaque.
+     * @param centavos O valor a ser sacado, em centavos (não negativo).
+     * @return O saldo resultante, ou SALDO_INSUFICIENTE se o saque não foi realizado.
+     */
+    public long sacarCentavos(long centavos) {
+        return debitar(centavos, encargosNoSaque(centavos), limiteSaque(), JornalTransacoes.SAQUE);
     }
 
     /**
-     * Modifica o saldo da conta.
+     * Modifica o saldo da conta de forma atômica e registra a transação.
      * Este método é protegido para que apenas a conta ou suas subclasses possam alterar o saldo diretamente.
-     * @param valor O valor a ser adicionado ou subtraído do saldo.
+     * @param valor O valor, em centavos, a ser adicionado ou subtraído do saldo.
+     * @param tipo O tipo da transação registrada no jornal.
+     * @return O saldo resultante, em centavos.
+     */
+    protected long alterarSaldo(long valor, byte tipo) {
+        SistemaBancario s = sistema;
+        long e = s == null ? 0 : s.iniciarEscrita(this);
+        try {
+            long novo = (long) SALDO.getAndAdd(this, valor) + valor;
+            registrarMovimento(tipo, valor, novo, System.currentTimeMillis());
+            return novo;
+        } finally {
+            if (s != null) {
+                s.concluirEscrita(e);
+            }
+        }
+    }
+
+    /**
+     * Debita atomicamente valor + encargos, desde que o valor não exceda o saldo mais o limite,
+     * e registra a transação. A verificação e o débito formam uma única operação, de modo que
+     * saques simultâneos nunca ultrapassam o saldo (ou o limite de crédito) disponível.
+     * @param valor O valor a ser coberto pelo saldo mais o limite, em centavos.
+     * @param encargos Taxas ou impostos debitados junto com o valor, em centavos.
+     * @param limite O crédito disponível além do saldo, em centavos.
+     * @param tipo O tipo da transação registrada no jornal.
+     * @return O saldo resultante, ou SALDO_INSUFICIENTE se o débito não foi realizado.
+     */
+    protected final long debitar(long valor, long encargos, long limite, byte tipo) {
+        SistemaBancario s = sistema;
+        long e = s == null ? 0 : s.iniciarEscrita(this);
+        try {
+            long atual;
+            long novo;
+            do {
+                atual = saldo;
+                if (valor > atual + limite) {
+                    return SALDO_INSUFICIENTE;
+                }
+                novo = atual - valor - encargos;
+            } while (!SALDO.weakCompareAndSet(this, atual, novo));
+            registrarMovimento(tipo, novo - atual, novo, System.currentTimeMillis());
+            return novo;
+        } finally {
+            if (s != null) {
+                s.concluirEscrita(e);
+            }
+        }
+    }
+
+    /**
+     * Debita a perna de origem de uma transferência, com as mesmas regras do saque (limite e encargos).
+     * A transação é gravada no jornal, mas não no log de operações: o sistema bancário grava a
+     * transferência inteira em um único registro depois de creditar o destino. O sistema bancário
+     * também registra as duas pernas em uma única escrita do controle de versões.
+     * @param centavos O valor transferido, em centavos.
+     * @param instante O instante da transferência, em milissegundos desde a época.
+     * @return A variação do saldo (negativa, incluindo encargos), ou SALDO_INSUFICIENTE.
+     */
+    long debitarTransferencia(long centavos, long instante) {
+        long encargos = encargosNoSaque(centavos);
+        long limite = limiteSaque();
+        long atual;
+        long novo;
+        do {
+            atual = saldo;
+            if (centavos > atual + limite) {
+                return SALDO_INSUFICIENTE;
+            }
+            novo = atual - centavos - encargos;
+        } while (!SALDO.weakCompareAndSet(this, atual, novo));
+        transacoes.registrar(instante, JornalTransacoes.TRANSFERENCIA_ENVIADA, novo - atual, novo);
+        propagarVariacao(novo - atual);
+        return novo - atual;
+    }
+
+    /**
+     * Credita a perna de destino de uma transferência. O valor é creditado integralmente: a taxa
+     * de depósito com saldo negativo da conta corrente não se aplica a transferências recebidas.
+     * Assim como no débito, a transação não é gravada no log de operações.
+     * @param centavos O valor transferido, em centavos.
+     * @param instante O instante da transferência, em milissegundos desde a época.
+     */
+    void creditarTransferencia(long centavos, long instante) {
+        long novo = (long) SALDO.getAndAdd(this, centavos) + centavos;
+        transacoes.registrar(instante, JornalTransacoes.TRANSFERENCIA_RECEBIDA, centavos, novo);
+        propagarVariacao(centavos);
+    }
+
+    /**
+     * Debita, com uma única troca atômica do saldo, um grupo de transferências enviadas por esta conta.
+     * As transferências são avaliadas na ordem do grupo, cada uma contra o saldo que restou das
+     * anteriores; as que não cabem no saldo mais o limite são recusadas sem impedir as seguintes.
+     * @param valores O valor de cada transferência do lote, em centavos.
+     * @param ordem Os índices das transferências do lote, agrupados por conta.
+     * @param inicio A primeira posição do grupo em ordem.
+     * @param fim A posição logo após o grupo em ordem.
+     * @param variacoes Recebe a variação de saldo de cada transferência do grupo, ou 0 se recusada.
+     * @param instante O instante das transferências, em milissegundos desde a época.
+     */
+    void debitarTransferencias(long[] valores, int[] ordem, int inicio, int fim, long[] variacoes, long instante) {
+        long limite = limiteSaque();
+        long atual;
+        long novo;
+        do {
+            atual = saldo;
+            novo = atual;
+            for (int k = inicio; k < fim; k++) {
+                int t = ordem[k];
+                long centavos = valores[t];
+                if (centavos > novo + limite) {
+                    variacoes[t] = 0; // Recusada: não cabe no que restou do saldo
+                } else {
+                    long debito = centavos + encargosNoSaque(centavos);
+                    novo -= debito;
+                    variacoes[t] = -debito;
+                }
+            }
+        } while (!SALDO.weakCompareAndSet(this, atual, novo));
+        registrarGrupo(JornalTransacoes.TRANSFERENCIA_ENVIADA, ordem, inicio, fim, variacoes, atual, novo, instante);
+    }
+
+    /**
+     * Credita, com uma única soma atômica ao saldo, um grupo de transferências recebidas por esta conta.
+     * @param valores O valor de cada transferência do lote, em centavos.
+     * @param ordem Os índices das transferências do lote, agrupados por conta.
+     * @param inicio A primeira posição do grupo em ordem.
+     * @param fim A posição logo após o grupo em ordem.
+     * @param instante O instante das transferências, em milissegundos desde a época.
+     */
+    void creditarTransferencias(long[] valores, int[] ordem, int inicio, int fim, long instante) {
+        long total = 0;
+        for (int k = inicio; k < fim; k++) {
+            total += valores[ordem[k]];
+        }
+        long atual = (long) SALDO.getAndAdd(this, total);
+        registrarGrupo(JornalTransacoes.TRANSFERENCIA_RECEBIDA, ordem, inicio, fim, valores, atual, atual + total, instante);
+    }
+
+    /**
+     * Grava no jornal as transações de um grupo já aplicado ao saldo, com o saldo intermediário de
+     * cada uma, e repassa a variação total aos agregados de uma só vez.
+     */
+    private void registrarGrupo(byte tipo, int[] ordem, int inicio, int fim, long[] variacoes,
+                                long saldoInicial, long saldoFinal, long instante) {
+        long corrente = saldoInicial;
+        for (int k = inicio; k < fim; k++) {
+            long variacao = variacoes[ordem[k]];
+            if (variacao != 0) {
+                corrente += variacao;
+                transacoes.registrar(instante, tipo, variacao, corrente);
+            }
+        }
+        propagarVariacao(saldoFinal - saldoInicial);
+    }
+
+    /**
+     * Substitui o saldo somente se ele ainda for igual ao valor esperado e, nesse caso, registra a transação.
+     * Usado pelas subclasses em laços de leitura, cálculo e troca, quando o ajuste depende do saldo atual.
+     * @param esperado O saldo lido antes do cálculo, em centavos.
+     * @param novo O novo saldo, em centavos.
+     * @param tipo O tipo da transação registrada no jornal.
+     * @return true se o saldo foi atualizado, false se foi alterado por outra operação nesse intervalo.
+     */
+    protected final boolean compararEAtualizarSaldo(long esperado, long novo, byte tipo) {
+        SistemaBancario s = sistema;
+        long e = s == null ? 0 : s.iniciarEscrita(this);
+        try {
+            if (SALDO.compareAndSet(this, esperado, novo)) {
+                registrarMovimento(tipo, novo - esperado, novo, System.currentTimeMillis());
+                return true;
+            }
+            return false;
+        } finally {
+            if (s != null) {
+                s.concluirEscrita(e);
+            }
+        }
+    }
+
+    /**
+     * Reaplica uma movimentação lida do log de operações durante a recuperação do sistema,
+     * preservando o instante original no jornal. Não passa pelas regras de negócio, que já
+     * foram verificadas quando a operação ocorreu.
+     * @param tipo O tipo da transação.
+     * @param variacao A variação do saldo, em centavos.
+     * @param instante O instante original da transação, em milissegundos desde a época.
+     */
+    void reaplicarMovimento(byte tipo, long variacao, long instante) {
+        SistemaBancario s = sistema;
+        long e = s == null ? 0 : s.iniciarEscrita(this);
+        try {
+            long novo = (long) SALDO.getAndAdd(this, variacao) + variacao;
+            registrarMovimento(tipo, variacao, novo, instante);
+        } finally {
+            if (s != null) {
+                s.concluirEscrita(e);
+            }
+        }
+    }
+
+    /**
+     * Restaura o saldo gravado em um snapshot, sem registrar transação no jornal.
+     * @param saldoRestaurado O saldo, em centavos.
+     */
+    void restaurarSaldo(long saldoRestaurado) {
+        SistemaBancario s = sistema;
+        long e = s == null ? 0 : s.iniciarEscrita(this);
+        try {
+            long anterior = (long) SALDO.getAndSet(this, saldoRestaurado);
+            propagarVariacao(saldoRestaurado - anterior);
+        } finally {
+            if (s != null) {
+                s.concluirEscrita(e);
+            }
+        }
+    }
+
+    /**
+     * Calcula o rendimento do mês cobrado no fechamento mensal (veja FechamentoMensal).
+     * Contas sem rendimento devolvem zero.
+     * @param saldo O saldo, em centavos.
+     * @param gerador O gerador da taxa sorteada; o mesmo sorteio a cada chamada para a conta.
+     * @return O rendimento bruto, em centavos (pode ser negativo).
      */
-    protected void alterarSaldo(double valor) {
-        this.saldo += valor;
+    long rendimentoMensal(long saldo, RandomGenerator gerador) {
+        return 0;
     }
 
     /**
-     * Registra uma transação na lista de transações da conta.
-     * @param valor O valor da transação.
-     * @param tipo O tipo de transação (por exemplo, "Depósito" ou "Saque").
+     * Calcula as tarifas e juros do mês cobrados no fechamento mensal. Contas sem tarifas devolvem zero.
+     * @param saldo O saldo, em centavos.
+     * @param rendimento O rendimento lançado no mês, em centavos.
+     * @return O valor a debitar, em centavos.
      */
-    private void registrarTransacao(double valor, String tipo) {
-        LocalDateTime agora = LocalDateTime.now();
-        String timestamp = agora.format(formatter);
-        transacoes.add(String.format("%s: %s R$ %.2f | Saldo: R$ %.2f", timestamp, tipo, valor, getSaldo()));
+    long tarifaMensal(long saldo, long rendimento) {
+        return 0;
+    }
+
+    /**
+     * Calcula o imposto provisionado sobre o rendimento do mês, que é cobrado apenas no saque.
+     * @param rendimento O rendimento lançado no mês, em centavos.
+     * @return O imposto, em centavos.
+     */
+    long impostoMensal(long rendimento) {
+        return 0;
+    }
+
+    /**
+     * Retorna o último lançamento do fechamento mensal na conta.
+     * @return A marca da etapa e os valores do mês, ou null se a conta nunca passou por um fechamento.
+     */
+    FechamentoMensal.SituacaoConta getFechamento() {
+        return fechamento;
+    }
+
+    /**
+     * Lança uma etapa do fechamento mensal, se a conta ainda não recebeu essa marca ou uma posterior.
+     * A variação é calculada sobre o saldo atual e aplicada por troca atômica, como nas demais operações;
+     * a marca é gravada no log no mesmo registro da variação, mesmo quando ela é zero. Apenas o
+     * fechamento em execução lança etapas, uma conta por vez, de modo que a marca não precisa de trava.
+     * @param marca A marca da etapa (veja FechamentoMensal.marca).
+     * @param tipo O tipo da transação registrada no jornal, se a variação não for zero.
+     * @param calculo Calcula a variação a partir do saldo; pode ser chamado mais de uma vez.
+     * @return true se a etapa foi lançada agora, false se já havia sido lançada.
+     */
+    boolean lancarFechamento(long marca, byte tipo, LongUnaryOperator calculo) {
+        FechamentoMensal.SituacaoConta atual = fechamento;
+        if (atual != null && atual.marca() >= marca) {
+            return false;
+        }
+        SistemaBancario s = sistema;
+        long e = s == null ? 0 : s.iniciarEscrita(this);
+        try {
+            long anterior;
+            long variacao;
+            do {
+                anterior = saldo;
+                variacao = calculo.applyAsLong(anterior);
+            } while (!SALDO.weakCompareAndSet(this, anterior, anterior + variacao));
+            long instante = System.currentTimeMillis();
+            if (variacao != 0) {
+                transacoes.registrar(instante, tipo, variacao, anterior + variacao);
+                propagarVariacao(variacao);
+            }
+            fechamento = FechamentoMensal.SituacaoConta.apos(atual, marca, variacao);
+            if (s != null) {
+                s.registrarFechamento(this, marca, tipo, variacao, instante);
+            }
+            return true;
+        } finally {
+            if (s != null) {
+                s.concluirEscrita(e);
+            }
+        }
+    }
+
+    /**
+     * Reaplica um lançamento do fechamento mensal lido do log durante a recuperação, com a sua marca.
+     * @param marca A marca da etapa.
+     * @param tipo O tipo da transação.
+     * @param variacao A variação do saldo, em centavos.
+     * @param instante O instante original do lançamento, em milissegundos desde a época.
+     */
+    void reaplicarFechamento(long marca, byte tipo, long variacao, long instante) {
+        if (variacao != 0) {
+            reaplicarMovimento(tipo, variacao, instante);
+        }
+        fechamento = FechamentoMensal.SituacaoConta.apos(fechamento, marca, variacao);
+    }
+
+    /**
+     * Restaura o último lançamento do fechamento mensal gravado em um snapshot.
+     * @param situacao O lançamento, ou null.
+     */
+    void restaurarFechamento(FechamentoMensal.SituacaoConta situacao) {
+        fechamento = situacao;
+    }
+
+    /**
+     * Retorna a época da última escrita iniciada no saldo (veja ControleVersoes).
+     * @return A época, ou zero se a conta não foi alterada desde o registro no sistema.
+     */
+    long getEpocaEscrita() {
+        return epocaEscrita;
+    }
+
+    /**
+     * Registra a época em que a conta passou a fazer parte do sistema; snapshots de épocas
+     * anteriores não a enxergam. Chamado pelo sistema bancário dentro de uma escrita.
+     * @param epoca A época do registro.
+     */
+    void marcarRegistro(long epoca) {
+        epocaRegistro = epoca;
+        epocaEscrita = Math.max(epocaEscrita, epoca);
+    }
+
+    /**
+     * Indica se a conta estava registrada no sistema ao fim de uma época.
+     * @param epoca A época do snapshot.
+     * @return true se o registro é da época ou anterior.
+     */
+    boolean registradaAte(long epoca) {
+        long r = epocaRegistro;
+        return r != 0 && r <= epoca;
+    }
+
+    /**
+     * Preserva o saldo e o tamanho do jornal antes da primeira escrita de uma época, se algum snapshot
+     * aberto puder precisar deles, e descarta as versões que nenhum snapshot aberto usa.
+     * Chamado por ControleVersoes depois que as escritas das épocas anteriores terminaram.
+     * @param epoca A época da escrita que vai começar.
+     * @param menorAberta A época do snapshot aberto mais antigo, ou Long.MAX_VALUE.
+     */
+    synchronized void preservarVersao(long epoca, long menorAberta) {
+        if (epocaEscrita >= epoca) {
+            return; // Outra escrita da mesma época chegou antes
+        }
+        ControleVersoes.Versao v = versoes;
+        if (v != null && v.epoca < menorAberta) {
+            v = null; // Nenhum snapshot aberto usa versões mais antigas que o mais antigo aberto
+        } else {
+            for (ControleVersoes.Versao n = v; n != null; n = n.anterior) {
+                if (n.anterior != null && n.anterior.epoca < menorAberta) {
+                    n.anterior = null;
+                }
+            }
+        }
+        versoes = menorAberta < epoca ? new ControleVersoes.Versao(epoca - 1, saldo, transacoes.tamanho(), v) : v;
+        epocaEscrita = epoca; // Publicado depois da versão: quem vê a época nova encontra a versão
+    }
+
+    /**
+     * Retorna o saldo ao fim de uma época cujas escritas já terminaram (a de um snapshot aberto).
+     * @param epoca A época do snapshot.
+     * @return O saldo naquele momento, em centavos.
+     */
+    long saldoNaEpoca(long epoca) {
+        if (epocaEscrita <= epoca) {
+            long atual = saldo;
+            if (epocaEscrita <= epoca) {
+                return atual; // Nenhuma escrita posterior ao snapshot começou antes desta leitura
+            }
+        }
+        return versaoDaEpoca(epoca).saldo;
+    }
+
+    /**
+     * Retorna a quantidade de transações no jornal ao fim de uma época cujas escritas já terminaram.
+     * @param epoca A época do snapshot.
+     * @return O número de transações naquele momento.
+     */
+    int transacoesNaEpoca(long epoca) {
+        if (epocaEscrita <= epoca) {
+            int atual = transacoes.tamanho();
+            if (epocaEscrita <= epoca) {
+                return atual;
+            }
+        }
+        return versaoDaEpoca(epoca).transacoes;
+    }
+
+    /**
+     * A versão preservada pela primeira escrita posterior à época: a mais antiga com época maior ou igual.
+     */
+    private ControleVersoes.Versao versaoDaEpoca(long epoca) {
+        ControleVersoes.Versao encontrada = null;
+        for (ControleVersoes.Versao n = versoes; n != null && n.epoca >= epoca; n = n.anterior) {
+            encontrada = n;
+        }
+        return encontrada;
+    }
+
+    /**
+     * Registra uma movimentação já aplicada ao saldo: grava a transação no jornal, atualiza os
+     * agregados e, se o sistema bancário mantiver um log de operações, acrescenta-a ao log.
+     * @param tipo O tipo da transação.
+     * @param variacao A variação do saldo, em centavos.
+     * @param saldoResultante O saldo logo após a transação, em centavos.
+     * @param instante O instante da transação, em milissegundos desde a época.
+     */
+    private void registrarMovimento(byte tipo, long variacao, long saldoResultante, long instante) {
+        transacoes.registrar(instante, tipo, variacao, saldoResultante);
+        propagarVariacao(variacao);
+        SistemaBancario s = sistema;
+        if (s != null) {
+            s.registrarMovimento(this, tipo, variacao, instante);
+        }
+    }
+
+    /**
+     * Repassa uma variação de saldo aos agregados mantidos incrementalmente:
+     * a custódia do tipo da conta e o saldo total do titular.
+     * @param variacao A variação do saldo, em centavos.
+     */
+    private void propagarVariacao(long variacao) {
+        if (variacao == 0) {
+            return;
+        }
+        AgregadosBanco.Tipo tipo = agregado;
+        if (tipo != null) {
+            tipo.saldo.add(variacao);
+        }
+        Cliente titular = titularVinculado;
+        if (titular != null) {
+            titular.registrarVariacao(variacao);
+        }
+    }
+
+    /**
+     * Passa a acompanhar o saldo total do cliente ao qual a conta foi adicionada,
+     * incorporando o saldo atual. Chamado por Cliente.adicionarConta.
+     * @param titular O cliente que passou a listar esta conta.
+     */
+    void vincularTitular(Cliente titular) {
+        titularVinculado = titular;
+        titular.registrarVariacao(saldo);
+    }
+
+    /**
+     * Deixa de acompanhar o saldo total do cliente, retirando dele o saldo atual. Chamado por Cliente.removerConta.
+     */
+    void desvincularTitular() {
+        Cliente titular = titularVinculado;
+        titularVinculado = null;
+        titular.registrarVariacao(-saldo);
+    }
+
+    /**
+     * Associa a conta ao sistema bancário em que foi registrada, passando a somar as variações de
+     * saldo aos totais do seu tipo (a partir do saldo atual) e a enviá-las ao log de operações.
+     * @param sistema O sistema bancário.
+     * @param tipo Os totais do tipo desta conta.
+     */
+    void vincularSistema(SistemaBancario sistema, AgregadosBanco.Tipo tipo) {
+        this.sistema = sistema;
+        agregado = tipo;
+        tipo.saldo.add(saldo);
+    }
+
+    /**
+     * Desfaz o vínculo com o sistema bancário, retirando o saldo atual dos totais do tipo.
+     */
+    void desvincularSistema() {
+        AgregadosBanco.Tipo tipo = agregado;
+        sistema = null;
+        agregado = null;
+        tipo.saldo.add(-saldo);
     }
 
     /**
      * Retorna o saldo atual da conta.
-     * @return O saldo da conta.
+     * @return O saldo da conta, em reais.
      */
     public double getSaldo() {
+        return Dinheiro.paraReais(saldo);
+    }
+
+    /**
+     * Retorna o saldo atual da conta em centavos, sem conversão para ponto flutuante.
+     * @return O saldo da conta, em centavos.
+     */
+    public long getSaldoCentavos() {
         return saldo;
     }
 
@@ -101,9 +701,72 @@ public abstract class Conta {
 
     /**
      * Retorna a lista de todas as transações realizadas na conta.
+     * A lista é uma visão somente leitura do jornal; cada linha é formatada ao ser acessada.
      * @return A lista de transações.
      */
     public List<String> getTransacoes() {
+        return transacoes.comoLista();
+    }
+
+    /**
+     * Consulta uma página do extrato da conta em um período.
+     * O período é localizado no jornal por busca binária, e a página apenas referencia as
+     * transações, sem copiá-las. Transações registradas durante a paginação que caiam no
+     * período aparecem nas páginas seguintes, pois o jornal só cresce no final.
+     * @param de O início do período (inclusivo), ou null para desde a primeira transação.
+     * @param ate O fim do período (exclusivo), ou null para até a transação mais recente.
+     * @param tamanhoPagina A quantidade máxima de transações na página.
+     * @param cursor PaginaExtrato.INICIO para a primeira página, ou o cursor devolvido pela página anterior.
+     * @return A página do extrato, com os saldos de abertura e fechamento do período.
+     */
+    public PaginaExtrato extrato(Instant de, Instant ate, int tamanhoPagina, long cursor) {
+        long inicioConsulta = System.nanoTime();
+        int quantidade = transacoes.tamanho(); // Leitura única: as transações até aqui estão publicadas
+        PaginaExtrato pagina = extrato(de, ate, tamanhoPagina, cursor, quantidade, quantidade == 0 ? getSaldoCentavos() : 0);
+        SistemaBancario s = sistema;
+        if (s != null) {
+            s.getMetricas().registrar(Metricas.Operacao.EXTRATO, inicioConsulta);
+        }
+        return pagina;
+    }
+
+    /**
+     * Monta uma página do extrato considerando apenas as primeiras transações do jornal.
+     * @param quantidade A quantidade de transações consideradas.
+     * @param saldoSemTransacoes O saldo usado na abertura e no fechamento quando não há transações consideradas.
+     */
+    PaginaExtrato extrato(Instant de, Instant ate, int tamanhoPagina, long cursor, int quantidade, long saldoSemTransacoes) {
+        if (tamanhoPagina <= 0) {
+            throw new IllegalArgumentException("Tamanho de página deve ser positivo: " + tamanhoPagina);
+        }
+        if (cursor < 0) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+        JornalTransacoes jornal = transacoes;
+        int inicioPeriodo = de == null ? 0 : jornal.buscarInstante(de.toEpochMilli(), quantidade);
+        int fimPeriodo = ate == null ? quantidade : jornal.buscarInstante(ate.toEpochMilli(), quantidade);
+        fimPeriodo = Math.max(fimPeriodo, inicioPeriodo);
+        long saldoAbertura;
+        if (inicioPeriodo < quantidade) {
+            saldoAbertura = jornal.getSaldoAnterior(inicioPeriodo);
+        } else if (quantidade > 0) {
+            saldoAbertura = jornal.getSaldo(quantidade - 1);
+        } else {
+            saldoAbertura = saldoSemTransacoes; // Sem transações: saldo inicial ou restaurado de um snapshot
+        }
+        long saldoFechamento = fimPeriodo > inicioPeriodo ? jornal.getSaldo(fimPeriodo - 1) : saldoAbertura;
+        int inicio = (int) Math.min(Math.max(cursor, inicioPeriodo), fimPeriodo);
+        int fim = (int) Math.min((long) inicio + tamanhoPagina, fimPeriodo);
+        long proximo = fim < fimPeriodo ? fim : PaginaExtrato.SEM_PROXIMA;
+        return new PaginaExtrato(numero, jornal, inicio, fim, fimPeriodo - inicioPeriodo,
+                saldoAbertura, saldoFechamento, proximo);
+    }
+
+    /**
+     * Retorna o jornal de transações da conta, com os dados em formato primitivo.
+     * @return O jornal de transações.
+     */
+    public JornalTransacoes getJornal() {
         return transacoes;
     }
 }
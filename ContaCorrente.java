@@ -3,7 +3,10 @@
  * Inclui funcionalidades específicas como um limite de crédito e taxas especiais para depósitos quando o saldo é negativo.
  */
 public class ContaCorrente extends Conta {
-    private final double limiteCredito; // Limite de crédito permitido além do saldo disponível
+    private static final long TAXA_SALDO_NEGATIVO = Dinheiro.taxa(0.03); // Taxa de 3% sobre o saldo negativo ao depositar
+    private static final long TAXA_FIXA_SALDO_NEGATIVO = 1000; // Taxa fixa de R$10 ao depositar com saldo negativo
+    private static final long JUROS_CHEQUE_ESPECIAL = Dinheiro.taxa(0.08); // Juros mensais de 8% sobre o saldo negativo, no fechamento
+    private final long limiteCredito; // Limite de crédito permitido além do saldo disponível, em centavos
 
     /**
      * Construtor para criar uma conta corrente.
@@ -13,35 +16,85 @@ public class ContaCorrente extends Conta {
      */
     public ContaCorrente(int numero, Cliente cliente, double limiteCredito) {
         super(numero, cliente);
-        this.limiteCredito = limiteCredito;
+        this.limiteCredito = Dinheiro.deReais(limiteCredito);
     }
 
     /**
      * Deposita um valor na conta, aplicando uma taxa se o saldo atual for negativo.
+     * A taxa cobrada é informada nos encargos do resultado.
      * @param valor O valor a ser depositado.
+     * @return O resultado da operação.
      */
     @Override
-    public void depositar(double valor) {
-        if (getSaldo() < 0) {
-            // Se o saldo é negativo, calcula e aplica uma taxa antes de adicionar o valor do depósito ao saldo.
-            double taxa = -0.03 * getSaldo() + 10; // Taxa baseada no saldo negativo mais uma taxa fixa de 10
-            alterarSaldo(valor - taxa); // Aplica a taxa e atualiza o saldo
-        } else {
-            alterarSaldo(valor); // Se o saldo não é negativo, adiciona o valor diretamente ao saldo
+    public ResultadoOperacao depositar(double valor) {
+        long inicio = System.nanoTime();
+        long centavos = Dinheiro.deReais(valor);
+        if (centavos < 0) {
+            return publicar(ResultadoOperacao.Operacao.DEPOSITO, ResultadoOperacao.Situacao.VALOR_INVALIDO, centavos, 0, getSaldoCentavos(), inicio);
         }
+        long saldo = aplicarDeposito(centavos);
+        long taxa = taxaDeposito(saldo);
+        return publicar(ResultadoOperacao.Operacao.DEPOSITO, ResultadoOperacao.Situacao.REALIZADA, centavos, taxa, saldo + centavos - taxa, inicio);
     }
 
     /**
-     * Realiza um saque da conta, verificando se o valor não excede o saldo mais o limite de crédito.
-     * @param valor O valor a ser sacado.
+     * Deposita um valor em centavos, descontando a taxa de saldo negativo quando houver, sem publicar evento.
+     * @param centavos O valor a ser depositado, em centavos.
+     * @return O saldo resultante, em centavos.
      */
     @Override
-    public void sacar(double valor) {
-        // Verifica se o valor de saque é permitido considerando o saldo atual e o limite de crédito.
-        if (valor <= getSaldo() + limiteCredito) {
-            alterarSaldo(-valor); // Subtrai o valor do saldo
-        } else {
-            System.out.println("Saldo insuficiente."); // Informa ao usuário que o saldo mais o crédito não cobrem o saque
-        }
+    public long depositarCentavos(long centavos) {
+        long saldo = aplicarDeposito(centavos);
+        return saldo + centavos - taxaDeposito(saldo);
+    }
+
+    /**
+     * Credita o depósito descontando a taxa de saldo negativo, calculada sobre o saldo no momento do crédito.
+     * Compartilhado por depositar e depositarCentavos, que obtêm a taxa do saldo anterior devolvido.
+     * @return O saldo anterior ao depósito, em centavos.
+     */
+    private long aplicarDeposito(long centavos) {
+        long saldo;
+        do {
+            saldo = getSaldoCentavos();
+        } while (!compararEAtualizarSaldo(saldo, saldo + centavos - taxaDeposito(saldo), JornalTransacoes.DEPOSITO)); // Repete se o saldo mudou durante o cálculo da taxa
+        return saldo;
+    }
+
+    /**
+     * Se o saldo é negativo, calcula uma taxa baseada no saldo negativo mais uma taxa fixa de 10;
+     * caso contrário, o valor do depósito é adicionado diretamente ao saldo.
+     * Também usada pelo ArmazemContas, que aplica as mesmas regras fora do heap.
+     */
+    static long taxaDeposito(long saldo) {
+        return saldo < 0
+                ? Dinheiro.aplicarTaxa(-saldo, TAXA_SALDO_NEGATIVO, Dinheiro.ARREDONDAMENTO_ENCARGOS) + TAXA_FIXA_SALDO_NEGATIVO
+                : 0;
+    }
+
+    /**
+     * Juros mensais do cheque especial sobre o saldo negativo, cobrados no fechamento mensal.
+     */
+    @Override
+    long tarifaMensal(long saldo, long rendimento) {
+        return saldo < 0 ? Dinheiro.aplicarTaxa(-saldo, JUROS_CHEQUE_ESPECIAL, Dinheiro.ARREDONDAMENTO_ENCARGOS) : 0;
+    }
+
+    /**
+     * Permite saques e transferências que não excedam o saldo mais o limite de crédito.
+     * O limite é verificado na mesma operação atômica do débito.
+     * @return O limite de crédito, em centavos.
+     */
+    @Override
+    protected long limiteSaque() {
+        return limiteCredito;
+    }
+
+    /**
+     * Retorna o limite de crédito da conta.
+     * @return O limite de crédito, em centavos.
+     */
+    public long getLimiteCreditoCentavos() {
+        return limiteCredito;
     }
 }
@@ -1,13 +1,15 @@
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 /**
  * Classe ContaInvestimento que herda de Conta e implementa a interface IRentavel.
  * Esta classe é especializada em operações de investimento, incluindo a aplicação de rendimentos com base em taxas variáveis
  * e a imposição de impostos sobre os saques quando houver ganhos.
  */
 public class ContaInvestimento extends Conta implements IRentavel {
-    private static final double TAXA_MIN = -0.006;  // Taxa mínima de rendimento, podendo ser negativa (-0.60%).
-    private static final double TAXA_MAX = 0.015;   // Taxa máxima de rendimento (+1.50%).
-    private static final double IMPOSTO_RENDIMENTO = 0.225; // Imposto sobre o rendimento de 22.5%.
+    static final long TAXA_MIN = Dinheiro.taxa(-0.006);  // Taxa mínima de rendimento, podendo ser negativa (-0.60%).
+    static final long TAXA_MAX = Dinheiro.taxa(0.015);   // Taxa máxima de rendimento (+1.50%).
+    static final long IMPOSTO_RENDIMENTO = Dinheiro.taxa(0.225); // Imposto sobre o rendimento de 22.5%.
+    static final long TAXA_GESTAO = Dinheiro.taxa(0.01); // Taxa de gestão de 1% sobre rendimentos positivos.
 
     /**
      * Construtor para criar uma conta de investimento.
@@ -19,54 +21,110 @@ public class ContaInvestimento extends Conta implements IRentavel {
     }
 
     /**
-     * Deposita um valor na conta, verificando se o valor é positivo.
-     * @param valor O valor a ser depositado.
+     * Calcula o imposto sobre o rendimento cobrado no saque: 22.5% do valor sacado.
+     * @param centavos O valor sacado, em centavos.
+     * @return O imposto, em centavos.
      */
     @Override
-    public void depositar(double valor) {
-        if (valor < 0) {
-            System.out.println("Digite um valor positivo.");
-        } else {
-            alterarSaldo(valor);
-            System.out.println("Depósito de R$" + String.format("%.2f", valor) + " realizado com sucesso.");
-        }
+    protected long encargosNoSaque(long centavos) {
+        return impostoNoSaque(centavos);
     }
 
     /**
-     * Realiza um saque da conta, aplicando imposto sobre o montante sacado se houver rendimentos.
-     * @param valor O valor a ser sacado.
+     * Calcula o imposto de 22.5% sobre um saque, compartilhado com o ArmazemContas.
      */
-    @Override
-    public void sacar(double valor) {
-        if (valor < 0) {
-            System.out.println("Operação inválida. Digite um valor de saque positivo.");
-            return;
-        }
-        if (valor <= getSaldo()) {
-            double imposto = valor * IMPOSTO_RENDIMENTO;
-            alterarSaldo(-(valor + imposto));
-            System.out.println("Saque de R$" + String.format("%.2f", valor) + 
-                               " realizado com sucesso. Imposto de R$" + 
-                               String.format("%.2f", imposto) + 
-                               " sobre o rendimento incluído.");
-        } else {
-            System.out.println("Saldo insuficiente.");
-        }
+    static long impostoNoSaque(long centavos) {
+        return Dinheiro.aplicarTaxa(centavos, IMPOSTO_RENDIMENTO, Dinheiro.ARREDONDAMENTO_ENCARGOS);
     }
 
     /**
      * Aplica rendimento à conta baseado em uma taxa aleatória entre TAXA_MIN e TAXA_MAX.
      * Rendimentos positivos também sofrem uma dedução de uma taxa de gestão de 1%.
+     * @return O resultado, com o rendimento bruto e a taxa de gestão deduzida.
+     */
+    @Override
+    public ResultadoOperacao aplicarRendimento() {
+        long inicio = System.nanoTime();
+        ResumoRendimento resumo = new ResumoRendimento();
+        aplicarRendimento(ThreadLocalRandom.current(), resumo);
+        return publicar(ResultadoOperacao.Operacao.RENDIMENTO, ResultadoOperacao.Situacao.REALIZADA,
+                resumo.getRendimentoCentavos(), resumo.getTaxasCentavos(), getSaldoCentavos(), inicio);
+    }
+
+    /**
+     * Aplica rendimento com taxa sorteada pelo gerador informado, sem publicar evento.
+     * O imposto de 22.5% sobre rendimentos positivos é apenas provisionado no resumo; ele é cobrado no saque.
+     * @param gerador O gerador de números aleatórios para a taxa de rendimento.
+     * @param resumo O acumulador que recebe rendimento, taxa de gestão e imposto provisionado.
+     */
+    @Override
+    public void aplicarRendimento(RandomGenerator gerador, ResumoRendimento resumo) {
+        long taxaRendimento = gerador.nextLong(TAXA_MIN, TAXA_MAX + 1); // Taxa sorteada em partes por milhão
+        long saldo;
+        long rendimento;
+        long taxaGestao;
+        do { // Recalcula sobre o saldo mais recente se outra operação o alterar no meio do cálculo
+            saldo = getSaldoCentavos();
+            rendimento = Dinheiro.aplicarTaxa(saldo, taxaRendimento, Dinheiro.ARREDONDAMENTO_RENDIMENTO);
+            taxaGestao = rendimento > 0 ? Dinheiro.aplicarTaxa(rendimento, TAXA_GESTAO, Dinheiro.ARREDONDAMENTO_ENCARGOS) : 0;
+        } while (!compararEAtualizarSaldo(saldo, saldo + rendimento - taxaGestao, JornalTransacoes.RENDIMENTO));
+        long imposto = rendimento > 0 ? Dinheiro.aplicarTaxa(rendimento, IMPOSTO_RENDIMENTO, Dinheiro.ARREDONDAMENTO_ENCARGOS) : 0;
+        resumo.registrar(rendimento, taxaGestao, imposto);
+    }
+
+    /**
+     * Rendimento do fechamento mensal, com taxa sorteada entre TAXA_MIN e TAXA_MAX.
+     */
+    @Override
+    long rendimentoMensal(long saldo, RandomGenerator gerador) {
+        return Dinheiro.aplicarTaxa(saldo, gerador.nextLong(TAXA_MIN, TAXA_MAX + 1), Dinheiro.ARREDONDAMENTO_RENDIMENTO);
+    }
+
+    /**
+     * Taxa de gestão de 1% sobre o rendimento positivo do mês.
      */
     @Override
-    public void aplicarRendimento() {
-        Random rand = new Random();
-        double taxaRendimento = TAXA_MIN + (TAXA_MAX - TAXA_MIN) * rand.nextDouble();
-        double rendimento = getSaldo() * taxaRendimento;
-        double taxaGestao = rendimento > 0 ? rendimento * 0.01 : 0;
-        alterarSaldo(rendimento - taxaGestao);
-        System.out.println("Rendimento de R$" + String.format("%.2f", rendimento) + 
-                           " aplicado ao saldo, taxa de gestão de R$" + 
-                           String.format("%.2f", taxaGestao) + " deduzida.");
+    long tarifaMensal(long saldo, long rendimento) {
+        return rendimento > 0 ? Dinheiro.aplicarTaxa(rendimento, TAXA_GESTAO, Dinheiro.ARREDONDAMENTO_ENCARGOS) : 0;
+    }
+
+    /**
+     * Imposto de 22.5% provisionado sobre o rendimento positivo do mês.
+     */
+    @Override
+    long impostoMensal(long rendimento) {
+        return rendimento > 0 ? Dinheiro.aplicarTaxa(rendimento, IMPOSTO_RENDIMENTO, Dinheiro.ARREDONDAMENTO_ENCARGOS) : 0;
+    }
+
+    /**
+     * Projeta o saldo com a taxa do cenário, descontando a taxa de gestão dos rendimentos positivos e
+     * provisionando o imposto de 22.5% sobre eles. No cenário esperado, usa as médias das partes
+     * positiva e negativa da taxa sorteada (uniforme entre TAXA_MIN e TAXA_MAX, em ppm).
+     * @param meses O horizonte, em meses.
+     * @param cenario O cenário da taxa mensal.
+     * @return A projeção.
+     */
+    @Override
+    public ProjecaoRendimento projecao(int meses, ProjecaoRendimento.Cenario cenario) {
+        double escala = Dinheiro.ESCALA_TAXA;
+        double positiva;
+        double negativa;
+        switch (cenario) {
+            case PESSIMISTA -> {
+                positiva = Math.max(TAXA_MIN, 0) / escala;
+                negativa = Math.min(TAXA_MIN, 0) / escala;
+            }
+            case OTIMISTA -> {
+                positiva = Math.max(TAXA_MAX, 0) / escala;
+                negativa = Math.min(TAXA_MAX, 0) / escala;
+            }
+            default -> { // Média de max(taxa, 0) e de min(taxa, 0) sobre os valores inteiros da faixa
+                double valores = TAXA_MAX - TAXA_MIN + 1;
+                positiva = TAXA_MAX > 0 ? TAXA_MAX * (TAXA_MAX + 1) / 2.0 / valores / escala : 0;
+                negativa = TAXA_MIN < 0 ? TAXA_MIN * (1 - TAXA_MIN) / 2.0 / valores / escala : 0;
+            }
+        }
+        double liquida = positiva * (1 - TAXA_GESTAO / escala) + negativa;
+        return ProjecaoRendimento.mensal(meses, liquida, positiva, 0, IMPOSTO_RENDIMENTO / escala);
     }
 }
@@ -1,9 +1,10 @@
+import java.util.random.RandomGenerator;
 /**
  * Classe ContaPoupanca que herda de Conta e implementa a interface IRentavel.
  * Esta classe representa uma conta poupança que acumula juros com base em uma taxa de rendimento mensal fixa.
  */
 public class ContaPoupanca extends Conta implements IRentavel{
-    private static final double TAXA_RENDIMENTO_MENSAL = 0.006; // Taxa de rendimento mensal fixa de 0.6%.
+    private static final long TAXA_RENDIMENTO_MENSAL = Dinheiro.taxa(0.006); // Taxa de rendimento mensal fixa de 0.6%.
 
     /**
      * Construtor para criar uma conta poupança.
@@ -17,11 +18,51 @@ public class ContaPoupanca extends Conta implements IRentavel{
     /**
      * Aplica rendimento mensal à conta com base na taxa de rendimento mensal definida.
      * O rendimento é calculado como um percentual do saldo atual e adicionado ao mesmo.
+     * @return O resultado, com o rendimento creditado.
      */
     @Override
-    public void aplicarRendimento() {
-        double rendimento = getSaldo() * TAXA_RENDIMENTO_MENSAL; // Calcula o rendimento com base no saldo atual
-        alterarSaldo(rendimento);  // Adiciona o rendimento ao saldo
-        System.out.println("Rendimento de R$" + String.format("%.2f", rendimento) + " aplicado ao saldo.");
+    public ResultadoOperacao aplicarRendimento() {
+        long inicio = System.nanoTime();
+        ResumoRendimento resumo = new ResumoRendimento();
+        aplicarRendimento(null, resumo);
+        return publicar(ResultadoOperacao.Operacao.RENDIMENTO, ResultadoOperacao.Situacao.REALIZADA,
+                resumo.getRendimentoCentavos(), 0, getSaldoCentavos(), inicio);
+    }
+
+    /**
+     * Aplica o rendimento mensal fixo sem publicar evento. A taxa é fixa, então o gerador não é utilizado.
+     * @param gerador Ignorado; pode ser null.
+     * @param resumo O acumulador que recebe o rendimento da operação.
+     */
+    @Override
+    public void aplicarRendimento(RandomGenerator gerador, ResumoRendimento resumo) {
+        long saldo;
+        long rendimento;
+        do {
+            saldo = getSaldoCentavos();
+            rendimento = Dinheiro.aplicarTaxa(saldo, TAXA_RENDIMENTO_MENSAL,
+                    Dinheiro.ARREDONDAMENTO_RENDIMENTO); // Calcula o rendimento com base no saldo atual
+        } while (!compararEAtualizarSaldo(saldo, saldo + rendimento, JornalTransacoes.RENDIMENTO)); // Adiciona o rendimento ao saldo, se ele não mudou no intervalo
+        resumo.registrar(rendimento, 0, 0); // Poupança é isenta de taxas e de imposto
+    }
+
+    /**
+     * Rendimento do fechamento mensal, com a taxa fixa. A poupança é isenta de tarifas e de imposto.
+     */
+    @Override
+    long rendimentoMensal(long saldo, RandomGenerator gerador) {
+        return Dinheiro.aplicarTaxa(saldo, TAXA_RENDIMENTO_MENSAL, Dinheiro.ARREDONDAMENTO_RENDIMENTO);
+    }
+
+    /**
+     * Projeta o saldo com a taxa fixa de 0.6% ao mês: saldo * 1.006^meses, sem taxas nem imposto.
+     * @param meses O horizonte, em meses.
+     * @param cenario Ignorado: a taxa é fixa.
+     * @return A projeção.
+     */
+    @Override
+    public ProjecaoRendimento projecao(int meses, ProjecaoRendimento.Cenario cenario) {
+        double taxa = (double) TAXA_RENDIMENTO_MENSAL / Dinheiro.ESCALA_TAXA;
+        return ProjecaoRendimento.mensal(meses, taxa, 0, 0, 0);
     }
 }
@@ -1,14 +1,15 @@
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 /**
  * Classe ContaRendaFixa que herda de Conta e implementa a interface IRentavel.
  * Esta classe representa uma conta de investimento de renda fixa, que acumula rendimentos
  * com base em uma taxa variável e cobra uma taxa administrativa fixa mensal.
  */
 public class ContaRendaFixa extends Conta implements IRentavel {
-    private static final double TAXA_MIN = 0.005;  // Taxa de rendimento mínima de 0.5%.
-    private static final double TAXA_MAX = 0.0085; // Taxa de rendimento máxima de 0.85%.
-    private static final double IMPOSTO_SOBRE_RENDIMENTO = 0.15; // Imposto sobre rendimento de 15%.
-    private static final double TAXA_ADMINISTRATIVA = 20; // Taxa administrativa de R$20 mensal.
+    private static final long TAXA_MIN = Dinheiro.taxa(0.005);  // Taxa de rendimento mínima de 0.5%.
+    private static final long TAXA_MAX = Dinheiro.taxa(0.0085); // Taxa de rendimento máxima de 0.85%.
+    private static final long IMPOSTO_SOBRE_RENDIMENTO = Dinheiro.taxa(0.15); // Imposto sobre rendimento de 15%.
+    private static final long TAXA_ADMINISTRATIVA = 2000; // Taxa administrativa de R$20 mensal, em centavos.
 
     /**
      * Construtor para criar uma conta de renda fixa.
@@ -20,59 +21,86 @@ public class ContaRendaFixa extends Conta implements IRentavel {
     }
 
     /**
-     * Deposita um valor na conta, verificando se o valor é positivo.
-     * @param valor O valor a ser depositado.
+     * Aplica rendimento à conta com base em uma taxa aleatória entre TAXA_MIN e TAXA_MAX, menos uma taxa administrativa.
+     * @return O resultado, com o rendimento bruto e a taxa administrativa deduzida.
      */
     @Override
-    public void depositar(double valor) {
-        if (valor < 0) {
-            System.out.println("Digite um valor positivo.");
-        } else {
-            alterarSaldo(valor);
-            System.out.println("Depósito de R$" + String.format("%.2f", valor) + " realizado com sucesso.");
-        }
+    public ResultadoOperacao aplicarRendimento() {
+        long inicio = System.nanoTime();
+        ResumoRendimento resumo = new ResumoRendimento();
+        aplicarRendimento(ThreadLocalRandom.current(), resumo);
+        return publicar(ResultadoOperacao.Operacao.RENDIMENTO, ResultadoOperacao.Situacao.REALIZADA,
+                resumo.getRendimentoCentavos(), resumo.getTaxasCentavos(), getSaldoCentavos(), inicio);
     }
 
     /**
-     * Realiza um saque da conta, verificando se o saldo é suficiente para o saque desejado.
-     * @param valor O valor a ser sacado.
+     * Aplica rendimento com taxa sorteada pelo gerador informado, sem publicar evento.
+     * O imposto de 15% sobre o rendimento é apenas provisionado no resumo; ele é cobrado no saque.
+     * @param gerador O gerador de números aleatórios para a taxa de rendimento.
+     * @param resumo O acumulador que recebe rendimento, taxa administrativa e imposto provisionado.
      */
     @Override
-    public void sacar(double valor) {
-        if (valor < 0) {
-            System.out.println("Operação inválida. Digite um valor de saque positivo.");
-            return;
-        }
-        if (valor <= getSaldo()) {
-            alterarSaldo(-valor);
-            System.out.println("Saque de R$" + String.format("%.2f", valor) + " realizado com sucesso.");
-        } else {
-            System.out.println("Saldo insuficiente.");
-        }
+    public void aplicarRendimento(RandomGenerator gerador, ResumoRendimento resumo) {
+        long taxaRendimento = gerador.nextLong(TAXA_MIN, TAXA_MAX + 1); // Taxa sorteada em partes por milhão
+        long saldo;
+        long rendimento;
+        do { // Recalcula sobre o saldo mais recente se outra operação o alterar no meio do cálculo
+            saldo = getSaldoCentavos();
+            rendimento = Dinheiro.aplicarTaxa(saldo, taxaRendimento, Dinheiro.ARREDONDAMENTO_RENDIMENTO);
+        } while (!compararEAtualizarSaldo(saldo, saldo + rendimento - TAXA_ADMINISTRATIVA, JornalTransacoes.RENDIMENTO)); // Desconta a taxa administrativa do rendimento
+        long imposto = rendimento > 0 ? Dinheiro.aplicarTaxa(rendimento, IMPOSTO_SOBRE_RENDIMENTO, Dinheiro.ARREDONDAMENTO_ENCARGOS) : 0;
+        resumo.registrar(rendimento, TAXA_ADMINISTRATIVA, imposto);
     }
 
     /**
-     * Aplica rendimento à conta com base em uma taxa aleatória entre TAXA_MIN e TAXA_MAX, menos uma taxa administrativa.
+     * Projeta o saldo com a taxa do cenário (mínima, média ou máxima da faixa), descontando a taxa
+     * administrativa de cada mês e provisionando o imposto de 15% sobre os rendimentos.
+     * @param meses O horizonte, em meses.
+     * @param cenario O cenário da taxa mensal.
+     * @return A projeção.
+     */
+    @Override
+    public ProjecaoRendimento projecao(int meses, ProjecaoRendimento.Cenario cenario) {
+        double taxa = switch (cenario) {
+            case PESSIMISTA -> TAXA_MIN;
+            case ESPERADO -> (TAXA_MIN + TAXA_MAX) / 2.0;
+            case OTIMISTA -> TAXA_MAX;
+        } / Dinheiro.ESCALA_TAXA;
+        return ProjecaoRendimento.mensal(meses, taxa, taxa, TAXA_ADMINISTRATIVA,
+                (double) IMPOSTO_SOBRE_RENDIMENTO / Dinheiro.ESCALA_TAXA);
+    }
+
+    /**
+     * Rendimento do fechamento mensal, com taxa sorteada entre TAXA_MIN e TAXA_MAX.
+     */
+    @Override
+    long rendimentoMensal(long saldo, RandomGenerator gerador) {
+        return Dinheiro.aplicarTaxa(saldo, gerador.nextLong(TAXA_MIN, TAXA_MAX + 1), Dinheiro.ARREDONDAMENTO_RENDIMENTO);
+    }
+
+    /**
+     * Taxa administrativa fixa do fechamento mensal.
+     */
+    @Override
+    long tarifaMensal(long saldo, long rendimento) {
+        return TAXA_ADMINISTRATIVA;
+    }
+
+    /**
+     * Imposto de 15% provisionado sobre o rendimento positivo do mês.
      */
     @Override
-    public void aplicarRendimento() {
-        Random rand = new Random();
-        double taxaRendimento = TAXA_MIN + (TAXA_MAX - TAXA_MIN) * rand.nextDouble();
-        double rendimento = getSaldo() * taxaRendimento;
-        alterarSaldo(rendimento - TAXA_ADMINISTRATIVA); // Desconta a taxa administrativa do rendimento
-        System.out.println("Rendimento de R$" + String.format("%.2f", rendimento) +
-                           " aplicado ao saldo após deduzir taxa administrativa de R$" + 
-                           String.format("%.2f", TAXA_ADMINISTRATIVA) + ".");
+    long impostoMensal(long rendimento) {
+        return rendimento > 0 ? Dinheiro.aplicarTaxa(rendimento, IMPOSTO_SOBRE_RENDIMENTO, Dinheiro.ARREDONDAMENTO_ENCARGOS) : 0;
     }
 
     /**
-     * Calcula e exibe o imposto a ser pago sobre um montante especificado em caso de saque.
+     * Calcula o imposto a ser pago sobre um montante especificado em caso de saque.
      * @param montante O valor do saque para o qual o imposto é calculado.
      * @return O valor do imposto calculado.
      */
     public double calcularImpostoNoSaque(double montante) {
-        double imposto = montante * IMPOSTO_SOBRE_RENDIMENTO;
-        System.out.println("Imposto de R$" + String.format("%.2f", imposto) + " calculado sobre o saque.");
-        return imposto;
+        long imposto = Dinheiro.aplicarTaxa(Dinheiro.deReais(montante), IMPOSTO_SOBRE_RENDIMENTO, Dinheiro.ARREDONDAMENTO_ENCARGOS);
+        return Dinheiro.paraReais(imposto);
     }
 }
@@ -0,0 +1,150 @@
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+/**
+ * Controle de versões dos saldos para leituras consistentes (SnapshotSaldos) sem bloquear as escritas.
+ *
+ * Toda escrita de saldo pertence a uma época: a época corrente quando a escrita começou. Abrir um
+ * snapshot encerra a época corrente S (as escritas novas passam a pertencer a S + 1) e aguarda o fim
+ * das escritas de S ainda em andamento; o snapshot vê exatamente as escritas das épocas até S. As
+ * escritas em andamento são contadas em faixas por thread, separadas pela paridade da época, como
+ * os histogramas de Metricas.
+ *
+ * Cada conta guarda a época da sua última escrita. A primeira escrita de uma época nova em uma conta
+ * preserva antes o saldo e o tamanho do jornal (cópia na escrita), se houver snapshot aberto que
+ * possa precisar deles; as escritas seguintes da mesma época seguem direto para a troca atômica do
+ * saldo. Só essa primeira escrita pode esperar, e apenas pelo fim das escritas da época anterior,
+ * que dura o tempo de uma operação. Leitores nunca bloqueiam escritores.
+ */
+final class ControleVersoes {
+    private static final int FAIXAS = Integer.highestOneBit(Math.min(16, Runtime.getRuntime().availableProcessors() * 2 - 1)); // Potência de 2
+    private static final int ESPACO = 16; // Posições entre contadores (128 bytes), para não dividirem linhas de cache
+    private static final int ESPERAS_ATIVAS = 128; // Iterações de espera ativa antes de ceder o processador
+
+    private final AtomicLongArray ativas = new AtomicLongArray(2 * FAIXAS * ESPACO); // Escritas em andamento, por paridade da época e faixa
+    private volatile long epoca = 1;   // Época das escritas que começam agora
+    private volatile long estavel = 0; // Maior época sem escritas em andamento
+    private final TreeMap<Long, Integer> abertas = new TreeMap<>(); // Snapshots abertos por época (protegido por this)
+    private volatile long menorAberta = Long.MAX_VALUE; // Época do snapshot aberto mais antigo, ou Long.MAX_VALUE
+
+    /**
+     * Versão preservada do saldo de uma conta: o saldo e o tamanho do jornal ao fim de uma época.
+     * As versões formam uma lista da mais recente para a mais antiga.
+     */
+    static final class Versao {
+        final long epoca;      // Época ao fim da qual os valores valiam
+        final long saldo;      // Saldo, em centavos
+        final int transacoes;  // Quantidade de transações no jornal
+        Versao anterior;       // Versão mais antiga, ou null; podada sob a trava da conta
+
+        Versao(long epoca, long saldo, int transacoes, Versao anterior) {
+            this.epoca = epoca;
+            this.saldo = saldo;
+            this.transacoes = transacoes;
+            this.anterior = anterior;
+        }
+    }
+
+    /**
+     * Registra o início de uma escrita na época corrente.
+     * @return A época da escrita, a ser informada a preservar e a sair.
+     */
+    long entrar() {
+        int faixa = faixa();
+        while (true) {
+            long e = epoca;
+            int i = posicao(e, faixa);
+            ativas.getAndIncrement(i);
+            if (epoca == e) {
+                return e;
+            }
+            ativas.getAndDecrement(i); // Um snapshot encerrou a época nesse intervalo: entra na seguinte
+        }
+    }
+
+    /**
+     * Registra o fim de uma escrita.
+     * @param e A época devolvida por entrar, na mesma thread.
+     */
+    void sair(long e) {
+        ativas.getAndDecrement(posicao(e, faixa()));
+    }
+
+    /**
+     * Garante que os valores da conta anteriores à época da escrita estejam preservados para os
+     * snapshots abertos. Deve ser chamado entre entrar e a primeira alteração da conta.
+     * @param conta A conta que será alterada.
+     * @param e A época da escrita.
+     */
+    void preservar(Conta conta, long e) {
+        if (conta.getEpocaEscrita() >= e) {
+            return; // Já preservada nesta época
+        }
+        aguardarEstavel(e - 1); // As escritas da época anterior precisam estar completas no saldo e no jornal
+        conta.preservarVersao(e, menorAberta);
+    }
+
+    /**
+     * Abre um snapshot: encerra a época corrente e aguarda as suas escritas em andamento.
+     * @return A época do snapshot.
+     */
+    synchronized long abrir() {
+        long s = epoca;
+        abertas.merge(s, 1, Integer::sum);
+        menorAberta = abertas.firstKey(); // Publicado antes da nova época, para que as escritas dela preservem
+        epoca = s + 1;
+        int base = posicao(s, 0);
+        for (int f = 0; f < FAIXAS; f++) {
+            for (int espera = 0; ativas.get(base + f * ESPACO) != 0; espera++) {
+                esperar(espera);
+            }
+        }
+        estavel = s;
+        return s;
+    }
+
+    /**
+     * Fecha um snapshot; as versões que só ele usava são descartadas nas próximas escritas.
+     * @param s A época do snapshot.
+     */
+    synchronized void fechar(long s) {
+        if (abertas.merge(s, -1, Integer::sum) == 0) {
+            abertas.remove(s);
+        }
+        menorAberta = abertas.isEmpty() ? Long.MAX_VALUE : abertas.firstKey();
+    }
+
+    /**
+     * Retorna a quantidade de snapshots abertos.
+     * @return O número de snapshots não fechados.
+     */
+    synchronized int abertos() {
+        int total = 0;
+        for (int n : abertas.values()) {
+            total += n;
+        }
+        return total;
+    }
+
+    private void aguardarEstavel(long e) {
+        for (int espera = 0; estavel < e; espera++) {
+            esperar(espera);
+        }
+    }
+
+    private static void esperar(int espera) {
+        if (espera < ESPERAS_ATIVAS) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield(); // A escrita aguardada pode estar em uma thread sem processador
+        }
+    }
+
+    private static int posicao(long e, int faixa) {
+        return ((int) (e & 1) * FAIXAS + faixa) * ESPACO;
+    }
+
+    @SuppressWarnings("deprecation") // Thread.getId: threadId() só existe a partir do Java 19
+    private static int faixa() {
+        return (int) Thread.currentThread().getId() & (FAIXAS - 1);
+    }
+}
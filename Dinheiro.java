@@ -0,0 +1,104 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+/**
+ * Aritmética monetária em ponto fixo. Valores são representados como long em centavos e
+ * taxas como long em partes por milhão (1% = 10.000), de modo que os cálculos do dia a dia
+ * não acumulam erros de arredondamento nem alocam objetos.
+ */
+public final class Dinheiro {
+    public static final long ESCALA_TAXA = 1_000_000L; // Taxas são expressas em partes por milhão
+    public static final RoundingMode ARREDONDAMENTO_RENDIMENTO = RoundingMode.HALF_EVEN; // Arredondamento bancário para rendimentos
+    public static final RoundingMode ARREDONDAMENTO_ENCARGOS = RoundingMode.HALF_UP;     // Arredondamento de taxas e impostos cobrados
+
+    private Dinheiro() {
+    }
+
+    /**
+     * Converte um valor em reais para centavos, arredondando ao centavo mais próximo (meio para o par).
+     * @param reais O valor em reais.
+     * @return O valor em centavos.
+     */
+    public static long deReais(double reais) {
+        double centavos = Math.rint(reais * 100);
+        if (Double.isNaN(centavos) || Math.abs(centavos) >= 0x1p63) {
+            throw new ArithmeticException("Valor fora do intervalo representável: " + reais);
+        }
+        return (long) centavos;
+    }
+
+    /**
+     * Converte um valor em centavos para reais, para exibição.
+     * @param centavos O valor em centavos.
+     * @return O valor em reais.
+     */
+    public static double paraReais(long centavos) {
+        return centavos / 100.0;
+    }
+
+    /**
+     * Converte uma taxa decimal (por exemplo, 0.006 para 0,6%) para partes por milhão.
+     * Destina-se à definição de constantes, fora do caminho crítico.
+     * @param taxa A taxa decimal.
+     * @return A taxa em partes por milhão.
+     */
+    public static long taxa(double taxa) {
+        return Math.round(taxa * ESCALA_TAXA);
+    }
+
+    /**
+     * Aplica uma taxa a um valor: valor * taxa / 1.000.000, arredondado conforme o modo informado.
+     * @param centavos O valor base, em centavos.
+     * @param taxaPpm A taxa, em partes por milhão.
+     * @param modo O modo de arredondamento do resultado.
+     * @return O resultado, em centavos.
+     */
+    public static long aplicarTaxa(long centavos, long taxaPpm, RoundingMode modo) {
+        long produto;
+        try {
+            produto = Math.multiplyExact(centavos, taxaPpm);
+        } catch (ArithmeticException e) {
+            // Somente valores acima de ~R$ 90 bilhões chegam aqui; o caminho lento é aceitável
+            return BigDecimal.valueOf(centavos).multiply(BigDecimal.valueOf(taxaPpm))
+                    .divide(BigDecimal.valueOf(ESCALA_TAXA), 0, modo).longValueExact();
+        }
+        return dividir(produto, ESCALA_TAXA, modo);
+    }
+
+    /**
+     * Divide dois inteiros arredondando o quociente conforme o modo informado.
+     * @param dividendo O dividendo.
+     * @param divisor O divisor (diferente de zero).
+     * @param modo O modo de arredondamento.
+     * @return O quociente arredondado.
+     */
+    public static long dividir(long dividendo, long divisor, RoundingMode modo) {
+        long quociente = dividendo / divisor;
+        long resto = dividendo % divisor;
+        if (resto == 0) {
+            return quociente;
+        }
+        int sinal = (dividendo < 0) == (divisor < 0) ? 1 : -1; // Sinal do quociente exato
+        boolean incrementar; // Se o quociente truncado deve se afastar de zero
+        switch (modo) {
+            case DOWN -> incrementar = false;
+            case UP -> incrementar = true;
+            case FLOOR -> incrementar = sinal < 0;
+            case CEILING -> incrementar = sinal > 0;
+            case HALF_UP, HALF_DOWN, HALF_EVEN -> {
+                long dobroResto = Math.abs(resto) * 2; // Comparação do resto com a metade do divisor
+                long absDivisor = Math.abs(divisor);
+                if (dobroResto != absDivisor) {
+                    incrementar = dobroResto > absDivisor || dobroResto < 0; // dobroResto < 0 indica estouro, logo maior que a metade
+                } else if (modo == RoundingMode.HALF_UP) {
+                    incrementar = true;
+                } else if (modo == RoundingMode.HALF_DOWN) {
+                    incrementar = false;
+                } else {
+                    incrementar = (quociente & 1) != 0;
+                }
+            }
+            default -> throw new ArithmeticException("Arredondamento necessário, mas o modo é UNNECESSARY.");
+        }
+        return incrementar ? quociente + sinal : quociente;
+    }
+}
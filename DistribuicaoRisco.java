@@ -0,0 +1,171 @@
+import java.util.Arrays;
+import java.util.Locale;
+/**
+ * Distribuição simulada do resultado (ganho ou perda) de uma carteira de investimento em um horizonte,
+ * resumida em percentis, valor em risco (VaR) e perda esperada na cauda (expected shortfall).
+ * Os valores estão em reais; perdas no VaR e na perda esperada são informadas como números positivos.
+ */
+public final class DistribuicaoRisco {
+    private final int meses;          // Horizonte simulado, em meses
+    private final int caminhos;       // Quantidade de caminhos simulados
+    private final double saldoInicial; // Saldo da carteira no início da simulação
+    private final double media;       // Resultado médio
+    private final double[] percentis; // Resultados nos percentis de PERCENTIS
+    private final double var95;       // Perda não superada em 95% dos caminhos
+    private final double var99;       // Perda não superada em 99% dos caminhos
+    private final double perdaEsperada95; // Perda média nos 5% piores caminhos
+    private final double perdaEsperada99; // Perda média nos 1% piores caminhos
+    private final long duracaoNanos;  // Duração da simulação, em nanossegundos
+
+    static final double[] PERCENTIS = {0.01, 0.05, 0.50, 0.95, 0.99}; // Percentis calculados
+
+    /**
+     * Resume os resultados simulados. O vetor é ordenado no próprio lugar.
+     * @param meses O horizonte simulado.
+     * @param saldoInicial O saldo inicial da carteira, em centavos.
+     * @param resultados O resultado de cada caminho, em centavos.
+     * @param duracaoNanos A duração da simulação.
+     */
+    DistribuicaoRisco(int meses, long saldoInicial, double[] resultados, long duracaoNanos) {
+        this.meses = meses;
+        this.caminhos = resultados.length;
+        this.saldoInicial = Dinheiro.paraReais(saldoInicial);
+        this.duracaoNanos = duracaoNanos;
+        Arrays.sort(resultados);
+        double soma = 0;
+        for (double r : resultados) {
+            soma += r;
+        }
+        this.media = caminhos == 0 ? 0 : soma / caminhos / 100;
+        this.percentis = new double[PERCENTIS.length];
+        for (int i = 0; i < PERCENTIS.length; i++) {
+            percentis[i] = percentil(resultados, PERCENTIS[i]) / 100;
+        }
+        this.var95 = Math.max(0, -percentil(resultados, 0.05) / 100);
+        this.var99 = Math.max(0, -percentil(resultados, 0.01) / 100);
+        this.perdaEsperada95 = Math.max(0, -mediaCauda(resultados, 0.05) / 100);
+        this.perdaEsperada99 = Math.max(0, -mediaCauda(resultados, 0.01) / 100);
+    }
+
+    /**
+     * Percentil pelo método do posto mais próximo, sobre resultados ordenados.
+     */
+    private static double percentil(double[] ordenados, double p) {
+        if (ordenados.length == 0) {
+            return 0;
+        }
+        int posto = (int) Math.ceil(p * ordenados.length);
+        return ordenados[Math.max(posto, 1) - 1];
+    }
+
+    /**
+     * Média dos resultados na cauda inferior de probabilidade p.
+     */
+    private static double mediaCauda(double[] ordenados, double p) {
+        if (ordenados.length == 0) {
+            return 0;
+        }
+        int n = Math.max(1, (int) Math.ceil(p * ordenados.length));
+        double soma = 0;
+        for (int i = 0; i < n; i++) {
+            soma += ordenados[i];
+        }
+        return soma / n;
+    }
+
+    /**
+     * Retorna o horizonte simulado, em meses.
+     */
+    public int getMeses() {
+        return meses;
+    }
+
+    /**
+     * Retorna a quantidade de caminhos simulados.
+     */
+    public int getCaminhos() {
+        return caminhos;
+    }
+
+    /**
+     * Retorna o saldo inicial da carteira, em reais.
+     */
+    public double getSaldoInicial() {
+        return saldoInicial;
+    }
+
+    /**
+     * Retorna o resultado médio, em reais.
+     * @return O ganho médio (negativo se for perda).
+     */
+    public double getMedia() {
+        return media;
+    }
+
+    /**
+     * Retorna o resultado em um dos percentis calculados (1%, 5%, 50%, 95% e 99%).
+     * @param p O percentil, entre 0 e 1.
+     * @return O resultado no percentil, em reais.
+     * @throws IllegalArgumentException Se o percentil não estiver entre os calculados.
+     */
+    public double getPercentil(double p) {
+        for (int i = 0; i < PERCENTIS.length; i++) {
+            if (PERCENTIS[i] == p) {
+                return percentis[i];
+            }
+        }
+        throw new IllegalArgumentException("Percentil não calculado: " + p);
+    }
+
+    /**
+     * Retorna o VaR de 95%: a perda não superada em 95% dos caminhos, em reais.
+     */
+    public double getVar95() {
+        return var95;
+    }
+
+    /**
+     * Retorna o VaR de 99%: a perda não superada em 99% dos caminhos, em reais.
+     */
+    public double getVar99() {
+        return var99;
+    }
+
+    /**
+     * Retorna a perda média nos 5% piores caminhos, em reais.
+     */
+    public double getPerdaEsperada95() {
+        return perdaEsperada95;
+    }
+
+    /**
+     * Retorna a perda média nos 1% piores caminhos, em reais.
+     */
+    public double getPerdaEsperada99() {
+        return perdaEsperada99;
+    }
+
+    /**
+     * Retorna a duração da simulação, em nanossegundos.
+     */
+    public long getDuracaoNanos() {
+        return duracaoNanos;
+    }
+
+    /**
+     * Calcula a vazão da simulação.
+     * @return Caminhos simulados por segundo.
+     */
+    public double getCaminhosPorSegundo() {
+        return duracaoNanos == 0 ? 0 : caminhos * 1e9 / duracaoNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d meses, %d caminhos | saldo inicial R$%.2f | média R$%.2f | p1 R$%.2f p5 R$%.2f p50 R$%.2f p95 R$%.2f p99 R$%.2f"
+                        + " | VaR95 R$%.2f VaR99 R$%.2f | ES95 R$%.2f ES99 R$%.2f",
+                meses, caminhos, saldoInicial, media, percentis[0], percentis[1], percentis[2], percentis[3], percentis[4],
+                var95, var99, perdaEsperada95, perdaEsperada99);
+    }
+}
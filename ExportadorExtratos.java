@@ -0,0 +1,566 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+/**
+ * Exportação dos extratos de todos os clientes, ou de um subconjunto, para arquivos CSV ou de
+ * largura fixa, com uma linha por transação.
+ *
+ * A saída é dividida em partições com quantidades aproximadamente iguais de transações, cada uma
+ * gravada em um arquivo próprio por uma tarefa do pool fork-join comum, sem travas entre as partições.
+ * As linhas são montadas diretamente em bytes, com números, valores e datas convertidos à mão (sem
+ * String.format nem DateTimeFormatter), em um conjunto de buffers que é gravado de uma vez por uma
+ * escrita com múltiplos buffers (gathering write) do FileChannel. Os conjuntos de buffers são
+ * reaproveitados entre as partições e entre exportações do mesmo exportador.
+ */
+public class ExportadorExtratos {
+    private static final int TAMANHO_BUFFER = 1 << 16; // Bytes de cada buffer de saída
+    private static final int BUFFERS = 8;               // Buffers preenchidos antes de cada escrita
+    private static final int MAXIMO_LINHA = 1024;       // Espaço garantido para os campos de tamanho limitado de uma linha
+    private static final int LARGURA_CPF = 11;   // Colunas do CPF, só com os dígitos, no formato de largura fixa
+    private static final int LARGURA_NOME = 40;  // Colunas do nome do cliente no formato de largura fixa
+    private static final int LARGURA_TIPO = 22;  // Colunas do tipo da transação ("Transferência recebida")
+    private static final int LARGURA_VALOR = 16; // Colunas de valor e de saldo
+
+    private static final byte[] CABECALHO_CSV = bytes("conta,cpf,cliente,data,tipo,valor,saldo\n");
+
+    private final SistemaBancario banco; // Sistema bancário exportado
+    private final int particoes;         // Arquivos gravados em paralelo
+    private final ZoneId fuso;           // Fuso das datas exportadas
+    private final Queue<Saida> livres = new ConcurrentLinkedQueue<>(); // Buffers livres para reaproveitamento
+
+    /**
+     * Formatos de exportação.
+     */
+    public enum Formato {
+        /** Valores separados por vírgula, com cabeçalho, datas ISO 8601 e valores com ponto decimal. */
+        CSV(".csv"),
+        /** Colunas de largura fixa, sem separadores, com datas dd/MM/yyyy HH:mm:ss. */
+        LARGURA_FIXA(".txt");
+
+        private final String extensao;
+
+        Formato(String extensao) {
+            this.extensao = extensao;
+        }
+    }
+
+    /**
+     * Resultado de uma exportação.
+     * @param clientes Clientes exportados.
+     * @param contas Contas exportadas.
+     * @param linhas Transações gravadas.
+     * @param bytes Bytes gravados, somando todos os arquivos.
+     * @param arquivos Os arquivos gravados, um por partição.
+     * @param duracaoNanos Duração da exportação, em nanossegundos.
+     */
+    public record Resumo(long clientes, long contas, long linhas, long bytes, List<Path> arquivos, long duracaoNanos) {
+        /**
+         * Calcula a vazão da exportação.
+         * @return Megabytes (2^20 bytes) gravados por segundo.
+         */
+        public double megabytesPorSegundo() {
+            return duracaoNanos == 0 ? 0 : bytes * 1e9 / duracaoNanos / (1 << 20);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d clientes | %d contas | %d linhas | %d arquivos | %.1f MB | %.3f s | %.1f MB/s",
+                    clientes, contas, linhas, arquivos.size(), bytes / (double) (1 << 20), duracaoNanos / 1e9, megabytesPorSegundo());
+        }
+    }
+
+    /**
+     * Constrói um exportador com uma partição por processador disponível e o fuso do sistema.
+     * @param banco O sistema bancário exportado.
+     */
+    public ExportadorExtratos(SistemaBancario banco) {
+        this(banco, Runtime.getRuntime().availableProcessors(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Constrói um exportador.
+     * @param banco O sistema bancário exportado.
+     * @param particoes A quantidade de arquivos gravados em paralelo.
+     * @param fuso O fuso em que as datas são escritas.
+     */
+    public ExportadorExtratos(SistemaBancario banco, int particoes, ZoneId fuso) {
+        this.banco = banco;
+        this.particoes = Math.max(1, particoes);
+        this.fuso = fuso;
+    }
+
+    /**
+     * Exporta os extratos completos de todos os clientes.
+     * @param diretorio O diretório dos arquivos (criado se não existir; arquivos de mesmo nome são sobrescritos).
+     * @param formato O formato dos arquivos.
+     * @return O resumo da exportação.
+     * @throws IOException Se algum arquivo não puder ser gravado.
+     */
+    public Resumo exportar(Path diretorio, Formato formato) throws IOException {
+        return exportar(diretorio, formato, cliente -> true, null, null);
+    }
+
+    /**
+     * Exporta os extratos dos clientes selecionados em um período.
+     * @param diretorio O diretório dos arquivos (criado se não existir; arquivos de mesmo nome são sobrescritos).
+     * @param formato O formato dos arquivos.
+     * @param filtro Seleciona os clientes exportados.
+     * @param de Início do período (inclusive), ou null para desde a primeira transação.
+     * @param ate Fim do período (exclusive), ou null para até a última transação.
+     * @return O resumo da exportação.
+     * @throws IOException Se algum arquivo não puder ser gravado.
+     */
+    public Resumo exportar(Path diretorio, Formato formato, Predicate<Cliente> filtro, Instant de, Instant ate) throws IOException {
+        long inicio = System.nanoTime();
+        long inicioPeriodo = de == null ? Long.MIN_VALUE : de.toEpochMilli();
+        long fimPeriodo = ate == null ? Long.MAX_VALUE : ate.toEpochMilli();
+        Files.createDirectories(diretorio);
+        List<Cliente> selecionados = new ArrayList<>();
+        List<Long> acumulado = new ArrayList<>(); // Transações até cada cliente, inclusive, para dividir as partições
+        long total = 0;
+        for (Cliente cliente : banco.clientesCadastrados()) {
+            if (filtro.test(cliente)) {
+                for (Conta conta : cliente.contasCadastradas()) {
+                    total += conta.getJornal().tamanho();
+                }
+                selecionados.add(cliente);
+                acumulado.add(total);
+            }
+        }
+        Particao[] particao = new Particao[Math.min(particoes, Math.max(1, selecionados.size()))];
+        int primeiro = 0;
+        for (int p = 0; p < particao.length; p++) {
+            long alvo = total * (p + 1) / particao.length;
+            int ultimo = p == particao.length - 1 ? selecionados.size() : primeiro;
+            while (ultimo < selecionados.size() && acumulado.get(ultimo) < alvo) {
+                ultimo++;
+            }
+            if (p < particao.length - 1 && ultimo < selecionados.size()) {
+                ultimo++; // Inclui o cliente que atinge o alvo
+            }
+            Path arquivo = diretorio.resolve(String.format("extratos-%03d%s", p, formato.extensao));
+            particao[p] = new Particao(selecionados.subList(primeiro, ultimo), arquivo, formato, inicioPeriodo, fimPeriodo);
+            primeiro = ultimo;
+        }
+        try {
+            ForkJoinPool.commonPool().invoke(new TarefaParticoes(particao, 0, particao.length));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        long contas = 0;
+        long linhas = 0;
+        long bytes = 0;
+        List<Path> arquivos = new ArrayList<>(particao.length);
+        for (Particao p : particao) {
+            contas += p.contas;
+            linhas += p.linhas;
+            bytes += p.bytes;
+            arquivos.add(p.arquivo);
+        }
+        return new Resumo(selecionados.size(), contas, linhas, bytes, arquivos, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Tarefa fork-join que divide as partições ao meio até uma única partição.
+     */
+    private final class TarefaParticoes extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Particao[] particao;
+        private final int inicio;
+        private final int fim;
+
+        TarefaParticoes(Particao[] particao, int inicio, int fim) {
+            this.particao = particao;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio == 1) {
+                try {
+                    particao[inicio].gravar();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int meio = (inicio + fim) >>> 1;
+            invokeAll(new TarefaParticoes(particao, inicio, meio), new TarefaParticoes(particao, meio, fim));
+        }
+    }
+
+    /**
+     * Clientes consecutivos gravados em um único arquivo.
+     */
+    private final class Particao {
+        private final List<Cliente> clientes;
+        private final Path arquivo;
+        private final Formato formato;
+        private final long de;  // Início do período, em milissegundos desde a época
+        private final long ate; // Fim do período (exclusive), em milissegundos desde a época
+        private long contas;
+        private long linhas;
+        private long bytes;
+
+        Particao(List<Cliente> clientes, Path arquivo, Formato formato, long de, long ate) {
+            this.clientes = clientes;
+            this.arquivo = arquivo;
+            this.formato = formato;
+            this.de = de;
+            this.ate = ate;
+        }
+
+        void gravar() throws IOException {
+            Saida saida = livres.poll();
+            if (saida == null) {
+                saida = new Saida(fuso);
+            }
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                saida.iniciar(canal);
+                if (formato == Formato.CSV) {
+                    saida.texto(CABECALHO_CSV);
+                }
+                for (Cliente cliente : clientes) {
+                    byte[] cpf = formato == Formato.CSV ? bytes(cliente.getCpf())
+                            : colunaTexto(SistemaBancario.normalizarCpf(cliente.getCpf()), LARGURA_CPF);
+                    byte[] nome = formato == Formato.CSV ? campoCsv(cliente.getNome()) : colunaTexto(cliente.getNome(), LARGURA_NOME);
+                    for (Conta conta : cliente.contasCadastradas()) {
+                        contas++;
+                        JornalTransacoes jornal = conta.getJornal();
+                        int quantidade = jornal.tamanho();
+                        int i = de == Long.MIN_VALUE ? 0 : jornal.buscarInstante(de, quantidade);
+                        int fim = ate == Long.MAX_VALUE ? quantidade : jornal.buscarInstante(ate, quantidade);
+                        for (; i < fim; i++) {
+                            if (formato == Formato.CSV) {
+                                saida.numero(conta.getNumero()).caractere(',').texto(cpf).caractere(',').texto(nome).caractere(',')
+                                        .dataIso(jornal.getInstante(i)).caractere(',').texto(TIPOS_CSV[jornal.getTipo(i)]).caractere(',')
+                                        .centavos(jornal.getValor(i)).caractere(',').centavos(jornal.getSaldo(i));
+                            } else {
+                                saida.numeroAlinhado(conta.getNumero(), 10, '0').texto(cpf).texto(nome)
+                                        .data(jornal.getInstante(i)).caractere(' ').texto(TIPOS_LARGURA_FIXA[jornal.getTipo(i)])
+                                        .centavosAlinhados(jornal.getValor(i), LARGURA_VALOR)
+                                        .centavosAlinhados(jornal.getSaldo(i), LARGURA_VALOR);
+                            }
+                            saida.fimLinha();
+                            linhas++;
+                        }
+                    }
+                }
+                bytes = saida.concluir();
+            } finally {
+                livres.add(saida);
+            }
+        }
+    }
+
+    private static final byte[][] TIPOS_CSV = new byte[6][];         // Nome de cada tipo de transação
+    private static final byte[][] TIPOS_LARGURA_FIXA = new byte[6][]; // Nome de cada tipo, completado até LARGURA_TIPO
+
+    static {
+        for (byte t = 0; t < TIPOS_CSV.length; t++) {
+            TIPOS_CSV[t] = bytes(JornalTransacoes.nomeTipo(t));
+            TIPOS_LARGURA_FIXA[t] = colunaTexto(JornalTransacoes.nomeTipo(t), LARGURA_TIPO);
+        }
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converte um texto em um campo CSV, entre aspas apenas se contiver vírgula, aspas ou quebra de linha.
+     */
+    private static byte[] campoCsv(String texto) {
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return bytes(texto);
+        }
+        return bytes('"' + texto.replace("\"", "\"\"") + '"');
+    }
+
+    /**
+     * Converte um texto em uma coluna de largura fixa, em caracteres: truncado ou completado com espaços,
+     * mais um espaço separador.
+     */
+    private static byte[] colunaTexto(String texto, int largura) {
+        String limpo = texto.replace('\n', ' ').replace('\r', ' ');
+        int tamanho = limpo.codePointCount(0, limpo.length());
+        if (tamanho > largura) {
+            limpo = limpo.substring(0, limpo.offsetByCodePoints(0, largura));
+            tamanho = largura;
+        }
+        return bytes(limpo + " ".repeat(largura - tamanho + 1));
+    }
+
+    /**
+     * Conjunto de buffers de saída de uma partição, com formatação de números e datas sem alocação.
+     * Quando todos os buffers estão cheios, eles são gravados no arquivo por uma única escrita.
+     */
+    private static final class Saida {
+        private final ByteBuffer[] buffers = new ByteBuffer[BUFFERS];
+        private final byte[] digitos = new byte[20]; // Área de trabalho para a conversão de números
+        private final ZoneRules regras;   // Regras do fuso das datas
+        private FileChannel canal;        // Arquivo da partição em gravação
+        private int atual;                // Buffer em preenchimento
+        private byte[] b;                 // Vetor do buffer em preenchimento
+        private int posicao;              // Posição de escrita em b
+        private long gravados;            // Bytes já entregues ao canal
+        private long inicioJanela = 1;    // Intervalo, em milissegundos, em que deslocamento vale (vazio no início)
+        private long fimJanela = 0;
+        private long deslocamento;        // Deslocamento do fuso na janela, em milissegundos
+
+        Saida(ZoneId fuso) {
+            for (int i = 0; i < BUFFERS; i++) {
+                buffers[i] = ByteBuffer.allocate(TAMANHO_BUFFER);
+            }
+            regras = fuso.getRules();
+        }
+
+        void iniciar(FileChannel canal) {
+            this.canal = canal;
+            for (ByteBuffer buffer : buffers) {
+                buffer.clear(); // Uma exportação interrompida por erro pode ter deixado limites
+            }
+            atual = 0;
+            b = buffers[0].array();
+            posicao = 0;
+            gravados = 0;
+        }
+
+        Saida caractere(int c) {
+            b[posicao++] = (byte) c;
+            return this;
+        }
+
+        /**
+         * Copia bytes para a saída. Textos longos (nomes sem limite de tamanho) continuam nos buffers
+         * seguintes, de modo que sempre reste MAXIMO_LINHA bytes para os demais campos da linha.
+         */
+        Saida texto(byte[] texto) throws IOException {
+            int copiados = 0;
+            while (texto.length - copiados > TAMANHO_BUFFER - MAXIMO_LINHA - posicao) {
+                int n = Math.max(0, TAMANHO_BUFFER - MAXIMO_LINHA - posicao);
+                System.arraycopy(texto, copiados, b, posicao, n);
+                posicao += n;
+                copiados += n;
+                proximo();
+            }
+            System.arraycopy(texto, copiados, b, posicao, texto.length - copiados);
+            posicao += texto.length - copiados;
+            return this;
+        }
+
+        Saida numero(long valor) {
+            if (valor < 0) {
+                caractere('-');
+                valor = -valor; // Valores tratados aqui nunca são Long.MIN_VALUE
+            }
+            int n = 0;
+            do {
+                digitos[n++] = (byte) ('0' + valor % 10);
+                valor /= 10;
+            } while (valor != 0);
+            while (n > 0) {
+                b[posicao++] = digitos[--n];
+            }
+            return this;
+        }
+
+        /**
+         * Escreve um número não negativo alinhado à direita em uma coluna, completada com o caractere informado.
+         */
+        Saida numeroAlinhado(long valor, int largura, char preenchimento) {
+            int n = 0;
+            do {
+                digitos[n++] = (byte) ('0' + valor % 10);
+                valor /= 10;
+            } while (valor != 0);
+            for (int i = n; i < largura; i++) {
+                b[posicao++] = (byte) preenchimento;
+            }
+            while (n > 0) {
+                b[posicao++] = digitos[--n];
+            }
+            return this;
+        }
+
+        /**
+         * Escreve um valor em centavos como reais com duas casas decimais (por exemplo, -12.05).
+         */
+        Saida centavos(long centavos) {
+            if (centavos < 0) {
+                caractere('-');
+                centavos = -centavos;
+            }
+            numero(centavos / 100).caractere('.');
+            long resto = centavos % 100;
+            return caractere('0' + (int) (resto / 10)).caractere('0' + (int) (resto % 10));
+        }
+
+        /**
+         * Escreve um valor em centavos alinhado à direita em uma coluna completada com espaços.
+         */
+        Saida centavosAlinhados(long centavos, int largura) {
+            boolean negativo = centavos < 0;
+            long v = negativo ? -centavos : centavos;
+            int n = 0;
+            digitos[n++] = (byte) ('0' + v % 10);
+            digitos[n++] = (byte) ('0' + v / 10 % 10);
+            digitos[n++] = '.';
+            v /= 100;
+            do {
+                digitos[n++] = (byte) ('0' + v % 10);
+                v /= 10;
+            } while (v != 0);
+            if (negativo) {
+                digitos[n++] = '-';
+            }
+            for (int i = n; i < largura; i++) {
+                b[posicao++] = ' ';
+            }
+            while (n > 0) {
+                b[posicao++] = digitos[--n];
+            }
+            return this;
+        }
+
+        /**
+         * Escreve um instante no fuso da exportação como "dd/MM/yyyy HH:mm:ss".
+         */
+        Saida data(long instante) {
+            long local = local(instante);
+            long dia = Math.floorDiv(local, 86_400_000L);
+            int segundos = (int) (Math.floorMod(local, 86_400_000L) / 1000);
+            long civil = civil(dia);
+            dois((int) (civil & 0xFF)).caractere('/').dois((int) (civil >> 8 & 0xFF)).caractere('/').quatro(civil >> 16);
+            caractere(' ');
+            return hora(segundos);
+        }
+
+        /**
+         * Escreve um instante no fuso da exportação como "yyyy-MM-ddTHH:mm:ss" (ISO 8601, sem deslocamento).
+         */
+        Saida dataIso(long instante) {
+            long local = local(instante);
+            long dia = Math.floorDiv(local, 86_400_000L);
+            int segundos = (int) (Math.floorMod(local, 86_400_000L) / 1000);
+            long civil = civil(dia);
+            quatro(civil >> 16).caractere('-').dois((int) (civil >> 8 & 0xFF)).caractere('-').dois((int) (civil & 0xFF));
+            caractere('T');
+            return hora(segundos);
+        }
+
+        private Saida hora(int segundos) {
+            return dois(segundos / 3600).caractere(':').dois(segundos / 60 % 60).caractere(':').dois(segundos % 60);
+        }
+
+        private Saida dois(int v) {
+            return caractere('0' + v / 10).caractere('0' + v % 10);
+        }
+
+        private Saida quatro(long ano) {
+            return ano >= 0 && ano <= 9999 ? dois((int) ano / 100).dois((int) ano % 100) : numero(ano);
+        }
+
+        /**
+         * Converte um instante em milissegundos locais. O deslocamento é consultado nas regras do fuso
+         * apenas quando o instante sai da janela entre duas transições (horário de verão).
+         */
+        private long local(long instante) {
+            if (instante < inicioJanela || instante >= fimJanela) {
+                Instant i = Instant.ofEpochMilli(instante);
+                deslocamento = regras.getOffset(i).getTotalSeconds() * 1000L;
+                ZoneOffsetTransition anterior = regras.previousTransition(i);
+                ZoneOffsetTransition proxima = regras.nextTransition(i);
+                inicioJanela = anterior == null ? Long.MIN_VALUE : anterior.toEpochSecond() * 1000;
+                fimJanela = proxima == null ? Long.MAX_VALUE : proxima.toEpochSecond() * 1000;
+            }
+            return instante + deslocamento;
+        }
+
+        /**
+         * Converte dias desde 1970-01-01 em ano, mês e dia do calendário civil (algoritmo de Howard Hinnant),
+         * compactados como ano << 16 | mês << 8 | dia.
+         */
+        private static long civil(long dias) {
+            long z = dias + 719_468;
+            long era = Math.floorDiv(z, 146_097);
+            long doe = z - era * 146_097;                                    // Dia da era, de 0 a 146096
+            long yoe = (doe - doe / 1460 + doe / 36_524 - doe / 146_096) / 365; // Ano da era, de 0 a 399
+            long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);              // Dia do ano, a partir de 1º de março
+            long mp = (5 * doy + 2) / 153;
+            long dia = doy - (153 * mp + 2) / 5 + 1;
+            long mes = mp < 10 ? mp + 3 : mp - 9;
+            long ano = yoe + era * 400 + (mes <= 2 ? 1 : 0);
+            return ano << 16 | mes << 8 | dia;
+        }
+
+        /**
+         * Encerra a linha e, se o buffer atual não comportar outra linha completa, passa ao próximo,
+         * gravando o conjunto quando todos estiverem cheios.
+         */
+        void fimLinha() throws IOException {
+            b[posicao++] = '\n';
+            if (posicao > TAMANHO_BUFFER - MAXIMO_LINHA) {
+                proximo();
+            }
+        }
+
+        private void proximo() throws IOException {
+            buffers[atual].limit(posicao);
+            if (++atual == BUFFERS) {
+                gravar();
+            }
+            b = buffers[atual].array();
+            posicao = 0;
+        }
+
+        /**
+         * Grava os buffers cheios e o buffer atual.
+         * @return O total de bytes gravados na partição.
+         */
+        long concluir() throws IOException {
+            buffers[atual].limit(posicao);
+            atual++;
+            gravar();
+            canal = null;
+            return gravados;
+        }
+
+        /**
+         * Grava os buffers 0 a atual - 1 com uma escrita com múltiplos buffers, repetida até o fim.
+         */
+        private void gravar() throws IOException {
+            long restante = 0;
+            for (int i = 0; i < atual; i++) {
+                buffers[i].position(0);
+                restante += buffers[i].remaining();
+            }
+            while (restante > 0) {
+                restante -= canal.write(buffers, 0, atual);
+            }
+            for (int i = 0; i < atual; i++) {
+                gravados += buffers[i].limit();
+                buffers[i].clear();
+            }
+            atual = 0;
+        }
+    }
+}
@@ -0,0 +1,492 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+/**
+ * Fechamento mensal das contas, em quatro etapas executadas em ordem: ACUMULAR credita o rendimento
+ * do mês das contas rentáveis; TARIFAS debita a taxa administrativa da renda fixa, a taxa de gestão dos
+ * investimentos e os juros do cheque especial da conta corrente; IMPOSTOS calcula o imposto provisionado
+ * sobre os rendimentos (cobrado apenas no saque); EXTRATOS grava o resumo do mês de cada conta.
+ *
+ * As contas existentes no início do fechamento são ordenadas pelo número e divididas em blocos, que
+ * cada etapa processa em paralelo. Ao fim de cada bloco, depois de sincronizar o log de operações, um
+ * ponto de controle é gravado no diretório do fechamento (arquivo temporário sincronizado e renomeado
+ * atomicamente). Se o processo cair, executar de novo o fechamento da mesma competência retoma da
+ * etapa e dos blocos pendentes.
+ *
+ * Um bloco interrompido pode ter contas já lançadas. Cada conta guarda a marca (competência e etapa)
+ * do seu último lançamento do fechamento, gravada no log no mesmo registro do lançamento, e contas já
+ * marcadas não são lançadas de novo; assim nenhuma conta recebe o rendimento ou a tarifa duas vezes,
+ * mesmo que a queda ocorra entre o lançamento e o ponto de controle. As taxas sorteadas dependem apenas
+ * da competência e do número da conta, de modo que a retomada sorteia as mesmas taxas.
+ */
+public class FechamentoMensal {
+    public static final int TAMANHO_BLOCO_PADRAO = 4096; // Contas por bloco processado e registrado no ponto de controle
+
+    private static final int MAGICO = 0x5842464D; // "XBFM"
+    private static final int VERSAO = 1;
+    private static final String ARQUIVO_CONTAS = "contas.bin";     // Contas do fechamento, na ordem dos blocos
+    private static final String ARQUIVO_CONTROLE = "controle.bin"; // Ponto de controle: etapa, blocos concluídos e totais
+    private static final String DIRETORIO_EXTRATOS = "extratos";   // Um arquivo de extratos por bloco
+    private static final int ETAPAS = Etapa.values().length;
+
+    private final SistemaBancario banco; // Sistema bancário fechado
+    private final Path diretorio;        // Diretório dos fechamentos, com uma pasta por competência
+    private final int tamanhoBloco;      // Contas por bloco
+
+    /**
+     * Etapas do fechamento, na ordem de execução.
+     */
+    public enum Etapa {
+        ACUMULAR, TARIFAS, IMPOSTOS, EXTRATOS
+    }
+
+    /**
+     * Último lançamento do fechamento em uma conta: a marca da etapa e os valores lançados no mês.
+     * @param marca A marca da etapa (veja marca).
+     * @param rendimento O rendimento lançado na competência da marca, em centavos.
+     * @param tarifa A tarifa lançada na competência da marca, em centavos.
+     */
+    record SituacaoConta(long marca, long rendimento, long tarifa) {
+        /**
+         * Calcula a situação após um lançamento.
+         * @param anterior A situação anterior, ou null.
+         * @param marca A marca do lançamento.
+         * @param variacao A variação do saldo no lançamento, em centavos.
+         * @return A nova situação.
+         */
+        static SituacaoConta apos(SituacaoConta anterior, long marca, long variacao) {
+            if (etapa(marca) == Etapa.ACUMULAR) {
+                return new SituacaoConta(marca, variacao, 0);
+            }
+            long rendimento = anterior != null && mes(anterior.marca) == mes(marca) ? anterior.rendimento : 0;
+            return new SituacaoConta(marca, rendimento, -variacao);
+        }
+    }
+
+    /**
+     * Resultado de uma etapa, somando a execução atual e as anteriores interrompidas.
+     * @param etapa A etapa.
+     * @param contas As contas processadas.
+     * @param valorCentavos O total da etapa: rendimento, tarifas ou impostos, em centavos (zero nos extratos).
+     * @param duracaoNanos O tempo gasto na etapa, em nanossegundos.
+     * @param blocos A quantidade de blocos.
+     * @param blocosRetomados Os blocos já concluídos antes desta execução.
+     */
+    public record ResultadoEtapa(Etapa etapa, long contas, long valorCentavos, long duracaoNanos, int blocos, int blocosRetomados) {
+        /**
+         * Calcula a vazão da etapa.
+         * @return As contas processadas por segundo.
+         */
+        public double contasPorSegundo() {
+            return duracaoNanos == 0 ? 0 : contas * 1e9 / duracaoNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-9s %d contas | R$%.2f | %.3f s | %.0f contas/s | %d de %d blocos retomados",
+                    etapa, contas, Dinheiro.paraReais(valorCentavos), duracaoNanos / 1e9, contasPorSegundo(), blocosRetomados, blocos);
+        }
+    }
+
+    /**
+     * Relatório de um fechamento.
+     * @param competencia O mês fechado.
+     * @param etapas O resultado de cada etapa, na ordem de execução.
+     * @param retomado Se o fechamento continuou uma execução anterior interrompida ou já concluída.
+     */
+    public record Relatorio(YearMonth competencia, List<ResultadoEtapa> etapas, boolean retomado) {
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Fechamento de ").append(competencia);
+            sb.append(retomado ? " (retomado)" : "").append(System.lineSeparator());
+            for (ResultadoEtapa r : etapas) {
+                sb.append("  ").append(r).append(System.lineSeparator());
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Cria o fechamento com o tamanho de bloco padrão.
+     * @param banco O sistema bancário.
+     * @param diretorio O diretório dos pontos de controle e dos extratos (criado se não existir).
+     */
+    public FechamentoMensal(SistemaBancario banco, Path diretorio) {
+        this(banco, diretorio, TAMANHO_BLOCO_PADRAO);
+    }
+
+    /**
+     * Cria o fechamento.
+     * @param banco O sistema bancário.
+     * @param diretorio O diretório dos pontos de controle e dos extratos (criado se não existir).
+     * @param tamanhoBloco Contas por bloco. Uma retomada usa o tamanho gravado na primeira execução.
+     */
+    public FechamentoMensal(SistemaBancario banco, Path diretorio, int tamanhoBloco) {
+        if (tamanhoBloco <= 0) {
+            throw new IllegalArgumentException("O tamanho do bloco deve ser positivo");
+        }
+        this.banco = banco;
+        this.diretorio = diretorio;
+        this.tamanhoBloco = tamanhoBloco;
+    }
+
+    /**
+     * Calcula a marca de uma etapa em uma competência. Marcas de meses posteriores são maiores que as
+     * de meses anteriores, e, no mesmo mês, seguem a ordem das etapas.
+     * @param competencia O mês.
+     * @param etapa A etapa.
+     * @return A marca.
+     */
+    static long marca(YearMonth competencia, Etapa etapa) {
+        return (competencia.getYear() * 12L + competencia.getMonthValue() - 1) * 8 + etapa.ordinal() + 1;
+    }
+
+    private static long mes(long marca) {
+        return marca >>> 3;
+    }
+
+    private static Etapa etapa(long marca) {
+        return Etapa.values()[(int) (marca & 7) - 1];
+    }
+
+    /**
+     * Executa o fechamento de uma competência, ou retoma a execução interrompida. Se o fechamento já
+     * foi concluído, apenas devolve o relatório gravado.
+     * @param competencia O mês a fechar.
+     * @return O relatório, com a vazão de cada etapa.
+     * @throws IOException Se o ponto de controle, o log ou os extratos não puderem ser gravados.
+     */
+    public synchronized Relatorio executar(YearMonth competencia) throws IOException {
+        Path pasta = diretorio.resolve("fechamento-" + competencia);
+        Files.createDirectories(pasta.resolve(DIRETORIO_EXTRATOS));
+        Execucao execucao = Execucao.carregar(this, competencia, pasta);
+        boolean retomado = execucao != null;
+        if (execucao == null) {
+            execucao = Execucao.iniciar(this, competencia, pasta);
+        }
+        List<ResultadoEtapa> resultados = new ArrayList<>(ETAPAS);
+        for (Etapa etapa : Etapa.values()) {
+            resultados.add(execucao.executar(etapa));
+        }
+        return new Relatorio(competencia, resultados, retomado);
+    }
+
+    /**
+     * Estado de um fechamento em andamento: as contas, na ordem dos blocos, e o ponto de controle.
+     */
+    private static final class Execucao {
+        private final FechamentoMensal fechamento;
+        private final YearMonth competencia;
+        private final Path pasta;
+        private final int[] numeros;     // Números das contas, em ordem crescente
+        private final Conta[] contas;    // Contas correspondentes, ou null para as removidas
+        private final int tamanhoBloco;  // Contas por bloco, fixado na primeira execução
+        private final long semente;      // Semente das taxas sorteadas
+        private int etapaAtual;          // Ordinal da etapa em andamento, ou ETAPAS se concluído
+        private final BitSet concluidos = new BitSet();       // Blocos concluídos da etapa em andamento
+        private final long[] contasProcessadas = new long[ETAPAS]; // Por etapa, nos blocos concluídos
+        private final long[] valores = new long[ETAPAS];           // Por etapa, nos blocos concluídos, em centavos
+        private final long[] duracoes = new long[ETAPAS];          // Por etapa, somando as execuções, em nanossegundos
+
+        private Execucao(FechamentoMensal fechamento, YearMonth competencia, Path pasta, int[] numeros, int tamanhoBloco, long semente) {
+            this.fechamento = fechamento;
+            this.competencia = competencia;
+            this.pasta = pasta;
+            this.numeros = numeros;
+            this.tamanhoBloco = tamanhoBloco;
+            this.semente = semente;
+            this.contas = new Conta[numeros.length];
+            for (int i = 0; i < numeros.length; i++) {
+                contas[i] = fechamento.banco.buscarConta(numeros[i]);
+            }
+        }
+
+        /**
+         * Registra as contas existentes e grava a lista e um ponto de controle vazio.
+         */
+        static Execucao iniciar(FechamentoMensal fechamento, YearMonth competencia, Path pasta) throws IOException {
+            int quantidade = 0;
+            int[] numeros = new int[1024];
+            for (Cliente cliente : fechamento.banco.clientesCadastrados()) {
+                for (Conta conta : cliente.contasCadastradas()) {
+                    if (quantidade == numeros.length) {
+                        numeros = Arrays.copyOf(numeros, quantidade * 2);
+                    }
+                    numeros[quantidade++] = conta.getNumero();
+                }
+            }
+            numeros = Arrays.copyOf(numeros, quantidade);
+            Arrays.sort(numeros);
+            long semente = competencia.getYear() * 12L + competencia.getMonthValue();
+            ByteBuffer b = ByteBuffer.allocate(4 + 4 + 8 + 4 + 4 + 4 * quantidade + 4);
+            b.putInt(MAGICO).putInt(VERSAO).putLong(semente).putInt(fechamento.tamanhoBloco).putInt(quantidade);
+            for (int numero : numeros) {
+                b.putInt(numero);
+            }
+            gravarComCrc(pasta.resolve(ARQUIVO_CONTAS), b);
+            Execucao execucao = new Execucao(fechamento, competencia, pasta, numeros, fechamento.tamanhoBloco, semente);
+            execucao.gravarControle();
+            return execucao;
+        }
+
+        /**
+         * Carrega o fechamento gravado na pasta, ou devolve null se ele ainda não começou.
+         */
+        static Execucao carregar(FechamentoMensal fechamento, YearMonth competencia, Path pasta) throws IOException {
+            ByteBuffer b = ler(pasta.resolve(ARQUIVO_CONTAS));
+            ByteBuffer c = b == null ? null : ler(pasta.resolve(ARQUIVO_CONTROLE));
+            if (c == null) {
+                return null; // Queda antes do primeiro ponto de controle: nenhuma conta foi lançada
+            }
+            long semente = b.getLong();
+            int tamanhoBloco = b.getInt();
+            int[] numeros = new int[b.getInt()];
+            for (int i = 0; i < numeros.length; i++) {
+                numeros[i] = b.getInt();
+            }
+            Execucao execucao = new Execucao(fechamento, competencia, pasta, numeros, tamanhoBloco, semente);
+            execucao.etapaAtual = c.getInt();
+            for (int e = 0; e < ETAPAS; e++) {
+                execucao.contasProcessadas[e] = c.getLong();
+                execucao.valores[e] = c.getLong();
+                execucao.duracoes[e] = c.getLong();
+            }
+            long[] palavras = new long[c.getInt()];
+            for (int i = 0; i < palavras.length; i++) {
+                palavras[i] = c.getLong();
+            }
+            execucao.concluidos.or(BitSet.valueOf(palavras));
+            return execucao;
+        }
+
+        /**
+         * Executa os blocos pendentes de uma etapa, se ela ainda não foi concluída.
+         */
+        ResultadoEtapa executar(Etapa etapa) throws IOException {
+            int e = etapa.ordinal();
+            int blocos = (numeros.length + tamanhoBloco - 1) / tamanhoBloco;
+            if (etapaAtual > e) {
+                return new ResultadoEtapa(etapa, contasProcessadas[e], valores[e], duracoes[e], blocos, blocos);
+            }
+            int retomados = concluidos.cardinality();
+            long inicio = System.nanoTime();
+            long duracaoAnterior = duracoes[e];
+            SnapshotSaldos snapshot = etapa == Etapa.EXTRATOS ? fechamento.banco.abrirSnapshot() : null;
+            try {
+                ForkJoinPool.commonPool().invoke(new TarefaBlocos(this, etapa, snapshot, 0, blocos, inicio, duracaoAnterior));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            } finally {
+                if (snapshot != null) {
+                    snapshot.close();
+                }
+            }
+            synchronized (this) {
+                duracoes[e] = duracaoAnterior + System.nanoTime() - inicio;
+                etapaAtual = e + 1;
+                concluidos.clear();
+                gravarControle();
+            }
+            return new ResultadoEtapa(etapa, contasProcessadas[e], valores[e], duracoes[e], blocos, retomados);
+        }
+
+        /**
+         * Processa um bloco de uma etapa e registra a sua conclusão no ponto de controle.
+         */
+        void processarBloco(Etapa etapa, SnapshotSaldos snapshot, int bloco, long inicio, long duracaoAnterior) throws IOException {
+            int de = bloco * tamanhoBloco;
+            int ate = Math.min(numeros.length, de + tamanhoBloco);
+            long marca = marca(competencia, etapa);
+            long mesAtual = mes(marca);
+            long processadas = 0;
+            long valor = 0;
+            StringBuilder extratos = etapa == Etapa.EXTRATOS ? new StringBuilder("conta;tipo;cpf;saldo;rendimento;tarifa;imposto\n") : null;
+            for (int i = de; i < ate; i++) {
+                Conta conta = contas[i];
+                if (conta == null) {
+                    continue; // Removida antes desta execução
+                }
+                processadas++;
+                switch (etapa) {
+                    case ACUMULAR -> {
+                        long numero = conta.getNumero();
+                        conta.lancarFechamento(marca, JornalTransacoes.RENDIMENTO,
+                                saldo -> conta.rendimentoMensal(saldo, gerador(numero)));
+                        valor += rendimentoDoMes(conta, mesAtual);
+                    }
+                    case TARIFAS -> {
+                        long rendimento = rendimentoDoMes(conta, mesAtual);
+                        conta.lancarFechamento(marca, JornalTransacoes.TARIFA, saldo -> -conta.tarifaMensal(saldo, rendimento));
+                        SituacaoConta s = conta.getFechamento();
+                        valor += s != null && s.marca() == marca ? s.tarifa() : 0;
+                    }
+                    case IMPOSTOS -> valor += conta.impostoMensal(rendimentoDoMes(conta, mesAtual));
+                    case EXTRATOS -> {
+                        long rendimento = rendimentoDoMes(conta, mesAtual);
+                        SituacaoConta s = conta.getFechamento();
+                        long tarifa = s != null && mes(s.marca()) == mesAtual ? s.tarifa() : 0;
+                        extratos.append(String.format(Locale.ROOT, "%d;%s;%s;%.2f;%.2f;%.2f;%.2f\n", conta.getNumero(),
+                                conta.getClass().getSimpleName(), conta.getCliente().getCpf(),
+                                Dinheiro.paraReais(snapshot.getSaldoCentavos(conta)), Dinheiro.paraReais(rendimento),
+                                Dinheiro.paraReais(tarifa), Dinheiro.paraReais(conta.impostoMensal(rendimento))));
+                    }
+                }
+            }
+            if (extratos != null) {
+                gravar(pasta.resolve(DIRETORIO_EXTRATOS).resolve(String.format("bloco-%06d.csv", bloco)),
+                        ByteBuffer.wrap(extratos.toString().getBytes(StandardCharsets.UTF_8)));
+            }
+            fechamento.banco.sincronizarLog(); // Os lançamentos do bloco precisam estar no disco antes do ponto de controle
+            synchronized (this) {
+                int e = etapa.ordinal();
+                concluidos.set(bloco);
+                contasProcessadas[e] += processadas;
+                valores[e] += valor;
+                duracoes[e] = duracaoAnterior + System.nanoTime() - inicio;
+                gravarControle();
+            }
+        }
+
+        /**
+         * Gerador das taxas sorteadas de uma conta: o mesmo a cada chamada, na execução e na retomada.
+         */
+        private SplittableRandom gerador(long numero) {
+            return new SplittableRandom(semente * 0x9E3779B97F4A7C15L + numero);
+        }
+
+        private static long rendimentoDoMes(Conta conta, long mes) {
+            SituacaoConta s = conta.getFechamento();
+            return s != null && mes(s.marca()) == mes ? s.rendimento() : 0;
+        }
+
+        /**
+         * Grava o ponto de controle. Chamado sob a trava da execução.
+         */
+        private void gravarControle() throws IOException {
+            long[] palavras = concluidos.toLongArray();
+            ByteBuffer b = ByteBuffer.allocate(4 + 4 + 4 + ETAPAS * 24 + 4 + palavras.length * 8 + 4);
+            b.putInt(MAGICO).putInt(VERSAO).putInt(etapaAtual);
+            for (int e = 0; e < ETAPAS; e++) {
+                b.putLong(contasProcessadas[e]).putLong(valores[e]).putLong(duracoes[e]);
+            }
+            b.putInt(palavras.length);
+            for (long p : palavras) {
+                b.putLong(p);
+            }
+            gravarComCrc(pasta.resolve(ARQUIVO_CONTROLE), b);
+        }
+    }
+
+    /**
+     * Tarefa fork-join que divide o intervalo de blocos ao meio até um único bloco, ignorando os já concluídos.
+     */
+    private static class TarefaBlocos extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Execucao execucao;
+        private final Etapa etapa;
+        private final SnapshotSaldos snapshot; // Saldos dos extratos, ou null nas demais etapas
+        private final int inicio;
+        private final int fim;
+        private final long inicioEtapa;       // Início da etapa nesta execução, em nanossegundos
+        private final long duracaoAnterior;   // Duração da etapa nas execuções anteriores
+
+        TarefaBlocos(Execucao execucao, Etapa etapa, SnapshotSaldos snapshot, int inicio, int fim, long inicioEtapa, long duracaoAnterior) {
+            this.execucao = execucao;
+            this.etapa = etapa;
+            this.snapshot = snapshot;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.inicioEtapa = inicioEtapa;
+            this.duracaoAnterior = duracaoAnterior;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio == 1) {
+                boolean concluido;
+                synchronized (execucao) {
+                    concluido = execucao.concluidos.get(inicio);
+                }
+                if (!concluido) {
+                    try {
+                        execucao.processarBloco(etapa, snapshot, inicio, inicioEtapa, duracaoAnterior);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return;
+            }
+            if (fim <= inicio) {
+                return;
+            }
+            int meio = (inicio + fim) >>> 1;
+            invokeAll(new TarefaBlocos(execucao, etapa, snapshot, inicio, meio, inicioEtapa, duracaoAnterior),
+                    new TarefaBlocos(execucao, etapa, snapshot, meio, fim, inicioEtapa, duracaoAnterior));
+        }
+    }
+
+    /**
+     * Acrescenta o CRC32 dos bytes já escritos no buffer (que deve ter espaço para ele) e o grava com gravar.
+     */
+    private static void gravarComCrc(Path destino, ByteBuffer conteudo) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(conteudo.array(), 0, conteudo.position());
+        gravar(destino, conteudo.putInt((int) crc.getValue()).flip());
+    }
+
+    /**
+     * Grava o conteúdo em um arquivo temporário, sincroniza-o e o renomeia atomicamente, de modo que
+     * o arquivo visível está sempre completo.
+     */
+    private static void gravar(Path destino, ByteBuffer conteudo) throws IOException {
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileChannel fc = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (conteudo.hasRemaining()) {
+                fc.write(conteudo);
+            }
+            fc.force(true);
+        }
+        Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lê um arquivo gravado por gravarComCrc, verificando o CRC e o cabeçalho.
+     * @return O conteúdo posicionado após o cabeçalho, ou null se o arquivo não existe.
+     */
+    private static ByteBuffer ler(Path arquivo) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(arquivo);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, Math.max(0, bytes.length - 4));
+        if (bytes.length < 12 || (int) crc.getValue() != b.getInt(bytes.length - 4)) {
+            throw new IOException("Ponto de controle corrompido (CRC inválido): " + arquivo);
+        }
+        if (b.getInt() != MAGICO || b.getInt() != VERSAO) {
+            throw new IOException("Formato de ponto de controle não reconhecido: " + arquivo);
+        }
+        return b;
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.concurrent.CompletableFuture;
+/**
+ * Fragmento de um SistemaBancarioFragmentado: um sistema bancário independente que guarda parte dos
+ * clientes, com seus próprios índices. As operações são assíncronas, para que o coordenador possa
+ * consultar todos os fragmentos ao mesmo tempo e combinar os resultados parciais.
+ * Os tipos de conta usam os códigos de Persistencia (CORRENTE, POUPANCA, RENDA_FIXA e INVESTIMENTO).
+ */
+public interface Fragmento extends AutoCloseable {
+    /**
+     * Cadastra um cliente no fragmento.
+     * @param nome O nome do cliente.
+     * @param cpf O CPF do cliente.
+     * @return true se o cliente foi cadastrado, false se o CPF já existia.
+     */
+    CompletableFuture<Boolean> adicionarCliente(String nome, String cpf);
+
+    /**
+     * Abre uma conta para um cliente do fragmento.
+     * @param cpf O CPF do titular.
+     * @param tipo O código do tipo de conta.
+     * @param numero O número da conta.
+     * @param limite O limite de crédito da conta corrente, em centavos.
+     * @return true se a conta foi aberta; false se o titular não existe, o tipo é inválido ou o número já está em uso.
+     */
+    CompletableFuture<Boolean> abrirConta(String cpf, byte tipo, int numero, long limite);
+
+    /**
+     * Deposita em uma conta do fragmento.
+     * @param numero O número da conta.
+     * @param centavos O valor, em centavos.
+     * @return O resultado da operação.
+     */
+    CompletableFuture<ResultadoOperacao> depositar(int numero, long centavos);
+
+    /**
+     * Saca de uma conta do fragmento.
+     * @param numero O número da conta.
+     * @param centavos O valor, em centavos.
+     * @return O resultado da operação.
+     */
+    CompletableFuture<ResultadoOperacao> sacar(int numero, long centavos);
+
+    /**
+     * Consulta o saldo de uma conta do fragmento.
+     * @param numero O número da conta.
+     * @return O saldo em centavos, ou Long.MIN_VALUE se a conta não existir.
+     */
+    CompletableFuture<Long> saldo(int numero);
+
+    /**
+     * Calcula os agregados do fragmento: custódia e quantidade de contas por tipo e clientes de maior e menor saldo.
+     * @return O resultado parcial do fragmento.
+     */
+    CompletableFuture<ParcialFragmento> agregados();
+
+    /**
+     * Lista os números das contas existentes no fragmento, usados pelo coordenador para montar a tabela de roteamento.
+     * @return Os números das contas, em qualquer ordem.
+     */
+    CompletableFuture<int[]> numerosContas();
+
+    /**
+     * Libera os recursos do fragmento (threads e conexões).
+     */
+    @Override
+    void close();
+}
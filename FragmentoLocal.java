@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+/**
+ * Fragmento mantido neste processo: um SistemaBancario próprio, sem saída no console, com uma única
+ * thread de escrita. Cadastros, aberturas, movimentações e o cálculo dos agregados são executados em
+ * ordem nessa thread, de modo que cada fragmento ocupa no máximo um núcleo e os agregados refletem um
+ * ponto entre duas escritas; consultas de saldo são respondidas na thread chamadora.
+ */
+public class FragmentoLocal implements Fragmento {
+    private final SistemaBancario banco = new SistemaBancario(); // Clientes e contas deste fragmento
+    private final ExecutorService escritor; // Thread única que aplica as escritas
+
+    /**
+     * Cria um fragmento vazio.
+     * @param nome O nome da thread de escrita do fragmento.
+     */
+    public FragmentoLocal(String nome) {
+        banco.setCanalEventos(CanalEventos.NULO);
+        escritor = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, nome);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Retorna o sistema bancário do fragmento.
+     * @return O sistema bancário.
+     */
+    public SistemaBancario getBanco() {
+        return banco;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> adicionarCliente(String nome, String cpf) {
+        return CompletableFuture.supplyAsync(() -> banco.adicionarCliente(new Cliente(nome, cpf)), escritor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> abrirConta(String cpf, byte tipo, int numero, long limite) {
+        return CompletableFuture.supplyAsync(() -> {
+            Cliente titular = banco.buscarCliente(cpf);
+            if (titular == null) {
+                return false;
+            }
+            Conta conta;
+            try {
+                conta = Persistencia.criarConta(tipo, numero, titular, limite);
+            } catch (IOException e) {
+                return false; // Código de tipo desconhecido
+            }
+            return titular.adicionarConta(conta);
+        }, escritor);
+    }
+
+    @Override
+    public CompletableFuture<ResultadoOperacao> depositar(int numero, long centavos) {
+        return CompletableFuture.supplyAsync(() -> {
+            Conta conta = banco.buscarConta(numero);
+            return conta == null
+                    ? new ResultadoOperacao(ResultadoOperacao.Operacao.DEPOSITO, ResultadoOperacao.Situacao.CONTA_INVALIDA, numero, centavos, 0, 0)
+                    : conta.depositar(Dinheiro.paraReais(centavos));
+        }, escritor);
+    }
+
+    @Override
+    public CompletableFuture<ResultadoOperacao> sacar(int numero, long centavos) {
+        return CompletableFuture.supplyAsync(() -> {
+            Conta conta = banco.buscarConta(numero);
+            return conta == null
+                    ? new ResultadoOperacao(ResultadoOperacao.Operacao.SAQUE, ResultadoOperacao.Situacao.CONTA_INVALIDA, numero, centavos, 0, 0)
+                    : conta.sacar(Dinheiro.paraReais(centavos));
+        }, escritor);
+    }
+
+    @Override
+    public CompletableFuture<Long> saldo(int numero) {
+        Conta conta = banco.buscarConta(numero);
+        return CompletableFuture.completedFuture(conta == null ? Long.MIN_VALUE : conta.getSaldoCentavos());
+    }
+
+    @Override
+    public CompletableFuture<ParcialFragmento> agregados() {
+        return CompletableFuture.supplyAsync(() -> {
+            long[] custodia = new long[ParcialFragmento.TIPOS];
+            long[] contas = new long[ParcialFragmento.TIPOS];
+            for (int t = Persistencia.CORRENTE; t < ParcialFragmento.TIPOS; t++) {
+                custodia[t] = banco.custodiaCentavos(ParcialFragmento.classe(t));
+                contas[t] = banco.quantidadeContas(ParcialFragmento.classe(t));
+            }
+            return new ParcialFragmento(custodia, contas, resumir(banco.clienteComMaiorSaldo()), resumir(banco.clienteComMenorSaldo()));
+        }, escritor);
+    }
+
+    @Override
+    public CompletableFuture<int[]> numerosContas() {
+        return CompletableFuture.supplyAsync(() -> banco.getClientes().stream()
+                .flatMap(cliente -> cliente.getContas().stream())
+                .mapToInt(Conta::getNumero)
+                .toArray(), escritor);
+    }
+
+    private static ParcialFragmento.ClienteSaldo resumir(Cliente cliente) {
+        return cliente == null ? null : new ParcialFragmento.ClienteSaldo(cliente.getNome(), cliente.getCpf(), cliente.calcularSaldoTotalCentavos());
+    }
+
+    @Override
+    public void close() {
+        escritor.shutdown();
+    }
+}
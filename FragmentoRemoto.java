@@ -0,0 +1,249 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+/**
+ * Fragmento executado em outro processo (ServidorFragmento), acessado por uma conexão TCP.
+ * As requisições são enviadas em sequência sem esperar as respostas anteriores; o servidor as
+ * atende na ordem de chegada, e uma thread leitora completa as requisições pendentes na mesma ordem.
+ *
+ * Protocolo binário (DataOutputStream): cada requisição é o código da operação seguido dos
+ * argumentos; cada resposta começa com OK ou ERRO (seguido da mensagem) e traz o resultado da operação.
+ */
+public class FragmentoRemoto implements Fragmento {
+    static final byte CLIENTE = 1;   // nome, cpf -> boolean
+    static final byte CONTA = 2;     // cpf, tipo, numero, limite -> boolean
+    static final byte DEPOSITO = 3;  // numero, centavos -> resultado
+    static final byte SAQUE = 4;     // numero, centavos -> resultado
+    static final byte SALDO = 5;     // numero -> saldo ou Long.MIN_VALUE
+    static final byte AGREGADOS = 6; // -> custódia e contas por tipo, maior e menor cliente
+    static final byte CONTAS = 7;    // -> quantidade e números das contas
+    static final byte OK = 0;        // Resposta bem-sucedida
+    static final byte ERRO = 1;      // Falha na execução; seguida da mensagem
+
+    private final Socket socket;
+    private final DataOutputStream saida; // Requisições; gravações serializadas por sincronização
+    private final DataInputStream entrada; // Respostas, lidas apenas pela thread leitora
+    private final Queue<Pendente> pendentes = new ConcurrentLinkedQueue<>(); // Requisições aguardando resposta, em ordem de envio
+
+    /**
+     * Requisição enviada e ainda sem resposta.
+     */
+    private record Pendente(byte operacao, CompletableFuture<Object> futuro) {
+    }
+
+    /**
+     * Conecta a um ServidorFragmento.
+     * @param endereco O endereço do servidor.
+     * @throws IOException Se a conexão falhar.
+     */
+    public FragmentoRemoto(InetSocketAddress endereco) throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(endereco);
+        saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 8192));
+        entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 8192));
+        Thread leitora = new Thread(this::lerRespostas, "fragmento-remoto-" + endereco.getPort());
+        leitora.setDaemon(true);
+        leitora.start();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> adicionarCliente(String nome, String cpf) {
+        return enviar(CLIENTE, s -> {
+            s.writeUTF(nome);
+            s.writeUTF(cpf);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> abrirConta(String cpf, byte tipo, int numero, long limite) {
+        return enviar(CONTA, s -> {
+            s.writeUTF(cpf);
+            s.writeByte(tipo);
+            s.writeInt(numero);
+            s.writeLong(limite);
+        });
+    }
+
+    @Override
+    public CompletableFuture<ResultadoOperacao> depositar(int numero, long centavos) {
+        return enviar(DEPOSITO, s -> {
+            s.writeInt(numero);
+            s.writeLong(centavos);
+        });
+    }
+
+    @Override
+    public CompletableFuture<ResultadoOperacao> sacar(int numero, long centavos) {
+        return enviar(SAQUE, s -> {
+            s.writeInt(numero);
+            s.writeLong(centavos);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Long> saldo(int numero) {
+        return enviar(SALDO, s -> s.writeInt(numero));
+    }
+
+    @Override
+    public CompletableFuture<ParcialFragmento> agregados() {
+        return enviar(AGREGADOS, s -> {
+        });
+    }
+
+    @Override
+    public CompletableFuture<int[]> numerosContas() {
+        return enviar(CONTAS, s -> {
+        });
+    }
+
+    @FunctionalInterface
+    private interface Argumentos {
+        void gravar(DataOutputStream saida) throws IOException;
+    }
+
+    /**
+     * Enfileira a requisição e a grava na conexão, na mesma ordem, sob a trava da saída.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> enviar(byte operacao, Argumentos argumentos) {
+        CompletableFuture<Object> futuro = new CompletableFuture<>();
+        synchronized (saida) {
+            pendentes.add(new Pendente(operacao, futuro));
+            try {
+                saida.writeByte(operacao);
+                argumentos.gravar(saida);
+                saida.flush();
+            } catch (IOException e) {
+                falhar(e);
+            }
+        }
+        return (CompletableFuture<T>) (CompletableFuture<?>) futuro;
+    }
+
+    /**
+     * Laço da thread leitora: cada resposta corresponde à requisição pendente mais antiga.
+     */
+    private void lerRespostas() {
+        try {
+            while (true) {
+                byte situacao = entrada.readByte();
+                Pendente p = pendentes.poll();
+                if (p == null) {
+                    throw new IOException("Resposta sem requisição pendente");
+                }
+                if (situacao == ERRO) {
+                    p.futuro().completeExceptionally(new IllegalStateException(entrada.readUTF()));
+                } else {
+                    p.futuro().complete(lerResultado(p.operacao(), entrada));
+                }
+            }
+        } catch (IOException e) {
+            falhar(e);
+        }
+    }
+
+    private static Object lerResultado(byte operacao, DataInputStream e) throws IOException {
+        return switch (operacao) {
+            case CLIENTE, CONTA -> e.readBoolean();
+            case DEPOSITO, SAQUE -> new ResultadoOperacao(
+                    operacao == DEPOSITO ? ResultadoOperacao.Operacao.DEPOSITO : ResultadoOperacao.Operacao.SAQUE,
+                    ResultadoOperacao.Situacao.values()[e.readByte()], e.readInt(), e.readLong(), e.readLong(), e.readLong());
+            case SALDO -> e.readLong();
+            case AGREGADOS -> {
+                long[] custodia = new long[ParcialFragmento.TIPOS];
+                long[] contas = new long[ParcialFragmento.TIPOS];
+                for (int t = Persistencia.CORRENTE; t < ParcialFragmento.TIPOS; t++) {
+                    custodia[t] = e.readLong();
+                    contas[t] = e.readLong();
+                }
+                yield new ParcialFragmento(custodia, contas, lerCliente(e), lerCliente(e));
+            }
+            case CONTAS -> {
+                int[] numeros = new int[e.readInt()];
+                for (int i = 0; i < numeros.length; i++) {
+                    numeros[i] = e.readInt();
+                }
+                yield numeros;
+            }
+            default -> throw new IOException("Operação desconhecida: " + operacao);
+        };
+    }
+
+    private static ParcialFragmento.ClienteSaldo lerCliente(DataInputStream e) throws IOException {
+        return e.readBoolean() ? new ParcialFragmento.ClienteSaldo(e.readUTF(), e.readUTF(), e.readLong()) : null;
+    }
+
+    /**
+     * Grava a resposta de uma operação executada por um fragmento local; usado pelo ServidorFragmento.
+     */
+    static void gravarResultado(byte operacao, Object resultado, DataOutputStream s) throws IOException {
+        s.writeByte(OK);
+        switch (operacao) {
+            case CLIENTE, CONTA -> s.writeBoolean((Boolean) resultado);
+            case DEPOSITO, SAQUE -> {
+                ResultadoOperacao r = (ResultadoOperacao) resultado;
+                s.writeByte(r.situacao().ordinal());
+                s.writeInt(r.conta());
+                s.writeLong(r.valor());
+                s.writeLong(r.encargos());
+                s.writeLong(r.saldo());
+            }
+            case SALDO -> s.writeLong((Long) resultado);
+            case AGREGADOS -> {
+                ParcialFragmento p = (ParcialFragmento) resultado;
+                for (int t = Persistencia.CORRENTE; t < ParcialFragmento.TIPOS; t++) {
+                    s.writeLong(p.custodia()[t]);
+                    s.writeLong(p.contas()[t]);
+                }
+                gravarCliente(p.maior(), s);
+                gravarCliente(p.menor(), s);
+            }
+            case CONTAS -> {
+                int[] numeros = (int[]) resultado;
+                s.writeInt(numeros.length);
+                for (int numero : numeros) {
+                    s.writeInt(numero);
+                }
+            }
+            default -> throw new IOException("Operação desconhecida: " + operacao);
+        }
+    }
+
+    private static void gravarCliente(ParcialFragmento.ClienteSaldo c, DataOutputStream s) throws IOException {
+        s.writeBoolean(c != null);
+        if (c != null) {
+            s.writeUTF(c.nome());
+            s.writeUTF(c.cpf());
+            s.writeLong(c.saldo());
+        }
+    }
+
+    /**
+     * Encerra a conexão e falha todas as requisições pendentes.
+     */
+    private void falhar(IOException causa) {
+        try {
+            socket.close();
+        } catch (IOException ignorada) {
+            // A conexão já está sendo descartada
+        }
+        Pendente p;
+        while ((p = pendentes.poll()) != null) {
+            p.futuro().completeExceptionally(causa);
+        }
+    }
+
+    @Override
+    public void close() {
+        falhar(new IOException("Conexão com o fragmento encerrada"));
+    }
+}
@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+/**
+ * Gerador de carga para o ServidorHttp. Mantém milhares de conexões HTTP/1.1 persistentes abertas
+ * ao mesmo tempo e, em cada uma, envia uma requisição assim que a anterior é respondida: quatro
+ * consultas de saldo para cada depósito. Todas as conexões são conduzidas por um único seletor
+ * NIO, de modo que o número de conexões não é limitado pelo número de threads do cliente.
+ * Ao final, informa a vazão (requisições por segundo) e os percentis de latência.
+ *
+ * Uso: java GeradorCarga [--host h] [--porta p] [--conexoes n] [--duracao s] [--contas n]
+ * Sem --porta, sobe um ServidorHttp local em uma porta livre. Cada conexão usa dois descritores
+ * de arquivo nesse modo (cliente e servidor no mesmo processo); ajuste o ulimit -n se necessário.
+ */
+public class GeradorCarga {
+    private static final int PRIMEIRA_CONTA = 1_000_000; // Número da primeira conta criada para a carga
+    private static final int DEPOSITO_A_CADA = 5; // Uma requisição em cada cinco é um depósito; as demais, consultas de saldo
+    private static final int CONEXOES_POR_RODADA = 512; // Conexões iniciadas por vez, para não estourar o backlog do servidor
+
+    private final String host; // Endereço do servidor
+    private final int porta; // Porta do servidor
+    private long[] latencias = new long[1 << 16]; // Latência de cada requisição respondida, em nanossegundos
+    private int respondidas; // Requisições respondidas
+    private int falhas; // Conexões recusadas ou encerradas pelo servidor, e respostas 5xx
+
+    /**
+     * Cria um gerador de carga para o servidor informado.
+     * @param host O endereço do servidor.
+     * @param porta A porta do servidor.
+     */
+    public GeradorCarga(String host, int porta) {
+        this.host = host;
+        this.porta = porta;
+    }
+
+    /**
+     * Lê as opções, prepara as contas, executa a carga e exibe o relatório.
+     * @param args As opções descritas na documentação da classe.
+     */
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int porta = 0;
+        int conexoes = 10_000;
+        int duracao = 10;
+        int contas = 1_000;
+        for (int i = 0; i < args.length - 1; i++) {
+            switch (args[i]) {
+                case "--host" -> host = args[++i];
+                case "--porta" -> porta = Integer.parseInt(args[++i]);
+                case "--conexoes" -> conexoes = Integer.parseInt(args[++i]);
+                case "--duracao" -> duracao = Integer.parseInt(args[++i]);
+                case "--contas" -> contas = Integer.parseInt(args[++i]);
+                default -> {
+                }
+            }
+        }
+        ServidorHttp local = null;
+        if (porta == 0) {
+            SistemaBancario banco = new SistemaBancario();
+            banco.setCanalEventos(CanalEventos.NULO);
+            local = new ServidorHttp(banco, new InetSocketAddress(host, 0));
+            local.iniciar();
+            porta = local.getPorta();
+            System.out.println("Servidor local na porta " + porta + (local.usaThreadsVirtuais() ? " (threads virtuais)" : ""));
+        }
+        try {
+            GeradorCarga gerador = new GeradorCarga(host, porta);
+            gerador.prepararContas(contas);
+            gerador.executar(conexoes, contas, duracao * 1_000_000_000L);
+        } finally {
+            if (local != null) {
+                local.close();
+            }
+        }
+    }
+
+    /**
+     * Cadastra um cliente e as contas usadas pela carga, com saldo inicial. Contas que já existem
+     * (de uma execução anterior contra o mesmo servidor) são reaproveitadas.
+     * @param contas A quantidade de contas.
+     */
+    private void prepararContas(int contas) throws IOException, InterruptedException {
+        HttpClient cliente = HttpClient.newHttpClient();
+        String base = "http://" + host + ":" + porta;
+        enviar(cliente, base + "/clientes", "nome=Carga&cpf=99999999999");
+        for (int i = 0; i < contas; i++) {
+            int numero = PRIMEIRA_CONTA + i;
+            enviar(cliente, base + "/contas", "cpf=99999999999&tipo=corrente&limite=0&numero=" + numero);
+            enviar(cliente, base + "/contas/" + numero + "/deposito", "valor=1000");
+        }
+    }
+
+    private static void enviar(HttpClient cliente, String url, String formulario) throws IOException, InterruptedException {
+        cliente.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(formulario)).build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * Abre as conexões e mantém cada uma ocupada com requisições até o fim da duração, depois exibe o relatório.
+     * @param conexoes A quantidade de conexões simultâneas.
+     * @param contas A quantidade de contas entre as quais as conexões se distribuem.
+     * @param duracaoNanos A duração da medição, em nanossegundos.
+     */
+    public void executar(int conexoes, int contas, long duracaoNanos) throws IOException {
+        try (Selector seletor = Selector.open()) {
+            InetSocketAddress endereco = new InetSocketAddress(host, porta);
+            long inicio = System.nanoTime();
+            long prazo = inicio + duracaoNanos;
+            int abertas = 0;
+            int ativas = 0;
+            while ((ativas > 0 || abertas < conexoes) && System.nanoTime() < prazo + 5_000_000_000L) {
+                for (int n = 0; n < CONEXOES_POR_RODADA && abertas < conexoes; n++, abertas++) {
+                    try {
+                        SocketChannel canal = SocketChannel.open();
+                        canal.configureBlocking(false);
+                        canal.connect(endereco);
+                        canal.register(seletor, SelectionKey.OP_CONNECT, new Conexao(PRIMEIRA_CONTA + abertas % contas, host));
+                        ativas++;
+                    } catch (IOException e) {
+                        falhas++; // Normalmente, falta de descritores de arquivo
+                    }
+                }
+                seletor.select(10);
+                Iterator<SelectionKey> prontas = seletor.selectedKeys().iterator();
+                while (prontas.hasNext()) {
+                    SelectionKey chave = prontas.next();
+                    prontas.remove();
+                    if (!processar(chave, prazo)) {
+                        chave.cancel();
+                        chave.channel().close();
+                        ativas--;
+                    }
+                }
+            }
+            long decorrido = Math.min(System.nanoTime(), prazo) - inicio;
+            for (SelectionKey chave : seletor.keys()) {
+                chave.channel().close();
+            }
+            relatar(conexoes, decorrido);
+        }
+    }
+
+    /**
+     * Avança a conexão de uma chave pronta: conclui a conexão, envia a requisição ou lê a resposta.
+     * @return false se a conexão deve ser encerrada.
+     */
+    private boolean processar(SelectionKey chave, long prazo) {
+        SocketChannel canal = (SocketChannel) chave.channel();
+        Conexao conexao = (Conexao) chave.attachment();
+        try {
+            if (chave.isConnectable()) {
+                if (!canal.finishConnect()) {
+                    return true;
+                }
+                conexao.proxima();
+                chave.interestOps(SelectionKey.OP_WRITE);
+            }
+            if (chave.isWritable()) {
+                canal.write(conexao.requisicao);
+                if (!conexao.requisicao.hasRemaining()) {
+                    chave.interestOps(SelectionKey.OP_READ);
+                }
+            } else if (chave.isReadable()) {
+                if (canal.read(conexao.resposta) < 0) {
+                    falhas++;
+                    return false;
+                }
+                int status = conexao.respostaCompleta();
+                if (status != 0) {
+                    registrar(System.nanoTime() - conexao.enviadaEm);
+                    if (status >= 500) {
+                        falhas++;
+                    }
+                    if (System.nanoTime() >= prazo) {
+                        return false;
+                    }
+                    conexao.proxima();
+                    chave.interestOps(SelectionKey.OP_WRITE);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            falhas++;
+            return false;
+        }
+    }
+
+    private void registrar(long latencia) {
+        if (respondidas == latencias.length) {
+            latencias = Arrays.copyOf(latencias, respondidas * 2);
+        }
+        latencias[respondidas++] = latencia;
+    }
+
+    private void relatar(int conexoes, long decorridoNanos) {
+        long[] ordenadas = Arrays.copyOf(latencias, respondidas);
+        Arrays.sort(ordenadas);
+        double segundos = decorridoNanos / 1e9;
+        System.out.println(String.format(Locale.ROOT,
+                "Conexões: %d | Requisições: %d | Falhas: %d | Vazão: %.0f req/s | p50: %.2f ms | p99: %.2f ms | máx: %.2f ms",
+                conexoes, respondidas, falhas, respondidas / segundos,
+                percentil(ordenadas, 0.50) / 1e6, percentil(ordenadas, 0.99) / 1e6,
+                (ordenadas.length == 0 ? 0 : ordenadas[ordenadas.length - 1]) / 1e6));
+    }
+
+    private static long percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1)];
+    }
+
+    /**
+     * Estado de uma conexão: as requisições pré-codificadas, a que está em envio e a resposta em leitura.
+     */
+    private static final class Conexao {
+        private final ByteBuffer saldo;    // GET /contas/{n}/saldo, codificada uma vez
+        private final ByteBuffer deposito; // POST /contas/{n}/deposito, codificada uma vez
+        private final ByteBuffer resposta = ByteBuffer.allocate(4096); // Resposta em leitura
+        private ByteBuffer requisicao; // Requisição em envio
+        private int enviadas; // Requisições enviadas nesta conexão
+        private long enviadaEm; // Instante do envio da requisição atual, em nanossegundos
+
+        Conexao(int conta, String host) {
+            saldo = ascii("GET /contas/" + conta + "/saldo HTTP/1.1\r\nHost: " + host + "\r\n\r\n");
+            deposito = ascii("POST /contas/" + conta + "/deposito HTTP/1.1\r\nHost: " + host
+                    + "\r\nContent-Type: application/x-www-form-urlencoded\r\nContent-Length: 7\r\n\r\nvalor=1");
+        }
+
+        /**
+         * Prepara a próxima requisição e marca o instante do envio.
+         */
+        void proxima() {
+            requisicao = (++enviadas % DEPOSITO_A_CADA == 0 ? deposito : saldo).rewind();
+            resposta.clear();
+            enviadaEm = System.nanoTime();
+        }
+
+        /**
+         * Verifica se a resposta já foi lida por inteiro (cabeçalhos e corpo pelo Content-Length).
+         * @return O código de status da resposta, ou 0 se ainda faltam bytes.
+         */
+        int respostaCompleta() throws IOException {
+            byte[] b = resposta.array();
+            int lidos = resposta.position();
+            int fimCabecalho = -1;
+            for (int i = 3; i < lidos; i++) {
+                if (b[i] == '\n' && b[i - 1] == '\r' && b[i - 2] == '\n' && b[i - 3] == '\r') {
+                    fimCabecalho = i + 1;
+                    break;
+                }
+            }
+            if (fimCabecalho < 0) {
+                if (!resposta.hasRemaining()) {
+                    throw new IOException("Cabeçalho de resposta grande demais");
+                }
+                return 0;
+            }
+            String cabecalho = new String(b, 0, fimCabecalho, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+            int campo = cabecalho.indexOf("content-length:");
+            int tamanho = 0;
+            if (campo >= 0) {
+                int fimLinha = cabecalho.indexOf('\r', campo);
+                tamanho = Integer.parseInt(cabecalho.substring(campo + 15, fimLinha).trim());
+            }
+            if (fimCabecalho + tamanho > resposta.capacity()) {
+                throw new IOException("Resposta grande demais: " + tamanho + " bytes");
+            }
+            if (lidos < fimCabecalho + tamanho) {
+                return 0;
+            }
+            return Integer.parseInt(cabecalho.substring(9, 12)); // "HTTP/1.1 200 ..."
+        }
+
+        private static ByteBuffer ascii(String texto) {
+            return ByteBuffer.wrap(texto.getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+        }
+    }
+}
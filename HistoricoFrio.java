@@ -0,0 +1,401 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+/**
+ * Camada fria do histórico de transações: segmentos antigos dos jornais (JornalTransacoes), selados
+ * em arquivos imutáveis e comprimidos em disco para que o histórico de contas com muitas transações
+ * não cresça sem limite no heap.
+ *
+ * Cada jornal vinculado mantém em memória apenas as transações mais recentes. Quando as transações em
+ * memória passam do limite de derrame, os segmentos completos mais antigos (de 1024 transações) são
+ * gravados por uma thread própria, até restarem no máximo as transações em memória configuradas; a
+ * operação que ultrapassou o limite não espera pela gravação. Cada arquivo guarda as colunas do
+ * segmento codificadas por diferenças em inteiros de tamanho variável e comprimidas com Deflate, e um
+ * cabeçalho com o primeiro e o último instante, que o jornal mantém como índice para localizar
+ * períodos sem ler o disco. A leitura mapeia o arquivo em memória, descomprime o segmento e o guarda
+ * em um cache LRU compartilhado pelos jornais, de tamanho limitado.
+ *
+ * O histórico frio não é durável: na recuperação, os jornais são reconstruídos a partir dos arquivos de
+ * jornais da persistência (ArquivoJornais) e do log de operações, e os arquivos de execuções anteriores
+ * são apagados ao abrir o diretório. Arquivos de
+ * contas removidas permanecem até a próxima abertura. Para não apagar arquivos alheios, o diretório
+ * recebe um arquivo de marca na primeira abertura, e só um diretório vazio ou com essa marca é aceito.
+ */
+public final class HistoricoFrio implements AutoCloseable {
+    public static final int TRANSACOES_EM_MEMORIA_PADRAO = 8192;  // Transações recentes mantidas no heap por jornal
+    public static final int LIMITE_DERRAME_PADRAO = 16_384;       // Transações no heap que disparam o derrame de um jornal
+    public static final int SEGMENTOS_EM_CACHE_PADRAO = 256;      // Segmentos descomprimidos no cache (cerca de 25 KB cada)
+
+    private static final int MAGICO = 0x58424846; // "XBHF"
+    private static final int VERSAO = 1;
+    private static final int CABECALHO = 4 + 4 + 4 + 8 + 8 + 4 + 4 + 4; // Mágico, versão, transações, instantes, tamanhos e CRC
+    private static final String EXTENSAO = ".seg";
+    private static final String MARCA = "historico-frio.xubank"; // Arquivo que identifica o diretório como do histórico frio
+    private static final byte[] CONTEUDO_MARCA = "XuBank: histórico frio dos jornais\n".getBytes(StandardCharsets.UTF_8); // Conteúdo esperado no arquivo de marca
+
+    private final Path diretorio;            // Diretório dos arquivos de segmentos
+    private final int transacoesEmMemoria;   // Transações que cada jornal mantém no heap após um derrame
+    private final int limiteDerrame;         // Transações no heap a partir das quais o jornal é derramado
+    private final int segmentosEmCache;      // Capacidade do cache de segmentos descomprimidos
+    private final LinkedHashMap<Long, Segmento> cache = new LinkedHashMap<>(16, 0.75f, true); // Segmentos por jornal e índice, em ordem de uso (protegido por si mesmo)
+    private final ExecutorService gravadora; // Thread única que sela os segmentos
+    private final AtomicInteger sequenciaJornais = new AtomicInteger(); // Identificadores dos jornais vinculados
+    private final Deflater compressor = new Deflater(); // Usado apenas pela thread gravadora
+    private byte[] codificado = new byte[0];            // Área de trabalho da thread gravadora: colunas codificadas
+    private byte[] comprimido = new byte[0];            // Área de trabalho da thread gravadora: colunas comprimidas
+    private final LongAdder selados = new LongAdder();      // Segmentos gravados
+    private final LongAdder bytesOriginais = new LongAdder(); // Bytes ocupados no heap pelos segmentos gravados
+    private final LongAdder bytesGravados = new LongAdder();  // Bytes dos arquivos gravados
+    private final LongAdder acertos = new LongAdder();      // Leituras de segmentos frios atendidas pelo cache
+    private final LongAdder faltas = new LongAdder();       // Leituras de segmentos frios que descomprimiram o arquivo
+    private final LongAdder falhas = new LongAdder();       // Derrames que falharam (os segmentos continuam no heap)
+
+    /**
+     * Segmento frio descomprimido: as colunas de 1024 transações consecutivas de um jornal.
+     * @param indice O índice do segmento no jornal.
+     */
+    record Segmento(int indice, long[] instantes, long[] valores, long[] saldos, byte[] tipos) {
+    }
+
+    /**
+     * Abre o histórico frio com os limites padrão.
+     * @param diretorio O diretório dos arquivos de segmentos (criado se não existir).
+     * @throws IOException Se o diretório não puder ser criado ou limpo.
+     */
+    public HistoricoFrio(Path diretorio) throws IOException {
+        this(diretorio, TRANSACOES_EM_MEMORIA_PADRAO, LIMITE_DERRAME_PADRAO, SEGMENTOS_EM_CACHE_PADRAO);
+    }
+
+    /**
+     * Abre o histórico frio, apagando os segmentos de execuções anteriores.
+     * @param diretorio O diretório dos arquivos de segmentos (criado se não existir); deve estar vazio ou já
+     *                  ter sido usado pelo histórico frio.
+     * @param transacoesEmMemoria Transações recentes que cada jornal mantém no heap após um derrame.
+     * @param limiteDerrame Transações no heap a partir das quais um jornal é derramado; a diferença para
+     *                      transacoesEmMemoria evita derrames a cada segmento completado.
+     * @param segmentosEmCache Quantidade de segmentos frios mantidos descomprimidos no cache.
+     * @throws IOException Se o diretório não puder ser criado ou limpo, ou se não estiver vazio nem tiver a marca do histórico frio.
+     */
+    public HistoricoFrio(Path diretorio, int transacoesEmMemoria, int limiteDerrame, int segmentosEmCache) throws IOException {
+        if (transacoesEmMemoria < 0 || limiteDerrame <= transacoesEmMemoria || segmentosEmCache <= 0) {
+            throw new IllegalArgumentException("Limites inválidos: em memória " + transacoesEmMemoria
+                    + ", derrame " + limiteDerrame + ", cache " + segmentosEmCache);
+        }
+        this.diretorio = diretorio;
+        this.transacoesEmMemoria = transacoesEmMemoria;
+        this.limiteDerrame = limiteDerrame;
+        this.segmentosEmCache = segmentosEmCache;
+        Files.createDirectories(diretorio);
+        reivindicar(diretorio);
+        try (DirectoryStream<Path> antigos = Files.newDirectoryStream(diretorio, "jornal-*" + EXTENSAO + "*")) { // Inclui os temporários
+            for (Path arquivo : antigos) {
+                Files.delete(arquivo);
+            }
+        }
+        gravadora = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "historico-frio");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Confirma que o diretório pertence ao histórico frio antes que os seus segmentos sejam apagados:
+     * com o arquivo de marca, ele é aceito; vazio, recebe a marca; com outros arquivos, é recusado.
+     */
+    private static void reivindicar(Path diretorio) throws IOException {
+        Path marca = diretorio.resolve(MARCA);
+        if (Files.isRegularFile(marca)) {
+            if (!Arrays.equals(Files.readAllBytes(marca), CONTEUDO_MARCA)) {
+                throw new IOException("Arquivo de marca do histórico frio não reconhecido: " + marca);
+            }
+            return;
+        }
+        try (DirectoryStream<Path> conteudo = Files.newDirectoryStream(diretorio)) {
+            if (conteudo.iterator().hasNext()) {
+                throw new IOException("O diretório " + diretorio + " não está vazio e não pertence ao histórico frio (falta "
+                        + MARCA + "); escolha um diretório vazio");
+            }
+        }
+        Files.write(marca, CONTEUDO_MARCA, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Retorna o limite de transações no heap que dispara o derrame de um jornal.
+     * @return O limite de derrame.
+     */
+    public int getLimiteDerrame() {
+        return limiteDerrame;
+    }
+
+    /**
+     * Retorna quantas transações recentes cada jornal mantém no heap após um derrame.
+     * @return As transações em memória.
+     */
+    public int getTransacoesEmMemoria() {
+        return transacoesEmMemoria;
+    }
+
+    /**
+     * Atribui um identificador a um jornal que passa a usar o histórico frio.
+     */
+    int vincular() {
+        return sequenciaJornais.incrementAndGet();
+    }
+
+    /**
+     * Agenda o derrame de um jornal na thread gravadora.
+     * @return false se o histórico já foi fechado e o jornal deve manter as transações no heap.
+     */
+    boolean agendar(JornalTransacoes jornal) {
+        try {
+            gravadora.execute(jornal::derramar);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Grava um segmento completo de um jornal. Executado apenas pela thread gravadora.
+     */
+    void gravar(int jornal, int indice, long[] instantes, long[] valores, long[] saldos, byte[] tipos) throws IOException {
+        int quantidade = instantes.length;
+        if (codificado.length < quantidade * 31) {
+            codificado = new byte[quantidade * 31]; // Pior caso: três inteiros de 10 bytes e o tipo
+        }
+        int p = 0;
+        long instanteAnterior = 0;
+        long saldoAnterior = 0;
+        for (int i = 0; i < quantidade; i++) {
+            p = escreverVariavel(codificado, p, instantes[i] - instanteAnterior);
+            p = escreverVariavel(codificado, p, valores[i]);
+            p = escreverVariavel(codificado, p, saldos[i] - saldoAnterior - valores[i]); // Zero quando segue o saldo anterior
+            codificado[p++] = tipos[i];
+            instanteAnterior = instantes[i];
+            saldoAnterior = saldos[i];
+        }
+        compressor.reset();
+        compressor.setInput(codificado, 0, p);
+        compressor.finish();
+        if (comprimido.length < p + 64) {
+            comprimido = new byte[p + 64];
+        }
+        int tamanhoComprimido = 0;
+        while (!compressor.finished()) {
+            if (tamanhoComprimido == comprimido.length) {
+                comprimido = Arrays.copyOf(comprimido, comprimido.length * 2);
+            }
+            tamanhoComprimido += compressor.deflate(comprimido, tamanhoComprimido, comprimido.length - tamanhoComprimido);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(comprimido, 0, tamanhoComprimido);
+        ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+        cabecalho.putInt(MAGICO).putInt(VERSAO).putInt(quantidade).putLong(instantes[0]).putLong(instantes[quantidade - 1])
+                .putInt(p).putInt(tamanhoComprimido).putInt((int) crc.getValue()).flip();
+        Path destino = arquivo(jornal, indice);
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer[] partes = {cabecalho, ByteBuffer.wrap(comprimido, 0, tamanhoComprimido)};
+            long restante = CABECALHO + tamanhoComprimido;
+            while (restante > 0) {
+                restante -= canal.write(partes);
+            }
+        }
+        Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        selados.increment();
+        bytesOriginais.add(quantidade * 25L);
+        bytesGravados.add(CABECALHO + tamanhoComprimido);
+    }
+
+    /**
+     * Registra a falha de um derrame, informada pelo jornal.
+     */
+    void registrarFalha(IOException e) {
+        falhas.increment();
+        System.err.println("Falha ao gravar histórico frio: " + e.getMessage());
+    }
+
+    /**
+     * Lê um segmento frio de um jornal, do cache ou do arquivo mapeado em memória.
+     * @throws UncheckedIOException Se o arquivo não puder ser lido ou estiver corrompido.
+     */
+    Segmento ler(int jornal, int indice) {
+        Long chave = (long) jornal << 32 | indice;
+        synchronized (cache) {
+            Segmento s = cache.get(chave);
+            if (s != null) {
+                acertos.increment();
+                return s;
+            }
+        }
+        faltas.increment();
+        Segmento s;
+        try {
+            s = decodificar(indice, arquivo(jornal, indice)); // Fora da trava: leituras de outros segmentos não esperam
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (cache) {
+            cache.put(chave, s);
+            if (cache.size() > segmentosEmCache) {
+                Iterator<Segmento> it = cache.values().iterator();
+                it.next();
+                it.remove(); // O menos usado recentemente
+            }
+        }
+        return s;
+    }
+
+    private static Segmento decodificar(int indice, Path arquivo) throws IOException {
+        MappedByteBuffer b;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            b = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()); // O mapeamento continua válido após fechar o canal
+        }
+        if (b.remaining() < CABECALHO || b.getInt() != MAGICO || b.getInt() != VERSAO) {
+            throw new IOException("Segmento de histórico inválido: " + arquivo);
+        }
+        int quantidade = b.getInt();
+        b.getLong(); // Primeiro e último instante: usados apenas por ferramentas externas
+        b.getLong();
+        int tamanhoOriginal = b.getInt();
+        int tamanhoComprimido = b.getInt();
+        int crcGravado = b.getInt();
+        if (b.remaining() != tamanhoComprimido) {
+            throw new IOException("Segmento de histórico truncado: " + arquivo);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(b.duplicate());
+        if ((int) crc.getValue() != crcGravado) {
+            throw new IOException("CRC inválido no segmento de histórico: " + arquivo);
+        }
+        byte[] codificado = new byte[tamanhoOriginal];
+        Inflater descompressor = new Inflater();
+        try {
+            descompressor.setInput(b);
+            if (descompressor.inflate(codificado) != tamanhoOriginal || !descompressor.finished()) {
+                throw new IOException("Segmento de histórico incompleto: " + arquivo);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Segmento de histórico corrompido: " + arquivo, e);
+        } finally {
+            descompressor.end();
+        }
+        long[] instantes = new long[quantidade];
+        long[] valores = new long[quantidade];
+        long[] saldos = new long[quantidade];
+        byte[] tipos = new byte[quantidade];
+        int[] p = {0};
+        long instante = 0;
+        long saldo = 0;
+        for (int i = 0; i < quantidade; i++) {
+            instante += lerVariavel(codificado, p);
+            valores[i] = lerVariavel(codificado, p);
+            saldo += valores[i] + lerVariavel(codificado, p);
+            tipos[i] = codificado[p[0]++];
+            instantes[i] = instante;
+            saldos[i] = saldo;
+        }
+        return new Segmento(indice, instantes, valores, saldos, tipos);
+    }
+
+    /**
+     * Escreve um inteiro com sinal em zigue-zague, 7 bits por byte.
+     * @return A posição seguinte ao último byte escrito.
+     */
+    private static int escreverVariavel(byte[] destino, int p, long valor) {
+        long v = (valor << 1) ^ (valor >> 63);
+        while ((v & ~0x7FL) != 0) {
+            destino[p++] = (byte) (v | 0x80);
+            v >>>= 7;
+        }
+        destino[p++] = (byte) v;
+        return p;
+    }
+
+    private static long lerVariavel(byte[] origem, int[] p) {
+        long v = 0;
+        int deslocamento = 0;
+        byte b;
+        do {
+            b = origem[p[0]++];
+            v |= (long) (b & 0x7F) << deslocamento;
+            deslocamento += 7;
+        } while (b < 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private Path arquivo(int jornal, int indice) {
+        return diretorio.resolve("jornal-" + jornal + "-" + indice + EXTENSAO);
+    }
+
+    /**
+     * Aguarda a conclusão dos derrames já agendados.
+     */
+    public void aguardar() {
+        try {
+            gravadora.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Retorna as estatísticas do histórico frio desde a abertura.
+     * @return Segmentos selados, bytes no heap liberados, bytes gravados, acertos e faltas do cache,
+     *         segmentos em cache e falhas de gravação, por nome.
+     */
+    public Map<String, Long> getEstatisticas() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("selados", selados.sum());
+        m.put("bytesOriginais", bytesOriginais.sum());
+        m.put("bytesGravados", bytesGravados.sum());
+        m.put("acertos", acertos.sum());
+        m.put("faltas", faltas.sum());
+        synchronized (cache) {
+            m.put("emCache", (long) cache.size());
+        }
+        m.put("falhas", falhas.sum());
+        return m;
+    }
+
+    /**
+     * Conclui os derrames agendados e encerra a thread gravadora. Os segmentos já gravados continuam
+     * legíveis; os jornais deixam de derramar.
+     */
+    @Override
+    public void close() {
+        gravadora.shutdown();
+        try {
+            gravadora.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
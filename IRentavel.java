@@ -1,9 +1,31 @@
+import java.util.random.RandomGenerator;
 /**
  * Interface para contas que podem aplicar rendimentos.
  */
 public interface IRentavel {
     /**
-     * Aplica rendimento à conta conforme definido pela implementação específica.
+     * Aplica rendimento à conta conforme definido pela implementação específica e publica o
+     * resultado no canal de eventos do sistema bancário.
+     * @return O resultado, com o rendimento bruto e as taxas deduzidas.
      */
-    void aplicarRendimento();
+    ResultadoOperacao aplicarRendimento();
+
+    /**
+     * Aplica rendimento à conta sem publicar evento, sorteando as taxas variáveis com o gerador
+     * informado e acumulando no resumo o rendimento, as taxas e os impostos da operação.
+     * Usado no processamento em lote, em que cada thread fornece o seu próprio gerador.
+     * @param gerador O gerador de números aleatórios para as taxas variáveis.
+     * @param resumo O acumulador que recebe os valores da operação.
+     */
+    void aplicarRendimento(RandomGenerator gerador, ResumoRendimento resumo);
+
+    /**
+     * Calcula em forma fechada a projeção do saldo após alguns meses de rendimento, sem alterar a conta.
+     * Os coeficientes dependem apenas do tipo de conta, do horizonte e do cenário, e podem ser
+     * reaproveitados para projetar outras contas do mesmo tipo.
+     * @param meses O horizonte, em meses.
+     * @param cenario O cenário das taxas variáveis (ignorado por contas de taxa fixa).
+     * @return A projeção, aplicável ao saldo desta ou de outra conta do mesmo tipo.
+     */
+    ProjecaoRendimento projecao(int meses, ProjecaoRendimento.Cenario cenario);
 }
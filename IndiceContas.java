@@ -0,0 +1,204 @@
+import java.util.concurrent.locks.StampedLock;
+/**
+ * Índice de contas pelo número, implementado como uma tabela hash de endereçamento aberto
+ * com sondagem linear. As chaves ficam em um vetor de int, sem conversão para Integer,
+ * de modo que buscas e inserções não alocam memória.
+ * Buscas usam leitura otimista (sem bloqueio) e só recorrem à trava de leitura se uma
+ * escrita simultânea for detectada; inserções e remoções são serializadas.
+ */
+public class IndiceContas {
+    private static final int CAPACIDADE_INICIAL = 16; // Capacidade inicial (sempre potência de 2)
+    private static final float FATOR_CARGA = 0.5f;    // Ocupação máxima antes de redimensionar
+
+    private final StampedLock trava = new StampedLock(); // Controle de concorrência entre buscas e escritas
+    private volatile Tabela tabela; // Vetores atuais de chaves e contas
+    private int tamanho;    // Quantidade de contas indexadas
+    private int limite;     // Quantidade de contas que dispara o redimensionamento
+
+    /**
+     * Par de vetores paralelos, substituído por inteiro ao redimensionar para que uma
+     * leitura otimista nunca combine chaves e contas de tamanhos diferentes.
+     */
+    private static final class Tabela {
+        final int[] chaves;   // Números das contas
+        final Conta[] contas; // Contas correspondentes; null indica posição livre
+
+        Tabela(int capacidade) {
+            chaves = new int[capacidade];
+            contas = new Conta[capacidade];
+        }
+    }
+
+    /**
+     * Constrói um índice vazio.
+     */
+    public IndiceContas() {
+        alocar(new Tabela(CAPACIDADE_INICIAL));
+    }
+
+    /**
+     * Busca a conta com o número informado.
+     * @param numero O número da conta.
+     * @return A conta encontrada, ou null se não existir.
+     */
+    public Conta buscar(int numero) {
+        long carimbo = trava.tryOptimisticRead();
+        Conta conta = procurar(tabela, numero);
+        if (!trava.validate(carimbo)) {
+            // Houve escrita durante a leitura otimista: repete sob a trava de leitura
+            carimbo = trava.readLock();
+            try {
+                conta = procurar(tabela, numero);
+            } finally {
+                trava.unlockRead(carimbo);
+            }
+        }
+        return conta;
+    }
+
+    /**
+     * Percorre o agrupamento da posição ideal até encontrar o número ou uma posição livre.
+     * A quantidade de passos é limitada pela capacidade, pois durante uma leitura otimista
+     * a tabela pode estar sendo modificada.
+     */
+    private static Conta procurar(Tabela t, int numero) {
+        int[] chaves = t.chaves;
+        Conta[] contas = t.contas;
+        int mascara = chaves.length - 1;
+        int i = posicao(numero, mascara);
+        for (int passos = 0; passos < chaves.length; passos++, i = (i + 1) & mascara) {
+            Conta conta = contas[i];
+            if (conta == null) {
+                return null;
+            }
+            if (chaves[i] == numero) {
+                return conta;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Insere uma conta no índice, desde que ainda não exista outra conta com o mesmo número.
+     * @param conta A conta a ser indexada.
+     * @return true se a conta foi inserida, false se o número já estiver em uso.
+     */
+    public boolean inserir(Conta conta) {
+        long carimbo = trava.writeLock();
+        try {
+            return inserirSemTrava(conta);
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    private boolean inserirSemTrava(Conta conta) {
+        int[] chaves = tabela.chaves;
+        Conta[] contas = tabela.contas;
+        int numero = conta.getNumero();
+        int mascara = chaves.length - 1;
+        int i = posicao(numero, mascara);
+        for (; contas[i] != null; i = (i + 1) & mascara) {
+            if (chaves[i] == numero) {
+                return false; // Número de conta já utilizado
+            }
+        }
+        chaves[i] = numero;
+        contas[i] = conta;
+        if (++tamanho > limite) {
+            redimensionar();
+        }
+        return true;
+    }
+
+    /**
+     * Remove a conta com o número informado. As entradas seguintes do mesmo agrupamento
+     * são deslocadas para trás, dispensando marcadores de remoção.
+     * @param numero O número da conta a ser removida.
+     * @return A conta removida, ou null se não existir.
+     */
+    public Conta remover(int numero) {
+        long carimbo = trava.writeLock();
+        try {
+            return removerSemTrava(numero);
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    private Conta removerSemTrava(int numero) {
+        int[] chaves = tabela.chaves;
+        Conta[] contas = tabela.contas;
+        int mascara = chaves.length - 1;
+        int i = posicao(numero, mascara);
+        while (contas[i] != null && chaves[i] != numero) {
+            i = (i + 1) & mascara;
+        }
+        Conta removida = contas[i];
+        if (removida == null) {
+            return null;
+        }
+        // Desloca para a posição livre as entradas cuja posição ideal não fica entre ela e a atual
+        int livre = i;
+        for (int j = (i + 1) & mascara; contas[j] != null; j = (j + 1) & mascara) {
+            int ideal = posicao(chaves[j], mascara);
+            if (((j - ideal) & mascara) >= ((j - livre) & mascara)) {
+                chaves[livre] = chaves[j];
+                contas[livre] = contas[j];
+                livre = j;
+            }
+        }
+        contas[livre] = null;
+        tamanho--;
+        return removida;
+    }
+
+    /**
+     * Retorna a quantidade de contas indexadas.
+     * @return O número de contas no índice.
+     */
+    public int tamanho() {
+        long carimbo = trava.readLock();
+        try {
+            return tamanho;
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    /**
+     * Calcula a posição ideal de um número de conta, espalhando os bits com multiplicação de Fibonacci.
+     */
+    private static int posicao(int numero, int mascara) {
+        int h = numero * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    /**
+     * Dobra a capacidade da tabela e reinsere todas as contas.
+     */
+    private void redimensionar() {
+        int[] chavesAntigas = tabela.chaves;
+        Conta[] contasAntigas = tabela.contas;
+        Tabela nova = new Tabela(chavesAntigas.length * 2);
+        int[] chaves = nova.chaves;
+        Conta[] contas = nova.contas;
+        int mascara = chaves.length - 1;
+        for (int j = 0; j < contasAntigas.length; j++) {
+            if (contasAntigas[j] != null) {
+                int i = posicao(chavesAntigas[j], mascara);
+                while (contas[i] != null) {
+                    i = (i + 1) & mascara;
+                }
+                chaves[i] = chavesAntigas[j];
+                contas[i] = contasAntigas[j];
+            }
+        }
+        alocar(nova);
+    }
+
+    private void alocar(Tabela nova) {
+        tabela = nova;
+        limite = (int) (nova.chaves.length * FATOR_CARGA);
+    }
+}
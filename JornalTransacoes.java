@@ -0,0 +1,392 @@
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+/**
+ * Registro compacto das transações de uma conta, armazenado em colunas de tipos primitivos.
+ * Cada transação ocupa 25 bytes (instante, valor e saldo em centavos, e tipo), distribuídos em
+ * segmentos de tamanho fixo para que o crescimento não exija cópia do histórico já gravado.
+ * O primeiro segmento começa pequeno e cresce por duplicação, poupando memória em contas com poucas transações.
+ * O texto do extrato só é montado quando uma transação é efetivamente exibida.
+ * Gravações são serializadas pelo próprio jornal; leituras não bloqueiam e enxergam
+ * todas as transações contadas em tamanho().
+ *
+ * Vinculado a um HistoricoFrio, o jornal mantém no heap apenas as transações recentes: os segmentos
+ * completos mais antigos são selados em arquivos e lidos de lá de forma transparente, com os mesmos
+ * índices. As colunas em memória são publicadas juntas em um objeto imutável quanto aos segmentos
+ * já selados, para que uma leitura concorrente com o selamento sempre encontre os dados em uma das camadas.
+ *
+ * Na recuperação, as transações já gravadas nos arquivos de jornais da persistência (ArquivoJornais)
+ * formam o início do jornal: ocupam os primeiros índices e só são lidas do disco quando consultadas.
+ * As transações registradas depois delas seguem nas colunas em memória.
+ */
+public class JornalTransacoes {
+    public static final byte DEPOSITO = 0; // Tipo de transação: depósito
+    public static final byte SAQUE = 1;    // Tipo de transação: saque
+    public static final byte RENDIMENTO = 2; // Tipo de transação: rendimento líquido de taxas
+    public static final byte TRANSFERENCIA_ENVIADA = 3;  // Tipo de transação: débito de uma transferência, com encargos
+    public static final byte TRANSFERENCIA_RECEBIDA = 4; // Tipo de transação: crédito de uma transferência, líquido de taxas
+    public static final byte TARIFA = 5; // Tipo de transação: tarifa ou juros cobrados no fechamento mensal
+
+    private static final String[] NOMES_TIPOS = {"Depósito", "Saque", "Rendimento", "Transferência enviada", "Transferência recebida", "Tarifa"}; // Descrição de cada tipo no extrato
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"); // Formatador de data para transações
+    private static final int BITS_SEGMENTO = 10; // Cada segmento guarda 2^10 = 1024 transações
+    private static final int TAMANHO_SEGMENTO = 1 << BITS_SEGMENTO;
+    private static final int MASCARA_SEGMENTO = TAMANHO_SEGMENTO - 1;
+    private static final int CAPACIDADE_INICIAL = 8; // Capacidade inicial do primeiro segmento
+
+    private volatile Colunas colunas = new Colunas(new long[][]{new long[CAPACIDADE_INICIAL]}, new long[][]{new long[CAPACIDADE_INICIAL]},
+            new long[][]{new long[CAPACIDADE_INICIAL]}, new byte[][]{new byte[CAPACIDADE_INICIAL]}, 0, new long[0], 0, null); // Colunas em memória e índice dos segmentos frios
+    private volatile int tamanho; // Quantidade de transações registradas; publicada após a gravação das colunas
+    private long ultimoInstante; // Maior instante já registrado, para manter o jornal em ordem cronológica
+    private HistoricoFrio historico; // Camada fria, ou null; publicada para os leitores pela troca de colunas
+    private int identificador;       // Identificador do jornal na camada fria
+    private boolean derramando;      // Se há um derrame agendado (protegido por this)
+    private volatile HistoricoFrio.Segmento ultimoFrio; // Último segmento frio lido, para leituras sequenciais sem consultar o cache
+
+    /**
+     * Colunas de transações divididas em segmentos. Os segmentos anteriores a selados estão na camada
+     * fria e têm posição nula; primeiros guarda o instante inicial de cada um, para a busca por período.
+     * Depois de publicadas, as colunas só recebem segmentos novos e transações novas, nunca perdem segmentos.
+     * As colunas começam no índice base: as transações anteriores estão em anteriores, nos arquivos da persistência.
+     */
+    private record Colunas(long[][] instantes, long[][] valores, long[][] saldos, byte[][] tipos, int selados, long[] primeiros,
+                           int base, ArquivoJornais.Historico anteriores) {
+    }
+
+    /**
+     * Registra uma nova transação no final do jornal.
+     * Instantes menores que o da última transação são ajustados para ele, mantendo a ordem cronológica.
+     * @param instante O instante da transação, em milissegundos desde a época.
+     * @param tipo O tipo da transação (DEPOSITO, SAQUE, RENDIMENTO, TARIFA ou uma das pernas de transferência).
+     * @param valor O valor da transação, em centavos.
+     * @param saldo O saldo da conta após a transação, em centavos.
+     */
+    public synchronized void registrar(long instante, byte tipo, long valor, long saldo) {
+        instante = Math.max(instante, ultimoInstante);
+        ultimoInstante = instante;
+        int tamanho = this.tamanho;
+        Colunas c = colunas;
+        int relativo = tamanho - c.base; // Posição nas colunas em memória
+        int segmento = relativo >>> BITS_SEGMENTO;
+        int posicao = relativo & MASCARA_SEGMENTO;
+        if (segmento == 0 && posicao == c.instantes[0].length) {
+            ampliarPrimeiroSegmento(c);
+        } else if (segmento > 0 && posicao == 0) {
+            c = alocarSegmento(c, segmento);
+        }
+        c.instantes[segmento][posicao] = instante;
+        c.valores[segmento][posicao] = valor;
+        c.saldos[segmento][posicao] = saldo;
+        c.tipos[segmento][posicao] = tipo;
+        this.tamanho = tamanho + 1; // Escrita volátil: publica a transação para os leitores
+        if (historico != null && !derramando && relativo + 1 - (c.selados << BITS_SEGMENTO) > historico.getLimiteDerrame()) {
+            derramando = historico.agendar(this);
+        }
+    }
+
+    /**
+     * Passa a selar os segmentos antigos na camada fria informada. Um jornal usa no máximo uma camada fria;
+     * chamadas seguintes não têm efeito.
+     * @param historico A camada fria.
+     */
+    public synchronized void usarHistorico(HistoricoFrio historico) {
+        if (this.historico != null) {
+            return;
+        }
+        this.identificador = historico.vincular();
+        this.historico = historico;
+        if (tamanho > historico.getLimiteDerrame()) {
+            derramando = historico.agendar(this);
+        }
+    }
+
+    /**
+     * Coloca no início do jornal as transações gravadas nos arquivos de jornais da persistência, sem
+     * lê-las: os índices de 0 a historico.tamanho() - 1 passam a ser atendidos pelos arquivos. Usado na
+     * recuperação, antes de qualquer registro.
+     * @param historico As transações persistidas da conta.
+     * @throws IllegalStateException Se o jornal já tiver transações.
+     */
+    public synchronized void restaurarAnteriores(ArquivoJornais.Historico historico) {
+        if (tamanho != 0) {
+            throw new IllegalStateException("O jornal já tem transações registradas");
+        }
+        Colunas c = colunas;
+        colunas = new Colunas(c.instantes, c.valores, c.saldos, c.tipos, c.selados, c.primeiros, historico.tamanho(), historico);
+        ultimoInstante = historico.ultimoInstante();
+        tamanho = historico.tamanho(); // Escrita volátil: publica as colunas para os leitores
+    }
+
+    /**
+     * Sela na camada fria os segmentos completos mais antigos em memória, até restarem no máximo as
+     * transações em memória configuradas. Executado pela thread gravadora da camada fria: os arquivos
+     * são gravados sem a trava do jornal, pois segmentos completos não mudam mais, e as colunas sem os
+     * segmentos selados são publicadas no final.
+     */
+    void derramar() {
+        int total = tamanho;
+        Colunas c = colunas; // Lidas depois do tamanho: contêm todos os segmentos contados nele
+        total -= c.base;
+        int ate = Math.min(total >>> BITS_SEGMENTO,
+                (Math.max(0, total - historico.getTransacoesEmMemoria()) + MASCARA_SEGMENTO) >>> BITS_SEGMENTO);
+        long[] primeiros = Arrays.copyOf(c.primeiros, Math.max(ate, c.selados));
+        try {
+            for (int s = c.selados; s < ate; s++) {
+                historico.gravar(identificador, s, c.instantes[s], c.valores[s], c.saldos[s], c.tipos[s]);
+                primeiros[s] = c.instantes[s][0];
+            }
+        } catch (IOException e) {
+            historico.registrarFalha(e);
+            synchronized (this) {
+                derramando = false; // Os segmentos continuam em memória; o próximo registro tenta de novo
+            }
+            return;
+        }
+        synchronized (this) {
+            if (ate > c.selados) {
+                Colunas atual = colunas; // Pode ter recebido segmentos novos desde o início do derrame
+                long[][] instantes = atual.instantes.clone();
+                long[][] valores = atual.valores.clone();
+                long[][] saldos = atual.saldos.clone();
+                byte[][] tipos = atual.tipos.clone();
+                for (int s = c.selados; s < ate; s++) {
+                    instantes[s] = null;
+                    valores[s] = null;
+                    saldos[s] = null;
+                    tipos[s] = null;
+                }
+                colunas = new Colunas(instantes, valores, saldos, tipos, ate, primeiros, atual.base, atual.anteriores);
+            }
+            // Registros feitos durante o derrame podem ter passado do limite sem agendar outro
+            derramando = tamanho - c.base - (Math.max(ate, c.selados) << BITS_SEGMENTO) > historico.getLimiteDerrame() && historico.agendar(this);
+        }
+    }
+
+    /**
+     * Retorna a quantidade de transações mantidas no heap, fora da camada fria e dos arquivos da persistência.
+     * @return O número de transações em memória.
+     */
+    public int transacoesEmMemoria() {
+        int total = tamanho;
+        Colunas c = colunas;
+        return total - c.base - (c.selados << BITS_SEGMENTO);
+    }
+
+    /**
+     * Retorna a quantidade de transações registradas.
+     * @return O número de transações no jornal.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Retorna o instante de uma transação.
+     * @param indice A posição da transação no jornal.
+     * @return O instante, em milissegundos desde a época.
+     */
+    public long getInstante(int indice) {
+        Colunas c = colunas;
+        if (indice < c.base) {
+            return c.anteriores.instante(indice);
+        }
+        indice -= c.base;
+        long[] segmento = c.instantes[indice >>> BITS_SEGMENTO];
+        return (segmento != null ? segmento : frio(indice).instantes())[indice & MASCARA_SEGMENTO];
+    }
+
+    /**
+     * Retorna o tipo de uma transação.
+     * @param indice A posição da transação no jornal.
+     * @return O tipo da transação, uma das constantes de JornalTransacoes.
+     */
+    public byte getTipo(int indice) {
+        Colunas c = colunas;
+        if (indice < c.base) {
+            return c.anteriores.tipo(indice);
+        }
+        indice -= c.base;
+        byte[] segmento = c.tipos[indice >>> BITS_SEGMENTO];
+        return (segmento != null ? segmento : frio(indice).tipos())[indice & MASCARA_SEGMENTO];
+    }
+
+    /**
+     * Retorna o valor de uma transação.
+     * @param indice A posição da transação no jornal.
+     * @return O valor, em centavos.
+     */
+    public long getValor(int indice) {
+        Colunas c = colunas;
+        if (indice < c.base) {
+            return c.anteriores.valor(indice);
+        }
+        indice -= c.base;
+        long[] segmento = c.valores[indice >>> BITS_SEGMENTO];
+        return (segmento != null ? segmento : frio(indice).valores())[indice & MASCARA_SEGMENTO];
+    }
+
+    /**
+     * Retorna o saldo da conta logo após uma transação.
+     * @param indice A posição da transação no jornal.
+     * @return O saldo resultante, em centavos.
+     */
+    public long getSaldo(int indice) {
+        Colunas c = colunas;
+        if (indice < c.base) {
+            return c.anteriores.saldo(indice);
+        }
+        indice -= c.base;
+        long[] segmento = c.saldos[indice >>> BITS_SEGMENTO];
+        return (segmento != null ? segmento : frio(indice).saldos())[indice & MASCARA_SEGMENTO];
+    }
+
+    /**
+     * Localiza, por busca binária, a primeira transação registrada a partir de um instante.
+     * Como o jornal é mantido em ordem cronológica, o resultado delimita qualquer período sem percorrer o histórico.
+     * @param instante O instante procurado, em milissegundos desde a época.
+     * @param limite A quantidade de transações consideradas (normalmente um valor lido de tamanho()).
+     * @return O índice da primeira transação com instante maior ou igual ao informado, ou limite se não houver.
+     */
+    public int buscarInstante(long instante, int limite) {
+        Colunas c = colunas;
+        if (c.base > 0) { // Primeiro nos arquivos da persistência, que guardam as transações mais antigas
+            int anteriores = c.anteriores.buscarInstante(instante, Math.min(limite, c.base));
+            if (anteriores < Math.min(limite, c.base)) {
+                return anteriores;
+            }
+        }
+        return c.base + buscarInstanteEmMemoria(c, instante, limite - c.base);
+    }
+
+    /**
+     * Localiza a primeira transação a partir de um instante nas colunas, com índices relativos ao início delas.
+     */
+    private int buscarInstanteEmMemoria(Colunas c, long instante, int limite) {
+        if (limite <= 0) {
+            return 0;
+        }
+        int segmentos = Math.min(c.selados, limite >>> BITS_SEGMENTO);
+        int inicio = 0;
+        int fim = segmentos;
+        while (inicio < fim) { // Primeiro pelo índice dos segmentos frios, sem ler o disco
+            int meio = (inicio + fim) >>> 1;
+            if (c.primeiros[meio] < instante) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        fim = inicio < segmentos ? inicio << BITS_SEGMENTO : limite; // O primeiro instante do segmento inicio já alcança o procurado
+        inicio = Math.max(0, inicio - 1) << BITS_SEGMENTO;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (getInstante(c.base + meio) < instante) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    /**
+     * Retorna o saldo da conta imediatamente antes de uma transação.
+     * O valor gravado é a variação do saldo, de modo que o saldo anterior é obtido sem consultar a transação anterior.
+     * @param indice A posição da transação no jornal.
+     * @return O saldo anterior à transação, em centavos.
+     */
+    public long getSaldoAnterior(int indice) {
+        return getSaldo(indice) - getValor(indice);
+    }
+
+    /**
+     * Retorna a descrição de um tipo de transação, como exibida no extrato.
+     * @param tipo O tipo da transação.
+     * @return A descrição do tipo.
+     */
+    public static String nomeTipo(byte tipo) {
+        return NOMES_TIPOS[tipo];
+    }
+
+    /**
+     * Monta a linha de extrato de uma transação.
+     * @param indice A posição da transação no jornal.
+     * @return O texto da transação no formato "data: tipo R$ valor | Saldo: R$ saldo".
+     */
+    public String formatar(int indice) {
+        LocalDateTime quando = LocalDateTime.ofInstant(Instant.ofEpochMilli(getInstante(indice)), ZoneId.systemDefault());
+        return String.format("%s: %s R$ %.2f | Saldo: R$ %.2f", quando.format(formatter),
+                NOMES_TIPOS[getTipo(indice)], getValor(indice) / 100.0, getSaldo(indice) / 100.0);
+    }
+
+    /**
+     * Fornece uma visão somente leitura do jornal como lista de linhas de extrato.
+     * Nenhuma linha é copiada ou pré-formatada; cada uma é montada ao ser acessada.
+     * @return Uma lista imutável com o texto das transações.
+     */
+    public List<String> comoLista() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int indice) {
+                if (indice < 0 || indice >= tamanho()) {
+                    throw new IndexOutOfBoundsException(indice);
+                }
+                return formatar(indice);
+            }
+
+            @Override
+            public int size() {
+                return tamanho();
+            }
+        };
+    }
+
+    /**
+     * Lê da camada fria o segmento de uma transação que não está mais em memória.
+     * @param indice A posição da transação nas colunas, descontada a base.
+     */
+    private HistoricoFrio.Segmento frio(int indice) {
+        int segmento = indice >>> BITS_SEGMENTO;
+        HistoricoFrio.Segmento s = ultimoFrio;
+        if (s == null || s.indice() != segmento) {
+            s = historico.ler(identificador, segmento);
+            ultimoFrio = s;
+        }
+        return s;
+    }
+
+    /**
+     * Duplica a capacidade do primeiro segmento, até o tamanho fixo dos segmentos.
+     */
+    private static void ampliarPrimeiroSegmento(Colunas c) {
+        int novaCapacidade = c.instantes[0].length * 2;
+        c.instantes[0] = Arrays.copyOf(c.instantes[0], novaCapacidade);
+        c.valores[0] = Arrays.copyOf(c.valores[0], novaCapacidade);
+        c.saldos[0] = Arrays.copyOf(c.saldos[0], novaCapacidade);
+        c.tipos[0] = Arrays.copyOf(c.tipos[0], novaCapacidade);
+    }
+
+    /**
+     * Aloca um novo segmento, ampliando os vetores de segmentos (e publicando novas colunas) quando necessário.
+     * @return As colunas com o segmento alocado.
+     */
+    private Colunas alocarSegmento(Colunas c, int segmento) {
+        if (segmento == c.instantes.length) {
+            int novoTamanho = segmento * 2;
+            c = new Colunas(Arrays.copyOf(c.instantes, novoTamanho), Arrays.copyOf(c.valores, novoTamanho),
+                    Arrays.copyOf(c.saldos, novoTamanho), Arrays.copyOf(c.tipos, novoTamanho), c.selados, c.primeiros,
+                    c.base, c.anteriores);
+            colunas = c;
+        }
+        c.instantes[segmento] = new long[TAMANHO_SEGMENTO];
+        c.valores[segmento] = new long[TAMANHO_SEGMENTO];
+        c.saldos[segmento] = new long[TAMANHO_SEGMENTO];
+        c.tipos[segmento] = new byte[TAMANHO_SEGMENTO];
+        return c;
+    }
+}
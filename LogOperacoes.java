@@ -0,0 +1,559 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+/**
+ * Log de operações somente de acréscimo (write-ahead log), gravado em segmentos no disco.
+ * Cada registro recebe um número de sequência e é protegido por CRC32. As threads de negócio
+ * apenas codificam o registro em um buffer em memória; uma thread gravadora escreve os registros
+ * acumulados em lote (group commit) e sincroniza o disco (fsync) a cada N registros ou a cada
+ * intervalo de tempo, conforme a configuração.
+ *
+ * Os pontos de entrada que confirmam operações a terceiros (menu, servidor HTTP e processamento em
+ * lote) chamam sincronizar() antes de responder: cada um aguarda até que os registros acrescentados
+ * até então, incluindo o seu, estejam no disco, e as esperas simultâneas são atendidas pela mesma sincronização.
+ *
+ * Formato de cada registro: [int tamanho][int crc32][long sequência][byte tipo][campos do tipo].
+ */
+public class LogOperacoes implements Closeable {
+    static final byte CLIENTE = 1;       // Cadastro de cliente: cpf, nome
+    static final byte CONTA = 2;         // Abertura de conta: número, tipo, cpf do titular, limite, saldo inicial
+    static final byte MOVIMENTO = 3;     // Movimentação: número, tipo da transação, variação, instante
+    static final byte REMOCAO_CONTA = 4; // Remoção de conta: número
+    static final byte TRANSFERENCIA = 5; // Transferência: origem, variação na origem, destino, variação no destino, instante
+    static final byte FECHAMENTO = 6;    // Lançamento do fechamento mensal: número, marca da etapa, tipo da transação, variação, instante
+
+    private static final String PREFIXO_SEGMENTO = "wal-";
+    private static final String SUFIXO_SEGMENTO = ".log";
+    private static final int CABECALHO_REGISTRO = 8; // tamanho + crc32
+    private static final int LIMITE_PENDENTE = 64 << 20; // Bytes acumulados a partir dos quais as operações aguardam a gravadora
+
+    private final Path diretorio;
+    private final long tamanhoSegmento;            // Tamanho a partir do qual um novo segmento é iniciado, em bytes
+    private final int registrosPorSincronizacao;   // Registros gravados entre duas sincronizações do disco
+    private final long intervaloSincronizacaoNanos; // Tempo máximo entre a gravação e a sincronização do disco
+
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition haTrabalho = trava.newCondition(); // Sinaliza a thread gravadora
+    private final Condition progresso = trava.newCondition();  // Sinaliza quem aguarda gravação ou rotação
+    private final CRC32 crc = new CRC32(); // Reutilizado sob a trava
+    private int inicioRegistro; // Posição, no buffer pendente, do registro sendo codificado
+    private ByteBuffer pendente = ByteBuffer.allocate(1 << 16);    // Registros ainda não entregues à gravadora
+    private ByteBuffer emGravacao = ByteBuffer.allocate(1 << 16);  // Lote sendo escrito pela gravadora
+    private long proximaSequencia;   // Sequência do próximo registro
+    private long sequenciaDuravel;   // Maior sequência já sincronizada no disco
+    private boolean sincronizacaoSolicitada; // Algum chamador aguarda durabilidade imediata
+    private boolean rotacaoSolicitada;       // Um novo segmento deve ser iniciado após o lote atual
+    private long rotacoes;                   // Quantidade de rotações concluídas
+    private boolean fechado;
+    private IOException falha; // Erro de escrita que interrompeu a gravadora
+
+    private FileChannel canal;       // Segmento ativo (usado apenas pela gravadora após a abertura)
+    private Path segmentoAtivo;
+    private long tamanhoSegmentoAtivo;
+    private final Thread gravadora;
+
+    /**
+     * Abre o log para acréscimo, iniciando um novo segmento a partir da sequência informada.
+     * @param diretorio O diretório dos segmentos.
+     * @param proximaSequencia A sequência do primeiro registro a ser gravado.
+     * @param tamanhoSegmento O tamanho máximo de cada segmento, em bytes.
+     * @param registrosPorSincronizacao Quantos registros gravar entre sincronizações (1 = sincroniza cada lote).
+     * @param intervaloSincronizacaoMs Tempo máximo, em milissegundos, entre a gravação e a sincronização.
+     * @throws IOException Se o segmento não puder ser criado.
+     */
+    public LogOperacoes(Path diretorio, long proximaSequencia, long tamanhoSegmento,
+                        int registrosPorSincronizacao, long intervaloSincronizacaoMs) throws IOException {
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.registrosPorSincronizacao = Math.max(1, registrosPorSincronizacao);
+        this.intervaloSincronizacaoNanos = TimeUnit.MILLISECONDS.toNanos(intervaloSincronizacaoMs);
+        this.proximaSequencia = proximaSequencia;
+        this.sequenciaDuravel = proximaSequencia - 1;
+        Files.createDirectories(diretorio);
+        abrirSegmento(proximaSequencia);
+        this.gravadora = new Thread(this::gravar, "log-operacoes");
+        this.gravadora.setDaemon(true);
+        this.gravadora.start();
+    }
+
+    /**
+     * Acrescenta o cadastro de um cliente ao log.
+     * @return A sequência atribuída ao registro.
+     */
+    long registrarCliente(String cpf, String nome) {
+        byte[] bytesCpf = cpf.getBytes(StandardCharsets.UTF_8);
+        byte[] bytesNome = nome.getBytes(StandardCharsets.UTF_8);
+        trava.lock();
+        try {
+            ByteBuffer b = iniciarRegistro(CLIENTE, 4 + bytesCpf.length + bytesNome.length);
+            b.putShort((short) bytesCpf.length).put(bytesCpf);
+            b.putShort((short) bytesNome.length).put(bytesNome);
+            return concluirRegistro();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta a abertura de uma conta ao log.
+     * @return A sequência atribuída ao registro.
+     */
+    long registrarConta(int numero, byte tipoConta, String cpf, long limite, long saldo) {
+        byte[] bytesCpf = cpf.getBytes(StandardCharsets.UTF_8);
+        trava.lock();
+        try {
+            ByteBuffer b = iniciarRegistro(CONTA, 4 + 1 + 2 + bytesCpf.length + 8 + 8);
+            b.putInt(numero).put(tipoConta);
+            b.putShort((short) bytesCpf.length).put(bytesCpf);
+            b.putLong(limite).putLong(saldo);
+            return concluirRegistro();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta uma movimentação de saldo ao log. Não aloca memória no caminho comum.
+     * @return A sequência atribuída ao registro.
+     */
+    long registrarMovimento(int numero, byte tipo, long variacao, long instante) {
+        trava.lock();
+        try {
+            iniciarRegistro(MOVIMENTO, 4 + 1 + 8 + 8).putInt(numero).put(tipo).putLong(variacao).putLong(instante);
+            return concluirRegistro();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta ao log um lançamento do fechamento mensal. A marca da etapa fica no mesmo registro
+     * que a variação do saldo, de modo que a recuperação nunca restaura uma sem a outra.
+     * @return A sequência atribuída ao registro.
+     */
+    long registrarFechamento(int numero, long marca, byte tipo, long variacao, long instante) {
+        trava.lock();
+        try {
+            iniciarRegistro(FECHAMENTO, 4 + 8 + 1 + 8 + 8).putInt(numero).putLong(marca).put(tipo).putLong(variacao).putLong(instante);
+            return concluirRegistro();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta uma transferência ao log. As duas pernas ficam no mesmo registro, de modo que a
+     * recuperação nunca reaplica o débito sem o crédito.
+     * @return A sequência atribuída ao registro.
+     */
+    long registrarTransferencia(int origem, long variacaoOrigem, int destino, long variacaoDestino, long instante) {
+        trava.lock();
+        try {
+            iniciarRegistro(TRANSFERENCIA, 4 + 8 + 4 + 8 + 8)
+                    .putInt(origem).putLong(variacaoOrigem).putInt(destino).putLong(variacaoDestino).putLong(instante);
+            return concluirRegistro();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta ao log as transferências realizadas de um lote, com uma única aquisição da trava.
+     * Transferências com variação de origem igual a 0 foram recusadas e não são gravadas.
+     * @param variacoesDestino A variação no destino de cada transferência (o valor transferido).
+     */
+    void registrarTransferencias(int[] origens, long[] variacoesOrigem, int[] destinos, long[] variacoesDestino, long instante) {
+        trava.lock();
+        try {
+            for (int i = 0; i < origens.length; i++) {
+                if (variacoesOrigem[i] != 0) {
+                    iniciarRegistro(TRANSFERENCIA, 4 + 8 + 4 + 8 + 8).putInt(origens[i]).putLong(variacoesOrigem[i])
+                            .putInt(destinos[i]).putLong(variacoesDestino[i]).putLong(instante);
+                    concluirRegistro();
+                }
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta a remoção de uma conta ao log.
+     * @return A sequência atribuída ao registro.
+     */
+    long registrarRemocao(int numero) {
+        trava.lock();
+        try {
+            iniciarRegistro(REMOCAO_CONTA, 4).putInt(numero);
+            return concluirRegistro();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Bloqueia até que todos os registros acrescentados até agora estejam sincronizados no disco.
+     * @throws IOException Se a gravação falhou ou a espera foi interrompida.
+     */
+    public void sincronizar() throws IOException {
+        trava.lock();
+        try {
+            long alvo = proximaSequencia - 1;
+            while (sequenciaDuravel < alvo) {
+                verificarFalha();
+                sincronizacaoSolicitada = true;
+                haTrabalho.signal();
+                progresso.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrompido aguardando sincronização do log.");
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Encerra o segmento ativo e inicia um novo. Os segmentos anteriores ficam imutáveis e podem
+     * ser incorporados a um snapshot.
+     * @return A sequência do primeiro registro do novo segmento; registros anteriores estão em segmentos fechados.
+     * @throws IOException Se a gravação falhou ou a espera foi interrompida.
+     */
+    long rotacionar() throws IOException {
+        trava.lock();
+        try {
+            long alvo = rotacoes + 1;
+            rotacaoSolicitada = true;
+            haTrabalho.signal();
+            while (rotacoes < alvo) {
+                verificarFalha();
+                progresso.await();
+            }
+            return sequenciaDoSegmento(segmentoAtivo);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrompido aguardando rotação do log.");
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Retorna a sequência do próximo registro a ser acrescentado.
+     * @return A próxima sequência.
+     */
+    long getProximaSequencia() {
+        trava.lock();
+        try {
+            return proximaSequencia;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Grava os registros pendentes, sincroniza o disco e encerra a thread gravadora.
+     * @throws IOException Se a gravação final falhar.
+     */
+    @Override
+    public void close() throws IOException {
+        sincronizar();
+        trava.lock();
+        try {
+            fechado = true;
+            haTrabalho.signal();
+        } finally {
+            trava.unlock();
+        }
+        try {
+            gravadora.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+    }
+
+    private ByteBuffer iniciarRegistro(byte tipo, int tamanhoCampos) {
+        while (pendente.position() >= LIMITE_PENDENTE && falha == null) {
+            progresso.awaitUninterruptibly(); // Contrapressão: a gravadora não acompanha o ritmo das operações
+        }
+        verificarAberto();
+        int tamanhoPayload = 8 + 1 + tamanhoCampos;
+        if (pendente.remaining() < CABECALHO_REGISTRO + tamanhoPayload) {
+            ByteBuffer maior = ByteBuffer.allocate(Math.max(pendente.capacity() * 2, pendente.position() + CABECALHO_REGISTRO + tamanhoPayload));
+            pendente.flip();
+            maior.put(pendente);
+            pendente = maior;
+        }
+        inicioRegistro = pendente.position();
+        pendente.putInt(tamanhoPayload).putInt(0); // O CRC é preenchido ao concluir o registro
+        return pendente.putLong(proximaSequencia).put(tipo);
+    }
+
+    /**
+     * Calcula o CRC do payload do registro corrente, preenche o cabeçalho e acorda a gravadora.
+     */
+    private long concluirRegistro() {
+        int tamanhoPayload = pendente.getInt(inicioRegistro);
+        crc.reset();
+        crc.update(pendente.array(), inicioRegistro + CABECALHO_REGISTRO, tamanhoPayload);
+        pendente.putInt(inicioRegistro + 4, (int) crc.getValue());
+        haTrabalho.signal();
+        return proximaSequencia++;
+    }
+
+    private void verificarAberto() {
+        if (fechado) {
+            throw new IllegalStateException("Log de operações fechado.");
+        }
+        if (falha != null) {
+            throw new IllegalStateException("Log de operações indisponível após falha de gravação.", falha);
+        }
+    }
+
+    private void verificarFalha() throws IOException {
+        if (falha != null) {
+            throw falha;
+        }
+    }
+
+    /**
+     * Laço da thread gravadora: troca os buffers, escreve o lote no segmento ativo e sincroniza
+     * o disco quando a política de sincronização exigir ou quando algum chamador estiver aguardando.
+     */
+    private void gravar() {
+        long naoSincronizados = 0;         // Registros gravados desde a última sincronização
+        long primeiroNaoSincronizado = 0;  // Instante em que o mais antigo deles foi gravado
+        long ultimaGravada = sequenciaDuravel;
+        while (true) {
+            boolean sincronizar;
+            boolean rotacionar;
+            long ultimaDoLote;
+            trava.lock();
+            try {
+                while (pendente.position() == 0 && !fechado && !rotacaoSolicitada
+                        && !(sincronizacaoSolicitada && naoSincronizados > 0)) {
+                    if (naoSincronizados > 0) {
+                        long espera = intervaloSincronizacaoNanos - (System.nanoTime() - primeiroNaoSincronizado);
+                        if (espera <= 0) {
+                            break;
+                        }
+                        haTrabalho.awaitNanos(espera);
+                    } else {
+                        haTrabalho.await();
+                    }
+                }
+                if (fechado && pendente.position() == 0 && naoSincronizados == 0) {
+                    return;
+                }
+                ByteBuffer lote = pendente;
+                pendente = emGravacao;
+                emGravacao = lote;
+                ultimaDoLote = proximaSequencia - 1;
+                rotacionar = rotacaoSolicitada;
+                sincronizar = sincronizacaoSolicitada || fechado || rotacionar;
+                sincronizacaoSolicitada = false;
+                rotacaoSolicitada = false;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                trava.unlock();
+            }
+            try {
+                if (emGravacao.position() > 0) {
+                    emGravacao.flip();
+                    tamanhoSegmentoAtivo += emGravacao.remaining();
+                    while (emGravacao.hasRemaining()) {
+                        canal.write(emGravacao);
+                    }
+                    emGravacao.clear();
+                    if (naoSincronizados == 0) {
+                        primeiroNaoSincronizado = System.nanoTime();
+                    }
+                    naoSincronizados += ultimaDoLote - ultimaGravada;
+                    ultimaGravada = ultimaDoLote;
+                }
+                sincronizar |= naoSincronizados >= registrosPorSincronizacao
+                        || (naoSincronizados > 0 && System.nanoTime() - primeiroNaoSincronizado >= intervaloSincronizacaoNanos);
+                if (sincronizar && naoSincronizados > 0) {
+                    canal.force(false);
+                    naoSincronizados = 0;
+                }
+                if (rotacionar || tamanhoSegmentoAtivo >= tamanhoSegmento) {
+                    canal.force(false);
+                    naoSincronizados = 0;
+                    canal.close();
+                    abrirSegmento(ultimaGravada + 1);
+                    rotacionar = true;
+                }
+            } catch (IOException e) {
+                trava.lock();
+                try {
+                    falha = e;
+                    progresso.signalAll();
+                } finally {
+                    trava.unlock();
+                }
+                return;
+            }
+            trava.lock();
+            try {
+                if (naoSincronizados == 0) {
+                    sequenciaDuravel = ultimaGravada;
+                }
+                if (rotacionar) {
+                    rotacoes++;
+                }
+                progresso.signalAll();
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    private void abrirSegmento(long primeiraSequencia) throws IOException {
+        segmentoAtivo = diretorio.resolve(String.format("%s%020d%s", PREFIXO_SEGMENTO, primeiraSequencia, SUFIXO_SEGMENTO));
+        canal = FileChannel.open(segmentoAtivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        tamanhoSegmentoAtivo = canal.size();
+    }
+
+    /**
+     * Lista os segmentos do diretório em ordem de sequência.
+     * @param diretorio O diretório dos segmentos.
+     * @return Os caminhos dos segmentos, do mais antigo ao mais recente.
+     * @throws IOException Se o diretório não puder ser lido.
+     */
+    static List<Path> listarSegmentos(Path diretorio) throws IOException {
+        List<Path> segmentos = new ArrayList<>();
+        if (!Files.isDirectory(diretorio)) {
+            return segmentos;
+        }
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(diretorio, PREFIXO_SEGMENTO + "*" + SUFIXO_SEGMENTO)) {
+            for (Path p : ds) {
+                segmentos.add(p);
+            }
+        }
+        segmentos.sort(null); // Sequências com 20 dígitos: a ordem dos nomes é a ordem das sequências
+        return segmentos;
+    }
+
+    /**
+     * Extrai do nome do arquivo a sequência do primeiro registro de um segmento.
+     */
+    static long sequenciaDoSegmento(Path segmento) {
+        String nome = segmento.getFileName().toString();
+        return Long.parseLong(nome.substring(PREFIXO_SEGMENTO.length(), nome.length() - SUFIXO_SEGMENTO.length()));
+    }
+
+    /**
+     * Recebe os registros lidos de um segmento, na ordem em que foram gravados.
+     */
+    interface Leitor {
+        void cliente(long sequencia, String cpf, String nome);
+
+        void conta(long sequencia, int numero, byte tipoConta, String cpf, long limite, long saldo);
+
+        void movimento(long sequencia, int numero, byte tipo, long variacao, long instante);
+
+        void remocao(long sequencia, int numero);
+
+        void transferencia(long sequencia, int origem, long variacaoOrigem, int destino, long variacaoDestino, long instante);
+
+        void fechamento(long sequencia, int numero, long marca, byte tipo, long variacao, long instante);
+    }
+
+    /**
+     * Lê um segmento por mapeamento em memória e entrega ao leitor os registros com sequência
+     * maior que a informada. A leitura para no primeiro registro incompleto ou com CRC inválido,
+     * que só é aceitável no final do último segmento (gravação interrompida por uma queda);
+     * nesse caso o arquivo é truncado no último registro válido.
+     * @param segmento O arquivo do segmento.
+     * @param aPartirDe Registros com sequência menor ou igual a esta são ignorados.
+     * @param ultimo Se este é o segmento mais recente.
+     * @param leitor O destino dos registros.
+     * @return A maior sequência lida, ou aPartirDe se nenhum registro foi entregue.
+     * @throws IOException Se o segmento não puder ser lido ou estiver corrompido fora da cauda.
+     */
+    static long ler(Path segmento, long aPartirDe, boolean ultimo, Leitor leitor) throws IOException {
+        long maior = aPartirDe;
+        int validos;
+        long tamanhoArquivo;
+        try (FileChannel fc = FileChannel.open(segmento, StandardOpenOption.READ)) {
+            tamanhoArquivo = fc.size();
+            if (tamanhoArquivo > Integer.MAX_VALUE) {
+                throw new IOException("Segmento grande demais para mapeamento: " + segmento);
+            }
+            MappedByteBuffer b = fc.map(FileChannel.MapMode.READ_ONLY, 0, tamanhoArquivo);
+            CRC32 verificador = new CRC32();
+            validos = 0;
+            while (b.remaining() >= CABECALHO_REGISTRO) {
+                int inicio = b.position();
+                int tamanho = b.getInt();
+                int crcGravado = b.getInt();
+                if (tamanho < 9 || tamanho > b.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = b.slice(b.position(), tamanho);
+                verificador.reset();
+                verificador.update(payload.duplicate());
+                if ((int) verificador.getValue() != crcGravado) {
+                    break;
+                }
+                long sequencia = payload.getLong();
+                byte tipo = payload.get();
+                if (sequencia > aPartirDe) {
+                    entregar(tipo, sequencia, payload, leitor);
+                    maior = Math.max(maior, sequencia);
+                }
+                b.position(inicio + CABECALHO_REGISTRO + tamanho);
+                validos = b.position();
+            }
+        }
+        if (validos < tamanhoArquivo) {
+            if (!ultimo) {
+                throw new IOException("Segmento corrompido na posição " + validos + ": " + segmento);
+            }
+            try (FileChannel fc = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+                fc.truncate(validos); // Descarta a cauda de uma gravação interrompida
+            }
+        }
+        return maior;
+    }
+
+    private static void entregar(byte tipo, long sequencia, ByteBuffer p, Leitor leitor) throws IOException {
+        switch (tipo) {
+            case CLIENTE -> leitor.cliente(sequencia, lerTexto(p), lerTexto(p));
+            case CONTA -> {
+                int numero = p.getInt();
+                byte tipoConta = p.get();
+                String cpf = lerTexto(p);
+                leitor.conta(sequencia, numero, tipoConta, cpf, p.getLong(), p.getLong());
+            }
+            case MOVIMENTO -> leitor.movimento(sequencia, p.getInt(), p.get(), p.getLong(), p.getLong());
+            case REMOCAO_CONTA -> leitor.remocao(sequencia, p.getInt());
+            case TRANSFERENCIA -> leitor.transferencia(sequencia, p.getInt(), p.getLong(), p.getInt(), p.getLong(), p.getLong());
+            case FECHAMENTO -> leitor.fechamento(sequencia, p.getInt(), p.getLong(), p.get(), p.getLong(), p.getLong());
+            default -> throw new IOException("Tipo de registro desconhecido: " + tipo);
+        }
+    }
+
+    private static String lerTexto(ByteBuffer p) {
+        byte[] bytes = new byte[p.getShort() & 0xFFFF];
+        p.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,5 +1,14 @@
-
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Classe principal que contém o método main e lida com a interface do usuário
@@ -9,14 +18,62 @@ public class Main {
 
     private static final SistemaBancario banco = new SistemaBancario();  // Objeto central do sistema bancário
     private static final Scanner scanner = new Scanner(System.in);  // Scanner para entrada de dados do usuário
+    private static final int TAMANHO_PAGINA_EXTRATO = 20; // Transações exibidas por página na consulta de extrato
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy"); // Formato das datas digitadas
 
     /**
      * Método main que gerencia o menu principal do sistema bancário. Este
      * método oferece várias opções para interação com o sistema, como adicionar
      * clientes, abrir contas, realizar depósitos e saques, entre outras
      * operações financeiras.
+     * Com a opção --dados seguida de um diretório, o estado é recuperado do diretório na inicialização
+     * e todas as operações são gravadas nele. Com a opção --batch seguida de um arquivo de movimentações,
+     * o arquivo é processado sem o menu interativo; os resultados e as rejeições são gravados ao lado
+     * do arquivo, com os sufixos .resultados.csv e .rejeicoes.csv. Com a opção --servidor seguida de uma
+     * porta, as operações são oferecidas por HTTP (veja ServidorHttp) no lugar do menu, até o processo
+     * ser encerrado. Com a opção --historico seguida de um diretório, as transações antigas de cada conta
+     * são seladas em arquivos nesse diretório (veja HistoricoFrio) em vez de permanecerem no heap; o
+     * diretório deve estar vazio ou já ter sido usado com essa opção.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        Path dados = null; // Diretório de persistência, se informado
+        Path lote = null;  // Arquivo de movimentações do modo não interativo, se informado
+        int portaServidor = -1; // Porta do servidor HTTP, se informada
+        Path historico = null;  // Diretório da camada fria dos jornais, se informado
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--dados")) {
+                dados = Path.of(args[++i]);
+            } else if (args[i].equals("--batch")) {
+                lote = Path.of(args[++i]);
+            } else if (args[i].equals("--servidor")) {
+                portaServidor = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--historico")) {
+                historico = Path.of(args[++i]);
+            }
+        }
+        banco.getMetricas().registrarJmx(); // Disponíveis no JConsole como xubank:type=Metricas
+        if (historico != null) {
+            banco.ativarHistoricoFrio(new HistoricoFrio(historico)); // Antes da recuperação, que registra nos jornais as transações do log
+        }
+        Persistencia persistencia = null; // Camada de persistência, se um diretório de dados for informado
+        if (dados != null) {
+            persistencia = new Persistencia(dados, banco);
+            System.out.println("Estado recuperado: " + persistencia.resumoRecuperacao());
+        }
+        if (lote != null) {
+            try {
+                processarLote(lote);
+            } finally {
+                if (persistencia != null) {
+                    persistencia.close();
+                }
+            }
+            return;
+        }
+        if (portaServidor >= 0) {
+            servir(portaServidor, persistencia);
+            return;
+        }
         boolean executando = true; // Controle de loop para o menu
         while (executando) {
             System.out.println("\nBem-vindo ao XuBank. Escolha uma opção:");
@@ -30,6 +87,16 @@ public class Main {
             System.out.println("8. Valor em Custódia por Tipo de Conta");
             System.out.println("9. Calcular Saldo Médio das Contas");
             System.out.println("10. Visualizar Extratos");
+            System.out.println("11. Aplicar Rendimento em Todas as Contas Rendáveis");
+            System.out.println("12. Consultar Extrato por Período");
+            System.out.println("13. Transferir entre Contas");
+            System.out.println("14. Exibir Métricas");
+            System.out.println("15. Simular Risco dos Investimentos");
+            System.out.println("16. Projetar Saldos das Contas Rendáveis");
+            System.out.println("17. Ranking e Percentis de Saldos");
+            System.out.println("18. Relatório Consistente de Custódia");
+            System.out.println("19. Fechamento Mensal");
+            System.out.println("20. Exportar Extratos");
             System.out.println("0. Sair\n");
 
             int opcao = scanner.nextInt(); // Usuário escolhe uma opção
@@ -76,12 +143,84 @@ public class Main {
                 }
                 case 10 ->
                     visualizarExtratos(); // Exibe extratos de contas de um cliente específico
+                case 11 -> {
+                    ResumoRendimento resumo = banco.aplicarRendimentoEmLote(); // Processa todas as contas rendáveis em paralelo
+                    if (confirmarGravacao()) {
+                        System.out.println("Rendimento aplicado em lote: " + resumo);
+                    }
+                }
+                case 12 ->
+                    consultarExtratoPorPeriodo(); // Exibe o extrato de uma conta em páginas
+                case 13 ->
+                    realizarTransferencia(); // Transfere um valor entre duas contas
+                case 14 ->
+                    System.out.print(banco.getMetricas().relatorio()); // Contagens, recusas e latências das operações
+                case 15 ->
+                    System.out.print(new SimulacaoRisco(banco).relatorio(100_000, System.nanoTime())); // Distribuição de resultados em 12, 60 e 120 meses
+                case 16 ->
+                    projetarRendimentos(); // Saldos futuros em forma fechada, sem alterar as contas
+                case 17 ->
+                    exibirRanking(); // Maiores e menores saldos totais e percentis
+                case 18 ->
+                    relatorioConsistente(); // Custódia e saldo médio de um único momento
+                case 19 ->
+                    fecharMes(dados); // Rendimentos, tarifas, impostos e extratos do mês, com retomada após queda
+                case 20 ->
+                    exportarExtratos(dados); // Extratos de todos os clientes em arquivos CSV ou de largura fixa
                 case 0 ->
                     executando = false; // Encerra o loop e o programa
                 default ->
                     System.out.println("Opção inválida. Tente novamente."); // Trata opções inválidas
             }
         }
+        if (persistencia != null) {
+            persistencia.close(); // Grava um snapshot final e sincroniza o log
+        }
+    }
+
+    /**
+     * Atende as operações por HTTP até o processo ser encerrado (por exemplo, com Ctrl+C); ao encerrar,
+     * para o servidor e fecha a persistência, se houver.
+     * @param porta A porta do servidor.
+     * @param persistencia A camada de persistência, ou null.
+     */
+    private static void servir(int porta, Persistencia persistencia) throws IOException {
+        banco.setCanalEventos(CanalEventos.NULO); // Os resultados vão nas respostas HTTP, não para o console
+        ServidorHttp servidor = new ServidorHttp(banco, new InetSocketAddress(porta));
+        CountDownLatch encerrado = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.close();
+            if (persistencia != null) {
+                try {
+                    persistencia.close();
+                } catch (IOException e) {
+                    System.err.println("Falha ao fechar a persistência: " + e.getMessage());
+                }
+            }
+            encerrado.countDown();
+        }));
+        servidor.iniciar();
+        System.out.println("XuBank atendendo em http://localhost:" + servidor.getPorta()
+                + (servidor.usaThreadsVirtuais() ? " (threads virtuais)" : ""));
+        try {
+            encerrado.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Processa um arquivo de movimentações em lote e exibe o resumo com a vazão obtida.
+     * @param arquivo O arquivo de movimentações (conta,operação,valor).
+     */
+    private static void processarLote(Path arquivo) throws IOException {
+        String nome = arquivo.getFileName().toString();
+        Path resultados = arquivo.resolveSibling(nome + ".resultados.csv");
+        Path rejeicoes = arquivo.resolveSibling(nome + ".rejeicoes.csv");
+        banco.setCanalEventos(CanalEventos.NULO); // Os resultados do lote vão para o arquivo, não para o console
+        ProcessadorLote.Resumo resumo = new ProcessadorLote(banco).processar(arquivo, resultados, rejeicoes);
+        System.out.println("Lote processado: " + resumo);
+        System.out.println("Resultados: " + resultados + " | Rejeições: " + rejeicoes);
     }
 
     /**
@@ -95,8 +234,13 @@ public class Main {
         System.out.println("Digite o CPF do cliente:");
         String cpf = scanner.nextLine(); // Recebe o CPF do cliente do usuário
         Cliente cliente = new Cliente(nome, cpf); // Cria um novo objeto Cliente
-        banco.adicionarCliente(cliente); // Adiciona o cliente ao banco
-        System.out.println("Cliente cadastrado com sucesso."); // Confirmação do cadastro
+        if (banco.adicionarCliente(cliente)) { // Adiciona o cliente ao banco
+            if (confirmarGravacao()) {
+                System.out.println("Cliente cadastrado com sucesso."); // Confirmação do cadastro
+            }
+        } else {
+            System.out.println("Já existe um cliente cadastrado com este CPF."); // CPF deve ser único
+        }
     }
 
     /**
@@ -134,8 +278,13 @@ public class Main {
                 return;
             }
         }
-        cliente.adicionarConta(conta); // Adiciona a nova conta ao cliente
-        System.out.println("Conta aberta com sucesso."); // Confirmação da abertura da conta
+        if (cliente.adicionarConta(conta)) { // Adiciona a nova conta ao cliente
+            if (confirmarGravacao()) {
+                System.out.println("Conta aberta com sucesso."); // Confirmação da abertura da conta
+            }
+        } else {
+            System.out.println("Já existe uma conta com este número."); // Números de conta são únicos
+        }
     }
 
     /**
@@ -148,17 +297,18 @@ public class Main {
         int numero = scanner.nextInt(); // Recebe o número da conta
         System.out.println("Digite o valor a ser depositado:");
         double valor = scanner.nextDouble(); // Recebe o valor a ser depositado
-        for (Cliente cliente : banco.getClientes()) { // Itera sobre todos os clientes do banco
-            for (Conta conta : cliente.getContas()) { // Itera sobre todas as contas do cliente
-                if (conta.getNumero() == numero) {
-                    conta.depositar(valor); // Realiza o depósito
-                    System.out.println("Depósito realizado com sucesso. Saldo atual: R$" + String.format("%.2f", conta.getSaldo()));
-                    return;
-                }
+        Conta conta = banco.buscarConta(numero); // Busca a conta no índice global
+        if (conta != null) {
+            ResultadoOperacao resultado = conta.depositar(valor); // Realiza o depósito; a mensagem sai pelo canal de eventos
+            if (resultado.realizada() && confirmarGravacao()) {
+                System.out.println("Saldo atual: R$" + String.format("%.2f", Dinheiro.paraReais(resultado.saldo())));
             }
+        } else {
+            System.out.println("Conta não encontrada."); // Mensagem de erro se a conta não for encontrada
         }
-        System.out.println("Conta não encontrada."); // Mensagem de erro se a conta não for encontrada
-        }
+    }
+
+
     /**
      * Método para realizar um saque de uma conta específica.
      * Solicita ao usuário o número da conta e o valor a ser sacado, e realiza o saque se a conta for encontrada e o saldo for suficiente.
@@ -169,16 +319,48 @@ public class Main {
         System.out.println("Digite o valor a ser sacado:");
         double valor = scanner.nextDouble(); // Recebe o valor a ser sacado
 
-        for (Cliente cliente : banco.getClientes()) {
-            for (Conta conta : cliente.getContas()) {
-                if (conta.getNumero() == numero) {
-                    conta.sacar(valor); // Realiza o saque
-                    System.out.println("Saque realizado. Saldo atual: R$" + String.format("%.2f", conta.getSaldo()));
-                    return;
-                }
+        Conta conta = banco.buscarConta(numero);
+        if (conta != null) {
+            ResultadoOperacao resultado = conta.sacar(valor); // Realiza o saque; a mensagem sai pelo canal de eventos
+            if (resultado.realizada() && confirmarGravacao()) {
+                System.out.println("Saldo atual: R$" + String.format("%.2f", Dinheiro.paraReais(resultado.saldo())));
             }
+        } else {
+            System.out.println("Conta não encontrada."); // Informa ao usuário se a conta não for encontrada ou o saldo for insuficiente
+        }
+    }
+
+    /**
+     * Método para transferir um valor entre duas contas.
+     * Solicita ao usuário os números das contas de origem e destino e o valor; a mensagem do
+     * resultado sai pelo canal de eventos.
+     */
+    private static void realizarTransferencia() {
+        System.out.println("Digite o número da conta de origem:");
+        int origem = scanner.nextInt();
+        System.out.println("Digite o número da conta de destino:");
+        int destino = scanner.nextInt();
+        System.out.println("Digite o valor a ser transferido:");
+        double valor = scanner.nextDouble();
+        ResultadoOperacao resultado = banco.transferir(origem, destino, valor);
+        if (resultado.realizada() && confirmarGravacao()) {
+            System.out.println("Saldo atual da origem: R$" + String.format("%.2f", Dinheiro.paraReais(resultado.saldo())));
+        }
+    }
+
+    /**
+     * Aguarda a sincronização com o disco das operações já registradas no log antes de confirmá-las
+     * ao usuário. Sem persistência ativa, retorna imediatamente.
+     * @return false, após informar a falha, se a gravação do log falhou.
+     */
+    private static boolean confirmarGravacao() {
+        try {
+            banco.sincronizarLog();
+            return true;
+        } catch (IOException e) {
+            System.out.println("Operação realizada, mas não confirmada em disco: " + e.getMessage());
+            return false;
         }
-        System.out.println("Conta não encontrada ou saldo insuficiente."); // Informa ao usuário se a conta não for encontrada ou o saldo for insuficiente
     }
 
     /**
@@ -189,15 +371,12 @@ public class Main {
         System.out.println("Digite o número da conta:");
         int numero = scanner.nextInt(); // Recebe o número da conta do usuário
 
-        for (Cliente cliente : banco.getClientes()) {
-            for (Conta conta : cliente.getContas()) {
-                if (conta.getNumero() == numero) {
-                    System.out.println("Saldo da conta: R$" + String.format("%.2f", conta.getSaldo())); // Exibe o saldo da conta
-                    return;
-                }
-            }
+        Conta conta = banco.buscarConta(numero);
+        if (conta != null) {
+            System.out.println("Saldo da conta: R$" + String.format("%.2f", conta.getSaldo())); // Exibe o saldo da conta
+        } else {
+            System.out.println("Conta não encontrada."); // Informa ao usuário se a conta não for encontrada
         }
-        System.out.println("Conta não encontrada."); // Informa ao usuário se a conta não for encontrada
     }
 
     /**
@@ -208,16 +387,115 @@ public class Main {
         System.out.println("Digite o número da conta para aplicar rendimento:");
         int numero = scanner.nextInt(); // Recebe o número da conta do usuário
 
-        for (Cliente cliente : banco.getClientes()) {
-            for (Conta conta : cliente.getContas()) {
-                if (conta.getNumero() == numero && conta instanceof IRentavel) {
-                    ((IRentavel) conta).aplicarRendimento(); // Aplica rendimento se a conta for rendável
-                    System.out.println("Rendimento aplicado. Saldo atual: R$" + String.format("%.2f", conta.getSaldo()));
-                    return;
-                }
+        Conta conta = banco.buscarConta(numero);
+        if (conta instanceof IRentavel) {
+            ResultadoOperacao resultado = ((IRentavel) conta).aplicarRendimento(); // Aplica rendimento se a conta for rendável
+            if (confirmarGravacao()) {
+                System.out.println("Saldo atual: R$" + String.format("%.2f", Dinheiro.paraReais(resultado.saldo())));
             }
+        } else {
+            System.out.println("Conta não encontrada ou não é rendável."); // Informa ao usuário se a conta não for encontrada ou não for rendável
+        }
+    }
+
+    /**
+     * Método para projetar os saldos das contas rendáveis.
+     * Solicita ao usuário o horizonte em meses e exibe os totais projetados em cada cenário de taxas.
+     */
+    private static void projetarRendimentos() {
+        System.out.println("Digite o número de meses da projeção:");
+        int meses = scanner.nextInt(); // Recebe o horizonte do usuário
+        if (meses < 0) {
+            System.out.println("Número de meses inválido.");
+            return;
+        }
+        for (ProjecaoRendimento.Cenario cenario : ProjecaoRendimento.Cenario.values()) {
+            System.out.println(banco.projetarRendimentos(meses, cenario)); // Totais do cenário, sem alterar os saldos
+        }
+    }
+
+    /**
+     * Método para exibir o ranking de clientes por saldo total.
+     * Solicita ao usuário a quantidade de clientes e exibe os maiores e os menores saldos e os percentis 50, 90 e 99.
+     */
+    private static void exibirRanking() {
+        System.out.println("Digite a quantidade de clientes do ranking:");
+        int k = scanner.nextInt(); // Recebe o tamanho do ranking
+        if (k < 0) {
+            System.out.println("Quantidade inválida.");
+            return;
+        }
+        System.out.println("Maiores saldos:");
+        for (Cliente c : banco.clientesComMaioresSaldos(k)) {
+            System.out.printf("  %s (CPF %s): R$%.2f%n", c.getNome(), c.getCpf(), c.calcularSaldoTotal());
+        }
+        System.out.println("Menores saldos:");
+        for (Cliente c : banco.clientesComMenoresSaldos(k)) {
+            System.out.printf("  %s (CPF %s): R$%.2f%n", c.getNome(), c.getCpf(), c.calcularSaldoTotal());
+        }
+        System.out.printf("Percentis do saldo total: p50 R$%.2f, p90 R$%.2f, p99 R$%.2f%n",
+                banco.percentilSaldo(0.5), banco.percentilSaldo(0.9), banco.percentilSaldo(0.99));
+    }
+
+    /**
+     * Método para exibir a custódia por tipo de conta e o saldo médio calculados sobre um snapshot,
+     * de modo que todos os valores reflitam o mesmo momento mesmo com operações em andamento.
+     */
+    private static void relatorioConsistente() {
+        try (SnapshotSaldos snapshot = banco.abrirSnapshot()) {
+            System.out.println("Versão " + snapshot.getVersao() + ":");
+            System.out.printf("Custódia em Conta Corrente: R$%.2f%n", snapshot.calcularCustodiaPorTipo(ContaCorrente.class));
+            System.out.printf("Custódia em Conta Poupança: R$%.2f%n", snapshot.calcularCustodiaPorTipo(ContaPoupanca.class));
+            System.out.printf("Custódia em Conta Renda Fixa: R$%.2f%n", snapshot.calcularCustodiaPorTipo(ContaRendaFixa.class));
+            System.out.printf("Custódia em Conta Investimento: R$%.2f%n", snapshot.calcularCustodiaPorTipo(ContaInvestimento.class));
+            System.out.printf("Custódia total: R$%.2f%n", snapshot.calcularCustodiaPorTipo(Conta.class));
+            System.out.printf("Saldo médio: R$%.2f%n", snapshot.calcularSaldoMedio());
+        }
+    }
+
+    /**
+     * Método para executar o fechamento mensal. Solicita a competência e executa as etapas pendentes,
+     * retomando um fechamento interrompido da mesma competência. Os pontos de controle e os extratos
+     * ficam na pasta fechamentos do diretório de dados (ou do diretório atual, sem persistência).
+     * @param dados O diretório de persistência, ou null.
+     */
+    private static void fecharMes(Path dados) {
+        System.out.println("Digite a competência (AAAA-MM):");
+        YearMonth competencia;
+        try {
+            competencia = YearMonth.parse(scanner.nextLine().trim());
+        } catch (DateTimeParseException e) {
+            System.out.println("Competência inválida.");
+            return;
+        }
+        Path diretorio = dados != null ? dados.resolve("fechamentos") : Path.of("fechamentos");
+        try {
+            System.out.print(new FechamentoMensal(banco, diretorio).executar(competencia));
+        } catch (IOException e) {
+            System.out.println("Falha no fechamento: " + e.getMessage() + ". Execute novamente para retomar.");
+        }
+    }
+
+    /**
+     * Método para exportar os extratos de todos os clientes em um período. Solicita o formato e as datas
+     * inicial e final (em branco para não limitar) e grava os arquivos na pasta extratos do diretório de
+     * dados (ou do diretório atual, sem persistência).
+     * @param dados O diretório de persistência, ou null.
+     */
+    private static void exportarExtratos(Path dados) {
+        System.out.println("Formato (1 - CSV, 2 - Largura fixa):");
+        ExportadorExtratos.Formato formato = scanner.nextLine().trim().equals("2")
+                ? ExportadorExtratos.Formato.LARGURA_FIXA : ExportadorExtratos.Formato.CSV;
+        System.out.println("Data inicial (dd/MM/yyyy, em branco para o início):");
+        Instant de = lerData(0);
+        System.out.println("Data final (dd/MM/yyyy, em branco para hoje):");
+        Instant ate = lerData(1); // A data final é incluída: o período vai até o início do dia seguinte
+        Path diretorio = dados != null ? dados.resolve("extratos") : Path.of("extratos");
+        try {
+            System.out.println(new ExportadorExtratos(banco).exportar(diretorio, formato, cliente -> true, de, ate));
+        } catch (IOException e) {
+            System.out.println("Falha na exportação: " + e.getMessage());
         }
-        System.out.println("Conta não encontrada ou não é rendável."); // Informa ao usuário se a conta não for encontrada ou não for rendável
     }
 
     /**
@@ -235,4 +513,63 @@ public class Main {
             System.out.println("Cliente não encontrado."); // Informa ao usuário se o cliente não for encontrado
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Método para consultar o extrato de uma conta em um período, página por página.
+     * Solicita o número da conta e as datas inicial e final (em branco para não limitar),
+     * exibe os saldos de abertura e fechamento do período e as transações de cada página.
+     */
+    private static void consultarExtratoPorPeriodo() {
+        System.out.println("Digite o número da conta:");
+        int numero = scanner.nextInt(); // Recebe o número da conta do usuário
+        scanner.nextLine(); // Limpa o buffer do scanner
+        Conta conta = banco.buscarConta(numero);
+        if (conta == null) {
+            System.out.println("Conta não encontrada.");
+            return;
+        }
+        System.out.println("Data inicial (dd/MM/yyyy, em branco para o início):");
+        Instant de = lerData(0);
+        System.out.println("Data final (dd/MM/yyyy, em branco para hoje):");
+        Instant ate = lerData(1); // A data final é incluída: o período vai até o início do dia seguinte
+
+        long cursor = PaginaExtrato.INICIO;
+        PaginaExtrato pagina = conta.extrato(de, ate, TAMANHO_PAGINA_EXTRATO, cursor);
+        System.out.println(String.format("Saldo de abertura: R$ %.2f | Saldo de fechamento: R$ %.2f | Transações: %d",
+                Dinheiro.paraReais(pagina.getSaldoAbertura()), Dinheiro.paraReais(pagina.getSaldoFechamento()), pagina.getTotalPeriodo()));
+        while (true) {
+            for (int i = 0; i < pagina.tamanho(); i++) {
+                System.out.println(pagina.formatar(i));
+            }
+            if (!pagina.temProxima()) {
+                break;
+            }
+            System.out.println("Enter para a próxima página, 0 para voltar:");
+            if (scanner.nextLine().trim().equals("0")) {
+                break;
+            }
+            cursor = pagina.getProximoCursor();
+            pagina = conta.extrato(de, ate, TAMANHO_PAGINA_EXTRATO, cursor);
+        }
+    }
+
+    /**
+     * Lê uma data no formato dd/MM/yyyy e a converte para o início do dia, no fuso local,
+     * somado de alguns dias.
+     * @param diasAdicionais Dias somados à data lida.
+     * @return O instante correspondente, ou null se a entrada estiver em branco ou for inválida.
+     */
+    private static Instant lerData(int diasAdicionais) {
+        String texto = scanner.nextLine().trim();
+        if (texto.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(texto, FORMATO_DATA).plusDays(diasAdicionais)
+                    .atStartOfDay(ZoneId.systemDefault()).toInstant();
+        } catch (DateTimeParseException e) {
+            System.out.println("Data inválida; o período não será limitado por ela.");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+/**
+ * Instrumentação do sistema bancário: contagem de operações por tipo de conta, recusas por motivo
+ * e histogramas de latência em baldes logarítmicos. O registro não usa travas nem aloca memória:
+ * contagens ficam em LongAdder e cada histograma é dividido em faixas por thread, somadas apenas
+ * na leitura, para que threads simultâneas não disputem as mesmas linhas de cache.
+ * O custo de um registro é da ordem de dezenas de nanossegundos, somando as duas leituras de relógio.
+ */
+public final class Metricas implements MetricasMXBean {
+    /**
+     * Operações instrumentadas. As quatro primeiras correspondem, na mesma ordem, às de ResultadoOperacao.
+     */
+    public enum Operacao {
+        DEPOSITO, SAQUE, RENDIMENTO, TRANSFERENCIA, TRANSFERENCIA_LOTE, BUSCAR_CLIENTE, BUSCAR_CONTA,
+        EXTRATO, CUSTODIA_POR_TIPO, SALDO_MEDIO, MAIOR_SALDO, MENOR_SALDO, RANKING, PERCENTIL_SALDO
+    }
+
+    private static final Operacao[] OPERACOES = Operacao.values();
+    private static final ResultadoOperacao.Operacao[] OPERACOES_CONTA = ResultadoOperacao.Operacao.values();
+    private static final ResultadoOperacao.Situacao[] SITUACOES = ResultadoOperacao.Situacao.values();
+    private static final String[] TIPOS_CONTA = {"Outras", "ContaCorrente", "ContaPoupanca", "ContaRendaFixa", "ContaInvestimento"};
+
+    private final SistemaBancario banco; // Sistema instrumentado, percorrido para os tamanhos dos jornais
+    private final Histograma[] latencias = new Histograma[OPERACOES.length]; // Latência de cada operação
+    private final LongAdder[] recusas = new LongAdder[OPERACOES_CONTA.length * SITUACOES.length]; // Por operação e situação
+    private final LongAdder[] porTipo = new LongAdder[OPERACOES_CONTA.length * TIPOS_CONTA.length]; // Por operação e tipo de conta
+
+    /**
+     * Cria as métricas de um sistema bancário.
+     * @param banco O sistema instrumentado.
+     */
+    Metricas(SistemaBancario banco) {
+        this.banco = banco;
+        for (int i = 0; i < latencias.length; i++) {
+            latencias[i] = new Histograma();
+        }
+        for (int i = 0; i < recusas.length; i++) {
+            recusas[i] = new LongAdder();
+        }
+        for (int i = 0; i < porTipo.length; i++) {
+            porTipo[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registra uma execução de operação e sua latência.
+     * @param operacao A operação executada.
+     * @param inicioNanos O valor de System.nanoTime() no início da operação.
+     */
+    public void registrar(Operacao operacao, long inicioNanos) {
+        latencias[operacao.ordinal()].registrar(System.nanoTime() - inicioNanos);
+    }
+
+    /**
+     * Registra o resultado de uma operação sobre uma conta: latência, tipo de conta e, se recusada, o motivo.
+     * @param resultado O resultado da operação.
+     * @param conta A conta em que a operação foi realizada.
+     * @param inicioNanos O valor de System.nanoTime() no início da operação.
+     */
+    void registrar(ResultadoOperacao resultado, Conta conta, long inicioNanos) {
+        int operacao = resultado.operacao().ordinal();
+        latencias[operacao].registrar(System.nanoTime() - inicioNanos);
+        porTipo[operacao * TIPOS_CONTA.length + indiceTipo(conta)].increment();
+        if (!resultado.realizada()) {
+            recusas[operacao * SITUACOES.length + resultado.situacao().ordinal()].increment();
+        }
+    }
+
+    private static int indiceTipo(Conta conta) {
+        if (conta instanceof ContaCorrente) {
+            return 1;
+        } else if (conta instanceof ContaPoupanca) {
+            return 2;
+        } else if (conta instanceof ContaRendaFixa) {
+            return 3;
+        } else if (conta instanceof ContaInvestimento) {
+            return 4;
+        }
+        return 0;
+    }
+
+    /**
+     * Registra as métricas na plataforma JMX com o nome xubank:type=Metricas.
+     * Se já houver métricas registradas com esse nome, elas são substituídas.
+     */
+    public void registrarJmx() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nome = new ObjectName("xubank:type=Metricas");
+            if (servidor.isRegistered(nome)) {
+                servidor.unregisterMBean(nome);
+            }
+            servidor.registerMBean(this, nome);
+        } catch (JMException e) {
+            throw new IllegalStateException("Falha ao registrar as métricas no JMX: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getContagens() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        for (Operacao operacao : OPERACOES) {
+            m.put(operacao.name(), latencias[operacao.ordinal()].contagem());
+        }
+        return m;
+    }
+
+    @Override
+    public Map<String, Long> getRecusas() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        for (ResultadoOperacao.Operacao operacao : OPERACOES_CONTA) {
+            for (ResultadoOperacao.Situacao situacao : SITUACOES) {
+                long n = recusas[operacao.ordinal() * SITUACOES.length + situacao.ordinal()].sum();
+                if (n > 0) {
+                    m.put(operacao.name() + "/" + situacao.name(), n);
+                }
+            }
+        }
+        return m;
+    }
+
+    @Override
+    public Map<String, Long> getContagensPorTipoConta() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        for (ResultadoOperacao.Operacao operacao : OPERACOES_CONTA) {
+            for (int t = 0; t < TIPOS_CONTA.length; t++) {
+                long n = porTipo[operacao.ordinal() * TIPOS_CONTA.length + t].sum();
+                if (n > 0) {
+                    m.put(operacao.name() + "/" + TIPOS_CONTA[t], n);
+                }
+            }
+        }
+        return m;
+    }
+
+    @Override
+    public Map<String, Double> getLatenciaP50() {
+        return percentis(0.50);
+    }
+
+    @Override
+    public Map<String, Double> getLatenciaP99() {
+        return percentis(0.99);
+    }
+
+    @Override
+    public Map<String, Double> getLatenciaMaxima() {
+        Map<String, Double> m = new LinkedHashMap<>();
+        for (Operacao operacao : OPERACOES) {
+            m.put(operacao.name(), latencias[operacao.ordinal()].maximo() / 1e3);
+        }
+        return m;
+    }
+
+    private Map<String, Double> percentis(double p) {
+        Map<String, Double> m = new LinkedHashMap<>();
+        for (Operacao operacao : OPERACOES) {
+            m.put(operacao.name(), latencias[operacao.ordinal()].percentil(p) / 1e3);
+        }
+        return m;
+    }
+
+    @Override
+    public long getTransacoesNosJornais() {
+        long total = 0;
+        for (Cliente cliente : banco.getClientes()) {
+            for (Conta conta : cliente.getContas()) {
+                total += conta.getJornal().tamanho();
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long getMaiorJornal() {
+        long maior = 0;
+        for (Cliente cliente : banco.getClientes()) {
+            for (Conta conta : cliente.getContas()) {
+                maior = Math.max(maior, conta.getJornal().tamanho());
+            }
+        }
+        return maior;
+    }
+
+    @Override
+    public Map<String, Long> getIdempotencia() {
+        return banco.getIdempotencia().getEstatisticas();
+    }
+
+    @Override
+    public String relatorio() {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append(String.format(Locale.ROOT, "%-20s %12s %10s %10s %10s %10s%n", "Operação", "Contagem", "p50 µs", "p90 µs", "p99 µs", "máx µs"));
+        for (Operacao operacao : OPERACOES) {
+            Histograma h = latencias[operacao.ordinal()];
+            long n = h.contagem();
+            if (n > 0) {
+                sb.append(String.format(Locale.ROOT, "%-20s %12d %10.2f %10.2f %10.2f %10.2f%n", operacao.name(), n,
+                        h.percentil(0.50) / 1e3, h.percentil(0.90) / 1e3, h.percentil(0.99) / 1e3, h.maximo() / 1e3));
+            }
+        }
+        sb.append("Por tipo de conta: ").append(getContagensPorTipoConta()).append(System.lineSeparator());
+        sb.append("Recusas: ").append(getRecusas()).append(System.lineSeparator());
+        sb.append("Transações nos jornais: ").append(getTransacoesNosJornais())
+          .append(" | Maior jornal: ").append(getMaiorJornal()).append(System.lineSeparator());
+        sb.append("Idempotência: ").append(getIdempotencia()).append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    @Override
+    public void zerar() {
+        for (Histograma h : latencias) {
+            h.zerar();
+        }
+        for (LongAdder a : recusas) {
+            a.reset();
+        }
+        for (LongAdder a : porTipo) {
+            a.reset();
+        }
+        banco.getIdempotencia().zerarEstatisticas();
+    }
+
+    @Override
+    public String toString() {
+        return relatorio();
+    }
+
+    /**
+     * Histograma de latências em baldes logarítmicos com quatro subdivisões por potência de 2
+     * (erro relativo de até 25%), cobrindo de 1 ns a 2^63 ns. Os baldes são replicados em faixas,
+     * e cada thread incrementa a faixa escolhida pelo seu identificador.
+     */
+    static final class Histograma {
+        private static final int BALDES = 256; // Baldes por faixa: 62 potências de 2 com 4 subdivisões, e folga
+        private static final int FAIXAS = Integer.highestOneBit(Math.min(16, Runtime.getRuntime().availableProcessors() * 2 - 1)); // Potência de 2
+        private final AtomicLongArray baldes = new AtomicLongArray(FAIXAS * BALDES); // Contagens, faixa a faixa
+        private final LongAccumulator maximo = new LongAccumulator(Math::max, 0); // Maior latência registrada
+
+        /**
+         * Registra uma latência.
+         * @param nanos A latência, em nanossegundos.
+         */
+        @SuppressWarnings("deprecation") // Thread.getId: threadId() só existe a partir do Java 19
+        void registrar(long nanos) {
+            int faixa = (int) Thread.currentThread().getId() & (FAIXAS - 1);
+            baldes.getAndIncrement(faixa * BALDES + balde(nanos));
+            if (nanos > maximo.get()) {
+                maximo.accumulate(nanos);
+            }
+        }
+
+        /**
+         * Calcula o balde de uma latência: valores até 3 ocupam os baldes 0 a 3; acima disso, o balde
+         * combina o expoente da potência de 2 com os dois bits seguintes ao mais significativo.
+         */
+        static int balde(long nanos) {
+            if (nanos < 4) {
+                return (int) Math.max(nanos, 0);
+            }
+            int expoente = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >>> (expoente - 2)) & 3;
+            return ((expoente - 1) << 2) + sub;
+        }
+
+        /**
+         * Retorna o menor valor que cai em um balde.
+         */
+        static long limiteInferior(int balde) {
+            if (balde < 4) {
+                return balde;
+            }
+            int expoente = (balde >>> 2) + 1;
+            return (4L + (balde & 3)) << (expoente - 2);
+        }
+
+        long contagem() {
+            long n = 0;
+            for (int i = 0; i < baldes.length(); i++) {
+                n += baldes.get(i);
+            }
+            return n;
+        }
+
+        long maximo() {
+            return maximo.get();
+        }
+
+        /**
+         * Estima um percentil pelo limite inferior do balde que o contém.
+         * @param p O percentil, entre 0 e 1.
+         * @return A latência estimada, em nanossegundos, ou 0 se não houver registros.
+         */
+        long percentil(double p) {
+            long[] soma = new long[BALDES];
+            long total = 0;
+            for (int f = 0; f < FAIXAS; f++) {
+                for (int b = 0; b < BALDES; b++) {
+                    long n = baldes.get(f * BALDES + b);
+                    soma[b] += n;
+                    total += n;
+                }
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long alvo = (long) Math.ceil(p * total);
+            long acumulado = 0;
+            for (int b = 0; b < BALDES; b++) {
+                acumulado += soma[b];
+                if (acumulado >= alvo) {
+                    return Math.min(limiteInferior(b), maximo.get());
+                }
+            }
+            return maximo.get();
+        }
+
+        void zerar() {
+            for (int i = 0; i < baldes.length(); i++) {
+                baldes.set(i, 0);
+            }
+            maximo.reset();
+        }
+    }
+}
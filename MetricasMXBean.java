@@ -0,0 +1,72 @@
+import java.util.Map;
+/**
+ * Interface de gerenciamento (JMX) das métricas do sistema bancário. Registrada pela classe
+ * Metricas com o nome xubank:type=Metricas; pode ser consultada pelo JConsole ou pelo VisualVM.
+ * Latências são informadas em microssegundos.
+ */
+public interface MetricasMXBean {
+    /**
+     * Retorna a quantidade de execuções de cada operação, incluindo as recusadas.
+     * @return As contagens, pelo nome da operação.
+     */
+    Map<String, Long> getContagens();
+
+    /**
+     * Retorna a quantidade de operações recusadas, por operação e motivo (por exemplo, SAQUE/SALDO_INSUFICIENTE).
+     * @return As recusas, pelo nome "operação/motivo".
+     */
+    Map<String, Long> getRecusas();
+
+    /**
+     * Retorna a quantidade de operações sobre contas, por operação e tipo de conta (por exemplo, DEPOSITO/ContaCorrente).
+     * @return As contagens, pelo nome "operação/tipo".
+     */
+    Map<String, Long> getContagensPorTipoConta();
+
+    /**
+     * Retorna a mediana da latência de cada operação.
+     * @return A latência p50 em microssegundos, pelo nome da operação.
+     */
+    Map<String, Double> getLatenciaP50();
+
+    /**
+     * Retorna o percentil 99 da latência de cada operação.
+     * @return A latência p99 em microssegundos, pelo nome da operação.
+     */
+    Map<String, Double> getLatenciaP99();
+
+    /**
+     * Retorna a maior latência observada em cada operação.
+     * @return A latência máxima em microssegundos, pelo nome da operação.
+     */
+    Map<String, Double> getLatenciaMaxima();
+
+    /**
+     * Retorna a quantidade total de transações nos jornais de todas as contas. Percorre as contas a cada consulta.
+     * @return O número de transações em memória.
+     */
+    long getTransacoesNosJornais();
+
+    /**
+     * Retorna o maior jornal entre as contas. Percorre as contas a cada consulta.
+     * @return O número de transações do maior jornal.
+     */
+    long getMaiorJornal();
+
+    /**
+     * Retorna as estatísticas do cache de identificadores de operação.
+     * @return Acertos (repetições não reaplicadas), faltas, despejos, expirações e tamanho.
+     */
+    Map<String, Long> getIdempotencia();
+
+    /**
+     * Monta o relatório em texto de todas as métricas.
+     * @return O relatório.
+     */
+    String relatorio();
+
+    /**
+     * Zera contagens, histogramas e as estatísticas do cache de idempotência.
+     */
+    void zerar();
+}
@@ -0,0 +1,170 @@
+import java.util.AbstractList;
+import java.util.List;
+/**
+ * Página de um extrato por período, obtida com Conta.extrato ou SistemaBancario.extrato.
+ * A página não copia transações: ela delimita um trecho do jornal da conta e lê cada
+ * transação diretamente das colunas primitivas quando acessada.
+ * Os saldos de abertura e fechamento referem-se ao período consultado como um todo,
+ * e não apenas às transações desta página.
+ */
+public final class PaginaExtrato {
+    public static final long INICIO = 0; // Cursor da primeira página de um período
+    public static final long SEM_PROXIMA = -1; // Cursor devolvido na última página do período
+
+    private final int numeroConta; // Número da conta consultada
+    private final JornalTransacoes jornal; // Jornal de onde as transações são lidas
+    private final int inicio; // Índice, no jornal, da primeira transação da página
+    private final int fim; // Índice, no jornal, logo após a última transação da página
+    private final int totalPeriodo; // Quantidade de transações no período inteiro
+    private final long saldoAbertura; // Saldo no início do período, em centavos
+    private final long saldoFechamento; // Saldo no fim do período, em centavos
+    private final long proximoCursor; // Cursor da página seguinte, ou SEM_PROXIMA
+
+    PaginaExtrato(int numeroConta, JornalTransacoes jornal, int inicio, int fim, int totalPeriodo,
+                  long saldoAbertura, long saldoFechamento, long proximoCursor) {
+        this.numeroConta = numeroConta;
+        this.jornal = jornal;
+        this.inicio = inicio;
+        this.fim = fim;
+        this.totalPeriodo = totalPeriodo;
+        this.saldoAbertura = saldoAbertura;
+        this.saldoFechamento = saldoFechamento;
+        this.proximoCursor = proximoCursor;
+    }
+
+    /**
+     * Retorna o número da conta consultada.
+     * @return O número da conta.
+     */
+    public int getNumeroConta() {
+        return numeroConta;
+    }
+
+    /**
+     * Retorna a quantidade de transações nesta página.
+     * @return O número de transações da página.
+     */
+    public int tamanho() {
+        return fim - inicio;
+    }
+
+    /**
+     * Retorna a quantidade de transações no período inteiro, somando todas as páginas.
+     * @return O número de transações do período.
+     */
+    public int getTotalPeriodo() {
+        return totalPeriodo;
+    }
+
+    /**
+     * Retorna o saldo da conta no início do período, antes da primeira transação dele.
+     * @return O saldo de abertura, em centavos.
+     */
+    public long getSaldoAbertura() {
+        return saldoAbertura;
+    }
+
+    /**
+     * Retorna o saldo da conta no fim do período, após a última transação dele.
+     * @return O saldo de fechamento, em centavos.
+     */
+    public long getSaldoFechamento() {
+        return saldoFechamento;
+    }
+
+    /**
+     * Retorna o cursor a ser informado para obter a página seguinte do mesmo período.
+     * @return O cursor da próxima página, ou SEM_PROXIMA se esta for a última.
+     */
+    public long getProximoCursor() {
+        return proximoCursor;
+    }
+
+    /**
+     * Indica se há mais transações no período depois desta página.
+     * @return true se existir uma página seguinte.
+     */
+    public boolean temProxima() {
+        return proximoCursor != SEM_PROXIMA;
+    }
+
+    /**
+     * Retorna o instante de uma transação da página.
+     * @param indice A posição da transação na página.
+     * @return O instante, em milissegundos desde a época.
+     */
+    public long getInstante(int indice) {
+        return jornal.getInstante(posicao(indice));
+    }
+
+    /**
+     * Retorna o tipo de uma transação da página.
+     * @param indice A posição da transação na página.
+     * @return O tipo da transação, uma das constantes de JornalTransacoes.
+     */
+    public byte getTipo(int indice) {
+        return jornal.getTipo(posicao(indice));
+    }
+
+    /**
+     * Retorna o valor de uma transação da página.
+     * @param indice A posição da transação na página.
+     * @return A variação do saldo, em centavos.
+     */
+    public long getValor(int indice) {
+        return jornal.getValor(posicao(indice));
+    }
+
+    /**
+     * Retorna o saldo da conta logo após uma transação da página.
+     * @param indice A posição da transação na página.
+     * @return O saldo resultante, em centavos.
+     */
+    public long getSaldo(int indice) {
+        return jornal.getSaldo(posicao(indice));
+    }
+
+    /**
+     * Monta a linha de extrato de uma transação da página.
+     * @param indice A posição da transação na página.
+     * @return O texto da transação.
+     */
+    public String formatar(int indice) {
+        return jornal.formatar(posicao(indice));
+    }
+
+    /**
+     * Fornece as transações da página como lista somente leitura de linhas de extrato,
+     * formatadas apenas quando acessadas.
+     * @return Uma lista imutável com o texto das transações da página.
+     */
+    public List<String> linhas() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int indice) {
+                return formatar(indice);
+            }
+
+            @Override
+            public int size() {
+                return tamanho();
+            }
+        };
+    }
+
+    /**
+     * Converte a posição na página para o índice correspondente no jornal.
+     */
+    private int posicao(int indice) {
+        if (indice < 0 || indice >= fim - inicio) {
+            throw new IndexOutOfBoundsException(indice);
+        }
+        return inicio + indice;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Conta %d: %d de %d transações | Abertura: R$ %.2f | Fechamento: R$ %.2f",
+                numeroConta, tamanho(), totalPeriodo, Dinheiro.paraReais(saldoAbertura), Dinheiro.paraReais(saldoFechamento));
+    }
+}
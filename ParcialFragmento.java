@@ -0,0 +1,60 @@
+/**
+ * Agregados de um fragmento, combinados pelo coordenador em um resultado do banco inteiro.
+ * Os vetores são indexados pelo código do tipo de conta (a posição 0 fica zerada).
+ * @param custodia A soma dos saldos por tipo de conta, em centavos.
+ * @param contas A quantidade de contas por tipo.
+ * @param maior O cliente de maior saldo total, ou null se o fragmento não tiver clientes.
+ * @param menor O cliente de menor saldo total, ou null se o fragmento não tiver clientes.
+ */
+public record ParcialFragmento(long[] custodia, long[] contas, ClienteSaldo maior, ClienteSaldo menor) {
+    static final int TIPOS = Persistencia.INVESTIMENTO + 1; // Tamanho dos vetores por tipo de conta
+
+    /**
+     * Cliente com o saldo total de suas contas, independente da instância de Cliente do fragmento.
+     * @param nome O nome do cliente.
+     * @param cpf O CPF do cliente.
+     * @param saldo O saldo total, em centavos.
+     */
+    public record ClienteSaldo(String nome, String cpf, long saldo) {
+    }
+
+    /**
+     * Retorna a classe de conta correspondente a um código de tipo.
+     * @param tipo O código do tipo, de Persistencia.CORRENTE a Persistencia.INVESTIMENTO.
+     * @return A classe da conta.
+     */
+    static Class<? extends Conta> classe(int tipo) {
+        return switch (tipo) {
+            case Persistencia.CORRENTE -> ContaCorrente.class;
+            case Persistencia.POUPANCA -> ContaPoupanca.class;
+            case Persistencia.RENDA_FIXA -> ContaRendaFixa.class;
+            case Persistencia.INVESTIMENTO -> ContaInvestimento.class;
+            default -> throw new IllegalArgumentException("Código de tipo de conta desconhecido: " + tipo);
+        };
+    }
+
+    /**
+     * Cria o resultado vazio, elemento neutro de combinar.
+     * @return Agregados sem contas nem clientes.
+     */
+    static ParcialFragmento vazio() {
+        return new ParcialFragmento(new long[TIPOS], new long[TIPOS], null, null);
+    }
+
+    /**
+     * Combina este resultado com o de outro fragmento. Em empates de saldo prevalece o cliente deste resultado.
+     * @param outro O resultado do outro fragmento.
+     * @return A combinação dos dois.
+     */
+    ParcialFragmento combinar(ParcialFragmento outro) {
+        long[] c = custodia.clone();
+        long[] n = contas.clone();
+        for (int t = 0; t < TIPOS; t++) {
+            c[t] += outro.custodia[t];
+            n[t] += outro.contas[t];
+        }
+        ClienteSaldo mai = maior == null || (outro.maior != null && outro.maior.saldo() > maior.saldo()) ? outro.maior : maior;
+        ClienteSaldo men = menor == null || (outro.menor != null && outro.menor.saldo() < menor.saldo()) ? outro.menor : menor;
+        return new ParcialFragmento(c, n, mai, men);
+    }
+}
@@ -0,0 +1,784 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+/**
+ * Camada de persistência do sistema bancário, composta por um log de operações (write-ahead log)
+ * e por snapshots periódicos gravados por mapeamento em memória.
+ *
+ * Na abertura, o estado é recuperado carregando o snapshot mais recente e reaplicando apenas os
+ * registros do log posteriores a ele. Os snapshots são produzidos sem consultar o estado em uso:
+ * o snapshot anterior é combinado com os segmentos do log já encerrados, de modo que as operações
+ * do banco prosseguem normalmente enquanto o snapshot é gravado.
+ *
+ * O snapshot guarda apenas cadastros, saldos e fechamentos, de modo que o seu tamanho e o tempo de
+ * recuperação acompanham a quantidade de contas. As transações que cada snapshot incorpora do log são
+ * acrescentadas aos arquivos de jornais (ArquivoJornais), e o snapshot guarda, por conta, apenas a
+ * referência ao último bloco gravado: na recuperação, os jornais apontam para esses blocos e só os leem
+ * quando o extrato é consultado. As movimentações posteriores ao snapshot são reconstruídas a partir do log.
+ */
+public class Persistencia implements Closeable {
+    static final byte CORRENTE = 1;     // Código de ContaCorrente no log e nos snapshots
+    static final byte POUPANCA = 2;     // Código de ContaPoupanca
+    static final byte RENDA_FIXA = 3;   // Código de ContaRendaFixa
+    static final byte INVESTIMENTO = 4; // Código de ContaInvestimento
+
+    public static final long TAMANHO_SEGMENTO_PADRAO = 64L << 20;  // 64 MiB por segmento do log
+    public static final int REGISTROS_POR_SINCRONIZACAO_PADRAO = 1; // Sincroniza o disco a cada lote gravado
+    public static final long INTERVALO_SINCRONIZACAO_PADRAO_MS = 10;
+    public static final long INTERVALO_SNAPSHOT_PADRAO_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int MAGICO_SNAPSHOT = 0x58425350; // "XBSP"
+    private static final int VERSAO_SNAPSHOT = 4; // A versão 1 não tinha o fechamento mensal; a 2, o jornal de cada conta; a 3 trazia os jornais inteiros
+    private static final String PREFIXO_SNAPSHOT = "snapshot-";
+    private static final String SUFIXO_SNAPSHOT = ".snap";
+    private static final int TAMANHO_REGISTRO_CONTA = 4 + 1 + 4 + 8 + 8 + 8 + 8 + 8 + 8 + 8 + 4 + 8; // número, tipo, cliente, limite, saldo, fechamento (marca, rendimento, tarifa), jornal (arquivo, posição, transações, último instante)
+
+    private final Path diretorio;       // Diretório do log e dos snapshots
+    private final SistemaBancario banco; // Sistema bancário persistido
+    private final LogOperacoes log;      // Log de operações em uso
+    private final ArquivoJornais jornais; // Histórico de transações incorporado pelos snapshots
+    private final ScheduledExecutorService agendador; // Gera snapshots periódicos, se configurado
+    private final Object travaSnapshot = new Object(); // Impede a gravação simultânea de dois snapshots
+    private final long duracaoRecuperacaoNanos; // Tempo gasto na recuperação
+    private final long contasRecuperadas;      // Contas existentes após a recuperação
+    private final long registrosReaplicados;   // Registros do log reaplicados após o snapshot
+
+    /**
+     * Abre a persistência com a configuração padrão. Veja o construtor completo.
+     * @param diretorio O diretório do log e dos snapshots (criado se não existir).
+     * @param banco Um sistema bancário vazio, que receberá o estado recuperado.
+     * @throws IOException Se o estado gravado não puder ser lido ou o log não puder ser aberto.
+     */
+    public Persistencia(Path diretorio, SistemaBancario banco) throws IOException {
+        this(diretorio, banco, TAMANHO_SEGMENTO_PADRAO, REGISTROS_POR_SINCRONIZACAO_PADRAO,
+                INTERVALO_SINCRONIZACAO_PADRAO_MS, INTERVALO_SNAPSHOT_PADRAO_MS);
+    }
+
+    /**
+     * Recupera o estado gravado no diretório para o sistema bancário informado e passa a registrar
+     * no log todas as operações seguintes.
+     * @param diretorio O diretório do log e dos snapshots (criado se não existir).
+     * @param banco Um sistema bancário vazio, que receberá o estado recuperado.
+     * @param tamanhoSegmento O tamanho máximo de cada segmento do log, em bytes.
+     * @param registrosPorSincronizacao Quantos registros gravar entre sincronizações do disco.
+     * @param intervaloSincronizacaoMs Tempo máximo, em milissegundos, entre a gravação e a sincronização.
+     * @param intervaloSnapshotMs Intervalo entre snapshots automáticos, em milissegundos (0 desativa).
+     * @throws IOException Se o estado gravado não puder ser lido ou o log não puder ser aberto.
+     */
+    public Persistencia(Path diretorio, SistemaBancario banco, long tamanhoSegmento, int registrosPorSincronizacao,
+                        long intervaloSincronizacaoMs, long intervaloSnapshotMs) throws IOException {
+        this.diretorio = diretorio;
+        this.banco = banco;
+        long inicio = System.nanoTime();
+        Files.createDirectories(diretorio);
+        Path snapshot = limparSnapshotsAntigos();
+        this.jornais = new ArquivoJornais(diretorio, snapshot == null ? -1 : sequenciaDoSnapshot(snapshot));
+        long ultimaSequencia = 0;
+        if (snapshot != null) {
+            ultimaSequencia = carregarSnapshot(snapshot);
+        }
+        Reaplicador reaplicador = new Reaplicador(banco);
+        long sequenciaSnapshot = ultimaSequencia;
+        List<Path> segmentos = LogOperacoes.listarSegmentos(diretorio);
+        for (int i = 0; i < segmentos.size(); i++) {
+            ultimaSequencia = Math.max(ultimaSequencia,
+                    LogOperacoes.ler(segmentos.get(i), sequenciaSnapshot, i == segmentos.size() - 1, reaplicador));
+        }
+        this.log = new LogOperacoes(diretorio, ultimaSequencia + 1, tamanhoSegmento,
+                registrosPorSincronizacao, intervaloSincronizacaoMs);
+        banco.ativarLog(log);
+        this.registrosReaplicados = reaplicador.registros;
+        this.contasRecuperadas = banco.getQuantidadeContas();
+        this.duracaoRecuperacaoNanos = System.nanoTime() - inicio;
+        if (intervaloSnapshotMs > 0) {
+            agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            agendador.scheduleWithFixedDelay(this::snapshotAgendado, intervaloSnapshotMs, intervaloSnapshotMs, TimeUnit.MILLISECONDS);
+        } else {
+            agendador = null;
+        }
+    }
+
+    /**
+     * Retorna o código persistido de um tipo de conta.
+     * @param conta A conta.
+     * @return O código do tipo concreto da conta.
+     */
+    static byte codigoTipo(Conta conta) {
+        if (conta instanceof ContaCorrente) {
+            return CORRENTE;
+        } else if (conta instanceof ContaPoupanca) {
+            return POUPANCA;
+        } else if (conta instanceof ContaRendaFixa) {
+            return RENDA_FIXA;
+        } else if (conta instanceof ContaInvestimento) {
+            return INVESTIMENTO;
+        }
+        throw new IllegalArgumentException("Tipo de conta sem persistência: " + conta.getClass().getName());
+    }
+
+    /**
+     * Cria uma conta do tipo correspondente ao código persistido.
+     */
+    static Conta criarConta(byte tipo, int numero, Cliente cliente, long limite) throws IOException {
+        return switch (tipo) {
+            case CORRENTE -> new ContaCorrente(numero, cliente, Dinheiro.paraReais(limite));
+            case POUPANCA -> new ContaPoupanca(numero, cliente);
+            case RENDA_FIXA -> new ContaRendaFixa(numero, cliente);
+            case INVESTIMENTO -> new ContaInvestimento(numero, cliente);
+            default -> throw new IOException("Código de tipo de conta desconhecido: " + tipo);
+        };
+    }
+
+    /**
+     * Grava um novo snapshot: encerra o segmento ativo do log, combina o snapshot anterior com os
+     * segmentos encerrados, acrescenta as transações desses segmentos aos arquivos de jornais e, após
+     * gravar o resultado, descarta os arquivos que ele substitui. Só as transações dos segmentos
+     * incorporados ficam em memória durante a gravação. As operações do banco não são bloqueadas.
+     * @throws IOException Se o snapshot não puder ser gravado.
+     */
+    public void criarSnapshot() throws IOException {
+        synchronized (travaSnapshot) {
+            long limite = log.rotacionar(); // Registros anteriores a esta sequência estão em segmentos encerrados
+            Path anterior = limparSnapshotsAntigos();
+            Estado estado = new Estado();
+            long sequenciaAnterior = anterior == null ? 0 : lerSnapshot(anterior, estado);
+            List<Path> incorporados = new ArrayList<>();
+            for (Path segmento : LogOperacoes.listarSegmentos(diretorio)) {
+                if (LogOperacoes.sequenciaDoSegmento(segmento) < limite) {
+                    LogOperacoes.ler(segmento, sequenciaAnterior, false, estado);
+                    incorporados.add(segmento);
+                }
+            }
+            Path novo = diretorio.resolve(String.format("%s%020d%s", PREFIXO_SNAPSHOT, limite - 1, SUFIXO_SNAPSHOT));
+            if (novo.equals(anterior)) {
+                return; // Nenhum registro desde o último snapshot
+            }
+            gravarJornais(limite - 1, estado);
+            gravarSnapshot(novo, limite - 1, estado);
+            if (anterior != null) {
+                Files.deleteIfExists(anterior);
+            }
+            for (Path segmento : incorporados) {
+                Files.deleteIfExists(segmento);
+            }
+        }
+    }
+
+    private void snapshotAgendado() {
+        try {
+            criarSnapshot();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Falha ao gravar snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Bloqueia até que todas as operações realizadas até agora estejam sincronizadas no disco.
+     * @throws IOException Se a gravação do log falhou.
+     */
+    public void sincronizar() throws IOException {
+        log.sincronizar();
+    }
+
+    /**
+     * Grava um snapshot final, sincroniza o log e o encerra. Operações posteriores deixam de ser persistidas,
+     * e as transações recuperadas dos arquivos de jornais deixam de poder ser lidas.
+     * @throws IOException Se a gravação final falhar.
+     */
+    @Override
+    public void close() throws IOException {
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+        try {
+            criarSnapshot();
+        } finally {
+            banco.ativarLog(null);
+            try {
+                log.close();
+            } finally {
+                jornais.close();
+            }
+        }
+    }
+
+    /**
+     * Retorna o tempo gasto na recuperação do estado durante a abertura.
+     * @return A duração, em nanossegundos.
+     */
+    public long getDuracaoRecuperacaoNanos() {
+        return duracaoRecuperacaoNanos;
+    }
+
+    /**
+     * Retorna a quantidade de contas existentes após a recuperação.
+     * @return O número de contas.
+     */
+    public long getContasRecuperadas() {
+        return contasRecuperadas;
+    }
+
+    /**
+     * Retorna a quantidade de registros do log reaplicados após o snapshot.
+     * @return O número de registros.
+     */
+    public long getRegistrosReaplicados() {
+        return registrosReaplicados;
+    }
+
+    /**
+     * Descreve a recuperação realizada na abertura.
+     * @return Um resumo com contas recuperadas, registros reaplicados e duração.
+     */
+    public String resumoRecuperacao() {
+        return String.format("%d contas recuperadas | %d registros do log reaplicados | %.3f s",
+                contasRecuperadas, registrosReaplicados, duracaoRecuperacaoNanos / 1e9);
+    }
+
+    /**
+     * Remove arquivos temporários e snapshots substituídos, que podem restar de uma queda durante a gravação.
+     * @return O snapshot mais recente, ou null se não houver.
+     */
+    private Path limparSnapshotsAntigos() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(diretorio, PREFIXO_SNAPSHOT + "*")) {
+            for (Path p : ds) {
+                if (p.getFileName().toString().endsWith(SUFIXO_SNAPSHOT)) {
+                    snapshots.add(p);
+                } else {
+                    Files.deleteIfExists(p); // Snapshot temporário incompleto
+                }
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return null;
+        }
+        snapshots.sort(null);
+        for (int i = 0; i < snapshots.size() - 1; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        return snapshots.get(snapshots.size() - 1);
+    }
+
+    /**
+     * Carrega um snapshot diretamente no sistema bancário.
+     * @return A sequência do último registro do log incorporado ao snapshot.
+     */
+    private long carregarSnapshot(Path arquivo) throws IOException {
+        Estado estado = new Estado();
+        long sequencia = lerSnapshot(arquivo, estado);
+        Cliente[] clientes = new Cliente[estado.quantidadeClientes];
+        for (int i = 0; i < clientes.length; i++) {
+            clientes[i] = new Cliente(estado.nome(i), estado.cpf(i));
+            banco.adicionarCliente(clientes[i]);
+        }
+        for (int i = 0; i < estado.quantidadeContas; i++) {
+            if (!estado.removida[i]) {
+                Cliente titular = clientes[estado.clientes[i]];
+                Conta conta = criarConta(estado.tipos[i], estado.numeros[i], titular, estado.limites[i]);
+                titular.adicionarConta(conta);
+                JornalTransacoes jornal = conta.getJornal(); // Já vinculado à camada fria, se houver
+                if (estado.transacoesJornal[i] > 0) {
+                    jornal.restaurarAnteriores(jornais.historico(estado.numeros[i], estado.arquivosJornal[i],
+                            estado.posicoesJornal[i], estado.transacoesJornal[i], estado.ultimosInstantes[i]));
+                }
+                Lancamentos l = estado.lancamentos[i];
+                if (l != null) { // Apenas em snapshots da versão 3, que traziam os jornais inteiros
+                    for (int j = 0; j < l.tamanho; j++) {
+                        jornal.registrar(l.instantes[j], l.tipos[j], l.valores[j], l.saldos[j]);
+                    }
+                }
+                conta.restaurarSaldo(estado.saldos[i]);
+                conta.restaurarFechamento(estado.fechamentos[i]);
+            }
+        }
+        return sequencia;
+    }
+
+    /**
+     * Lê um snapshot por mapeamento em memória, verificando o CRC, e preenche o estado informado.
+     * @return A sequência do último registro do log incorporado ao snapshot.
+     */
+    private static long lerSnapshot(Path arquivo, Estado estado) throws IOException {
+        try (FileChannel fc = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = fc.size();
+            if (tamanho < 28 || tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot com tamanho inválido: " + arquivo);
+            }
+            MappedByteBuffer b = fc.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            CRC32 crc = new CRC32();
+            crc.update(b.slice(0, (int) tamanho - 4));
+            if ((int) crc.getValue() != b.getInt((int) tamanho - 4)) {
+                throw new IOException("Snapshot corrompido (CRC inválido): " + arquivo);
+            }
+            int versao;
+            if (b.getInt() != MAGICO_SNAPSHOT || (versao = b.getInt()) < 1 || versao > VERSAO_SNAPSHOT) {
+                throw new IOException("Formato de snapshot não reconhecido: " + arquivo);
+            }
+            long sequencia = b.getLong();
+            int quantidadeClientes = b.getInt();
+            int quantidadeContas = b.getInt();
+            for (int i = 0; i < quantidadeClientes; i++) {
+                estado.adicionarCliente(lerBytes(b), lerBytes(b));
+            }
+            estado.reservarContas(quantidadeContas);
+            for (int i = 0; i < quantidadeContas; i++) {
+                int numero = b.getInt();
+                byte tipo = b.get();
+                int cliente = b.getInt();
+                estado.adicionarConta(numero, tipo, cliente, b.getLong(), b.getLong());
+                if (versao >= 2) {
+                    long marca = b.getLong();
+                    long rendimento = b.getLong();
+                    long tarifa = b.getLong();
+                    if (marca != 0) {
+                        estado.fechamentos[estado.quantidadeContas - 1] = new FechamentoMensal.SituacaoConta(marca, rendimento, tarifa);
+                    }
+                }
+                if (versao >= 4) {
+                    int c = estado.quantidadeContas - 1;
+                    estado.arquivosJornal[c] = b.getLong();
+                    estado.posicoesJornal[c] = b.getLong();
+                    estado.transacoesJornal[c] = b.getInt();
+                    estado.ultimosInstantes[c] = b.getLong();
+                } else if (versao == 3) {
+                    int transacoes = b.getInt();
+                    if (transacoes > 0) {
+                        Lancamentos l = new Lancamentos(transacoes);
+                        for (int j = 0; j < transacoes; j++) {
+                            l.adicionar(b.getLong(), b.get(), b.getLong(), b.getLong());
+                        }
+                        estado.lancamentos[estado.quantidadeContas - 1] = l; // Gravadas nos arquivos de jornais pelo próximo snapshot
+                        estado.ultimosInstantes[estado.quantidadeContas - 1] = l.instantes[l.tamanho - 1];
+                    }
+                }
+            }
+            return sequencia;
+        }
+    }
+
+    /**
+     * Acrescenta aos arquivos de jornais, em um arquivo novo, as transações que o estado incorporou do log,
+     * e atualiza no estado a referência ao último bloco de cada conta. O arquivo é sincronizado antes da
+     * gravação do snapshot que o referencia.
+     */
+    private void gravarJornais(long sequencia, Estado estado) throws IOException {
+        boolean pendentes = false;
+        for (int i = 0; i < estado.quantidadeContas && !pendentes; i++) {
+            pendentes = !estado.removida[i] && estado.lancamentos[i] != null;
+        }
+        if (!pendentes) {
+            return;
+        }
+        try (ArquivoJornais.Gravacao gravacao = jornais.gravar(sequencia)) {
+            for (int i = 0; i < estado.quantidadeContas; i++) {
+                Lancamentos l = estado.lancamentos[i];
+                if (estado.removida[i] || l == null) {
+                    continue;
+                }
+                for (int de = 0; de < l.tamanho; de += ArquivoJornais.TRANSACOES_POR_BLOCO) {
+                    int ate = Math.min(l.tamanho, de + ArquivoJornais.TRANSACOES_POR_BLOCO);
+                    estado.posicoesJornal[i] = gravacao.bloco(estado.numeros[i], estado.arquivosJornal[i], estado.posicoesJornal[i],
+                            l.instantes, l.tipos, l.valores, l.saldos, de, ate);
+                    estado.arquivosJornal[i] = gravacao.identificador();
+                }
+                estado.transacoesJornal[i] += l.tamanho;
+                estado.lancamentos[i] = null;
+            }
+            gravacao.concluir();
+        }
+    }
+
+    /**
+     * Grava o estado em um arquivo temporário mapeado em memória, sincroniza-o e o renomeia
+     * atomicamente para o nome definitivo, de modo que um snapshot visível está sempre completo.
+     * Os jornais já devem ter sido gravados por gravarJornais.
+     */
+    private static void gravarSnapshot(Path destino, long sequencia, Estado estado) throws IOException {
+        long tamanho = 4 + 4 + 8 + 4 + 4 + 4;
+        int contasAtivas = 0;
+        for (int i = 0; i < estado.quantidadeClientes; i++) {
+            tamanho += 4 + estado.cpfs.get(i).length + estado.nomes.get(i).length;
+        }
+        for (int i = 0; i < estado.quantidadeContas; i++) {
+            if (!estado.removida[i]) {
+                contasAtivas++;
+            }
+        }
+        tamanho += (long) contasAtivas * TAMANHO_REGISTRO_CONTA;
+        if (tamanho > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot excede o tamanho máximo de um mapeamento: " + tamanho + " bytes");
+        }
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileChannel fc = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer b = fc.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+            b.putInt(MAGICO_SNAPSHOT).putInt(VERSAO_SNAPSHOT).putLong(sequencia);
+            b.putInt(estado.quantidadeClientes).putInt(contasAtivas);
+            for (int i = 0; i < estado.quantidadeClientes; i++) {
+                byte[] cpf = estado.cpfs.get(i);
+                byte[] nome = estado.nomes.get(i);
+                b.putShort((short) cpf.length).put(cpf);
+                b.putShort((short) nome.length).put(nome);
+            }
+            for (int i = 0; i < estado.quantidadeContas; i++) {
+                if (!estado.removida[i]) {
+                    b.putInt(estado.numeros[i]).put(estado.tipos[i]).putInt(estado.clientes[i]);
+                    b.putLong(estado.limites[i]).putLong(estado.saldos[i]);
+                    FechamentoMensal.SituacaoConta f = estado.fechamentos[i];
+                    if (f == null) {
+                        b.putLong(0).putLong(0).putLong(0);
+                    } else {
+                        b.putLong(f.marca()).putLong(f.rendimento()).putLong(f.tarifa());
+                    }
+                    b.putLong(estado.arquivosJornal[i]).putLong(estado.posicoesJornal[i]);
+                    b.putInt(estado.transacoesJornal[i]).putLong(estado.ultimosInstantes[i]);
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(b.slice(0, b.position()));
+            b.putInt((int) crc.getValue());
+            b.force();
+        }
+        Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Retorna a sequência do último registro do log incorporado a um snapshot, indicada no nome do arquivo.
+     */
+    private static long sequenciaDoSnapshot(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        return Long.parseLong(nome.substring(PREFIXO_SNAPSHOT.length(), nome.length() - SUFIXO_SNAPSHOT.length()));
+    }
+
+    private static byte[] lerBytes(ByteBuffer b) {
+        byte[] bytes = new byte[b.getShort() & 0xFFFF];
+        b.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reaplica registros do log diretamente no sistema bancário durante a recuperação.
+     * Movimentações de contas inexistentes (removidas logo após a operação) são ignoradas.
+     */
+    private static final class Reaplicador implements LogOperacoes.Leitor {
+        private final SistemaBancario banco;
+        private long registros; // Registros reaplicados
+
+        Reaplicador(SistemaBancario banco) {
+            this.banco = banco;
+        }
+
+        @Override
+        public void cliente(long sequencia, String cpf, String nome) {
+            banco.adicionarCliente(new Cliente(nome, cpf));
+            registros++;
+        }
+
+        @Override
+        public void conta(long sequencia, int numero, byte tipoConta, String cpf, long limite, long saldo) {
+            Cliente titular = banco.buscarCliente(cpf);
+            if (titular != null) {
+                try {
+                    Conta conta = criarConta(tipoConta, numero, titular, limite);
+                    titular.adicionarConta(conta);
+                    conta.restaurarSaldo(saldo);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }
+            registros++;
+        }
+
+        @Override
+        public void movimento(long sequencia, int numero, byte tipo, long variacao, long instante) {
+            Conta conta = banco.buscarConta(numero);
+            if (conta != null) {
+                conta.reaplicarMovimento(tipo, variacao, instante);
+            }
+            registros++;
+        }
+
+        @Override
+        public void remocao(long sequencia, int numero) {
+            Conta conta = banco.buscarConta(numero);
+            if (conta != null) {
+                conta.getCliente().removerConta(numero);
+            }
+            registros++;
+        }
+
+        @Override
+        public void transferencia(long sequencia, int origem, long variacaoOrigem, int destino, long variacaoDestino, long instante) {
+            Conta conta = banco.buscarConta(origem);
+            if (conta != null) {
+                conta.reaplicarMovimento(JornalTransacoes.TRANSFERENCIA_ENVIADA, variacaoOrigem, instante);
+            }
+            conta = banco.buscarConta(destino);
+            if (conta != null) {
+                conta.reaplicarMovimento(JornalTransacoes.TRANSFERENCIA_RECEBIDA, variacaoDestino, instante);
+            }
+            registros++;
+        }
+
+        @Override
+        public void fechamento(long sequencia, int numero, long marca, byte tipo, long variacao, long instante) {
+            Conta conta = banco.buscarConta(numero);
+            if (conta != null) {
+                conta.reaplicarFechamento(marca, tipo, variacao, instante);
+            }
+            registros++;
+        }
+    }
+
+    /**
+     * Estado compacto usado para combinar um snapshot com os segmentos do log, sem instanciar
+     * clientes e contas. As contas ficam em vetores paralelos, na ordem de abertura.
+     */
+    private static final class Estado implements LogOperacoes.Leitor {
+        private final List<byte[]> cpfs = new ArrayList<>();  // CPF de cada cliente, em UTF-8
+        private final List<byte[]> nomes = new ArrayList<>(); // Nome de cada cliente, em UTF-8
+        private final Map<String, Integer> indiceCpf = new HashMap<>(); // Posição de cada cliente pelo CPF
+        private int quantidadeClientes;
+        private int[] numeros = new int[16];
+        private byte[] tipos = new byte[16];
+        private int[] clientes = new int[16]; // Posição do titular em cpfs/nomes
+        private long[] limites = new long[16];
+        private long[] saldos = new long[16];
+        private boolean[] removida = new boolean[16];
+        private FechamentoMensal.SituacaoConta[] fechamentos = new FechamentoMensal.SituacaoConta[16]; // Último lançamento do fechamento mensal, ou null
+        private Lancamentos[] lancamentos = new Lancamentos[16]; // Transações incorporadas do log e ainda não gravadas nos jornais, ou null
+        private long[] arquivosJornal = new long[16];  // Arquivo de jornais do último bloco gravado de cada conta
+        private long[] posicoesJornal = new long[16];  // Posição desse bloco, ou 0 se a conta não tiver blocos
+        private int[] transacoesJornal = new int[16];  // Transações gravadas nos blocos de cada conta
+        private long[] ultimosInstantes = new long[16]; // Instante da última transação de cada conta
+        private int quantidadeContas;
+        private final PosicoesContas posicoes = new PosicoesContas(); // Posição de cada conta pelo número
+
+        String cpf(int i) {
+            return new String(cpfs.get(i), StandardCharsets.UTF_8);
+        }
+
+        String nome(int i) {
+            return new String(nomes.get(i), StandardCharsets.UTF_8);
+        }
+
+        void adicionarCliente(byte[] cpf, byte[] nome) {
+            String chave = new String(cpf, StandardCharsets.UTF_8);
+            if (indiceCpf.putIfAbsent(chave, quantidadeClientes) == null) {
+                cpfs.add(cpf);
+                nomes.add(nome);
+                quantidadeClientes++;
+            }
+        }
+
+        void reservarContas(int quantidade) {
+            if (quantidade > numeros.length) {
+                redimensionar(quantidade);
+            }
+        }
+
+        void adicionarConta(int numero, byte tipo, int cliente, long limite, long saldo) {
+            if (quantidadeContas == numeros.length) {
+                redimensionar(numeros.length * 2);
+            }
+            int i = quantidadeContas++;
+            numeros[i] = numero;
+            tipos[i] = tipo;
+            clientes[i] = cliente;
+            limites[i] = limite;
+            saldos[i] = saldo;
+            posicoes.definir(numero, i);
+        }
+
+        private void redimensionar(int capacidade) {
+            numeros = Arrays.copyOf(numeros, capacidade);
+            tipos = Arrays.copyOf(tipos, capacidade);
+            clientes = Arrays.copyOf(clientes, capacidade);
+            limites = Arrays.copyOf(limites, capacidade);
+            saldos = Arrays.copyOf(saldos, capacidade);
+            removida = Arrays.copyOf(removida, capacidade);
+            fechamentos = Arrays.copyOf(fechamentos, capacidade);
+            lancamentos = Arrays.copyOf(lancamentos, capacidade);
+            arquivosJornal = Arrays.copyOf(arquivosJornal, capacidade);
+            posicoesJornal = Arrays.copyOf(posicoesJornal, capacidade);
+            transacoesJornal = Arrays.copyOf(transacoesJornal, capacidade);
+            ultimosInstantes = Arrays.copyOf(ultimosInstantes, capacidade);
+        }
+
+        private void lancar(int i, byte tipo, long variacao, long instante) {
+            saldos[i] += variacao;
+            if (lancamentos[i] == null) {
+                lancamentos[i] = new Lancamentos(4);
+            }
+            instante = Math.max(instante, ultimosInstantes[i]); // Mantém a ordem cronológica, como JornalTransacoes.registrar
+            ultimosInstantes[i] = instante;
+            lancamentos[i].adicionar(instante, tipo, variacao, saldos[i]);
+        }
+
+        @Override
+        public void cliente(long sequencia, String cpf, String nome) {
+            adicionarCliente(cpf.getBytes(StandardCharsets.UTF_8), nome.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void conta(long sequencia, int numero, byte tipoConta, String cpf, long limite, long saldo) {
+            Integer cliente = indiceCpf.get(cpf);
+            if (cliente != null) {
+                adicionarConta(numero, tipoConta, cliente, limite, saldo);
+            }
+        }
+
+        @Override
+        public void movimento(long sequencia, int numero, byte tipo, long variacao, long instante) {
+            int i = posicoes.buscar(numero);
+            if (i >= 0) {
+                lancar(i, tipo, variacao, instante);
+            }
+        }
+
+        @Override
+        public void remocao(long sequencia, int numero) {
+            int i = posicoes.buscar(numero);
+            if (i >= 0) {
+                removida[i] = true;
+                posicoes.definir(numero, -1);
+            }
+        }
+
+        @Override
+        public void transferencia(long sequencia, int origem, long variacaoOrigem, int destino, long variacaoDestino, long instante) {
+            movimento(sequencia, origem, JornalTransacoes.TRANSFERENCIA_ENVIADA, variacaoOrigem, instante);
+            movimento(sequencia, destino, JornalTransacoes.TRANSFERENCIA_RECEBIDA, variacaoDestino, instante);
+        }
+
+        @Override
+        public void fechamento(long sequencia, int numero, long marca, byte tipo, long variacao, long instante) {
+            int i = posicoes.buscar(numero);
+            if (i >= 0) {
+                if (variacao != 0) {
+                    lancar(i, tipo, variacao, instante); // Como em Conta.reaplicarFechamento
+                }
+                fechamentos[i] = FechamentoMensal.SituacaoConta.apos(fechamentos[i], marca, variacao);
+            }
+        }
+    }
+
+    /**
+     * Transações de uma conta incorporadas do log e ainda não gravadas nos jornais, em vetores paralelos na ordem de registro.
+     */
+    private static final class Lancamentos {
+        private long[] instantes;
+        private byte[] tipos;
+        private long[] valores;
+        private long[] saldos; // Saldo após cada transação
+        private int tamanho;
+
+        Lancamentos(int capacidade) {
+            instantes = new long[capacidade];
+            tipos = new byte[capacidade];
+            valores = new long[capacidade];
+            saldos = new long[capacidade];
+        }
+
+        void adicionar(long instante, byte tipo, long valor, long saldo) {
+            if (tamanho == instantes.length) {
+                int capacidade = Math.max(4, tamanho * 2);
+                instantes = Arrays.copyOf(instantes, capacidade);
+                tipos = Arrays.copyOf(tipos, capacidade);
+                valores = Arrays.copyOf(valores, capacidade);
+                saldos = Arrays.copyOf(saldos, capacidade);
+            }
+            instantes[tamanho] = instante;
+            tipos[tamanho] = tipo;
+            valores[tamanho] = valor;
+            saldos[tamanho] = saldo;
+            tamanho++;
+        }
+    }
+
+    /**
+     * Mapa de número de conta para posição nos vetores do estado, com endereçamento aberto e
+     * sondagem linear sobre vetores de int. Posições removidas são marcadas com -1, sem retirar a chave.
+     */
+    private static final class PosicoesContas {
+        private int[] chaves = new int[32];
+        private int[] valores = new int[32];
+        private boolean[] ocupadas = new boolean[32];
+        private int tamanho;
+
+        int buscar(int numero) {
+            int mascara = chaves.length - 1;
+            for (int i = posicao(numero, mascara); ocupadas[i]; i = (i + 1) & mascara) {
+                if (chaves[i] == numero) {
+                    return valores[i];
+                }
+            }
+            return -1;
+        }
+
+        void definir(int numero, int valor) {
+            int mascara = chaves.length - 1;
+            int i = posicao(numero, mascara);
+            for (; ocupadas[i]; i = (i + 1) & mascara) {
+                if (chaves[i] == numero) {
+                    valores[i] = valor;
+                    return;
+                }
+            }
+            ocupadas[i] = true;
+            chaves[i] = numero;
+            valores[i] = valor;
+            if (++tamanho * 2 > chaves.length) {
+                redimensionar();
+            }
+        }
+
+        private void redimensionar() {
+            int[] chavesAntigas = chaves;
+            int[] valoresAntigos = valores;
+            boolean[] ocupadasAntigas = ocupadas;
+            chaves = new int[chavesAntigas.length * 2];
+            valores = new int[chaves.length];
+            ocupadas = new boolean[chaves.length];
+            int mascara = chaves.length - 1;
+            for (int j = 0; j < chavesAntigas.length; j++) {
+                if (ocupadasAntigas[j]) {
+                    int i = posicao(chavesAntigas[j], mascara);
+                    while (ocupadas[i]) {
+                        i = (i + 1) & mascara;
+                    }
+                    ocupadas[i] = true;
+                    chaves[i] = chavesAntigas[j];
+                    valores[i] = valoresAntigos[j];
+                }
+            }
+        }
+
+        private static int posicao(int numero, int mascara) {
+            int h = numero * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mascara;
+        }
+    }
+}
@@ -0,0 +1,651 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+/**
+ * Processamento em lote de arquivos de movimentações (modo não interativo), usado por
+ * "Main --batch arquivo.csv".
+ *
+ * Cada linha do arquivo tem o formato "conta,operação,valor", com operação D ou DEPOSITO (depósito),
+ * S ou SAQUE (saque) ou R ou RENDIMENTO (rendimento, sem valor), em maiúsculas ou minúsculas, e valor
+ * em reais com ponto decimal; qualquer outra operação, ou um rendimento com valor, é rejeitada como
+ * formato inválido. ';' também é aceito
+ * como separador e uma linha de cabeçalho é ignorada. Um quarto campo opcional traz o identificador da
+ * operação: um registro com identificador já aplicado recentemente no sistema bancário (por exemplo,
+ * ao reenviar um arquivo ao mesmo processo) repete o resultado original sem aplicar a operação de novo,
+ * e um identificador já usado com outra conta, operação ou valor é rejeitado. Os identificadores ficam
+ * apenas em memória (veja CacheIdempotencia): reprocessar o arquivo depois de um reinício aplica as
+ * operações novamente. O arquivo é lido em blocos por um FileChannel
+ * e interpretado diretamente sobre os bytes, sem Scanner nem expressões regulares. Os registros são
+ * distribuídos em partições pelo número da conta e cada partição é aplicada por uma thread própria,
+ * de modo que as movimentações de uma mesma conta são aplicadas na ordem do arquivo.
+ *
+ * São gerados dois arquivos: o de resultados, com o saldo após cada operação aplicada, e o de
+ * rejeições, com o motivo de cada registro não aplicado. As linhas de cada arquivo trazem o número
+ * da linha de origem, mas partições diferentes podem intercalá-las fora de ordem. Com persistência
+ * ativa, cada bloco de resultados só é gravado depois que o log das operações correspondentes foi
+ * sincronizado com o disco, de modo que um resultado presente no arquivo nunca se perde numa queda.
+ */
+public class ProcessadorLote {
+    static final byte DEPOSITO = 'D';   // Operação de depósito
+    static final byte SAQUE = 'S';      // Operação de saque
+    static final byte RENDIMENTO = 'R'; // Aplicação de rendimento
+
+    private static final int TAMANHO_LOTE = 4096;       // Registros por lote entregue a uma partição
+    private static final int LOTES_EM_ESPERA = 8;       // Lotes aguardando em cada partição antes de o leitor esperar
+    private static final int TAMANHO_LEITURA = 1 << 20; // Bytes lidos do arquivo por vez (limita o tamanho da linha)
+    private static final int TAMANHO_SAIDA = 1 << 16;   // Bytes acumulados por thread antes de gravar no arquivo
+    private static final long LIMITE_REAIS = (Long.MAX_VALUE - 99) / 100; // Maior parte inteira cujo valor em centavos cabe em um long
+    private static final int TAMANHO_MENSAGEM_ERRO = 128; // Caracteres do motivo de um erro inesperado (até 3 bytes cada), dentro da folga da saída
+
+    private static final byte[][] NOMES_OPERACOES = {bytes("DEPOSITO"), bytes("SAQUE"), bytes("RENDIMENTO")}; // Formas por extenso aceitas
+
+    private static final byte[] CABECALHO_RESULTADOS = bytes("linha,conta,operacao,valor,saldo\n");
+    private static final byte[] CABECALHO_REJEICOES = bytes("linha,conta,operacao,valor,motivo\n");
+    private static final byte[] MOTIVO_CONTA_INEXISTENTE = bytes("conta inexistente");
+    private static final byte[] MOTIVO_SALDO_INSUFICIENTE = bytes("saldo insuficiente");
+    private static final byte[] MOTIVO_CONTA_NAO_RENTAVEL = bytes("conta não rentável");
+    private static final byte[] MOTIVO_IDENTIFICADOR_REUTILIZADO = bytes("identificador de operação já usado em outra requisição");
+
+    private final SistemaBancario banco; // Sistema bancário em que as operações são aplicadas
+    private final int particoes;        // Quantidade de partições (e de threads de aplicação)
+
+    /**
+     * Resultado do processamento de um arquivo.
+     * @param registros Registros lidos (linhas não vazias, sem o cabeçalho).
+     * @param aplicados Registros aplicados com sucesso.
+     * @param rejeitados Registros rejeitados por formato inválido ou regra de negócio.
+     * @param duracaoNanos Duração do processamento, em nanossegundos.
+     */
+    public record Resumo(long registros, long aplicados, long rejeitados, long duracaoNanos) {
+        /**
+         * Calcula a vazão do processamento.
+         * @return Registros processados por segundo.
+         */
+        public double registrosPorSegundo() {
+            return duracaoNanos == 0 ? 0 : registros * 1e9 / duracaoNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d registros | %d aplicados | %d rejeitados | %.3f s | %.0f registros/s",
+                    registros, aplicados, rejeitados, duracaoNanos / 1e9, registrosPorSegundo());
+        }
+    }
+
+    /**
+     * Constrói um processador com uma partição por processador disponível.
+     * @param banco O sistema bancário em que as operações são aplicadas.
+     */
+    public ProcessadorLote(SistemaBancario banco) {
+        this(banco, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constrói um processador com a quantidade de partições informada.
+     * @param banco O sistema bancário em que as operações são aplicadas.
+     * @param particoes A quantidade de partições aplicadas em paralelo.
+     */
+    public ProcessadorLote(SistemaBancario banco, int particoes) {
+        this.banco = banco;
+        this.particoes = Math.max(1, particoes);
+    }
+
+    /**
+     * Processa um arquivo de movimentações, gravando os arquivos de resultados e de rejeições.
+     * @param entrada O arquivo de movimentações.
+     * @param resultados O arquivo de resultados (sobrescrito).
+     * @param rejeicoes O arquivo de rejeições (sobrescrito).
+     * @return O resumo do processamento.
+     * @throws IOException Se algum arquivo não puder ser lido ou gravado.
+     */
+    public Resumo processar(Path entrada, Path resultados, Path rejeicoes) throws IOException {
+        long inicio = System.nanoTime();
+        try (FileChannel leitura = FileChannel.open(entrada, StandardOpenOption.READ);
+             FileChannel canalResultados = abrirSaida(resultados, CABECALHO_RESULTADOS);
+             FileChannel canalRejeicoes = abrirSaida(rejeicoes, CABECALHO_REJEICOES)) {
+            Queue<Lote> livres = new ConcurrentLinkedQueue<>();
+            Particao[] particao = new Particao[particoes];
+            Thread[] threads = new Thread[particoes];
+            for (int p = 0; p < particoes; p++) {
+                particao[p] = new Particao(livres, new Saida(canalResultados, banco), new Saida(canalRejeicoes, null));
+                threads[p] = new Thread(particao[p], "lote-" + p);
+                threads[p].start();
+            }
+            Leitor leitor = new Leitor(particao, livres, new Saida(canalRejeicoes, null));
+            try {
+                leitor.ler(leitura);
+            } finally {
+                leitor.encerrar(threads);
+            }
+            long aplicados = 0;
+            long rejeitados = leitor.rejeitados;
+            for (Particao p : particao) {
+                if (p.falha != null) {
+                    throw new IOException("Falha na gravação dos resultados.", p.falha);
+                }
+                aplicados += p.aplicados;
+                rejeitados += p.rejeitados;
+            }
+            return new Resumo(leitor.registros, aplicados, rejeitados, System.nanoTime() - inicio);
+        }
+    }
+
+    private static FileChannel abrirSaida(Path arquivo, byte[] cabecalho) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        canal.write(ByteBuffer.wrap(cabecalho));
+        return canal;
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Descreve um erro inesperado para a coluna de motivo, em uma única linha e limitado a
+     * TAMANHO_MENSAGEM_ERRO caracteres, para que a linha caiba no espaço reservado da saída.
+     */
+    private static byte[] mensagemErro(RuntimeException e) {
+        String texto = ("erro: " + e).replace('\n', ' ').replace('\r', ' ');
+        if (texto.length() > TAMANHO_MENSAGEM_ERRO) {
+            int fim = TAMANHO_MENSAGEM_ERRO;
+            if (Character.isHighSurrogate(texto.charAt(fim - 1))) {
+                fim--; // Não separa um par substituto
+            }
+            texto = texto.substring(0, fim);
+        }
+        return bytes(texto);
+    }
+
+    /**
+     * Registros interpretados, em vetores paralelos, entregues de uma vez a uma partição.
+     * Lotes processados voltam a uma fila de lotes livres para reaproveitamento.
+     */
+    private static final class Lote {
+        final long[] linhas = new long[TAMANHO_LOTE];   // Linha de origem de cada registro
+        final int[] contas = new int[TAMANHO_LOTE];     // Número da conta
+        final byte[] operacoes = new byte[TAMANHO_LOTE]; // DEPOSITO, SAQUE ou RENDIMENTO
+        final long[] valores = new long[TAMANHO_LOTE];  // Valor em centavos (zero para rendimento)
+        final String[] ids = new String[TAMANHO_LOTE];  // Identificador da operação, ou null
+        int tamanho;
+    }
+
+    private static final Lote FIM = new Lote(); // Marca o fim dos lotes de uma partição
+
+    /**
+     * Lê o arquivo em blocos, interpreta cada linha e distribui os registros entre as partições.
+     * Registros com formato inválido são rejeitados aqui mesmo.
+     */
+    private final class Leitor {
+        private final Particao[] particao;
+        private final Queue<Lote> livres;
+        private final Lote[] abertos; // Lote em preenchimento de cada partição
+        private final Saida rejeicoes;
+        private long registros;
+        private long rejeitados;
+        private long linha;
+
+        Leitor(Particao[] particao, Queue<Lote> livres, Saida rejeicoes) {
+            this.particao = particao;
+            this.livres = livres;
+            this.rejeicoes = rejeicoes;
+            this.abertos = new Lote[particao.length];
+            for (int p = 0; p < abertos.length; p++) {
+                abertos[p] = new Lote();
+            }
+        }
+
+        void ler(FileChannel canal) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_LEITURA);
+            byte[] b = buffer.array();
+            boolean fim = false;
+            while (!fim) {
+                fim = canal.read(buffer) < 0;
+                int limite = buffer.position();
+                int inicioLinha = 0;
+                for (int i = 0; i < limite; i++) {
+                    if (b[i] == '\n') {
+                        interpretar(b, inicioLinha, i);
+                        inicioLinha = i + 1;
+                    }
+                }
+                if (fim && inicioLinha < limite) {
+                    interpretar(b, inicioLinha, limite); // Última linha sem quebra de linha
+                    inicioLinha = limite;
+                }
+                System.arraycopy(b, inicioLinha, b, 0, limite - inicioLinha); // Preserva a linha incompleta
+                buffer.position(limite - inicioLinha);
+                if (!fim && !buffer.hasRemaining()) {
+                    throw new IOException("Linha " + (linha + 1) + " excede " + TAMANHO_LEITURA + " bytes.");
+                }
+            }
+        }
+
+        /**
+         * Interpreta uma linha "conta,operação,valor[,identificador]" diretamente sobre os bytes.
+         * Só o identificador, quando presente, é convertido em String.
+         */
+        private void interpretar(byte[] b, int inicio, int fim) throws IOException {
+            linha++;
+            if (fim > inicio && b[fim - 1] == '\r') {
+                fim--;
+            }
+            int i = pularEspacos(b, inicio, fim);
+            if (i == fim) {
+                return; // Linha vazia
+            }
+            if (linha == 1 && (b[i] < '0' || b[i] > '9')) {
+                return; // Cabeçalho
+            }
+            registros++;
+            long conta = 0;
+            int digitos = 0;
+            for (; i < fim && b[i] >= '0' && b[i] <= '9'; i++, digitos++) {
+                conta = conta * 10 + (b[i] - '0');
+                if (conta > Integer.MAX_VALUE) {
+                    break;
+                }
+            }
+            if (digitos == 0 || conta > Integer.MAX_VALUE) {
+                rejeitarFormato("número de conta inválido");
+                return;
+            }
+            i = pularEspacos(b, i, fim);
+            if (i == fim || (b[i] != ',' && b[i] != ';')) {
+                rejeitarFormato("separador ausente após a conta");
+                return;
+            }
+            i = pularEspacos(b, i + 1, fim);
+            int fimOperacao = i;
+            while (fimOperacao < fim && b[fimOperacao] != ',' && b[fimOperacao] != ';'
+                    && b[fimOperacao] != ' ' && b[fimOperacao] != '\t') {
+                fimOperacao++;
+            }
+            byte operacao = operacao(b, i, fimOperacao);
+            i = pularEspacos(b, fimOperacao, fim);
+            if (operacao == 0 || (i < fim && b[i] != ',' && b[i] != ';')) {
+                rejeitarFormato("operação inválida");
+                return;
+            }
+            long valor = 0;
+            if (i < fim) {
+                i = pularEspacos(b, i + 1, fim);
+                int casas = -1; // Casas decimais lidas; -1 antes do ponto
+                digitos = 0;
+                boolean excedeu = false;
+                for (; i < fim; i++) {
+                    byte c = b[i];
+                    if (c >= '0' && c <= '9') {
+                        if (casas == 2) {
+                            break;
+                        }
+                        if (casas < 0 && valor > (LIMITE_REAIS - (c - '0')) / 10) {
+                            excedeu = true;
+                            break;
+                        }
+                        valor = valor * 10 + (c - '0');
+                        digitos++;
+                        if (casas >= 0) {
+                            casas++;
+                        }
+                    } else if (c == '.' && casas < 0) {
+                        casas = 0;
+                    } else {
+                        break;
+                    }
+                }
+                if (excedeu) {
+                    rejeitarFormato("valor excede o limite");
+                    return;
+                }
+                if (operacao == RENDIMENTO && (digitos > 0 || casas >= 0)) {
+                    rejeitarFormato("rendimento não aceita valor");
+                    return;
+                }
+                i = pularEspacos(b, i, fim);
+                if ((i != fim && b[i] != ',' && b[i] != ';') || (digitos == 0 && operacao != RENDIMENTO)) {
+                    rejeitarFormato("valor inválido");
+                    return;
+                }
+                for (int c = Math.max(casas, 0); c < 2; c++) {
+                    valor *= 10; // Completa os centavos
+                }
+            } else if (operacao != RENDIMENTO) {
+                rejeitarFormato("valor ausente");
+                return;
+            }
+            String id = null;
+            if (i < fim) {
+                int inicioId = pularEspacos(b, i + 1, fim);
+                int fimId = fim;
+                while (fimId > inicioId && (b[fimId - 1] == ' ' || b[fimId - 1] == '\t')) {
+                    fimId--;
+                }
+                if (fimId > inicioId) {
+                    id = new String(b, inicioId, fimId - inicioId, StandardCharsets.UTF_8);
+                }
+            }
+            int p = Math.floorMod((int) conta * 0x9E3779B9, particao.length);
+            Lote lote = abertos[p];
+            int n = lote.tamanho++;
+            lote.linhas[n] = linha;
+            lote.contas[n] = (int) conta;
+            lote.operacoes[n] = operacao;
+            lote.valores[n] = valor;
+            lote.ids[n] = id;
+            if (lote.tamanho == TAMANHO_LOTE) {
+                particao[p].entregar(lote);
+                Lote novo = livres.poll();
+                abertos[p] = novo != null ? novo : new Lote();
+            }
+        }
+
+        /**
+         * Identifica a operação em b[inicio, fim): D, S ou R, ou o nome por extenso, sem distinguir
+         * maiúsculas de minúsculas.
+         * @return DEPOSITO, SAQUE ou RENDIMENTO, ou 0 se o texto não for uma operação.
+         */
+        private byte operacao(byte[] b, int inicio, int fim) {
+            if (fim == inicio) {
+                return 0;
+            }
+            byte letra = (byte) (b[inicio] & ~0x20);
+            byte[] nome = letra == DEPOSITO ? NOMES_OPERACOES[0] : letra == SAQUE ? NOMES_OPERACOES[1]
+                    : letra == RENDIMENTO ? NOMES_OPERACOES[2] : null;
+            if (nome == null) {
+                return 0;
+            }
+            if (fim - inicio == 1) {
+                return letra;
+            }
+            if (fim - inicio != nome.length) {
+                return 0;
+            }
+            for (int k = 1; k < nome.length; k++) {
+                byte c = b[inicio + k];
+                if (c < 'A' || (c & ~0x20) != nome[k]) {
+                    return 0;
+                }
+            }
+            return letra;
+        }
+
+        private int pularEspacos(byte[] b, int i, int fim) {
+            while (i < fim && (b[i] == ' ' || b[i] == '\t')) {
+                i++;
+            }
+            return i;
+        }
+
+        private void rejeitarFormato(String motivo) throws IOException {
+            rejeitados++;
+            rejeicoes.numero(linha).caractere(',').caractere(',').caractere(',').caractere(',')
+                    .texto(bytes("formato inválido: " + motivo)).fimLinha();
+        }
+
+        /**
+         * Entrega os lotes incompletos, sinaliza o fim a cada partição e aguarda a aplicação de todos os registros.
+         */
+        void encerrar(Thread[] threads) throws IOException {
+            try {
+                for (int p = 0; p < particao.length; p++) {
+                    if (abertos[p].tamanho > 0) {
+                        particao[p].entregar(abertos[p]);
+                    }
+                    particao[p].entregar(FIM);
+                }
+                for (Thread t : threads) {
+                    t.join();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrompido aguardando as partições.");
+            } finally {
+                rejeicoes.descarregar();
+            }
+        }
+    }
+
+    /**
+     * Partição de contas aplicada por uma única thread, na ordem em que os lotes chegam.
+     */
+    private final class Particao implements Runnable {
+        private final BlockingQueue<Lote> fila = new ArrayBlockingQueue<>(LOTES_EM_ESPERA);
+        private final Queue<Lote> livres;
+        private final Saida resultados;
+        private final Saida rejeicoes;
+        private long aplicados;
+        private long rejeitados;
+        private volatile IOException falha; // Erro de gravação que interrompeu a partição
+
+        Particao(Queue<Lote> livres, Saida resultados, Saida rejeicoes) {
+            this.livres = livres;
+            this.resultados = resultados;
+            this.rejeicoes = rejeicoes;
+        }
+
+        void entregar(Lote lote) throws InterruptedIOException {
+            try {
+                fila.put(lote); // Bloqueia quando a partição está atrasada, limitando a memória usada
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrompido entregando lote.");
+            }
+        }
+
+        @Override
+        public void run() {
+            ResumoRendimento resumo = new ResumoRendimento(); // Exigido pela aplicação de rendimento; não é reportado
+            try {
+                while (true) {
+                    Lote lote = fila.take();
+                    if (lote == FIM) {
+                        break;
+                    }
+                    for (int i = 0; i < lote.tamanho; i++) {
+                        try {
+                            aplicar(lote.linhas[i], lote.contas[i], lote.operacoes[i], lote.valores[i], lote.ids[i], resumo);
+                        } catch (RuntimeException e) {
+                            rejeitados++; // Erro inesperado em um registro não interrompe a partição
+                            rejeicoes.numero(lote.linhas[i]).caractere(',').numero(lote.contas[i]).caractere(',')
+                                    .caractere(lote.operacoes[i]).caractere(',').caractere(',')
+                                    .texto(mensagemErro(e)).fimLinha();
+                        }
+                    }
+                    Arrays.fill(lote.ids, 0, lote.tamanho, null);
+                    lote.tamanho = 0;
+                    livres.add(lote);
+                }
+            } catch (IOException e) {
+                falha = e;
+                fila.clear(); // Libera o leitor, que pode estar aguardando espaço na fila
+                drenar();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    resultados.descarregar();
+                    rejeicoes.descarregar();
+                } catch (IOException e) {
+                    if (falha == null) {
+                        falha = e;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Descarta os lotes restantes após uma falha de gravação, até o fim da entrada.
+         */
+        private void drenar() {
+            try {
+                while (fila.take() != FIM) {
+                    // Descarta
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void aplicar(long linha, int numero, byte operacao, long valor, String id, ResumoRendimento resumo) throws IOException {
+            Conta conta = banco.buscarConta(numero);
+            byte[] motivo = null;
+            long saldo = 0;
+            if (conta == null) {
+                motivo = MOTIVO_CONTA_INEXISTENTE;
+            } else if (operacao == RENDIMENTO && !(conta instanceof IRentavel)) {
+                motivo = MOTIVO_CONTA_NAO_RENTAVEL;
+            } else {
+                if (id == null) {
+                    saldo = movimentar(conta, operacao, valor, resumo);
+                } else {
+                    try {
+                        ResultadoOperacao r = banco.executarUmaVez(id, tipo(operacao), numero, valor,
+                                () -> resultado(conta, operacao, valor, resumo));
+                        saldo = r.realizada() ? r.saldo() : Conta.SALDO_INSUFICIENTE;
+                    } catch (CacheIdempotencia.IdentificadorReutilizado e) {
+                        motivo = MOTIVO_IDENTIFICADOR_REUTILIZADO;
+                    }
+                }
+                if (motivo == null && saldo == Conta.SALDO_INSUFICIENTE) {
+                    motivo = MOTIVO_SALDO_INSUFICIENTE;
+                }
+            }
+            Saida saida = motivo == null ? resultados : rejeicoes;
+            saida.numero(linha).caractere(',').numero(numero).caractere(',').caractere(operacao).caractere(',');
+            if (operacao != RENDIMENTO) {
+                saida.centavos(valor);
+            }
+            saida.caractere(',');
+            if (motivo == null) {
+                aplicados++;
+                saida.centavos(saldo);
+            } else {
+                rejeitados++;
+                saida.texto(motivo);
+            }
+            saida.fimLinha();
+        }
+    }
+
+    /**
+     * Aplica uma movimentação a uma conta existente (rendável, no caso de rendimento).
+     * @return O saldo resultante, ou Conta.SALDO_INSUFICIENTE se o saque não foi realizado.
+     */
+    private static long movimentar(Conta conta, byte operacao, long valor, ResumoRendimento resumo) {
+        if (operacao == DEPOSITO) {
+            return conta.depositarCentavos(valor);
+        }
+        if (operacao == SAQUE) {
+            return conta.sacarCentavos(valor);
+        }
+        ((IRentavel) conta).aplicarRendimento(ThreadLocalRandom.current(), resumo);
+        return conta.getSaldoCentavos();
+    }
+
+    private static ResultadoOperacao.Operacao tipo(byte operacao) {
+        return operacao == DEPOSITO ? ResultadoOperacao.Operacao.DEPOSITO
+                : operacao == SAQUE ? ResultadoOperacao.Operacao.SAQUE : ResultadoOperacao.Operacao.RENDIMENTO;
+    }
+
+    /**
+     * Aplica uma movimentação com identificador, devolvendo o resultado lembrado pelo cache de idempotência.
+     */
+    private static ResultadoOperacao resultado(Conta conta, byte operacao, long valor, ResumoRendimento resumo) {
+        long saldo = movimentar(conta, operacao, valor, resumo);
+        ResultadoOperacao.Operacao tipo = tipo(operacao);
+        return saldo == Conta.SALDO_INSUFICIENTE
+                ? new ResultadoOperacao(tipo, ResultadoOperacao.Situacao.SALDO_INSUFICIENTE, conta.getNumero(), valor, 0, conta.getSaldoCentavos())
+                : new ResultadoOperacao(tipo, ResultadoOperacao.Situacao.REALIZADA, conta.getNumero(), valor, 0, saldo);
+    }
+
+    /**
+     * Buffer de saída de uma thread, com formatação de números sem alocação.
+     * Ao encher, é gravado de uma vez no arquivo compartilhado, sob a trava do canal.
+     */
+    private static final class Saida {
+        private final FileChannel canal;
+        private final SistemaBancario confirmacao; // Sistema cujo log é sincronizado antes de cada gravação, ou null
+        private final byte[] buffer = new byte[TAMANHO_SAIDA];
+        private final byte[] digitos = new byte[20]; // Área de trabalho para a conversão de números
+        private int posicao;
+
+        Saida(FileChannel canal, SistemaBancario confirmacao) {
+            this.canal = canal;
+            this.confirmacao = confirmacao;
+        }
+
+        Saida caractere(int c) {
+            buffer[posicao++] = (byte) c;
+            return this;
+        }
+
+        Saida texto(byte[] texto) {
+            System.arraycopy(texto, 0, buffer, posicao, texto.length);
+            posicao += texto.length;
+            return this;
+        }
+
+        Saida numero(long valor) {
+            if (valor < 0) {
+                caractere('-');
+                valor = -valor; // Valores tratados aqui nunca são Long.MIN_VALUE
+            }
+            int n = 0;
+            do {
+                digitos[n++] = (byte) ('0' + valor % 10);
+                valor /= 10;
+            } while (valor != 0);
+            while (n > 0) {
+                buffer[posicao++] = digitos[--n];
+            }
+            return this;
+        }
+
+        /**
+         * Escreve um valor em centavos como reais com duas casas decimais (por exemplo, -12.05).
+         */
+        Saida centavos(long centavos) {
+            if (centavos < 0) {
+                caractere('-');
+                centavos = -centavos;
+            }
+            numero(centavos / 100).caractere('.');
+            long resto = centavos % 100;
+            return caractere('0' + (int) (resto / 10)).caractere('0' + (int) (resto % 10));
+        }
+
+        void fimLinha() throws IOException {
+            caractere('\n');
+            if (posicao > TAMANHO_SAIDA - 512) { // Garante espaço para a próxima linha completa
+                descarregar();
+            }
+        }
+
+        void descarregar() throws IOException {
+            if (posicao == 0) {
+                return;
+            }
+            if (confirmacao != null) {
+                confirmacao.sincronizarLog(); // Uma sincronização para todo o bloco, fora da trava do canal
+            }
+            ByteBuffer b = ByteBuffer.wrap(buffer, 0, posicao);
+            synchronized (canal) {
+                while (b.hasRemaining()) {
+                    canal.write(b);
+                }
+            }
+            posicao = 0;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Projeção dos saldos de todas as contas rentáveis do banco, obtida com SistemaBancario.projetarRendimentos.
+ * As contas ficam agrupadas por tipo, e os valores de cada conta são lidos pela posição.
+ * Valores estão em centavos.
+ */
+public final class ProjecaoCarteira {
+    private final int meses; // Horizonte da projeção
+    private final ProjecaoRendimento.Cenario cenario; // Cenário das taxas variáveis
+    private final int[] numeros;     // Número de cada conta
+    private final long[] saldos;     // Saldo de cada conta no momento da projeção
+    private final long[] projetados; // Saldo projetado de cada conta
+    private final long[] impostos;   // Imposto provisionado sobre os rendimentos de cada conta
+
+    ProjecaoCarteira(int meses, ProjecaoRendimento.Cenario cenario, int[] numeros, long[] saldos, long[] projetados, long[] impostos) {
+        this.meses = meses;
+        this.cenario = cenario;
+        this.numeros = numeros;
+        this.saldos = saldos;
+        this.projetados = projetados;
+        this.impostos = impostos;
+    }
+
+    /**
+     * Retorna o horizonte da projeção.
+     * @return O número de meses.
+     */
+    public int getMeses() {
+        return meses;
+    }
+
+    /**
+     * Retorna o cenário usado para as taxas variáveis.
+     * @return O cenário.
+     */
+    public ProjecaoRendimento.Cenario getCenario() {
+        return cenario;
+    }
+
+    /**
+     * Retorna a quantidade de contas projetadas.
+     * @return O número de contas rentáveis.
+     */
+    public int tamanho() {
+        return numeros.length;
+    }
+
+    /**
+     * Retorna o número da conta em uma posição.
+     * @param i A posição, de 0 a tamanho() - 1.
+     * @return O número da conta.
+     */
+    public int getNumero(int i) {
+        return numeros[i];
+    }
+
+    /**
+     * Retorna o saldo da conta em uma posição no momento da projeção.
+     * @param i A posição.
+     * @return O saldo, em centavos.
+     */
+    public long getSaldo(int i) {
+        return saldos[i];
+    }
+
+    /**
+     * Retorna o saldo projetado da conta em uma posição.
+     * @param i A posição.
+     * @return O saldo após o horizonte, em centavos.
+     */
+    public long getSaldoProjetado(int i) {
+        return projetados[i];
+    }
+
+    /**
+     * Retorna o imposto provisionado sobre os rendimentos projetados da conta em uma posição.
+     * @param i A posição.
+     * @return O imposto, em centavos.
+     */
+    public long getImposto(int i) {
+        return impostos[i];
+    }
+
+    /**
+     * Soma os saldos das contas no momento da projeção.
+     * @return O total, em centavos.
+     */
+    public long getTotalSaldos() {
+        return somar(saldos);
+    }
+
+    /**
+     * Soma os saldos projetados.
+     * @return O total, em centavos.
+     */
+    public long getTotalProjetado() {
+        return somar(projetados);
+    }
+
+    /**
+     * Soma os impostos provisionados.
+     * @return O total, em centavos.
+     */
+    public long getTotalImpostos() {
+        return somar(impostos);
+    }
+
+    private static long somar(long[] valores) {
+        long total = 0;
+        for (long v : valores) {
+            total += v;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d contas, %d meses (%s): saldo R$%.2f, projetado R$%.2f, imposto provisionado R$%.2f",
+                tamanho(), meses, cenario, Dinheiro.paraReais(getTotalSaldos()), Dinheiro.paraReais(getTotalProjetado()),
+                Dinheiro.paraReais(getTotalImpostos()));
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Projeção em forma fechada do saldo de uma conta rentável após alguns meses de rendimento, sem
+ * alterar a conta. As regras mensais de todas as contas rentáveis são afins no saldo
+ * (saldo * (1 + taxa) - taxa fixa), então o saldo projetado é saldo * fatorSaldo - deducoes,
+ * com os coeficientes calculados uma única vez pela soma da série geométrica. O imposto
+ * provisionado sobre os rendimentos do período também é afim no saldo inicial.
+ *
+ * Os valores são calculados em ponto flutuante e arredondados ao centavo (meio para o par) apenas
+ * no final, enquanto aplicarRendimento arredonda mês a mês; a diferença é de poucos centavos.
+ */
+public final class ProjecaoRendimento {
+    /**
+     * Cenário da taxa mensal das contas com taxa variável. No cenário esperado, a projeção é o valor
+     * esperado do saldo, já que as taxas de meses diferentes são sorteadas de forma independente.
+     */
+    public enum Cenario {
+        PESSIMISTA, // Taxa mínima em todos os meses
+        ESPERADO,   // Média da faixa de taxas
+        OTIMISTA    // Taxa máxima em todos os meses
+    }
+
+    private final int meses;           // Horizonte da projeção
+    private final double fatorSaldo;   // Multiplicador do saldo inicial
+    private final double deducoes;     // Taxas fixas acumuladas com os seus rendimentos, em centavos
+    private final double fatorImposto; // Imposto provisionado por centavo de saldo inicial
+    private final double impostoFixo;  // Parte do imposto provisionado que não depende do saldo, em centavos
+
+    private ProjecaoRendimento(int meses, double fatorSaldo, double deducoes, double fatorImposto, double impostoFixo) {
+        this.meses = meses;
+        this.fatorSaldo = fatorSaldo;
+        this.deducoes = deducoes;
+        this.fatorImposto = fatorImposto;
+        this.impostoFixo = impostoFixo;
+    }
+
+    /**
+     * Projeção de uma regra mensal saldo * (1 + taxaLiquida) - taxaFixa, com imposto de aliquota sobre
+     * o rendimento bruto do mês, igual a taxaBruta * saldo.
+     * @param meses O horizonte, em meses (não negativo).
+     * @param taxaLiquida A taxa efetivamente creditada a cada mês, já sem taxa de gestão.
+     * @param taxaBruta A taxa sobre a qual o imposto é provisionado (zero se não há imposto).
+     * @param taxaFixa A taxa fixa debitada a cada mês, em centavos.
+     * @param aliquota A alíquota do imposto sobre o rendimento bruto.
+     */
+    static ProjecaoRendimento mensal(int meses, double taxaLiquida, double taxaBruta, double taxaFixa, double aliquota) {
+        if (meses < 0) {
+            throw new IllegalArgumentException("Horizonte negativo: " + meses);
+        }
+        double fator = 1 + taxaLiquida;
+        double fatorSaldo = Math.pow(fator, meses);
+        double serie = serieGeometrica(fator, meses); // Soma de fator^k para k de 0 a meses - 1
+        double deducoes = taxaFixa * serie;
+        // Rendimento bruto do mês k é taxaBruta * saldo_k; somando saldo_k = saldo * fator^k - taxaFixa * serie(k)
+        double fatorImposto = aliquota * taxaBruta * serie;
+        double impostoFixo = taxaLiquida == 0
+                ? -aliquota * taxaBruta * taxaFixa * meses * (meses - 1) / 2.0
+                : -aliquota * taxaBruta * taxaFixa * (serie - meses) / taxaLiquida;
+        return new ProjecaoRendimento(meses, fatorSaldo, deducoes, fatorImposto, impostoFixo);
+    }
+
+    /**
+     * Soma 1 + fator + ... + fator^(n-1).
+     */
+    private static double serieGeometrica(double fator, int n) {
+        return fator == 1 ? n : (Math.pow(fator, n) - 1) / (fator - 1);
+    }
+
+    /**
+     * Retorna o horizonte da projeção.
+     * @return O número de meses.
+     */
+    public int getMeses() {
+        return meses;
+    }
+
+    /**
+     * Projeta o saldo de uma conta.
+     * @param saldo O saldo atual, em centavos.
+     * @return O saldo após o horizonte, em centavos.
+     */
+    public long saldo(long saldo) {
+        return (long) Math.rint(saldo * fatorSaldo - deducoes);
+    }
+
+    /**
+     * Calcula o imposto provisionado sobre os rendimentos do período, cobrado no saque.
+     * @param saldo O saldo atual, em centavos.
+     * @return O imposto, em centavos (zero se os rendimentos não forem positivos).
+     */
+    public long imposto(long saldo) {
+        return Math.max(0, (long) Math.rint(saldo * fatorImposto + impostoFixo));
+    }
+
+    /**
+     * Projeta saldos e impostos de um intervalo de contas em uma única passagem sem desvios,
+     * que o compilador JIT pode vetorizar.
+     * @param saldos Os saldos atuais, em centavos.
+     * @param projetados Recebe os saldos projetados.
+     * @param impostos Recebe os impostos provisionados.
+     * @param inicio A primeira posição do intervalo.
+     * @param fim A posição seguinte à última do intervalo.
+     */
+    public void projetar(long[] saldos, long[] projetados, long[] impostos, int inicio, int fim) {
+        double a = fatorSaldo;
+        double b = deducoes;
+        double c = fatorImposto;
+        double d = impostoFixo;
+        for (int i = inicio; i < fim; i++) {
+            double s = saldos[i];
+            projetados[i] = (long) Math.rint(s * a - b);
+            impostos[i] = Math.max(0, (long) Math.rint(s * c + d));
+        }
+    }
+}
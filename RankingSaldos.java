@@ -0,0 +1,216 @@
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * Ranking de clientes por saldo total, implementado como uma treap de estatística de ordem: uma árvore
+ * binária de busca pelas chaves (saldo, sequência de cadastro), balanceada por prioridades aleatórias,
+ * em que cada nó guarda o tamanho da sua subárvore. Inserção, remoção, busca da k-ésima chave e posição
+ * de uma chave custam O(log n) esperado; listar k clientes consecutivos custa O(k + log n).
+ * Não é seguro para uso simultâneo: AgregadosBanco o protege com a sua própria trava.
+ */
+class RankingSaldos {
+    private No raiz;       // Raiz da árvore, ou null se vazia
+    private long semente = 0x2545F4914F6CDD1DL; // Estado do gerador das prioridades (xorshift)
+
+    /**
+     * Nó da árvore: chave, cliente, prioridade de heap e tamanho da subárvore.
+     */
+    private static final class No {
+        final AgregadosBanco.Chave chave;
+        final Cliente cliente;
+        final int prioridade; // Máximo na raiz de cada subárvore
+        int tamanho = 1;      // Quantidade de nós na subárvore
+        No esquerda;
+        No direita;
+
+        No(AgregadosBanco.Chave chave, Cliente cliente, int prioridade) {
+            this.chave = chave;
+            this.cliente = cliente;
+            this.prioridade = prioridade;
+        }
+    }
+
+    /**
+     * Retorna a quantidade de clientes no ranking.
+     * @return O número de clientes.
+     */
+    int tamanho() {
+        return tamanho(raiz);
+    }
+
+    /**
+     * Insere um cliente com a chave informada, que não pode estar presente.
+     * @param chave A chave do cliente.
+     * @param cliente O cliente.
+     */
+    void inserir(AgregadosBanco.Chave chave, Cliente cliente) {
+        No[] partes = dividir(raiz, chave);
+        raiz = unir(unir(partes[0], new No(chave, cliente, proximaPrioridade())), partes[1]);
+    }
+
+    /**
+     * Remove a chave informada, se presente.
+     * @param chave A chave a remover.
+     */
+    void remover(AgregadosBanco.Chave chave) {
+        raiz = remover(raiz, chave);
+    }
+
+    private static No remover(No no, AgregadosBanco.Chave chave) {
+        if (no == null) {
+            return null;
+        }
+        int c = chave.compareTo(no.chave);
+        if (c == 0) {
+            return unir(no.esquerda, no.direita);
+        }
+        if (c < 0) {
+            no.esquerda = remover(no.esquerda, chave);
+        } else {
+            no.direita = remover(no.direita, chave);
+        }
+        atualizar(no);
+        return no;
+    }
+
+    /**
+     * Conta as chaves menores que a informada, isto é, a posição que ela ocupa ou ocuparia no ranking.
+     * @param chave A chave.
+     * @return A quantidade de chaves menores.
+     */
+    int posicao(AgregadosBanco.Chave chave) {
+        int menores = 0;
+        No no = raiz;
+        while (no != null) {
+            if (chave.compareTo(no.chave) <= 0) {
+                no = no.esquerda;
+            } else {
+                menores += tamanho(no.esquerda) + 1;
+                no = no.direita;
+            }
+        }
+        return menores;
+    }
+
+    /**
+     * Retorna a chave em uma posição, em ordem crescente.
+     * @param posicao A posição, de 0 a tamanho() - 1.
+     * @return A chave.
+     */
+    AgregadosBanco.Chave chave(int posicao) {
+        return selecionar(posicao).chave;
+    }
+
+    /**
+     * Retorna o cliente em uma posição, em ordem crescente.
+     * @param posicao A posição, de 0 a tamanho() - 1.
+     * @return O cliente.
+     */
+    Cliente cliente(int posicao) {
+        return selecionar(posicao).cliente;
+    }
+
+    private No selecionar(int posicao) {
+        if (posicao < 0 || posicao >= tamanho()) {
+            throw new IndexOutOfBoundsException(posicao);
+        }
+        No no = raiz;
+        while (true) {
+            int esquerda = tamanho(no.esquerda);
+            if (posicao < esquerda) {
+                no = no.esquerda;
+            } else if (posicao == esquerda) {
+                return no;
+            } else {
+                posicao -= esquerda + 1;
+                no = no.direita;
+            }
+        }
+    }
+
+    /**
+     * Lista os clientes das posições de inicio a fim - 1, em ordem crescente, visitando apenas os
+     * nós no caminho até elas e os nós listados.
+     * @param inicio A primeira posição.
+     * @param fim A posição seguinte à última.
+     * @return Os clientes, na ordem do ranking.
+     */
+    List<Cliente> listar(int inicio, int fim) {
+        List<Cliente> clientes = new ArrayList<>(Math.max(0, fim - inicio));
+        listar(raiz, Math.max(0, inicio), Math.min(fim, tamanho()), clientes);
+        return clientes;
+    }
+
+    private static void listar(No no, int inicio, int fim, List<Cliente> saida) {
+        if (no == null || inicio >= fim) {
+            return;
+        }
+        int esquerda = tamanho(no.esquerda);
+        if (inicio < esquerda) {
+            listar(no.esquerda, inicio, Math.min(fim, esquerda), saida);
+        }
+        if (inicio <= esquerda && esquerda < fim) {
+            saida.add(no.cliente);
+        }
+        if (fim > esquerda + 1) {
+            listar(no.direita, Math.max(0, inicio - esquerda - 1), fim - esquerda - 1, saida);
+        }
+    }
+
+    /**
+     * Divide a árvore em chaves menores que a informada e chaves maiores ou iguais.
+     */
+    private static No[] dividir(No no, AgregadosBanco.Chave chave) {
+        if (no == null) {
+            return new No[2];
+        }
+        if (no.chave.compareTo(chave) < 0) {
+            No[] partes = dividir(no.direita, chave);
+            no.direita = partes[0];
+            atualizar(no);
+            partes[0] = no;
+            return partes;
+        }
+        No[] partes = dividir(no.esquerda, chave);
+        no.esquerda = partes[1];
+        atualizar(no);
+        partes[1] = no;
+        return partes;
+    }
+
+    /**
+     * Une duas árvores em que todas as chaves da primeira são menores que as da segunda.
+     */
+    private static No unir(No a, No b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.prioridade > b.prioridade) {
+            a.direita = unir(a.direita, b);
+            atualizar(a);
+            return a;
+        }
+        b.esquerda = unir(a, b.esquerda);
+        atualizar(b);
+        return b;
+    }
+
+    private static void atualizar(No no) {
+        no.tamanho = tamanho(no.esquerda) + tamanho(no.direita) + 1;
+    }
+
+    private static int tamanho(No no) {
+        return no == null ? 0 : no.tamanho;
+    }
+
+    private int proximaPrioridade() {
+        long x = semente;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        semente = x;
+        return (int) (x >>> 32);
+    }
+}
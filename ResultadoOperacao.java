@@ -0,0 +1,61 @@
+/**
+ * Resultado estruturado de uma operação sobre uma conta, devolvido ao chamador e publicado no
+ * canal de eventos do sistema bancário. Os valores são mantidos em centavos; a mensagem para
+ * exibição só é montada quando solicitada.
+ * @param operacao A operação realizada.
+ * @param situacao Se a operação foi realizada ou o motivo da recusa.
+ * @param conta O número da conta (na transferência, a conta de origem).
+ * @param valor O valor solicitado ou, no rendimento, o rendimento bruto, em centavos.
+ * @param encargos Taxas e impostos debitados junto com a operação, em centavos.
+ * @param saldo O saldo da conta após a operação (ou atual, se recusada), em centavos.
+ */
+public record ResultadoOperacao(Operacao operacao, Situacao situacao, int conta, long valor, long encargos, long saldo) {
+
+    /**
+     * Operações que produzem resultados.
+     */
+    public enum Operacao {
+        DEPOSITO, SAQUE, RENDIMENTO, TRANSFERENCIA
+    }
+
+    /**
+     * Situação final de uma operação.
+     */
+    public enum Situacao {
+        REALIZADA, VALOR_INVALIDO, SALDO_INSUFICIENTE, CONTA_INVALIDA
+    }
+
+    /**
+     * Indica se a operação alterou o saldo.
+     * @return true se a operação foi realizada.
+     */
+    public boolean realizada() {
+        return situacao == Situacao.REALIZADA;
+    }
+
+    /**
+     * Monta a mensagem para o usuário, no mesmo texto antes exibido pelas contas.
+     * @return A mensagem descritiva do resultado.
+     */
+    public String mensagem() {
+        return switch (situacao) {
+            case VALOR_INVALIDO -> "Operação inválida. Digite um valor positivo.";
+            case SALDO_INSUFICIENTE -> "Saldo insuficiente.";
+            case CONTA_INVALIDA -> "Conta de origem ou de destino inválida.";
+            case REALIZADA -> switch (operacao) {
+                case DEPOSITO -> "Depósito de R$" + reais(valor) + " realizado com sucesso."
+                        + (encargos > 0 ? " Taxa de R$" + reais(encargos) + " descontada." : "");
+                case SAQUE -> "Saque de R$" + reais(valor) + " realizado com sucesso."
+                        + (encargos > 0 ? " Imposto de R$" + reais(encargos) + " sobre o rendimento incluído." : "");
+                case RENDIMENTO -> "Rendimento de R$" + reais(valor) + " aplicado ao saldo"
+                        + (encargos > 0 ? ", taxas de R$" + reais(encargos) + " deduzidas." : ".");
+                case TRANSFERENCIA -> "Transferência de R$" + reais(valor) + " realizada com sucesso."
+                        + (encargos > 0 ? " Encargos de R$" + reais(encargos) + " descontados." : "");
+            };
+        };
+    }
+
+    private static String reais(long centavos) {
+        return String.format("%.2f", Dinheiro.paraReais(centavos));
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Acumulador dos valores produzidos pela aplicação de rendimentos em uma ou mais contas.
+ * Não é seguro para uso simultâneo: cada tarefa do processamento em lote mantém o seu
+ * próprio resumo, e os resumos parciais são combinados ao final.
+ */
+public class ResumoRendimento {
+    private long contas;      // Quantidade de contas processadas
+    private long rendimento;  // Rendimento bruto creditado, em centavos
+    private long taxas;       // Taxas de gestão e administrativas debitadas, em centavos
+    private long impostos;    // Imposto provisionado sobre o rendimento positivo, em centavos
+    private long duracaoNanos; // Duração do processamento, em nanossegundos
+
+    /**
+     * Registra o resultado da aplicação de rendimento em uma conta.
+     * @param rendimento O rendimento bruto, em centavos (pode ser negativo).
+     * @param taxas As taxas debitadas, em centavos.
+     * @param impostos O imposto provisionado sobre o rendimento, em centavos.
+     */
+    public void registrar(long rendimento, long taxas, long impostos) {
+        this.contas++;
+        this.rendimento += rendimento;
+        this.taxas += taxas;
+        this.impostos += impostos;
+    }
+
+    /**
+     * Soma a este resumo os valores de outro resumo parcial.
+     * @param outro O resumo a ser incorporado.
+     */
+    public void combinar(ResumoRendimento outro) {
+        this.contas += outro.contas;
+        this.rendimento += outro.rendimento;
+        this.taxas += outro.taxas;
+        this.impostos += outro.impostos;
+    }
+
+    /**
+     * Define a duração do processamento, usada no cálculo da vazão.
+     * @param duracaoNanos A duração, em nanossegundos.
+     */
+    public void setDuracaoNanos(long duracaoNanos) {
+        this.duracaoNanos = duracaoNanos;
+    }
+
+    /**
+     * Retorna a quantidade de contas processadas.
+     * @return O número de contas.
+     */
+    public long getContas() {
+        return contas;
+    }
+
+    /**
+     * Retorna o rendimento bruto total creditado.
+     * @return O rendimento, em centavos.
+     */
+    public long getRendimentoCentavos() {
+        return rendimento;
+    }
+
+    /**
+     * Retorna o total de taxas debitadas.
+     * @return As taxas, em centavos.
+     */
+    public long getTaxasCentavos() {
+        return taxas;
+    }
+
+    /**
+     * Retorna o imposto provisionado sobre os rendimentos positivos (cobrado apenas no saque).
+     * @return Os impostos, em centavos.
+     */
+    public long getImpostosCentavos() {
+        return impostos;
+    }
+
+    /**
+     * Retorna a duração do processamento.
+     * @return A duração, em nanossegundos.
+     */
+    public long getDuracaoNanos() {
+        return duracaoNanos;
+    }
+
+    /**
+     * Calcula a vazão do processamento.
+     * @return A quantidade de contas processadas por segundo, ou zero se a duração não foi definida.
+     */
+    public double contasPorSegundo() {
+        return duracaoNanos == 0 ? 0 : contas * 1e9 / duracaoNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d contas | rendimento R$%.2f | taxas R$%.2f | impostos provisionados R$%.2f | %.0f contas/s",
+                contas, Dinheiro.paraReais(rendimento), Dinheiro.paraReais(taxas),
+                Dinheiro.paraReais(impostos), contasPorSegundo());
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+/**
+ * Processo que hospeda um FragmentoLocal e o atende pelo protocolo de FragmentoRemoto, executado com
+ * "java ServidorFragmento [porta]". Aceita conexões apenas pela interface de loopback. Cada conexão é
+ * atendida por uma thread, que executa as requisições na ordem de chegada e só esvazia o buffer de
+ * respostas quando não há mais requisições já recebidas, agrupando as respostas de requisições enviadas em sequência.
+ */
+public class ServidorFragmento implements AutoCloseable {
+    private final FragmentoLocal fragmento; // Fragmento atendido
+    private final ServerSocket servidor;   // Socket de escuta, na interface de loopback
+
+    /**
+     * Cria o fragmento e passa a aceitar conexões.
+     * @param porta A porta de escuta, ou 0 para uma porta livre.
+     * @throws IOException Se a porta não puder ser aberta.
+     */
+    public ServidorFragmento(int porta) throws IOException {
+        servidor = new ServerSocket(porta, 50, InetAddress.getLoopbackAddress());
+        fragmento = new FragmentoLocal("fragmento-" + servidor.getLocalPort());
+        Thread aceitacao = new Thread(this::aceitar, "fragmento-aceitacao-" + servidor.getLocalPort());
+        aceitacao.setDaemon(true);
+        aceitacao.start();
+    }
+
+    /**
+     * Inicia um fragmento e o mantém até o processo ser encerrado.
+     * @param args A porta de escuta (padrão 7000).
+     */
+    public static void main(String[] args) throws IOException {
+        ServidorFragmento servidor = new ServidorFragmento(args.length > 0 ? Integer.parseInt(args[0]) : 7000);
+        CountDownLatch encerrado = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.close();
+            encerrado.countDown();
+        }));
+        System.out.println("Fragmento atendendo em 127.0.0.1:" + servidor.getPorta());
+        try {
+            encerrado.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Retorna a porta de escuta.
+     * @return A porta.
+     */
+    public int getPorta() {
+        return servidor.getLocalPort();
+    }
+
+    /**
+     * Retorna o fragmento atendido.
+     * @return O fragmento local.
+     */
+    public FragmentoLocal getFragmento() {
+        return fragmento;
+    }
+
+    private void aceitar() {
+        while (!servidor.isClosed()) {
+            try {
+                Socket socket = servidor.accept();
+                socket.setTcpNoDelay(true);
+                Thread thread = new Thread(() -> atender(socket), "fragmento-conexao-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // Socket de escuta fechado: encerra a aceitação
+            }
+        }
+    }
+
+    /**
+     * Atende uma conexão até o cliente desconectar.
+     */
+    private void atender(Socket socket) {
+        try (socket) {
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 8192));
+            DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 8192));
+            while (true) {
+                byte operacao;
+                try {
+                    operacao = entrada.readByte();
+                } catch (EOFException fim) {
+                    return;
+                }
+                CompletableFuture<?> futuro = executar(operacao, entrada);
+                try {
+                    FragmentoRemoto.gravarResultado(operacao, futuro.join(), saida);
+                } catch (CompletionException e) {
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    saida.writeByte(FragmentoRemoto.ERRO);
+                    saida.writeUTF(String.valueOf(causa.getMessage()));
+                }
+                if (entrada.available() == 0) {
+                    saida.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Conexão interrompida: o cliente falha as requisições pendentes
+        }
+    }
+
+    /**
+     * Lê os argumentos de uma requisição e a submete ao fragmento.
+     */
+    private CompletableFuture<?> executar(byte operacao, DataInputStream e) throws IOException {
+        return switch (operacao) {
+            case FragmentoRemoto.CLIENTE -> fragmento.adicionarCliente(e.readUTF(), e.readUTF());
+            case FragmentoRemoto.CONTA -> fragmento.abrirConta(e.readUTF(), e.readByte(), e.readInt(), e.readLong());
+            case FragmentoRemoto.DEPOSITO -> fragmento.depositar(e.readInt(), e.readLong());
+            case FragmentoRemoto.SAQUE -> fragmento.sacar(e.readInt(), e.readLong());
+            case FragmentoRemoto.SALDO -> fragmento.saldo(e.readInt());
+            case FragmentoRemoto.AGREGADOS -> fragmento.agregados();
+            case FragmentoRemoto.CONTAS -> fragmento.numerosContas();
+            default -> throw new IOException("Operação desconhecida: " + operacao);
+        };
+    }
+
+    /**
+     * Para de aceitar conexões e encerra a thread de escrita do fragmento.
+     */
+    @Override
+    public void close() {
+        try {
+            servidor.close();
+        } catch (IOException e) {
+            // Já fechado
+        }
+        fragmento.close();
+    }
+}
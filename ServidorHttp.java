@@ -0,0 +1,491 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+/**
+ * Interface de rede do XuBank, sobre o servidor HTTP embutido no JDK (com.sun.net.httpserver).
+ * Expõe as mesmas operações do menu interativo para vários usuários simultâneos.
+ * Cada requisição é atendida em uma thread virtual quando o JDK as oferece (Java 21 ou superior);
+ * nas versões anteriores, usa um conjunto fixo de threads, suficiente porque as operações do
+ * sistema bancário não bloqueiam. As conexões ociosas ficam no seletor do servidor, sem ocupar threads.
+ *
+ * Os parâmetros são lidos da query string e, em POST, também do corpo em
+ * application/x-www-form-urlencoded. As respostas são JSON, com valores monetários em reais.
+ *
+ * POST /clientes (nome, cpf) | POST /contas (cpf, tipo, numero[, limite]) |
+ * GET /contas/{n}/saldo | POST /contas/{n}/deposito (valor) | POST /contas/{n}/saque (valor) |
+ * POST /contas/{n}/rendimento | GET /contas/{n}/extrato ([de, ate, tamanho, cursor]) |
+ * POST /transferencias (origem, destino, valor) | GET /agregados ([consistente=true]) | GET /metricas (texto) |
+ * GET /ranking ([ordem=maiores|menores, k]) | GET /percentis ([p, separados por vírgula])
+ *
+ * Depósitos, saques, rendimentos e transferências aceitam um identificador de operação, no cabeçalho
+ * Idempotency-Key ou no parâmetro idOperacao; uma requisição repetida com o mesmo identificador
+ * recebe a resposta original sem aplicar a operação de novo (veja CacheIdempotencia); o mesmo
+ * identificador com outra conta, operação ou valor recebe 422.
+ *
+ * Com persistência ativa, uma operação só é confirmada depois que seu registro no log foi sincronizado
+ * com o disco; as requisições que aguardam ao mesmo tempo compartilham a mesma sincronização (veja
+ * LogOperacoes). Se a gravação falhar, a resposta é 503.
+ */
+public class ServidorHttp implements AutoCloseable {
+    private static final int BACKLOG = 4096; // Conexões pendentes de aceite, para rajadas de conexões simultâneas
+    private static final int TAMANHO_PAGINA_PADRAO = 50; // Transações por página do extrato, quando não informado
+    private static final int TAMANHO_RANKING_PADRAO = 100; // Clientes listados no ranking, quando não informado
+    private static final String CABECALHO_IDEMPOTENCIA = "Idempotency-Key"; // Cabeçalho com o identificador de operação
+    private static final String MAXIMO_OCIOSAS = "sun.net.httpserver.maxIdleConnections"; // Propriedade lida pelo servidor do JDK
+
+    static {
+        // Por padrão o servidor do JDK fecha as conexões persistentes além de 200 ociosas, o que
+        // derruba clientes que mantêm milhares de conexões abertas. Só vale se definida antes do primeiro servidor.
+        if (System.getProperty(MAXIMO_OCIOSAS) == null) {
+            System.setProperty(MAXIMO_OCIOSAS, "100000");
+        }
+    }
+
+    private final SistemaBancario banco; // Sistema bancário atendido
+    private final HttpServer servidor; // Servidor HTTP do JDK
+    private final ExecutorService executor; // Executor das requisições
+
+    /**
+     * Cria o servidor e associa-o ao endereço, sem iniciar o atendimento.
+     * @param banco O sistema bancário a ser exposto.
+     * @param endereco O endereço e a porta; porta 0 escolhe uma porta livre.
+     * @throws IOException Se o endereço não puder ser associado.
+     */
+    public ServidorHttp(SistemaBancario banco, InetSocketAddress endereco) throws IOException {
+        this.banco = banco;
+        this.servidor = HttpServer.create(endereco, BACKLOG);
+        this.executor = criarExecutor();
+        servidor.createContext("/", this::atender);
+        servidor.setExecutor(executor);
+    }
+
+    /**
+     * Inicia o atendimento das requisições em segundo plano.
+     */
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * Retorna a porta em que o servidor está escutando.
+     * @return O número da porta.
+     */
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Indica se as requisições são atendidas em threads virtuais.
+     * @return true se o JDK oferece threads virtuais.
+     */
+    public boolean usaThreadsVirtuais() {
+        return !(executor instanceof ThreadPoolExecutor);
+    }
+
+    /**
+     * Para de aceitar conexões, aguarda até um segundo pelas requisições em andamento e libera as threads.
+     */
+    @Override
+    public void close() {
+        servidor.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Cria um executor de uma thread virtual por tarefa se o JDK em execução as oferece, obtido por
+     * reflexão para que o código compile também em versões anteriores ao Java 21.
+     */
+    private static ExecutorService criarExecutor() {
+        try {
+            Method fabrica = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) fabrica.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+            return Executors.newFixedThreadPool(threads, tarefa -> {
+                Thread t = new Thread(tarefa, "xubank-http");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Encaminha a requisição à operação correspondente ao método e ao caminho.
+     */
+    private void atender(HttpExchange troca) throws IOException {
+        try (troca) {
+            String metodo = troca.getRequestMethod();
+            String[] partes = troca.getRequestURI().getRawPath().split("/");
+            Map<String, String> parametros = lerParametros(troca);
+            try {
+                if (partes.length == 2 && partes[1].equals("clientes")) {
+                    exigirMetodo(metodo, "POST");
+                    cadastrarCliente(troca, parametros);
+                } else if (partes.length == 2 && partes[1].equals("contas")) {
+                    exigirMetodo(metodo, "POST");
+                    abrirConta(troca, parametros);
+                } else if (partes.length == 4 && partes[1].equals("contas")) {
+                    operarConta(troca, metodo, Integer.parseInt(partes[2]), partes[3], parametros);
+                } else if (partes.length == 2 && partes[1].equals("transferencias")) {
+                    exigirMetodo(metodo, "POST");
+                    ResultadoOperacao resultado = banco.transferir(inteiro(parametros, "origem"),
+                            inteiro(parametros, "destino"), decimal(parametros, "valor"), idOperacao(troca, parametros));
+                    responderResultado(troca, resultado);
+                } else if (partes.length == 2 && partes[1].equals("metricas")) {
+                    exigirMetodo(metodo, "GET");
+                    byte[] relatorio = banco.getMetricas().relatorio().getBytes(StandardCharsets.UTF_8);
+                    troca.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                    troca.sendResponseHeaders(200, relatorio.length);
+                    try (OutputStream saida = troca.getResponseBody()) {
+                        saida.write(relatorio);
+                    }
+                } else if (partes.length == 2 && partes[1].equals("agregados")) {
+                    exigirMetodo(metodo, "GET");
+                    if (Boolean.parseBoolean(parametros.get("consistente"))) {
+                        agregadosConsistentes(troca);
+                    } else {
+                        agregados(troca);
+                    }
+                } else if (partes.length == 2 && partes[1].equals("ranking")) {
+                    exigirMetodo(metodo, "GET");
+                    ranking(troca, parametros);
+                } else if (partes.length == 2 && partes[1].equals("percentis")) {
+                    exigirMetodo(metodo, "GET");
+                    percentis(troca, parametros);
+                } else {
+                    responder(troca, 404, erro("Recurso não encontrado."));
+                }
+            } catch (MetodoNaoPermitido e) {
+                responder(troca, 405, erro("Método não permitido."));
+            } catch (CacheIdempotencia.IdentificadorReutilizado e) {
+                responder(troca, 422, erro(e.getMessage()));
+            } catch (IllegalArgumentException | DateTimeParseException | ArithmeticException e) { // Inclui NumberFormatException
+                responder(troca, 400, erro("Parâmetro inválido: " + e.getMessage()));
+            }
+        }
+    }
+
+    private void cadastrarCliente(HttpExchange troca, Map<String, String> parametros) throws IOException {
+        Cliente cliente = new Cliente(texto(parametros, "nome"), texto(parametros, "cpf"));
+        if (banco.adicionarCliente(cliente)) {
+            if (!confirmarGravacao(troca)) {
+                return;
+            }
+            responder(troca, 201, "{\"cpf\":" + json(cliente.getCpf()) + ",\"nome\":" + json(cliente.getNome()) + "}");
+        } else {
+            responder(troca, 409, erro("Já existe um cliente cadastrado com este CPF."));
+        }
+    }
+
+    private void abrirConta(HttpExchange troca, Map<String, String> parametros) throws IOException {
+        Cliente cliente = banco.buscarCliente(texto(parametros, "cpf"));
+        if (cliente == null) {
+            responder(troca, 404, erro("Cliente não encontrado."));
+            return;
+        }
+        int numero = inteiro(parametros, "numero");
+        Conta conta = switch (texto(parametros, "tipo").toLowerCase(Locale.ROOT)) {
+            case "1", "corrente" -> new ContaCorrente(numero, cliente, decimal(parametros, "limite"));
+            case "2", "poupanca" -> new ContaPoupanca(numero, cliente);
+            case "3", "rendafixa" -> new ContaRendaFixa(numero, cliente);
+            case "4", "investimento" -> new ContaInvestimento(numero, cliente);
+            default -> throw new IllegalArgumentException("tipo");
+        };
+        if (cliente.adicionarConta(conta)) {
+            if (!confirmarGravacao(troca)) {
+                return;
+            }
+            responder(troca, 201, "{\"numero\":" + numero + ",\"tipo\":" + json(conta.getClass().getSimpleName()) + "}");
+        } else {
+            responder(troca, 409, erro("Já existe uma conta com este número."));
+        }
+    }
+
+    /**
+     * Atende as operações sobre uma conta existente: saldo, depósito, saque, rendimento e extrato.
+     */
+    private void operarConta(HttpExchange troca, String metodo, int numero, String operacao,
+                             Map<String, String> parametros) throws IOException {
+        Conta conta = banco.buscarConta(numero);
+        if (conta == null) {
+            responder(troca, 404, erro("Conta não encontrada."));
+            return;
+        }
+        switch (operacao) {
+            case "saldo" -> {
+                exigirMetodo(metodo, "GET");
+                responder(troca, 200, "{\"numero\":" + numero + ",\"saldo\":" + reais(conta.getSaldoCentavos()) + "}");
+            }
+            case "deposito" -> {
+                exigirMetodo(metodo, "POST");
+                responderResultado(troca, conta.depositar(decimal(parametros, "valor"), idOperacao(troca, parametros)));
+            }
+            case "saque" -> {
+                exigirMetodo(metodo, "POST");
+                responderResultado(troca, conta.sacar(decimal(parametros, "valor"), idOperacao(troca, parametros)));
+            }
+            case "rendimento" -> {
+                exigirMetodo(metodo, "POST");
+                if (conta instanceof IRentavel rentavel) {
+                    responderResultado(troca, banco.executarUmaVez(idOperacao(troca, parametros), ResultadoOperacao.Operacao.RENDIMENTO,
+                            numero, 0, rentavel::aplicarRendimento));
+                } else {
+                    responder(troca, 422, erro("A conta não é rendável."));
+                }
+            }
+            case "extrato" -> {
+                exigirMetodo(metodo, "GET");
+                extrato(troca, conta, parametros);
+            }
+            default -> responder(troca, 404, erro("Operação não encontrada."));
+        }
+    }
+
+    private void extrato(HttpExchange troca, Conta conta, Map<String, String> parametros) throws IOException {
+        Instant de = parametros.containsKey("de") ? Instant.parse(parametros.get("de")) : null;
+        Instant ate = parametros.containsKey("ate") ? Instant.parse(parametros.get("ate")) : null;
+        int tamanho = parametros.containsKey("tamanho") ? inteiro(parametros, "tamanho") : TAMANHO_PAGINA_PADRAO;
+        long cursor = parametros.containsKey("cursor") ? Long.parseLong(parametros.get("cursor")) : PaginaExtrato.INICIO;
+        PaginaExtrato pagina = conta.extrato(de, ate, tamanho, cursor);
+        StringBuilder sb = new StringBuilder(128 + pagina.tamanho() * 96);
+        sb.append("{\"numero\":").append(conta.getNumero())
+          .append(",\"saldoAbertura\":").append(reais(pagina.getSaldoAbertura()))
+          .append(",\"saldoFechamento\":").append(reais(pagina.getSaldoFechamento()))
+          .append(",\"totalPeriodo\":").append(pagina.getTotalPeriodo())
+          .append(",\"proximoCursor\":").append(pagina.getProximoCursor())
+          .append(",\"transacoes\":[");
+        for (int i = 0; i < pagina.tamanho(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"instante\":").append(json(Instant.ofEpochMilli(pagina.getInstante(i)).toString()))
+              .append(",\"tipo\":").append(json(JornalTransacoes.nomeTipo(pagina.getTipo(i))))
+              .append(",\"valor\":").append(reais(pagina.getValor(i)))
+              .append(",\"saldo\":").append(reais(pagina.getSaldo(i))).append('}');
+        }
+        responder(troca, 200, sb.append("]}").toString());
+    }
+
+    private void ranking(HttpExchange troca, Map<String, String> parametros) throws IOException {
+        String ordem = parametros.getOrDefault("ordem", "maiores");
+        int k = parametros.containsKey("k") ? inteiro(parametros, "k") : TAMANHO_RANKING_PADRAO;
+        if (k < 0) {
+            throw new IllegalArgumentException("k");
+        }
+        List<Cliente> clientes = switch (ordem) {
+            case "maiores" -> banco.clientesComMaioresSaldos(k);
+            case "menores" -> banco.clientesComMenoresSaldos(k);
+            default -> throw new IllegalArgumentException("ordem");
+        };
+        StringBuilder sb = new StringBuilder(64 + clientes.size() * 80);
+        sb.append("{\"ordem\":").append(json(ordem)).append(",\"clientes\":[");
+        for (int i = 0; i < clientes.size(); i++) {
+            Cliente c = clientes.get(i);
+            sb.append(i == 0 ? "" : ",").append("{\"nome\":").append(json(c.getNome()))
+              .append(",\"cpf\":").append(json(c.getCpf()))
+              .append(",\"saldo\":").append(reais(c.calcularSaldoTotalCentavos())).append('}');
+        }
+        responder(troca, 200, sb.append("]}").toString());
+    }
+
+    private void percentis(HttpExchange troca, Map<String, String> parametros) throws IOException {
+        String[] valores = parametros.getOrDefault("p", "0.5,0.9,0.99").split(",");
+        StringBuilder sb = new StringBuilder(32 + valores.length * 24).append('{');
+        for (int i = 0; i < valores.length; i++) {
+            String p = valores[i].trim();
+            sb.append(i == 0 ? "" : ",").append(json(p)).append(':')
+              .append(reais(Dinheiro.deReais(banco.percentilSaldo(Double.parseDouble(p)))));
+        }
+        responder(troca, 200, sb.append('}').toString());
+    }
+
+    private void agregados(HttpExchange troca) throws IOException {
+        Cliente maior = banco.clienteComMaiorSaldo();
+        Cliente menor = banco.clienteComMenorSaldo();
+        String corpo = "{\"quantidadeContas\":" + banco.getQuantidadeContas()
+                + ",\"saldoMedio\":" + reais(Dinheiro.deReais(banco.calcularSaldoMedio()))
+                + ",\"custodia\":{\"corrente\":" + reais(Dinheiro.deReais(banco.calcularCustodiaPorTipo(ContaCorrente.class)))
+                + ",\"poupanca\":" + reais(Dinheiro.deReais(banco.calcularCustodiaPorTipo(ContaPoupanca.class)))
+                + ",\"rendaFixa\":" + reais(Dinheiro.deReais(banco.calcularCustodiaPorTipo(ContaRendaFixa.class)))
+                + ",\"investimento\":" + reais(Dinheiro.deReais(banco.calcularCustodiaPorTipo(ContaInvestimento.class)))
+                + "},\"maiorSaldo\":" + (maior == null ? "null" : json(maior.getNome()))
+                + ",\"menorSaldo\":" + (menor == null ? "null" : json(menor.getNome())) + "}";
+        responder(troca, 200, corpo);
+    }
+
+    /**
+     * Custódia e saldo médio calculados sobre um snapshot: todos os valores refletem o mesmo momento,
+     * ao custo de percorrer as contas.
+     */
+    private void agregadosConsistentes(HttpExchange troca) throws IOException {
+        String corpo;
+        try (SnapshotSaldos snapshot = banco.abrirSnapshot()) {
+            corpo = "{\"versao\":" + snapshot.getVersao()
+                    + ",\"saldoMedio\":" + reais(Dinheiro.deReais(snapshot.calcularSaldoMedio()))
+                    + ",\"custodia\":{\"corrente\":" + reais(Dinheiro.deReais(snapshot.calcularCustodiaPorTipo(ContaCorrente.class)))
+                    + ",\"poupanca\":" + reais(Dinheiro.deReais(snapshot.calcularCustodiaPorTipo(ContaPoupanca.class)))
+                    + ",\"rendaFixa\":" + reais(Dinheiro.deReais(snapshot.calcularCustodiaPorTipo(ContaRendaFixa.class)))
+                    + ",\"investimento\":" + reais(Dinheiro.deReais(snapshot.calcularCustodiaPorTipo(ContaInvestimento.class)))
+                    + "}}";
+        }
+        responder(troca, 200, corpo);
+    }
+
+    /**
+     * Responde com o resultado de uma operação: 200 se realizada, 422 se recusada pelas regras de negócio.
+     */
+    private void responderResultado(HttpExchange troca, ResultadoOperacao r) throws IOException {
+        if (r.realizada() && !confirmarGravacao(troca)) {
+            return;
+        }
+        String corpo = "{\"operacao\":\"" + r.operacao() + "\",\"situacao\":\"" + r.situacao()
+                + "\",\"conta\":" + r.conta() + ",\"valor\":" + reais(r.valor()) + ",\"encargos\":" + reais(r.encargos())
+                + ",\"saldo\":" + reais(r.saldo()) + ",\"mensagem\":" + json(r.mensagem()) + "}";
+        responder(troca, r.realizada() ? 200 : 422, corpo);
+    }
+
+    /**
+     * Aguarda a sincronização com o disco das operações já registradas no log, incluindo a da requisição.
+     * @return false, após responder 503, se a gravação do log falhou.
+     */
+    private boolean confirmarGravacao(HttpExchange troca) throws IOException {
+        try {
+            banco.sincronizarLog();
+            return true;
+        } catch (IOException e) {
+            responder(troca, 503, erro("Operação não confirmada em disco: " + e.getMessage()));
+            return false;
+        }
+    }
+
+    private static void responder(HttpExchange troca, int status, String corpo) throws IOException {
+        byte[] bytes = corpo.getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(status, bytes.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(bytes);
+        }
+    }
+
+    /**
+     * Junta os parâmetros da query string e, em requisições com corpo, os do formulário.
+     */
+    private static Map<String, String> lerParametros(HttpExchange troca) throws IOException {
+        Map<String, String> parametros = new HashMap<>();
+        decodificar(troca.getRequestURI().getRawQuery(), parametros);
+        try (InputStream corpo = troca.getRequestBody()) {
+            byte[] bytes = corpo.readAllBytes();
+            if (bytes.length > 0) {
+                decodificar(new String(bytes, StandardCharsets.UTF_8), parametros);
+            }
+        }
+        return parametros;
+    }
+
+    private static void decodificar(String texto, Map<String, String> parametros) {
+        if (texto == null || texto.isEmpty()) {
+            return;
+        }
+        for (String par : texto.split("&")) {
+            int igual = par.indexOf('=');
+            String nome = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.put(URLDecoder.decode(nome, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Lê o identificador de operação do cabeçalho Idempotency-Key ou, na falta dele, do parâmetro idOperacao.
+     */
+    private static String idOperacao(HttpExchange troca, Map<String, String> parametros) {
+        String id = troca.getRequestHeaders().getFirst(CABECALHO_IDEMPOTENCIA);
+        return id != null && !id.isEmpty() ? id : parametros.get("idOperacao");
+    }
+
+    private static void exigirMetodo(String metodo, String esperado) {
+        if (!metodo.equals(esperado)) {
+            throw new MetodoNaoPermitido();
+        }
+    }
+
+    private static String texto(Map<String, String> parametros, String nome) {
+        String valor = parametros.get(nome);
+        if (valor == null || valor.isBlank()) {
+            throw new IllegalArgumentException(nome);
+        }
+        return valor;
+    }
+
+    private static int inteiro(Map<String, String> parametros, String nome) {
+        return Integer.parseInt(texto(parametros, nome).trim());
+    }
+
+    private static double decimal(Map<String, String> parametros, String nome) {
+        return Double.parseDouble(texto(parametros, nome).trim().replace(',', '.'));
+    }
+
+    private static String reais(long centavos) {
+        return String.format(Locale.ROOT, "%.2f", Dinheiro.paraReais(centavos));
+    }
+
+    private static String erro(String mensagem) {
+        return "{\"erro\":" + json(mensagem) + "}";
+    }
+
+    /**
+     * Converte um texto em literal JSON, escapando aspas, barras e caracteres de controle.
+     */
+    private static String json(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length() + 2).append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Sinaliza uma requisição com método HTTP diferente do aceito pelo recurso.
+     */
+    private static final class MetodoNaoPermitido extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        MetodoNaoPermitido() {
+            super(null, null, false, false);
+        }
+    }
+}
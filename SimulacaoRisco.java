@@ -0,0 +1,244 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+/**
+ * Simulação de Monte Carlo do resultado das contas de investimento em um horizonte de meses.
+ * Cada mês sorteia, por conta, a mesma taxa uniforme de ContaInvestimento.aplicarRendimento (entre
+ * TAXA_MIN e TAXA_MAX), descontando a taxa de gestão dos rendimentos positivos. No fim do horizonte a
+ * carteira é resgatada por inteiro, pagando o imposto de saque: o resultado de um caminho é o valor
+ * líquido resgatado menos o saldo inicial. Contas sem saldo positivo não participam.
+ *
+ * Os saldos são copiados para vetores primitivos na construção, e a simulação não aloca objetos por
+ * caminho. Os caminhos são divididos entre as threads do pool comum por tarefas fork-join; cada divisão
+ * entrega ao lado esquerdo um gerador derivado por split(), de modo que a mesma semente produz os mesmos
+ * resultados com qualquer quantidade de threads.
+ */
+public class SimulacaoRisco {
+    public static final int[] HORIZONTES = {12, 60, 120}; // Horizontes usados no relatório, em meses
+    private static final int TAXA_MIN = (int) ContaInvestimento.TAXA_MIN; // Taxa mensal mínima, em ppm
+    private static final int TAXA_MAX = (int) ContaInvestimento.TAXA_MAX; // Taxa mensal máxima, em ppm
+    private static final double LIQUIDO_GESTAO = 1 - (double) ContaInvestimento.TAXA_GESTAO / Dinheiro.ESCALA_TAXA; // Parte do rendimento positivo que fica na conta
+    private static final double FATOR_RESGATE = 1 / (1 + (double) ContaInvestimento.IMPOSTO_RENDIMENTO / Dinheiro.ESCALA_TAXA); // Parte do saldo sacável após o imposto
+    private static final long SORTEIOS_POR_TAREFA = 1 << 20; // Sorteios de taxa por tarefa, para limitar a divisão
+
+    private final Cliente[] clientes; // Clientes com ao menos uma conta de investimento com saldo positivo
+    private final int[] inicioCliente; // Posição da primeira conta de cada cliente em saldos; a última entrada é o total
+    private final long[] saldos;      // Saldo de cada conta, em centavos, agrupadas por cliente
+    private final long saldoTotal;    // Soma dos saldos simulados, em centavos
+
+    /**
+     * Copia os saldos das contas de investimento do sistema bancário no momento da chamada.
+     * @param banco O sistema bancário.
+     */
+    public SimulacaoRisco(SistemaBancario banco) {
+        List<Cliente> comInvestimento = new ArrayList<>();
+        List<Long> valores = new ArrayList<>();
+        List<Integer> inicios = new ArrayList<>();
+        for (Cliente cliente : banco.getClientes()) {
+            int antes = valores.size();
+            for (Conta conta : cliente.getContas()) {
+                long saldo = conta.getSaldoCentavos();
+                if (conta instanceof ContaInvestimento && saldo > 0) {
+                    valores.add(saldo);
+                }
+            }
+            if (valores.size() > antes) {
+                comInvestimento.add(cliente);
+                inicios.add(antes);
+            }
+        }
+        clientes = comInvestimento.toArray(new Cliente[0]);
+        inicioCliente = new int[clientes.length + 1];
+        for (int i = 0; i < clientes.length; i++) {
+            inicioCliente[i] = inicios.get(i);
+        }
+        inicioCliente[clientes.length] = valores.size();
+        saldos = new long[valores.size()];
+        long total = 0;
+        for (int i = 0; i < saldos.length; i++) {
+            saldos[i] = valores.get(i);
+            total += saldos[i];
+        }
+        saldoTotal = total;
+    }
+
+    /**
+     * Retorna a quantidade de contas de investimento simuladas.
+     * @return O número de contas.
+     */
+    public int getQuantidadeContas() {
+        return saldos.length;
+    }
+
+    /**
+     * Simula a carteira de investimento do banco inteiro: em cada caminho, todas as contas evoluem com
+     * sorteios independentes, e o resultado é a soma dos resultados das contas.
+     * @param meses O horizonte, em meses.
+     * @param caminhos A quantidade de caminhos.
+     * @param semente A semente dos geradores.
+     * @return A distribuição do resultado da carteira.
+     */
+    public DistribuicaoRisco simularBanco(int meses, int caminhos, long semente) {
+        validar(meses, caminhos);
+        long inicio = System.nanoTime();
+        double[] resultados = new double[caminhos];
+        long sorteiosPorCaminho = Math.max(1L, (long) saldos.length * meses);
+        int limiar = (int) Math.max(1, Math.min(caminhos, SORTEIOS_POR_TAREFA / sorteiosPorCaminho));
+        ForkJoinPool.commonPool().invoke(new TarefaCaminhos(meses, resultados, 0, caminhos, limiar, new SplittableRandom(semente)));
+        return new DistribuicaoRisco(meses, saldoTotal, resultados, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Simula separadamente a carteira de investimento de cada cliente.
+     * @param meses O horizonte, em meses.
+     * @param caminhos A quantidade de caminhos por cliente.
+     * @param semente A semente dos geradores.
+     * @return A distribuição do resultado de cada cliente com contas de investimento, na ordem de cadastro.
+     */
+    public Map<Cliente, DistribuicaoRisco> simularClientes(int meses, int caminhos, long semente) {
+        validar(meses, caminhos);
+        DistribuicaoRisco[] distribuicoes = new DistribuicaoRisco[clientes.length];
+        ForkJoinPool.commonPool().invoke(new TarefaClientes(meses, caminhos, distribuicoes, 0, clientes.length, new SplittableRandom(semente)));
+        Map<Cliente, DistribuicaoRisco> m = new LinkedHashMap<>();
+        for (int i = 0; i < clientes.length; i++) {
+            m.put(clientes[i], distribuicoes[i]);
+        }
+        return m;
+    }
+
+    /**
+     * Monta o relatório de risco do banco nos horizontes de HORIZONTES e de cada cliente no primeiro deles.
+     * @param caminhos A quantidade de caminhos do banco; cada cliente usa um décimo (ao menos 1.000).
+     * @param semente A semente dos geradores.
+     * @return O relatório em texto.
+     */
+    public String relatorio(int caminhos, long semente) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append(String.format(Locale.ROOT, "Carteira de investimento: %d contas, %d clientes%n", saldos.length, clientes.length));
+        for (int meses : HORIZONTES) {
+            DistribuicaoRisco d = simularBanco(meses, caminhos, semente);
+            sb.append("Banco: ").append(d).append(String.format(Locale.ROOT, " | %.0f caminhos/s%n", d.getCaminhosPorSegundo()));
+        }
+        for (Map.Entry<Cliente, DistribuicaoRisco> e : simularClientes(HORIZONTES[0], Math.max(1_000, caminhos / 10), semente).entrySet()) {
+            sb.append(e.getKey().getNome()).append(": ").append(e.getValue()).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    private static void validar(int meses, int caminhos) {
+        if (meses <= 0 || caminhos <= 0) {
+            throw new IllegalArgumentException("Horizonte e quantidade de caminhos devem ser positivos");
+        }
+    }
+
+    /**
+     * Resultado de um caminho para as contas de inicio a fim - 1: cada conta acumula o fator de
+     * rendimento dos meses sorteados e é resgatada no fim do horizonte.
+     * @return O resultado, em centavos.
+     */
+    private double simularCaminho(int inicio, int fim, int meses, SplittableRandom gerador) {
+        double resultado = 0;
+        for (int c = inicio; c < fim; c++) {
+            double fator = 1;
+            for (int m = 0; m < meses; m++) {
+                double taxa = gerador.nextInt(TAXA_MIN, TAXA_MAX + 1) * 1e-6;
+                fator *= 1 + (taxa > 0 ? taxa * LIQUIDO_GESTAO : taxa);
+            }
+            resultado += saldos[c] * (fator * FATOR_RESGATE - 1);
+        }
+        return resultado;
+    }
+
+    /**
+     * Tarefa que simula os caminhos de um intervalo da carteira do banco, gravando cada resultado em
+     * sua posição do vetor compartilhado.
+     */
+    private class TarefaCaminhos extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int meses;
+        private final double[] resultados;
+        private final int inicio;
+        private final int fim;
+        private final int limiar; // Quantidade de caminhos simulados sequencialmente por tarefa
+        private final SplittableRandom gerador;
+
+        TarefaCaminhos(int meses, double[] resultados, int inicio, int fim, int limiar, SplittableRandom gerador) {
+            this.meses = meses;
+            this.resultados = resultados;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.limiar = limiar;
+            this.gerador = gerador;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio <= limiar) {
+                for (int p = inicio; p < fim; p++) {
+                    resultados[p] = simularCaminho(0, saldos.length, meses, gerador);
+                }
+                return;
+            }
+            int meio = (inicio + fim) >>> 1;
+            TarefaCaminhos esquerda = new TarefaCaminhos(meses, resultados, inicio, meio, limiar, gerador.split());
+            TarefaCaminhos direita = new TarefaCaminhos(meses, resultados, meio, fim, limiar, gerador);
+            esquerda.fork();
+            direita.compute();
+            esquerda.join();
+        }
+    }
+
+    /**
+     * Tarefa que simula a carteira de um intervalo de clientes. Cada tarefa folha reaproveita um
+     * único vetor de resultados para todos os seus clientes.
+     */
+    private class TarefaClientes extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int LIMIAR = 8; // Clientes simulados sequencialmente por tarefa
+        private final int meses;
+        private final int caminhos;
+        private final DistribuicaoRisco[] distribuicoes;
+        private final int inicio;
+        private final int fim;
+        private final SplittableRandom gerador;
+
+        TarefaClientes(int meses, int caminhos, DistribuicaoRisco[] distribuicoes, int inicio, int fim, SplittableRandom gerador) {
+            this.meses = meses;
+            this.caminhos = caminhos;
+            this.distribuicoes = distribuicoes;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.gerador = gerador;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio <= LIMIAR) {
+                double[] resultados = new double[caminhos];
+                for (int i = inicio; i < fim; i++) {
+                    long comeco = System.nanoTime();
+                    long saldoCliente = 0;
+                    for (int c = inicioCliente[i]; c < inicioCliente[i + 1]; c++) {
+                        saldoCliente += saldos[c];
+                    }
+                    for (int p = 0; p < caminhos; p++) {
+                        resultados[p] = simularCaminho(inicioCliente[i], inicioCliente[i + 1], meses, gerador);
+                    }
+                    distribuicoes[i] = new DistribuicaoRisco(meses, saldoCliente, resultados, System.nanoTime() - comeco);
+                }
+                return;
+            }
+            int meio = (inicio + fim) >>> 1;
+            TarefaClientes esquerda = new TarefaClientes(meses, caminhos, distribuicoes, inicio, meio, gerador.split());
+            TarefaClientes direita = new TarefaClientes(meses, caminhos, distribuicoes, meio, fim, gerador);
+            esquerda.fork();
+            direita.compute();
+            esquerda.join();
+        }
+    }
+}
@@ -1,25 +1,556 @@
+import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
 /**
  * Classe que representa um sistema bancário, responsável pela gestão de clientes e suas contas.
  * Oferece funcionalidades para adicionar clientes, buscar clientes por CPF, e calcular informações financeiras agregadas.
+ * Os registros de clientes e contas aceitam inserções e consultas simultâneas de várias threads.
  */
 public class SistemaBancario {
-    private List<Cliente> clientes; // Lista de clientes no sistema bancário
+    private Queue<Cliente> clientes; // Clientes do sistema bancário, em ordem de cadastro
+    private Map<String, Cliente> indiceCpf; // Índice de clientes pelo CPF normalizado (somente dígitos)
+    private IndiceContas indiceContas; // Índice global de contas pelo número
+    private AgregadosBanco agregados; // Custódia por tipo, quantidade de contas e ranking de clientes, mantidos incrementalmente
+    private final AtomicLong sequenciaClientes = new AtomicLong(); // Contador da ordem de cadastro dos clientes
+    private final Object travaRegistro = new Object(); // Serializa cadastros e aberturas de contas com a gravação no log
+    private volatile LogOperacoes log; // Log de operações para persistência, se ativado
+    private volatile CanalEventos canalEventos = CanalEventos.CONSOLE; // Destino dos resultados das operações nas contas
+    private final Metricas metricas = new Metricas(this); // Contagens e latências das operações
+    private final CacheIdempotencia<ResultadoOperacao> idempotencia = new CacheIdempotencia<>(); // Resultados recentes por identificador de operação
+    private final ControleVersoes versoes = new ControleVersoes(); // Épocas das escritas de saldo, para os snapshots de leitura
+    private HistoricoFrio historicoFrio; // Camada fria dos jornais das contas, se ativada (protegido por travaRegistro)
 
     /**
      * Construtor que inicializa a lista de clientes do sistema bancário.
      */
     public SistemaBancario() {
-        this.clientes = new ArrayList<>();
+        this.clientes = new ConcurrentLinkedQueue<>();
+        this.indiceCpf = new ConcurrentHashMap<>();
+        this.indiceContas = new IndiceContas();
+        this.agregados = new AgregadosBanco();
     }
 
     /**
      * Adiciona um novo cliente ao sistema bancário.
+     * O CPF é normalizado uma única vez e registrado no índice; CPFs duplicados são rejeitados.
+     * Contas que o cliente já possua são registradas no índice global de contas.
+     * Se a persistência estiver ativa, o cadastro e as aberturas de conta são gravados no log.
      * @param cliente O cliente a ser adicionado.
+     * @return true se o cliente foi adicionado, false se o CPF ou algum número de conta já estiver em uso.
      */
-    public void adicionarCliente(Cliente cliente) {
+    public boolean adicionarCliente(Cliente cliente) {
+        String cpfLimpo = normalizarCpf(cliente.getCpf());
+        List<Conta> contasCliente = cliente.getContas();
+        synchronized (travaRegistro) {
+            if (indiceCpf.containsKey(cpfLimpo)) {
+                return false; // CPF já cadastrado
+            }
+            for (int i = 0; i < contasCliente.size(); i++) {
+                int numero = contasCliente.get(i).getNumero();
+                if (indiceContas.buscar(numero) != null) {
+                    return false; // Número de conta já utilizado
+                }
+                for (int j = 0; j < i; j++) {
+                    if (contasCliente.get(j).getNumero() == numero) {
+                        return false; // Número repetido entre as contas do próprio cliente
+                    }
+                }
+            }
+            LogOperacoes l = log;
+            if (l != null) {
+                l.registrarCliente(cpfLimpo, cliente.getNome());
+            }
+            indiceCpf.put(cpfLimpo, cliente);
+            for (Conta conta : contasCliente) {
+                registrarContaSemTrava(cpfLimpo, conta);
+            }
+        }
+        agregados.adicionarCliente(cliente, sequenciaClientes.incrementAndGet());
         clientes.add(cliente);
+        cliente.vincularSistema(this);
+        agregados.marcarAlterado(cliente); // Cobre alterações de saldo feitas antes do vínculo
+        return true;
+    }
+
+    /**
+     * Busca uma conta pelo número em todo o sistema bancário.
+     * @param numero O número da conta a ser buscada.
+     * @return A conta se encontrada; caso contrário, retorna null.
+     */
+    public Conta buscarConta(int numero) {
+        long inicio = System.nanoTime();
+        Conta conta = indiceContas.buscar(numero);
+        metricas.registrar(Metricas.Operacao.BUSCAR_CONTA, inicio);
+        return conta;
+    }
+
+    /**
+     * Consulta uma página do extrato de uma conta em um período. Veja Conta.extrato.
+     * @param numero O número da conta.
+     * @param de O início do período (inclusivo), ou null para desde a primeira transação.
+     * @param ate O fim do período (exclusivo), ou null para até a transação mais recente.
+     * @param tamanhoPagina A quantidade máxima de transações na página.
+     * @param cursor PaginaExtrato.INICIO para a primeira página, ou o cursor devolvido pela página anterior.
+     * @return A página do extrato, ou null se a conta não for encontrada.
+     */
+    public PaginaExtrato extrato(int numero, Instant de, Instant ate, int tamanhoPagina, long cursor) {
+        Conta conta = indiceContas.buscar(numero);
+        return conta != null ? conta.extrato(de, ate, tamanhoPagina, cursor) : null;
+    }
+
+    /**
+     * Transfere um valor entre duas contas do sistema e publica o resultado no canal de eventos.
+     * O débito na origem segue as regras do saque (limite de crédito da conta corrente, imposto da
+     * conta de investimento) e é verificado e aplicado numa única troca atômica do saldo; o destino
+     * recebe o valor integral. Como o crédito não pode falhar, a transferência ou
+     * acontece por inteiro ou não altera nenhum saldo, sem travas e, portanto, sem risco de impasse.
+     * @param numeroOrigem O número da conta de origem.
+     * @param numeroDestino O número da conta de destino.
+     * @param valor O valor a ser transferido.
+     * @return O resultado, com os encargos cobrados na origem e o saldo atual da origem.
+     */
+    public ResultadoOperacao transferir(int numeroOrigem, int numeroDestino, double valor) {
+        long inicio = System.nanoTime();
+        long centavos = Dinheiro.deReais(valor);
+        Conta origem = indiceContas.buscar(numeroOrigem);
+        Conta destino = indiceContas.buscar(numeroDestino);
+        if (origem == null || destino == null || origem == destino) {
+            ResultadoOperacao resultado = new ResultadoOperacao(ResultadoOperacao.Operacao.TRANSFERENCIA,
+                    ResultadoOperacao.Situacao.CONTA_INVALIDA, numeroOrigem, centavos, 0,
+                    origem != null ? origem.getSaldoCentavos() : 0);
+            metricas.registrar(Metricas.Operacao.TRANSFERENCIA, inicio);
+            canalEventos.publicar(resultado);
+            return resultado;
+        }
+        if (centavos <= 0) {
+            return origem.publicar(ResultadoOperacao.Operacao.TRANSFERENCIA, ResultadoOperacao.Situacao.VALOR_INVALIDO,
+                    centavos, 0, origem.getSaldoCentavos(), inicio);
+        }
+        long debito = transferirCentavos(origem, destino, centavos);
+        if (debito == Conta.SALDO_INSUFICIENTE) {
+            return origem.publicar(ResultadoOperacao.Operacao.TRANSFERENCIA, ResultadoOperacao.Situacao.SALDO_INSUFICIENTE,
+                    centavos, 0, origem.getSaldoCentavos(), inicio);
+        }
+        return origem.publicar(ResultadoOperacao.Operacao.TRANSFERENCIA, ResultadoOperacao.Situacao.REALIZADA,
+                centavos, -debito - centavos, origem.getSaldoCentavos(), inicio);
+    }
+
+    /**
+     * Transfere um valor uma única vez por identificador de operação: se o identificador já foi usado
+     * recentemente, devolve o resultado original sem transferir de novo.
+     * @param numeroOrigem O número da conta de origem.
+     * @param numeroDestino O número da conta de destino.
+     * @param valor O valor a ser transferido.
+     * @param idOperacao O identificador da operação, escolhido pelo cliente, ou null.
+     * @return O resultado da transferência ou da sua primeira execução.
+     */
+    public ResultadoOperacao transferir(int numeroOrigem, int numeroDestino, double valor, String idOperacao) {
+        return idempotencia.executar(idOperacao,
+                new Requisicao(ResultadoOperacao.Operacao.TRANSFERENCIA, numeroOrigem, numeroDestino, Dinheiro.deReais(valor)),
+                () -> transferir(numeroOrigem, numeroDestino, valor));
+    }
+
+    /**
+     * Executa uma operação que altera saldos uma única vez por identificador de operação. Usado pelas
+     * variantes com identificador de depósito e saque, e pelas interfaces de rede e de lote.
+     * O identificador fica associado à operação, à conta e ao valor informados; reutilizá-lo com
+     * outros dados lança CacheIdempotencia.IdentificadorReutilizado.
+     * @param idOperacao O identificador da operação, escolhido pelo cliente, ou null para sempre executar.
+     * @param tipo O tipo da operação.
+     * @param numeroConta O número da conta.
+     * @param centavos O valor da operação, em centavos (zero para rendimento).
+     * @param operacao A operação.
+     * @return O resultado da operação, ou o da primeira execução com o mesmo identificador.
+     */
+    public ResultadoOperacao executarUmaVez(String idOperacao, ResultadoOperacao.Operacao tipo, int numeroConta, long centavos,
+                                            Supplier<ResultadoOperacao> operacao) {
+        return idempotencia.executar(idOperacao, new Requisicao(tipo, numeroConta, 0, centavos), operacao);
+    }
+
+    /**
+     * Requisição associada a um identificador de operação no cache de idempotência.
+     * @param destino A conta de destino, nas transferências; zero nas demais operações.
+     */
+    private record Requisicao(ResultadoOperacao.Operacao tipo, int conta, int destino, long centavos) {
+    }
+
+    /**
+     * Transfere um valor em centavos entre duas contas distintas, sem validação e sem publicar evento.
+     * As duas pernas são gravadas no log de operações em um único registro.
+     * @param origem A conta de origem.
+     * @param destino A conta de destino.
+     * @param centavos O valor a ser transferido, em centavos (positivo).
+     * @return A variação do saldo da origem (negativa), ou Conta.SALDO_INSUFICIENTE se a transferência foi recusada.
+     */
+    long transferirCentavos(Conta origem, Conta destino, long centavos) {
+        long e = versoes.entrar(); // As duas pernas na mesma época: um snapshot vê ambas ou nenhuma
+        try {
+            long instante = System.currentTimeMillis();
+            versoes.preservar(origem, e);
+            long debito = origem.debitarTransferencia(centavos, instante);
+            if (debito == Conta.SALDO_INSUFICIENTE) {
+                return debito;
+            }
+            versoes.preservar(destino, e);
+            destino.creditarTransferencia(centavos, instante);
+            LogOperacoes l = log;
+            if (l != null) {
+                l.registrarTransferencia(origem.getNumero(), debito, destino.getNumero(), centavos, instante);
+            }
+            return debito;
+        } finally {
+            versoes.sair(e);
+        }
+    }
+
+    /**
+     * Realiza um lote de transferências, como uma folha de pagamento, sem publicar eventos.
+     * As transferências são agrupadas pela conta de origem e cada grupo é debitado com uma única
+     * troca atômica do saldo, avaliando as transferências na ordem do lote; em seguida, as aceitas
+     * são agrupadas pela conta de destino e cada grupo é creditado com uma única soma atômica. Todas as transferências
+     * realizadas vão para o log de operações com uma única aquisição da trava do log.
+     * Entre as duas fases, os valores debitados ainda não aparecem nos destinos; por isso, um
+     * crédito recebido no lote não cobre débitos do mesmo lote.
+     * @param origens O número da conta de origem de cada transferência.
+     * @param destinos O número da conta de destino de cada transferência.
+     * @param valores O valor de cada transferência, em centavos.
+     * @return A situação final de cada transferência, na ordem do lote.
+     */
+    public ResultadoOperacao.Situacao[] transferirEmLote(int[] origens, int[] destinos, long[] valores) {
+        long inicioLote = System.nanoTime();
+        int n = origens.length;
+        if (destinos.length != n || valores.length != n) {
+            throw new IllegalArgumentException("Origens, destinos e valores devem ter o mesmo tamanho.");
+        }
+        ResultadoOperacao.Situacao[] situacoes = new ResultadoOperacao.Situacao[n];
+        Conta[] contasOrigem = new Conta[n];
+        Conta[] contasDestino = new Conta[n];
+        long[] chaves = new long[n]; // Número da conta nos 32 bits altos e índice da transferência nos baixos
+        int validas = 0;
+        for (int i = 0; i < n; i++) {
+            contasOrigem[i] = indiceContas.buscar(origens[i]);
+            contasDestino[i] = indiceContas.buscar(destinos[i]);
+            if (contasOrigem[i] == null || contasDestino[i] == null || contasOrigem[i] == contasDestino[i]) {
+                situacoes[i] = ResultadoOperacao.Situacao.CONTA_INVALIDA;
+            } else if (valores[i] <= 0) {
+                situacoes[i] = ResultadoOperacao.Situacao.VALOR_INVALIDO;
+            } else {
+                chaves[validas++] = ((long) origens[i] << 32) | i;
+            }
+        }
+
+        long instante = System.currentTimeMillis();
+        long[] debitos = new long[n];  // Variação na origem de cada transferência; 0 se não realizada
+        int[] ordem = ordenarPorConta(chaves, validas);
+        int aceitas = 0;
+        long e = versoes.entrar(); // O lote inteiro em uma época: um snapshot vê todas as pernas ou nenhuma
+        try {
+            for (int inicio = 0, fim; inicio < validas; inicio = fim) {
+                fim = fimDoGrupo(chaves, inicio, validas);
+                Conta origem = contasOrigem[ordem[inicio]];
+                versoes.preservar(origem, e);
+                origem.debitarTransferencias(valores, ordem, inicio, fim, debitos, instante);
+            }
+
+            for (int k = 0; k < validas; k++) {
+                int i = ordem[k];
+                if (debitos[i] != 0) {
+                    chaves[aceitas++] = ((long) destinos[i] << 32) | i;
+                    situacoes[i] = ResultadoOperacao.Situacao.REALIZADA;
+                } else {
+                    situacoes[i] = ResultadoOperacao.Situacao.SALDO_INSUFICIENTE;
+                }
+            }
+            ordem = ordenarPorConta(chaves, aceitas);
+            for (int inicio = 0, fim; inicio < aceitas; inicio = fim) {
+                fim = fimDoGrupo(chaves, inicio, aceitas);
+                Conta destino = contasDestino[ordem[inicio]];
+                versoes.preservar(destino, e);
+                destino.creditarTransferencias(valores, ordem, inicio, fim, instante);
+            }
+
+            LogOperacoes l = log;
+            if (l != null && aceitas > 0) {
+                l.registrarTransferencias(origens, debitos, destinos, valores, instante);
+            }
+        } finally {
+            versoes.sair(e);
+        }
+        metricas.registrar(Metricas.Operacao.TRANSFERENCIA_LOTE, inicioLote);
+        return situacoes;
+    }
+
+    /**
+     * Ordena as chaves (conta, índice) e extrai os índices das transferências, agrupados por conta
+     * e, dentro de cada conta, na ordem do lote.
+     */
+    private static int[] ordenarPorConta(long[] chaves, int quantidade) {
+        Arrays.sort(chaves, 0, quantidade);
+        int[] ordem = new int[quantidade];
+        for (int k = 0; k < quantidade; k++) {
+            ordem[k] = (int) chaves[k];
+        }
+        return ordem;
+    }
+
+    /**
+     * Retorna a posição logo após o grupo de chaves da mesma conta que começa em inicio.
+     */
+    private static int fimDoGrupo(long[] chaves, int inicio, int quantidade) {
+        long conta = chaves[inicio] >> 32;
+        int fim = inicio + 1;
+        while (fim < quantidade && chaves[fim] >> 32 == conta) {
+            fim++;
+        }
+        return fim;
+    }
+
+    /**
+     * Retorna a quantidade de contas registradas no sistema.
+     * @return O número de contas.
+     */
+    public int getQuantidadeContas() {
+        return indiceContas.tamanho();
+    }
+
+    /**
+     * Retorna a custódia de um tipo de conta em centavos, sem conversão para reais e sem registro em métricas.
+     * @param tipoConta A classe do tipo de conta.
+     * @return O total em custódia, em centavos.
+     */
+    long custodiaCentavos(Class<? extends Conta> tipoConta) {
+        return agregados.custodia(tipoConta);
+    }
+
+    /**
+     * Retorna a quantidade de contas de um tipo.
+     * @param tipoConta A classe do tipo de conta.
+     * @return O número de contas.
+     */
+    long quantidadeContas(Class<? extends Conta> tipoConta) {
+        return agregados.quantidadeContas(tipoConta);
+    }
+
+    /**
+     * Adiciona uma conta a um cliente cadastrado. Chamado por Cliente ao adicionar uma conta.
+     * A conta é vinculada ao titular e aos agregados antes de entrar no índice global e na lista do
+     * titular: até lá nenhuma outra thread a encontra, e o saldo incorporado por cada vínculo não
+     * pode ser somado de novo por uma movimentação concorrente.
+     * @param titular O cliente ao qual a conta está sendo adicionada.
+     * @param conta A conta a ser registrada.
+     * @return true se a conta foi registrada, false se o número já estiver em uso.
+     */
+    boolean registrarConta(Cliente titular, Conta conta) {
+        synchronized (travaRegistro) {
+            if (indiceContas.buscar(conta.getNumero()) != null) {
+                return false;
+            }
+            conta.vincularTitular(titular);
+            registrarContaSemTrava(normalizarCpf(titular.getCpf()), conta);
+            titular.anexarConta(conta);
+            return true;
+        }
+    }
+
+    /**
+     * Grava a abertura da conta no log antes de vinculá-la ao sistema, de modo que toda
+     * movimentação registrada no log seja posterior à abertura. Exige a trava de registro.
+     */
+    private void registrarContaSemTrava(String cpfTitular, Conta conta) {
+        LogOperacoes l = log;
+        if (l != null) {
+            long limite = conta instanceof ContaCorrente ? ((ContaCorrente) conta).getLimiteCreditoCentavos() : 0;
+            l.registrarConta(conta.getNumero(), Persistencia.codigoTipo(conta), cpfTitular, limite, conta.getSaldoCentavos());
+        }
+        if (historicoFrio != null) {
+            conta.getJornal().usarHistorico(historicoFrio);
+        }
+        long e = versoes.entrar();
+        try {
+            conta.marcarRegistro(e); // Snapshots de épocas anteriores não enxergam a conta
+            agregados.adicionarConta(conta, this);
+            indiceContas.inserir(conta);
+        } finally {
+            versoes.sair(e);
+        }
+    }
+
+    /**
+     * Passa a manter no heap apenas as transações recentes de cada conta, selando as mais antigas na
+     * camada fria informada. Vale para as contas já registradas e para as registradas depois; ative
+     * antes da recuperação da persistência para que o histórico reaplicado também seja derramado.
+     * @param historico A camada fria dos jornais.
+     */
+    public void ativarHistoricoFrio(HistoricoFrio historico) {
+        synchronized (travaRegistro) {
+            historicoFrio = Objects.requireNonNull(historico);
+            for (Cliente cliente : clientes) {
+                for (Conta conta : cliente.contasCadastradas()) {
+                    conta.getJornal().usarHistorico(historico);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove uma conta do índice global e dos agregados. Chamado por Cliente ao remover uma conta.
+     * @param conta A conta a ser removida.
+     */
+    void removerRegistroConta(Conta conta) {
+        synchronized (travaRegistro) {
+            indiceContas.remover(conta.getNumero());
+            agregados.removerConta(conta);
+            LogOperacoes l = log;
+            if (l != null) {
+                l.registrarRemocao(conta.getNumero());
+            }
+        }
+    }
+
+    /**
+     * Acrescenta ao log de operações uma movimentação de saldo. Chamado por Conta a cada alteração.
+     * @param conta A conta movimentada.
+     * @param tipo O tipo da transação.
+     * @param variacao A variação do saldo, em centavos.
+     * @param instante O instante da transação, em milissegundos desde a época.
+     */
+    void registrarMovimento(Conta conta, byte tipo, long variacao, long instante) {
+        LogOperacoes l = log;
+        if (l != null) {
+            l.registrarMovimento(conta.getNumero(), tipo, variacao, instante);
+        }
+    }
+
+    /**
+     * Acrescenta ao log de operações um lançamento do fechamento mensal, com a marca da etapa.
+     * @param conta A conta lançada.
+     * @param marca A marca da etapa.
+     * @param tipo O tipo da transação.
+     * @param variacao A variação do saldo, em centavos.
+     * @param instante O instante do lançamento, em milissegundos desde a época.
+     */
+    void registrarFechamento(Conta conta, long marca, byte tipo, long variacao, long instante) {
+        LogOperacoes l = log;
+        if (l != null) {
+            l.registrarFechamento(conta.getNumero(), marca, tipo, variacao, instante);
+        }
+    }
+
+    /**
+     * Aguarda até que todas as operações já gravadas no log estejam sincronizadas no disco.
+     * Sem persistência ativa, retorna imediatamente.
+     * @throws IOException Se a gravação do log falhou.
+     */
+    void sincronizarLog() throws IOException {
+        LogOperacoes l = log;
+        if (l != null) {
+            l.sincronizar();
+        }
+    }
+
+    /**
+     * Passa a gravar no log todas as operações seguintes. Chamado pela persistência ao final da recuperação.
+     * @param log O log de operações, ou null para desativar a gravação.
+     */
+    void ativarLog(LogOperacoes log) {
+        synchronized (travaRegistro) {
+            this.log = log;
+        }
+    }
+
+    /**
+     * Abre um snapshot de leitura dos saldos no momento atual, sem interromper depósitos, saques e
+     * transferências: as escritas posteriores não aparecem nele. A abertura custa o tempo de esperar
+     * as escritas em andamento, e cada escrita posterior preserva no máximo uma versão por conta.
+     * O snapshot deve ser fechado (por exemplo, com try-with-resources) para liberar as versões.
+     * @return O snapshot.
+     */
+    public SnapshotSaldos abrirSnapshot() {
+        return new SnapshotSaldos(this, versoes, versoes.abrir());
+    }
+
+    /**
+     * Registra o início de uma escrita no saldo de uma conta, preservando a versão anterior para os
+     * snapshots abertos se for a primeira escrita da conta na época. Chamado por Conta.
+     * @param conta A conta que será alterada.
+     * @return A época da escrita, a ser informada a concluirEscrita.
+     */
+    long iniciarEscrita(Conta conta) {
+        long e = versoes.entrar();
+        versoes.preservar(conta, e);
+        return e;
+    }
+
+    /**
+     * Registra o fim de uma escrita iniciada com iniciarEscrita.
+     * @param epoca A época da escrita.
+     */
+    void concluirEscrita(long epoca) {
+        versoes.sair(epoca);
+    }
+
+    /**
+     * Retorna os clientes cadastrados sem copiá-los, para percursos internos.
+     * @return Os clientes, em ordem de cadastro.
+     */
+    Iterable<Cliente> clientesCadastrados() {
+        return clientes;
+    }
+
+    /**
+     * Retorna as métricas de contagem e latência das operações deste sistema.
+     * @return As métricas.
+     */
+    public Metricas getMetricas() {
+        return metricas;
+    }
+
+    /**
+     * Retorna o cache de identificadores de operação, com as suas estatísticas.
+     * @return O cache de idempotência.
+     */
+    public CacheIdempotencia<ResultadoOperacao> getIdempotencia() {
+        return idempotencia;
+    }
+
+    /**
+     * Retorna o canal que recebe os resultados das operações realizadas nas contas do sistema.
+     * @return O canal de eventos atual.
+     */
+    public CanalEventos getCanalEventos() {
+        return canalEventos;
+    }
+
+    /**
+     * Define o canal que recebe os resultados das operações realizadas nas contas do sistema.
+     * Use CanalEventos.NULO para suprimir a saída ou um CanalEventosAssincrono para tirá-la do caminho da operação.
+     * @param canalEventos O novo canal de eventos.
+     */
+    public void setCanalEventos(CanalEventos canalEventos) {
+        this.canalEventos = Objects.requireNonNull(canalEventos);
+    }
+
+    /**
+     * Sinaliza que o saldo total de um cliente mudou. Chamado por Cliente a cada alteração de saldo.
+     * @param cliente O cliente cujo saldo mudou.
+     */
+    void registrarVariacao(Cliente cliente) {
+        agregados.marcarAlterado(cliente);
     }
 
     /**
@@ -28,13 +559,36 @@ public class SistemaBancario {
      * @return O cliente se encontrado; caso contrário, retorna null.
      */
     public Cliente buscarCliente(String cpf) {
-        String cpfLimpo = cpf.replaceAll("[^0-9]", ""); // Remove tudo que não é dígito
-        for (Cliente cliente : clientes) {
-            if (cliente.getCpf().replaceAll("[^0-9]", "").equals(cpfLimpo)) {
-                return cliente;
+        long inicio = System.nanoTime();
+        Cliente cliente = indiceCpf.get(normalizarCpf(cpf)); // Retorna null se o cliente não for encontrado
+        metricas.registrar(Metricas.Operacao.BUSCAR_CLIENTE, inicio);
+        return cliente;
+    }
+
+    /**
+     * Remove do CPF tudo que não é dígito, sem usar expressões regulares.
+     * Se o CPF já estiver normalizado, a própria string é devolvida sem nova alocação.
+     * @param cpf O CPF a ser normalizado.
+     * @return O CPF contendo apenas dígitos.
+     */
+    static String normalizarCpf(String cpf) {
+        int tamanho = cpf.length();
+        int i = 0;
+        while (i < tamanho && cpf.charAt(i) >= '0' && cpf.charAt(i) <= '9') {
+            i++;
+        }
+        if (i == tamanho) {
+            return cpf; // Já contém apenas dígitos
+        }
+        StringBuilder limpo = new StringBuilder(tamanho);
+        limpo.append(cpf, 0, i);
+        for (; i < tamanho; i++) {
+            char c = cpf.charAt(i);
+            if (c >= '0' && c <= '9') {
+                limpo.append(c);
             }
         }
-        return null; // Retorna null se o cliente não for encontrado
+        return limpo.toString();
     }
     
     /**
@@ -46,69 +600,197 @@ public class SistemaBancario {
     }
 
     /**
-     * Calcula o valor total em custódia para um tipo específico de conta em todo o sistema bancário.
-     * @param tipoConta A classe do tipo de conta a ser calculado.
-     * @return O valor total dos saldos para o tipo de conta especificado.
+     * Aplica rendimento a todas as contas rentáveis do sistema, em paralelo e sem saída no console.
+     * As taxas variáveis são sorteadas com o gerador de cada thread (ThreadLocalRandom).
+     * @return O resumo com rendimento, taxas, impostos provisionados e vazão do processamento.
      */
-    public double calcularCustodiaPorTipo(Class<? extends Conta> tipoConta) {
-        double total = 0;
+    public ResumoRendimento aplicarRendimentoEmLote() {
+        return aplicarRendimentoEmLote(null);
+    }
+
+    /**
+     * Aplica rendimento a todas as contas rentáveis do sistema, em paralelo e sem saída no console,
+     * com taxas reproduzíveis: o mesmo conjunto de contas e a mesma semente produzem os mesmos valores,
+     * independentemente de quantas threads participem.
+     * @param semente A semente do gerador, ou null para usar o gerador de cada thread.
+     * @return O resumo com rendimento, taxas, impostos provisionados e vazão do processamento.
+     */
+    public ResumoRendimento aplicarRendimentoEmLote(Long semente) {
+        long inicio = System.nanoTime();
+        List<IRentavel> rentaveis = new ArrayList<>();
         for (Cliente cliente : clientes) {
             for (Conta conta : cliente.getContas()) {
-                if (tipoConta.isInstance(conta)) {
-                    total += conta.getSaldo();
+                if (conta instanceof IRentavel) {
+                    rentaveis.add((IRentavel) conta);
                 }
             }
         }
-        return total;
-    }    
+        IRentavel[] contas = rentaveis.toArray(new IRentavel[0]);
+        SplittableRandom gerador = semente == null ? null : new SplittableRandom(semente);
+        ResumoRendimento resumo = ForkJoinPool.commonPool().invoke(new TarefaRendimento(contas, 0, contas.length, gerador));
+        resumo.setDuracaoNanos(System.nanoTime() - inicio);
+        return resumo;
+    }
 
     /**
-     * Calcula o saldo médio das contas de todos os clientes.
-     * @return O saldo médio ou zero se não houver contas.
+     * Tarefa fork-join que divide o intervalo de contas ao meio até atingir um tamanho mínimo.
+     * Com semente, cada divisão entrega ao lado esquerdo um gerador derivado por split(); como a
+     * árvore de divisões depende apenas do intervalo, os sorteios são os mesmos em qualquer execução.
      */
-    public double calcularSaldoMedio() {
-        double total = 0;
-        int count = 0;
+    private static class TarefaRendimento extends RecursiveTask<ResumoRendimento> {
+        private static final long serialVersionUID = 1L;
+        private static final int LIMIAR = 1024; // Quantidade de contas processadas sequencialmente por tarefa
+        private final IRentavel[] contas;
+        private final int inicio;
+        private final int fim;
+        private final SplittableRandom gerador; // null quando não há semente
+
+        TarefaRendimento(IRentavel[] contas, int inicio, int fim, SplittableRandom gerador) {
+            this.contas = contas;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.gerador = gerador;
+        }
+
+        @Override
+        protected ResumoRendimento compute() {
+            if (fim - inicio <= LIMIAR) {
+                RandomGenerator rng = gerador != null ? gerador : ThreadLocalRandom.current();
+                ResumoRendimento resumo = new ResumoRendimento();
+                for (int i = inicio; i < fim; i++) {
+                    contas[i].aplicarRendimento(rng, resumo);
+                }
+                return resumo;
+            }
+            int meio = (inicio + fim) >>> 1;
+            TarefaRendimento esquerda = new TarefaRendimento(contas, inicio, meio, gerador == null ? null : gerador.split());
+            TarefaRendimento direita = new TarefaRendimento(contas, meio, fim, gerador);
+            esquerda.fork();
+            ResumoRendimento resumo = direita.compute();
+            resumo.combinar(esquerda.join());
+            return resumo;
+        }
+    }
+
+    /**
+     * Projeta os saldos de todas as contas rentáveis após alguns meses, sem alterar as contas.
+     * As contas são agrupadas por tipo; os coeficientes da forma fechada são calculados uma vez por
+     * tipo, e cada grupo é projetado em uma única passagem sobre os saldos.
+     * @param meses O horizonte, em meses.
+     * @param cenario O cenário das taxas variáveis.
+     * @return A projeção de cada conta rentável.
+     */
+    public ProjecaoCarteira projetarRendimentos(int meses, ProjecaoRendimento.Cenario cenario) {
+        Map<Class<?>, List<Conta>> porTipo = new LinkedHashMap<>();
+        int total = 0;
         for (Cliente cliente : clientes) {
             for (Conta conta : cliente.getContas()) {
-                total += conta.getSaldo();
-                count++;
+                if (conta instanceof IRentavel) {
+                    porTipo.computeIfAbsent(conta.getClass(), k -> new ArrayList<>()).add(conta);
+                    total++;
+                }
+            }
+        }
+        int[] numeros = new int[total];
+        long[] saldos = new long[total];
+        long[] projetados = new long[total];
+        long[] impostos = new long[total];
+        int posicao = 0;
+        for (List<Conta> grupo : porTipo.values()) {
+            int inicio = posicao;
+            for (Conta conta : grupo) {
+                numeros[posicao] = conta.getNumero();
+                saldos[posicao++] = conta.getSaldoCentavos();
             }
+            ((IRentavel) grupo.get(0)).projecao(meses, cenario).projetar(saldos, projetados, impostos, inicio, posicao);
         }
-        return count == 0 ? 0 : total / count;
-    }    
+        return new ProjecaoCarteira(meses, cenario, numeros, saldos, projetados, impostos);
+    }
+
+    /**
+     * Calcula o valor total em custódia para um tipo específico de conta em todo o sistema bancário.
+     * Os totais são mantidos a cada alteração de saldo, então a consulta não percorre as contas.
+     * @param tipoConta A classe do tipo de conta a ser calculado.
+     * @return O valor total dos saldos para o tipo de conta especificado.
+     */
+    public double calcularCustodiaPorTipo(Class<? extends Conta> tipoConta) {
+        long inicio = System.nanoTime();
+        long custodia = agregados.custodia(tipoConta);
+        metricas.registrar(Metricas.Operacao.CUSTODIA_POR_TIPO, inicio);
+        return Dinheiro.paraReais(custodia);
+    }
+
+    /**
+     * Calcula o saldo médio das contas de todos os clientes.
+     * @return O saldo médio ou zero se não houver contas.
+     */
+    public double calcularSaldoMedio() {
+        long inicio = System.nanoTime();
+        long total = agregados.custodia(Conta.class); // Soma exata em centavos
+        long count = agregados.quantidadeContas(Conta.class);
+        metricas.registrar(Metricas.Operacao.SALDO_MEDIO, inicio);
+        return count == 0 ? 0 : Dinheiro.paraReais(Dinheiro.dividir(total, count, Dinheiro.ARREDONDAMENTO_RENDIMENTO));
+    }
 
     /**
      * Identifica o cliente com o maior saldo total em todas as suas contas.
+     * Consulta o ranking ordenado, reposicionando apenas os clientes alterados desde a última consulta.
      * @return O cliente com o maior saldo; se não houver clientes, retorna null.
      */
     public Cliente clienteComMaiorSaldo() {
-        Cliente clienteMaiorSaldo = null;
-        double maiorSaldo = Double.MIN_VALUE;
-        for (Cliente cliente : clientes) {
-            double saldo = cliente.calcularSaldoTotal();
-            if (saldo > maiorSaldo) {
-                maiorSaldo = saldo;
-                clienteMaiorSaldo = cliente;
-            }
-        }
-        return clienteMaiorSaldo;
-    }    
+        long inicio = System.nanoTime();
+        Cliente cliente = agregados.maiorSaldo();
+        metricas.registrar(Metricas.Operacao.MAIOR_SALDO, inicio);
+        return cliente;
+    }
 
     /**
      * Identifica o cliente com o menor saldo total em todas as suas contas.
+     * Consulta o ranking ordenado, reposicionando apenas os clientes alterados desde a última consulta.
      * @return O cliente com o menor saldo; se não houver clientes, retorna null.
      */
     public Cliente clienteComMenorSaldo() {
-        Cliente clienteMenorSaldo = null;
-        double menorSaldo = Double.MAX_VALUE;
-        for (Cliente cliente : clientes) {
-            double saldo = cliente.calcularSaldoTotal();
-            if (saldo < menorSaldo) {
-                menorSaldo = saldo;
-                clienteMenorSaldo = cliente;
-            }
-        }
-        return clienteMenorSaldo;
+        long inicio = System.nanoTime();
+        Cliente cliente = agregados.menorSaldo();
+        metricas.registrar(Metricas.Operacao.MENOR_SALDO, inicio);
+        return cliente;
+    }
+
+    /**
+     * Lista os clientes de maior saldo total, do maior para o menor; entre saldos iguais, os cadastrados primeiro.
+     * Consulta o ranking em O(k + log n), reposicionando apenas os clientes alterados desde a última consulta.
+     * @param k A quantidade de clientes.
+     * @return Até k clientes.
+     */
+    public List<Cliente> clientesComMaioresSaldos(int k) {
+        long inicio = System.nanoTime();
+        List<Cliente> maiores = agregados.maioresSaldos(k);
+        metricas.registrar(Metricas.Operacao.RANKING, inicio);
+        return maiores;
+    }
+
+    /**
+     * Lista os clientes de menor saldo total, do menor para o maior; entre saldos iguais, os cadastrados primeiro.
+     * Consulta o ranking em O(k + log n), reposicionando apenas os clientes alterados desde a última consulta.
+     * @param k A quantidade de clientes.
+     * @return Até k clientes.
+     */
+    public List<Cliente> clientesComMenoresSaldos(int k) {
+        long inicio = System.nanoTime();
+        List<Cliente> menores = agregados.menoresSaldos(k);
+        metricas.registrar(Metricas.Operacao.RANKING, inicio);
+        return menores;
+    }
+
+    /**
+     * Calcula um percentil do saldo total dos clientes (por exemplo, 0.5 para a mediana) em O(log n).
+     * @param p O percentil, entre 0 e 1.
+     * @return O saldo total no percentil, ou zero se não houver clientes.
+     */
+    public double percentilSaldo(double p) {
+        long inicio = System.nanoTime();
+        long saldo = agregados.percentilSaldo(p);
+        metricas.registrar(Metricas.Operacao.PERCENTIL_SALDO, inicio);
+        return Dinheiro.paraReais(saldo);
     }
 }
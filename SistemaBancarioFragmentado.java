@@ -0,0 +1,274 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+/**
+ * Sistema bancário dividido em fragmentos independentes. Cada cliente pertence ao fragmento escolhido
+ * pelo hash do CPF normalizado, e suas contas ficam no mesmo fragmento. Os agregados são calculados por
+ * dispersão e coleta: todos os fragmentos calculam os seus resultados parciais ao mesmo tempo, e o
+ * coordenador os combina.
+ *
+ * Os fragmentos podem estar neste processo (FragmentoLocal) ou em outros processos (ServidorFragmento,
+ * acessado por FragmentoRemoto). O coordenador mantém a tabela de roteamento do número de cada conta
+ * para o seu fragmento, o que também garante números de conta únicos entre fragmentos. A tabela fica
+ * apenas em memória: ao ser criado, o coordenador a reconstrói a partir das contas que cada fragmento
+ * já possui, de modo que uma nova conexão com fragmentos em uso continua encontrando as contas existentes.
+ */
+public class SistemaBancarioFragmentado implements AutoCloseable {
+    public static final long CONTA_INEXISTENTE = Long.MIN_VALUE; // Saldo devolvido para contas não encontradas
+
+    private final Fragmento[] fragmentos; // Fragmentos, na ordem usada pelo hash do CPF
+    private final ConcurrentHashMap<Integer, Integer> fragmentoDaConta = new ConcurrentHashMap<>(); // Número da conta -> índice do fragmento
+
+    /**
+     * Cria o coordenador sobre os fragmentos informados. A ordem dos fragmentos define a distribuição
+     * dos clientes e deve ser a mesma sempre que o coordenador for recriado.
+     * @param fragmentos Os fragmentos.
+     * @throws IllegalStateException Se um mesmo número de conta existir em mais de um fragmento.
+     */
+    public SistemaBancarioFragmentado(List<? extends Fragmento> fragmentos) {
+        if (fragmentos.isEmpty()) {
+            throw new IllegalArgumentException("É necessário ao menos um fragmento");
+        }
+        this.fragmentos = fragmentos.toArray(new Fragmento[0]);
+        carregarRoteamento();
+    }
+
+    /**
+     * Preenche a tabela de roteamento com as contas já existentes em cada fragmento, consultados ao mesmo tempo.
+     * @throws IllegalStateException Se um mesmo número de conta existir em mais de um fragmento.
+     */
+    private void carregarRoteamento() {
+        List<CompletableFuture<int[]>> numeros = new ArrayList<>(fragmentos.length);
+        for (Fragmento f : fragmentos) {
+            numeros.add(f.numerosContas());
+        }
+        for (int f = 0; f < fragmentos.length; f++) {
+            for (int numero : aguardar(numeros.get(f))) {
+                Integer outro = fragmentoDaConta.putIfAbsent(numero, f);
+                if (outro != null) {
+                    throw new IllegalStateException("Conta " + numero + " existe nos fragmentos " + outro + " e " + f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cria um sistema com fragmentos neste processo, cada um com a sua thread de escrita.
+     * @param quantidade A quantidade de fragmentos.
+     * @return O sistema fragmentado.
+     */
+    public static SistemaBancarioFragmentado locais(int quantidade) {
+        Fragmento[] fragmentos = new Fragmento[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            fragmentos[i] = new FragmentoLocal("fragmento-" + i);
+        }
+        return new SistemaBancarioFragmentado(List.of(fragmentos));
+    }
+
+    /**
+     * Conecta a fragmentos em execução em outros processos.
+     * @param enderecos Os endereços dos ServidorFragmento, sempre na mesma ordem.
+     * @return O sistema fragmentado, com a tabela de roteamento das contas já existentes nos fragmentos.
+     * @throws IOException Se alguma conexão falhar; as conexões já abertas são fechadas.
+     * @throws IllegalStateException Se um mesmo número de conta existir em mais de um fragmento; as conexões são fechadas.
+     */
+    public static SistemaBancarioFragmentado conectar(List<InetSocketAddress> enderecos) throws IOException {
+        Fragmento[] fragmentos = new Fragmento[enderecos.size()];
+        try {
+            for (int i = 0; i < fragmentos.length; i++) {
+                fragmentos[i] = new FragmentoRemoto(enderecos.get(i));
+            }
+            return new SistemaBancarioFragmentado(List.of(fragmentos));
+        } catch (IOException | RuntimeException e) {
+            for (Fragmento f : fragmentos) {
+                if (f != null) {
+                    f.close();
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Retorna a quantidade de fragmentos.
+     * @return O número de fragmentos.
+     */
+    public int getQuantidadeFragmentos() {
+        return fragmentos.length;
+    }
+
+    /**
+     * Calcula o fragmento de um cliente pelo hash do CPF normalizado, espalhando os bits como em IndiceContas.
+     * @param cpf O CPF, com ou sem pontuação.
+     * @return O índice do fragmento.
+     */
+    public int fragmentoDoCpf(String cpf) {
+        int h = SistemaBancario.normalizarCpf(cpf).hashCode() * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), fragmentos.length);
+    }
+
+    /**
+     * Cadastra um cliente no fragmento do seu CPF.
+     * @param nome O nome do cliente.
+     * @param cpf O CPF do cliente.
+     * @return true se o cliente foi cadastrado, false se o CPF já existia.
+     */
+    public boolean adicionarCliente(String nome, String cpf) {
+        return aguardar(fragmentos[fragmentoDoCpf(cpf)].adicionarCliente(nome, cpf));
+    }
+
+    /**
+     * Abre uma conta no fragmento do titular.
+     * @param cpf O CPF do titular.
+     * @param tipo O código do tipo de conta (Persistencia.CORRENTE, POUPANCA, RENDA_FIXA ou INVESTIMENTO).
+     * @param numero O número da conta, único entre todos os fragmentos.
+     * @param limite O limite de crédito da conta corrente, em reais.
+     * @return true se a conta foi aberta; false se o número já está em uso, o titular não existe ou o tipo é inválido.
+     */
+    public boolean abrirConta(String cpf, byte tipo, int numero, double limite) {
+        int f = fragmentoDoCpf(cpf);
+        if (fragmentoDaConta.putIfAbsent(numero, f) != null) {
+            return false; // Número de conta já utilizado em algum fragmento
+        }
+        boolean aberta = false;
+        try {
+            aberta = aguardar(fragmentos[f].abrirConta(cpf, tipo, numero, Dinheiro.deReais(limite)));
+        } finally {
+            if (!aberta) {
+                fragmentoDaConta.remove(numero, f);
+            }
+        }
+        return aberta;
+    }
+
+    /**
+     * Deposita um valor em uma conta.
+     * @param numero O número da conta.
+     * @param valor O valor, em reais.
+     * @return O resultado da operação (CONTA_INVALIDA se a conta não existir).
+     */
+    public ResultadoOperacao depositar(int numero, double valor) {
+        Integer f = fragmentoDaConta.get(numero);
+        long centavos = Dinheiro.deReais(valor);
+        return f == null
+                ? new ResultadoOperacao(ResultadoOperacao.Operacao.DEPOSITO, ResultadoOperacao.Situacao.CONTA_INVALIDA, numero, centavos, 0, 0)
+                : aguardar(fragmentos[f].depositar(numero, centavos));
+    }
+
+    /**
+     * Saca um valor de uma conta.
+     * @param numero O número da conta.
+     * @param valor O valor, em reais.
+     * @return O resultado da operação (CONTA_INVALIDA se a conta não existir).
+     */
+    public ResultadoOperacao sacar(int numero, double valor) {
+        Integer f = fragmentoDaConta.get(numero);
+        long centavos = Dinheiro.deReais(valor);
+        return f == null
+                ? new ResultadoOperacao(ResultadoOperacao.Operacao.SAQUE, ResultadoOperacao.Situacao.CONTA_INVALIDA, numero, centavos, 0, 0)
+                : aguardar(fragmentos[f].sacar(numero, centavos));
+    }
+
+    /**
+     * Consulta o saldo de uma conta.
+     * @param numero O número da conta.
+     * @return O saldo em centavos, ou CONTA_INEXISTENTE.
+     */
+    public long getSaldoCentavos(int numero) {
+        Integer f = fragmentoDaConta.get(numero);
+        return f == null ? CONTA_INEXISTENTE : aguardar(fragmentos[f].saldo(numero));
+    }
+
+    /**
+     * Solicita os agregados a todos os fragmentos de uma vez e combina os resultados parciais.
+     * @return Os agregados do banco inteiro.
+     */
+    public ParcialFragmento agregar() {
+        List<CompletableFuture<ParcialFragmento>> parciais = new ArrayList<>(fragmentos.length);
+        for (Fragmento f : fragmentos) {
+            parciais.add(f.agregados());
+        }
+        ParcialFragmento total = ParcialFragmento.vazio();
+        for (CompletableFuture<ParcialFragmento> parcial : parciais) {
+            total = total.combinar(aguardar(parcial));
+        }
+        return total;
+    }
+
+    /**
+     * Calcula o valor total em custódia para um tipo de conta em todos os fragmentos.
+     * @param tipoConta A classe do tipo de conta (Conta.class para todas).
+     * @return O total em custódia, em reais.
+     */
+    public double calcularCustodiaPorTipo(Class<? extends Conta> tipoConta) {
+        ParcialFragmento total = agregar();
+        long custodia = 0;
+        for (int t = Persistencia.CORRENTE; t < ParcialFragmento.TIPOS; t++) {
+            if (tipoConta.isAssignableFrom(ParcialFragmento.classe(t))) {
+                custodia += total.custodia()[t];
+            }
+        }
+        return Dinheiro.paraReais(custodia);
+    }
+
+    /**
+     * Calcula o saldo médio das contas de todos os fragmentos.
+     * @return O saldo médio ou zero se não houver contas.
+     */
+    public double calcularSaldoMedio() {
+        ParcialFragmento total = agregar();
+        long custodia = 0;
+        long contas = 0;
+        for (int t = Persistencia.CORRENTE; t < ParcialFragmento.TIPOS; t++) {
+            custodia += total.custodia()[t];
+            contas += total.contas()[t];
+        }
+        return contas == 0 ? 0 : Dinheiro.paraReais(Dinheiro.dividir(custodia, contas, Dinheiro.ARREDONDAMENTO_RENDIMENTO));
+    }
+
+    /**
+     * Identifica o cliente com o maior saldo total entre todos os fragmentos.
+     * Em caso de empate entre fragmentos, prevalece o de menor índice.
+     * @return O cliente e o seu saldo, ou null se não houver clientes.
+     */
+    public ParcialFragmento.ClienteSaldo clienteComMaiorSaldo() {
+        return agregar().maior();
+    }
+
+    /**
+     * Identifica o cliente com o menor saldo total entre todos os fragmentos.
+     * Em caso de empate entre fragmentos, prevalece o de menor índice.
+     * @return O cliente e o seu saldo, ou null se não houver clientes.
+     */
+    public ParcialFragmento.ClienteSaldo clienteComMenorSaldo() {
+        return agregar().menor();
+    }
+
+    /**
+     * Aguarda o resultado de um fragmento, repassando falhas de execução como exceções não verificadas.
+     */
+    private static <T> T aguardar(CompletableFuture<T> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException r) {
+                throw r;
+            }
+            throw new IllegalStateException("Falha no fragmento: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Encerra os fragmentos locais e as conexões com os remotos.
+     */
+    @Override
+    public void close() {
+        for (Fragmento f : fragmentos) {
+            f.close();
+        }
+    }
+}
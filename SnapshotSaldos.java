@@ -0,0 +1,141 @@
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+/**
+ * Leitura consistente dos saldos do sistema bancário em um único momento, obtida com
+ * SistemaBancario.abrirSnapshot. Relatórios longos (custódia, saldo médio, extratos) calculados sobre
+ * o snapshot refletem todas as operações concluídas até a abertura e nenhuma posterior, inclusive
+ * transferências, cujas duas pernas aparecem juntas, enquanto depósitos e saques continuam sem espera.
+ *
+ * Contas registradas depois da abertura não aparecem; contas removidas depois da abertura deixam de
+ * aparecer, pois a remoção não é versionada. O snapshot deve ser fechado para que as contas
+ * alteradas deixem de guardar as versões antigas.
+ */
+public final class SnapshotSaldos implements AutoCloseable {
+    private final SistemaBancario banco;     // Sistema bancário lido
+    private final ControleVersoes controle;  // Controle em que o snapshot está registrado
+    private final long epoca;                // Época do snapshot: vê as escritas até ela, inclusive
+    private final AtomicBoolean fechado = new AtomicBoolean(); // Se close já foi chamado
+
+    SnapshotSaldos(SistemaBancario banco, ControleVersoes controle, long epoca) {
+        this.banco = banco;
+        this.controle = controle;
+        this.epoca = epoca;
+    }
+
+    /**
+     * Retorna a versão do snapshot. Versões maiores são mais recentes.
+     * @return O número da versão.
+     */
+    public long getVersao() {
+        return epoca;
+    }
+
+    /**
+     * Retorna o saldo de uma conta no momento do snapshot.
+     * @param conta A conta, registrada no sistema antes da abertura.
+     * @return O saldo, em centavos.
+     */
+    public long getSaldoCentavos(Conta conta) {
+        return conta.saldoNaEpoca(visivel(conta));
+    }
+
+    /**
+     * Soma os saldos das contas de um cliente no momento do snapshot.
+     * @param cliente O cliente.
+     * @return O saldo total, em centavos.
+     */
+    public long getSaldoTotalCentavos(Cliente cliente) {
+        long e = aberto();
+        long total = 0;
+        for (Conta conta : cliente.contasCadastradas()) {
+            if (conta.registradaAte(e)) {
+                total += conta.saldoNaEpoca(e);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Calcula o valor total em custódia para um tipo de conta no momento do snapshot.
+     * Percorre todas as contas do sistema.
+     * @param tipoConta A classe do tipo de conta (Conta.class para todas).
+     * @return O total em custódia, em reais.
+     */
+    public double calcularCustodiaPorTipo(Class<? extends Conta> tipoConta) {
+        long e = aberto();
+        long custodia = 0;
+        for (Cliente cliente : banco.clientesCadastrados()) {
+            for (Conta conta : cliente.contasCadastradas()) {
+                if (tipoConta.isInstance(conta) && conta.registradaAte(e)) {
+                    custodia += conta.saldoNaEpoca(e);
+                }
+            }
+        }
+        return Dinheiro.paraReais(custodia);
+    }
+
+    /**
+     * Calcula o saldo médio das contas no momento do snapshot. Percorre todas as contas do sistema.
+     * @return O saldo médio ou zero se não houver contas.
+     */
+    public double calcularSaldoMedio() {
+        long e = aberto();
+        long custodia = 0;
+        long contas = 0;
+        for (Cliente cliente : banco.clientesCadastrados()) {
+            for (Conta conta : cliente.contasCadastradas()) {
+                if (conta.registradaAte(e)) {
+                    custodia += conta.saldoNaEpoca(e);
+                    contas++;
+                }
+            }
+        }
+        return contas == 0 ? 0 : Dinheiro.paraReais(Dinheiro.dividir(custodia, contas, Dinheiro.ARREDONDAMENTO_RENDIMENTO));
+    }
+
+    /**
+     * Consulta uma página do extrato de uma conta considerando apenas as transações anteriores ao snapshot.
+     * Os parâmetros são os de Conta.extrato; os cursores de páginas seguintes valem para o mesmo snapshot.
+     * @param conta A conta, registrada no sistema antes da abertura.
+     * @param de Início do período (inclusive), ou null para desde a primeira transação.
+     * @param ate Fim do período (exclusive), ou null para até o snapshot.
+     * @param tamanhoPagina Quantidade máxima de transações na página.
+     * @param cursor PaginaExtrato.INICIO para a primeira página, ou o cursor devolvido pela página anterior.
+     * @return A página do extrato.
+     */
+    public PaginaExtrato extrato(Conta conta, Instant de, Instant ate, int tamanhoPagina, long cursor) {
+        long e = visivel(conta);
+        int quantidade = conta.transacoesNaEpoca(e);
+        return conta.extrato(de, ate, tamanhoPagina, cursor, quantidade, quantidade == 0 ? conta.saldoNaEpoca(e) : 0);
+    }
+
+    /**
+     * Fecha o snapshot. Chamadas repetidas não têm efeito.
+     */
+    @Override
+    public void close() {
+        if (fechado.compareAndSet(false, true)) {
+            controle.fechar(epoca);
+        }
+    }
+
+    private long aberto() {
+        if (fechado.get()) {
+            throw new IllegalStateException("Snapshot fechado");
+        }
+        return epoca;
+    }
+
+    private long visivel(Conta conta) {
+        long e = aberto();
+        if (!conta.registradaAte(e)) {
+            throw new IllegalArgumentException("Conta " + conta.getNumero() + " não registrada no sistema até a versão " + e);
+        }
+        return e;
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot versão " + epoca + (fechado.get() ? " (fechado)" : "");
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+/**
+ * Verificação das invariantes de saldo sob concorrência, executada com "java VerificacaoConcorrencia".
+ *
+ * Com 1, 4, 16 e 64 threads, depósitos e saques simultâneos são feitos em uma conta corrente e em
+ * uma conta poupança do mesmo sistema bancário. Ao final, o saldo de cada conta deve ser igual à soma
+ * das operações realizadas (valor menos taxa nos depósitos, valor mais encargos nos saques), o jornal
+ * deve conter exatamente essas operações, e nenhum saldo registrado pode ultrapassar o limite de
+ * crédito (ou ficar negativo, na poupança). Encerra com código 1 se alguma verificação falhar.
+ */
+public class VerificacaoConcorrencia {
+    private static final int[] THREADS = {1, 4, 16, 64}; // Níveis de concorrência verificados
+    private static final int OPERACOES_POR_THREAD = 20_000;
+    private static final double LIMITE_CREDITO = 500; // Limite da conta corrente, em reais
+    private static final long DEPOSITO_MINIMO = 2500; // Cobre a maior taxa de depósito com saldo negativo (3% de R$500 mais R$10)
+
+    /**
+     * Executa as verificações para cada nível de concorrência.
+     * @param args Não utilizado.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        boolean falhou = false;
+        for (int threads : THREADS) {
+            SistemaBancario banco = new SistemaBancario();
+            banco.setCanalEventos(CanalEventos.NULO);
+            Cliente cliente = new Cliente("Verificação", "000.000.000-00");
+            banco.adicionarCliente(cliente);
+            Conta corrente = new ContaCorrente(1, cliente, LIMITE_CREDITO);
+            Conta poupanca = new ContaPoupanca(2, cliente);
+            cliente.adicionarConta(corrente);
+            cliente.adicionarConta(poupanca);
+            long[] esperado = new long[2]; // Variação esperada de cada conta, somada ao fim de cada thread
+            long[] realizadas = new long[2]; // Operações realizadas em cada conta
+            CountDownLatch largada = new CountDownLatch(1);
+            Thread[] executoras = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                SplittableRandom aleatorio = new SplittableRandom(threads * 1000L + t);
+                executoras[t] = new Thread(() -> {
+                    long[] variacao = new long[2];
+                    long[] quantidade = new long[2];
+                    try {
+                        largada.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < OPERACOES_POR_THREAD; i++) {
+                        int c = aleatorio.nextInt(2);
+                        Conta conta = c == 0 ? corrente : poupanca;
+                        ResultadoOperacao r;
+                        if (aleatorio.nextBoolean()) {
+                            r = conta.depositar(Dinheiro.paraReais(DEPOSITO_MINIMO + aleatorio.nextLong(2500)));
+                            if (r.realizada()) {
+                                variacao[c] += r.valor() - r.encargos();
+                            }
+                        } else {
+                            r = conta.sacar(Dinheiro.paraReais(100 + aleatorio.nextLong(8000)));
+                            if (r.realizada()) {
+                                variacao[c] -= r.valor() + r.encargos();
+                            }
+                        }
+                        if (r.realizada()) {
+                            quantidade[c]++;
+                        }
+                    }
+                    synchronized (esperado) {
+                        for (int c = 0; c < 2; c++) {
+                            esperado[c] += variacao[c];
+                            realizadas[c] += quantidade[c];
+                        }
+                    }
+                });
+                executoras[t].start();
+            }
+            largada.countDown();
+            for (Thread t : executoras) {
+                t.join();
+            }
+            falhou |= !verificar(threads, corrente, esperado[0], realizadas[0], -Dinheiro.deReais(LIMITE_CREDITO));
+            falhou |= !verificar(threads, poupanca, esperado[1], realizadas[1], 0);
+        }
+        System.out.println(falhou ? "Falhou." : "Todas as verificações passaram.");
+        if (falhou) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Confere o saldo final, o jornal e o piso do saldo de uma conta, informando o resultado.
+     * @return true se todas as invariantes valem.
+     */
+    private static boolean verificar(int threads, Conta conta, long esperado, long realizadas, long piso) {
+        JornalTransacoes jornal = conta.getJornal();
+        long somaJornal = 0;
+        long menorSaldo = Long.MAX_VALUE;
+        for (int i = 0; i < jornal.tamanho(); i++) {
+            somaJornal += jornal.getValor(i);
+            menorSaldo = Math.min(menorSaldo, jornal.getSaldo(i));
+        }
+        boolean ok = conta.getSaldoCentavos() == esperado && somaJornal == esperado
+                && jornal.tamanho() == realizadas && menorSaldo >= piso;
+        System.out.printf("%2d threads, %s: saldo %d, esperado %d, jornal %d (%d transações, %d realizadas), menor saldo %d, piso %d: %s%n",
+                threads, conta.getClass().getSimpleName(), conta.getSaldoCentavos(), esperado, somaJornal,
+                jornal.tamanho(), realizadas, menorSaldo == Long.MAX_VALUE ? 0 : menorSaldo, piso, ok ? "ok" : "FALHOU");
+        return ok;
+    }
+}
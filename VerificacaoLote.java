@@ -0,0 +1,100 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+/**
+ * Verificação da interpretação de operações no processamento em lote, executada com "java VerificacaoLote".
+ *
+ * Cada caso processa um arquivo de uma linha sobre uma conta poupança e confere se o registro foi
+ * aplicado ou rejeitado e, quando rejeitado, o motivo gravado no arquivo de rejeições. Cobre as formas
+ * aceitas da operação (letra ou nome por extenso, em maiúsculas ou minúsculas), operações que apenas
+ * começam com uma letra válida e rendimentos que trazem valor. Encerra com código 1 se algum caso falhar.
+ */
+public class VerificacaoLote {
+    private static final int CONTA = 1; // Número da conta poupança usada em todos os casos
+
+    /**
+     * Um caso verificado.
+     * @param linha Linha do arquivo de entrada.
+     * @param motivo Motivo esperado da rejeição, ou null se o registro deve ser aplicado.
+     */
+    private record Caso(String linha, String motivo) {
+    }
+
+    private static final List<Caso> CASOS = List.of(
+            new Caso("1,D,10.00", null),
+            new Caso("1,d,10.00", null),
+            new Caso("1,DEPOSITO,10.00", null),
+            new Caso("1,deposito,10.00", null),
+            new Caso("1, Saque ,1.00", null),
+            new Caso("1,S,1.00", null),
+            new Caso("1,R", null),
+            new Caso("1,rendimento", null),
+            new Caso("1,R,,id-1", null),
+            new Caso("1,DELETE,10.00", "formato inválido: operação inválida"),
+            new Caso("1,DEP,10.00", "formato inválido: operação inválida"),
+            new Caso("1,DEPOSITOS,10.00", "formato inválido: operação inválida"),
+            new Caso("1,SAQUEX,1.00", "formato inválido: operação inválida"),
+            new Caso("1,Rx", "formato inválido: operação inválida"),
+            new Caso("1,D D,10.00", "formato inválido: operação inválida"),
+            new Caso("1,X,10.00", "formato inválido: operação inválida"),
+            new Caso("1,,10.00", "formato inválido: operação inválida"),
+            new Caso("1,R,10.00", "formato inválido: rendimento não aceita valor"),
+            new Caso("1,RENDIMENTO,0", "formato inválido: rendimento não aceita valor"),
+            new Caso("1,r,.", "formato inválido: rendimento não aceita valor"));
+
+    /**
+     * Executa os casos.
+     * @param args Não utilizado.
+     */
+    public static void main(String[] args) throws IOException {
+        Path diretorio = Files.createTempDirectory("verificacao-lote");
+        boolean falhou = false;
+        try {
+            for (Caso caso : CASOS) {
+                falhou |= !verificar(diretorio, caso);
+            }
+        } finally {
+            try (var arquivos = Files.list(diretorio)) {
+                for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                    Files.delete(arquivo);
+                }
+            }
+            Files.delete(diretorio);
+        }
+        System.out.println(falhou ? "Falhou." : "Todas as verificações passaram.");
+        if (falhou) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Processa a linha do caso em um sistema novo e confere o resultado, informando-o.
+     * @return true se o registro teve o destino esperado.
+     */
+    private static boolean verificar(Path diretorio, Caso caso) throws IOException {
+        SistemaBancario banco = new SistemaBancario();
+        banco.setCanalEventos(CanalEventos.NULO);
+        Cliente cliente = new Cliente("Verificação", "000.000.000-00");
+        banco.adicionarCliente(cliente);
+        Conta conta = new ContaPoupanca(CONTA, cliente);
+        cliente.adicionarConta(conta);
+        conta.depositar(100);
+
+        Path entrada = diretorio.resolve("entrada.csv");
+        Path resultados = diretorio.resolve("resultados.csv");
+        Path rejeicoes = diretorio.resolve("rejeicoes.csv");
+        Files.writeString(entrada, caso.linha() + "\n", StandardCharsets.UTF_8);
+        ProcessadorLote.Resumo resumo = new ProcessadorLote(banco, 1).processar(entrada, resultados, rejeicoes);
+
+        List<String> rejeitadas = Files.readAllLines(rejeicoes, StandardCharsets.UTF_8);
+        String motivo = rejeitadas.size() > 1 ? rejeitadas.get(1).substring(rejeitadas.get(1).lastIndexOf(',') + 1) : null;
+        boolean ok = caso.motivo() == null
+                ? resumo.aplicados() == 1 && resumo.rejeitados() == 0
+                : resumo.aplicados() == 0 && resumo.rejeitados() == 1 && caso.motivo().equals(motivo);
+        System.out.printf("%-22s aplicados %d, rejeitados %d%s: %s%n", '"' + caso.linha() + '"',
+                resumo.aplicados(), resumo.rejeitados(), motivo != null ? " (" + motivo + ")" : "", ok ? "ok" : "FALHOU");
+        return ok;
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+/**
+ * Prepara os casos medidos pelos benchmarks JMH do pacote bancada.
+ *
+ * O JMH exige que os benchmarks estejam em um pacote nomeado, e de um pacote nomeado não é possível
+ * referenciar as classes do banco, que estão no pacote padrão. Esta classe fica no pacote padrão, monta
+ * o estado de cada caso e devolve a operação medida como uma IntFunction: o argumento é o número da
+ * invocação, usado para variar contas e clientes sem alocar, e o resultado é consumido pelo JMH.
+ * Os casos seguem os da bancada manual (Benchmark).
+ */
+public class FabricaCasos implements BiFunction<String, String, IntFunction<Object>> {
+    private static final PrintStream DESCARTE = new PrintStream(OutputStream.nullOutputStream()); // Recebe a saída dos extratos
+
+    /**
+     * Monta um caso.
+     * @param caso O nome da operação medida.
+     * @param parametro O tipo de conta ou a quantidade de clientes, conforme o caso.
+     * @return A operação medida.
+     */
+    @Override
+    public IntFunction<Object> apply(String caso, String parametro) {
+        return switch (caso) {
+            case "depositar" -> {
+                Conta conta = conta(parametro);
+                yield i -> conta.depositar(10.25);
+            }
+            case "sacar" -> {
+                Conta conta = conta(parametro);
+                conta.depositarCentavos(Long.MAX_VALUE / 4); // Cobre todos os saques das iterações
+                yield i -> conta.sacar(1.50);
+            }
+            case "registrar" -> {
+                JornalTransacoes[] jornal = {new JornalTransacoes()};
+                yield i -> {
+                    if (jornal[0].tamanho() == 1 << 20) {
+                        jornal[0] = new JornalTransacoes(); // Limita a memória retida entre iterações
+                    }
+                    jornal[0].registrar(1_700_000_000_000L + i, JornalTransacoes.DEPOSITO, 1025, i);
+                    return jornal[0];
+                };
+            }
+            case "visualizarExtratos" -> {
+                Cliente cliente = new Cliente("Extrato", "111.111.111-11");
+                for (int n = 1; n <= 2; n++) {
+                    Conta conta = new ContaPoupanca(100 + n, cliente);
+                    cliente.adicionarConta(conta);
+                    for (int i = 0; i < 100; i++) {
+                        conta.depositarCentavos(50 + 100L * i);
+                    }
+                }
+                System.setOut(DESCARTE); // Mede a montagem do texto, não o console; o JMH não usa a saída da bifurcação
+                yield i -> {
+                    cliente.visualizarExtratos();
+                    return cliente;
+                };
+            }
+            default -> consultaBanco(caso, Integer.parseInt(parametro));
+        };
+    }
+
+    /**
+     * Cria uma conta do tipo informado em um sistema bancário sem publicação de eventos.
+     */
+    private static Conta conta(String tipo) {
+        SistemaBancario banco = new SistemaBancario();
+        banco.setCanalEventos(CanalEventos.NULO);
+        Cliente cliente = new Cliente("Bancada", "000.000.000-00");
+        banco.adicionarCliente(cliente);
+        Conta conta = switch (tipo) {
+            case "ContaCorrente" -> new ContaCorrente(1, cliente, 1000);
+            case "ContaPoupanca" -> new ContaPoupanca(1, cliente);
+            case "ContaRendaFixa" -> new ContaRendaFixa(1, cliente);
+            case "ContaInvestimento" -> new ContaInvestimento(1, cliente);
+            default -> throw new IllegalArgumentException("Tipo de conta desconhecido: " + tipo);
+        };
+        cliente.adicionarConta(conta);
+        return conta;
+    }
+
+    /**
+     * Monta um banco com a quantidade de clientes informada, um de cada tipo de conta em rodízio, e devolve a consulta.
+     */
+    private static IntFunction<Object> consultaBanco(String caso, int quantidade) {
+        SistemaBancario banco = new SistemaBancario();
+        banco.setCanalEventos(CanalEventos.NULO);
+        String[] cpfs = new String[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            cpfs[i] = String.format("%03d.%03d.%03d-%02d", i / 1_000_000 % 1000, i / 1000 % 1000, i % 1000, i % 97);
+            Cliente cliente = new Cliente("Cliente " + i, cpfs[i]);
+            banco.adicionarCliente(cliente);
+            Conta conta = switch (i & 3) {
+                case 0 -> new ContaCorrente(i, cliente, 500);
+                case 1 -> new ContaPoupanca(i, cliente);
+                case 2 -> new ContaRendaFixa(i, cliente);
+                default -> new ContaInvestimento(i, cliente);
+            };
+            cliente.adicionarConta(conta);
+            conta.depositarCentavos(10_000 + 100L * (i % 1000));
+        }
+        int mascara = Integer.highestOneBit(quantidade) - 1;
+        return switch (caso) {
+            case "buscarCliente" -> i -> banco.buscarCliente(cpfs[(i * 7919) & mascara]);
+            case "buscarConta" -> i -> banco.buscarConta((i * 7919) & mascara);
+            case "calcularCustodiaPorTipo" -> i -> banco.calcularCustodiaPorTipo(ContaPoupanca.class);
+            case "calcularSaldoMedio" -> i -> banco.calcularSaldoMedio();
+            case "clienteComMaiorSaldo" -> i -> banco.clienteComMaiorSaldo();
+            case "clienteComMenorSaldo" -> i -> banco.clienteComMenorSaldo();
+            case "clientesComMaioresSaldos" -> i -> banco.clientesComMaioresSaldos(100);
+            case "clientesComMenoresSaldos" -> i -> banco.clientesComMenoresSaldos(100);
+            case "percentilSaldo" -> i -> banco.percentilSaldo(0.99);
+            case "projetarRendimentos" -> i -> banco.projetarRendimentos(12, ProjecaoRendimento.Cenario.ESPERADO);
+            default -> throw new IllegalArgumentException("Caso desconhecido: " + caso);
+        };
+    }
+}
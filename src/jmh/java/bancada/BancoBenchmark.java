@@ -0,0 +1,160 @@
+package bancada;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+/**
+ * Busca de clientes e contas e consultas agregadas do SistemaBancario, em bancos de 1 mil, 100 mil e
+ * 1 milhão de clientes. Cada benchmark monta o seu banco na preparação da bifurcação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BancoBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public String clientes; // Quantidade de clientes do banco
+
+    private int invocacao; // Número da invocação, repassado à operação
+
+    /**
+     * Estado de um benchmark: a consulta medida, montada sobre um banco próprio.
+     */
+    @State(Scope.Benchmark)
+    public abstract static class Consulta {
+        IntFunction<Object> operacao;
+
+        abstract String caso();
+
+        @Setup
+        public void preparar(BancoBenchmark bancada) {
+            operacao = Casos.preparar(caso(), bancada.clientes);
+        }
+    }
+
+    public static class BuscarCliente extends Consulta {
+        @Override
+        String caso() {
+            return "buscarCliente";
+        }
+    }
+
+    public static class BuscarConta extends Consulta {
+        @Override
+        String caso() {
+            return "buscarConta";
+        }
+    }
+
+    public static class CalcularCustodiaPorTipo extends Consulta {
+        @Override
+        String caso() {
+            return "calcularCustodiaPorTipo";
+        }
+    }
+
+    public static class CalcularSaldoMedio extends Consulta {
+        @Override
+        String caso() {
+            return "calcularSaldoMedio";
+        }
+    }
+
+    public static class ClienteComMaiorSaldo extends Consulta {
+        @Override
+        String caso() {
+            return "clienteComMaiorSaldo";
+        }
+    }
+
+    public static class ClienteComMenorSaldo extends Consulta {
+        @Override
+        String caso() {
+            return "clienteComMenorSaldo";
+        }
+    }
+
+    public static class ClientesComMaioresSaldos extends Consulta {
+        @Override
+        String caso() {
+            return "clientesComMaioresSaldos";
+        }
+    }
+
+    public static class ClientesComMenoresSaldos extends Consulta {
+        @Override
+        String caso() {
+            return "clientesComMenoresSaldos";
+        }
+    }
+
+    public static class PercentilSaldo extends Consulta {
+        @Override
+        String caso() {
+            return "percentilSaldo";
+        }
+    }
+
+    public static class ProjetarRendimentos extends Consulta {
+        @Override
+        String caso() {
+            return "projetarRendimentos";
+        }
+    }
+
+    @Benchmark
+    public Object buscarCliente(BuscarCliente c) {
+        return c.operacao.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object buscarConta(BuscarConta c) {
+        return c.operacao.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object calcularCustodiaPorTipo(CalcularCustodiaPorTipo c) {
+        return c.operacao.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object calcularSaldoMedio(CalcularSaldoMedio c) {
+        return c.operacao.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object clienteComMaiorSaldo(ClienteComMaiorSaldo c) {
+        return c.operacao.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object clienteComMenorSaldo(ClienteComMenorSaldo c) {
+        return c.operacao.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object clientesComMaioresSaldos(ClientesComMaioresSaldos c) {
+        return c.operacao.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object clientesComMenoresSaldos(ClientesComMenoresSaldos c) {
+        return c.operacao.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object percentilSaldo(PercentilSaldo c) {
+        return c.operacao.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object projetarRendimentos(ProjetarRendimentos c) {
+        return c.operacao.apply(invocacao++);
+    }
+}
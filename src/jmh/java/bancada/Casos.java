@@ -0,0 +1,36 @@
+package bancada;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+/**
+ * Acesso dos benchmarks à FabricaCasos, que está no pacote padrão junto com as classes do banco e por
+ * isso só pode ser carregada por nome. A reflexão ocorre apenas na preparação; a operação medida é
+ * chamada diretamente.
+ */
+final class Casos {
+    private static final BiFunction<String, String, IntFunction<Object>> FABRICA = carregar();
+
+    private Casos() {
+    }
+
+    /**
+     * Monta um caso.
+     * @param caso O nome da operação medida.
+     * @param parametro O tipo de conta ou a quantidade de clientes, conforme o caso.
+     * @return A operação medida, que recebe o número da invocação.
+     */
+    static IntFunction<Object> preparar(String caso, String parametro) {
+        return FABRICA.apply(caso, parametro);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiFunction<String, String, IntFunction<Object>> carregar() {
+        try {
+            return (BiFunction<String, String, IntFunction<Object>>) Class.forName("FabricaCasos").getConstructor().newInstance();
+        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException
+                 | InvocationTargetException e) {
+            throw new IllegalStateException("FabricaCasos indisponível", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package bancada;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+/**
+ * Depósitos e saques em cada tipo de conta. O saldo inicial do saque cobre todas as iterações.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ContasBenchmark {
+    @Param({"ContaCorrente", "ContaPoupanca", "ContaRendaFixa", "ContaInvestimento"})
+    public String tipo; // Tipo concreto da conta
+
+    private IntFunction<Object> depositar;
+    private IntFunction<Object> sacar;
+    private int invocacao; // Número da invocação, repassado à operação
+
+    @Setup
+    public void preparar() {
+        depositar = Casos.preparar("depositar", tipo);
+        sacar = Casos.preparar("sacar", tipo);
+    }
+
+    @Benchmark
+    public Object depositar() {
+        return depositar.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object sacar() {
+        return sacar.apply(invocacao++);
+    }
+}
@@ -0,0 +1,39 @@
+package bancada;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+/**
+ * Registro de transações no jornal (o antigo Conta.registrarTransacao) e montagem do extrato de um
+ * cliente com duas contas de 100 transações cada; o texto do extrato é descartado.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JornalBenchmark {
+    private IntFunction<Object> registrar;
+    private IntFunction<Object> visualizarExtratos;
+    private int invocacao; // Número da invocação, repassado à operação
+
+    @Setup
+    public void preparar() {
+        registrar = Casos.preparar("registrar", "");
+        visualizarExtratos = Casos.preparar("visualizarExtratos", "");
+    }
+
+    @Benchmark
+    public Object registrar() {
+        return registrar.apply(invocacao++);
+    }
+
+    @Benchmark
+    public Object visualizarExtratos() {
+        return visualizarExtratos.apply(invocacao++);
+    }
+}